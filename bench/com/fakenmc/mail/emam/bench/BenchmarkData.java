@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic, deterministic data for the benchmarks: addresses with a
+ * realistic spread of domains (a few large providers and a long tail of
+ * small domains), .emam files and texts with addresses. The same seed
+ * always gives the same data, so that results of different versions can be
+ * compared.
+ *
+ * @author Nuno Fachada
+ */
+public class BenchmarkData {
+
+	/* Large providers, which get most of the addresses. */
+	private static final String[] PROVIDERS = {"gmail.com", "hotmail.com",
+		"yahoo.com", "outlook.com", "sapo.pt", "mail.ru", "gmx.de", "aol.com"};
+	/* Parts of local parts and of the long tail of domains. */
+	private static final String[] NAMES = {"ana", "joao", "maria", "pedro",
+		"john", "mary", "peter", "paul", "rita", "nuno", "info", "sales",
+		"office", "support", "jose", "luis", "carla", "sofia", "admin", "news"};
+	private static final String[] TLDS = {"com", "pt", "org", "net", "co.uk",
+		"de", "com.br", "edu"};
+	/* Number of domains in the long tail. */
+	private static final int TAIL_DOMAINS = 5000;
+
+	/**
+	 * Generates distinct, normalized addresses. Half of them are at the large
+	 * providers, the other half are spread over the long tail of domains,
+	 * with small domains more frequent than large ones.
+	 *
+	 * @param n Number of addresses.
+	 * @param random Random number generator.
+	 * @return The addresses, in no particular order.
+	 */
+	public static String[] addresses(int n, Random random) {
+		String[] addresses = new String[n];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			sb.setLength(0);
+			sb.append(NAMES[random.nextInt(NAMES.length)]);
+			sb.append(random.nextBoolean() ? '.' : '_');
+			sb.append(NAMES[random.nextInt(NAMES.length)]);
+			/* The index makes the address unique. */
+			sb.append(Integer.toString(i, 36));
+			sb.append('@');
+			if (random.nextBoolean()) {
+				sb.append(PROVIDERS[random.nextInt(PROVIDERS.length)]);
+			} else {
+				/* Squaring gives more weight to the first domains. */
+				double r = random.nextDouble();
+				int domain = (int) (r * r * TAIL_DOMAINS);
+				sb.append(NAMES[domain % NAMES.length]).append(domain);
+				sb.append('.').append(TLDS[domain % TLDS.length]);
+			}
+			addresses[i] = sb.toString();
+		}
+		return addresses;
+	}
+
+	/**
+	 * Writes an .emam file with the given addresses in each list. Returned
+	 * addresses get a return count between 1 and 5.
+	 *
+	 * @param file File where to write.
+	 * @param mail Addresses of the mailing list.
+	 * @param removed Addresses of the removed list.
+	 * @param returned Addresses of the returned list.
+	 * @param random Random number generator, for the return counts.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void writeEmam(File file, String[] mail, String[] removed,
+			String[] returned, Random random) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), "UTF-8"), 1 << 16);
+		try {
+			writeList(bw, "[Mail]", mail, null);
+			writeList(bw, "[Removed]", removed, null);
+			writeList(bw, "[Returned]", returned, random);
+			writeList(bw, "[Extracted]", new String[0], null);
+		} finally {
+			bw.close();
+		}
+	}
+
+	/**
+	 * Generates an .emam file with a mailing list of the given size, and
+	 * removed and returned lists of a tenth and a twentieth of it. The
+	 * same size always gives the same file.
+	 *
+	 * @param size Size of the mailing list.
+	 * @return The file, which the caller must delete.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static File emamFile(int size) throws IOException {
+		Random random = new Random(size);
+		String[] addresses = addresses(size + size / 10 + size / 20, random);
+		File file = File.createTempFile("emam-bench", ".emam");
+		file.deleteOnExit();
+		writeEmam(file,
+				Arrays.copyOfRange(addresses, 0, size),
+				Arrays.copyOfRange(addresses, size, size + size / 10),
+				Arrays.copyOfRange(addresses, size + size / 10, addresses.length),
+				random);
+		return file;
+	}
+
+	/**
+	 * Generates text which is mostly the given addresses, separated as in a
+	 * list of recipients.
+	 *
+	 * @param addresses Addresses to put in the text.
+	 * @param random Random number generator.
+	 * @return The generated text.
+	 */
+	public static String denseText(String[] addresses, Random random) {
+		String[] separators = {", ", "; ", "\n", " <", "> "};
+		StringBuilder sb = new StringBuilder(addresses.length * 28);
+		for (String address : addresses) {
+			sb.append(address);
+			sb.append(separators[random.nextInt(separators.length)]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates prose with one of the given addresses every few lines.
+	 *
+	 * @param addresses Addresses to put in the text.
+	 * @param random Random number generator.
+	 * @return The generated text.
+	 */
+	public static String sparseText(String[] addresses, Random random) {
+		String[] words = {"the", "mailing", "list", "was", "updated", "yesterday",
+				"please", "contact", "support", "for", "more", "information", "at",
+				"e-mail", "address", "v2.0", "user_name", "20%", "--"};
+		StringBuilder sb = new StringBuilder(addresses.length * 260);
+		for (String address : addresses) {
+			for (int i = 0; i < 40; i++) {
+				sb.append(words[random.nextInt(words.length)]);
+				sb.append((i % 12 == 11) ? '\n' : ' ');
+			}
+			sb.append(address).append(". ");
+		}
+		return sb.toString();
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Writes a section of an .emam file, with the addresses sorted as eMaM
+	 * writes them.
+	 *
+	 * @param bw Writer.
+	 * @param header Section header.
+	 * @param addresses Addresses of the section.
+	 * @param random Random number generator for return counts, or null if
+	 * the section has no return counts.
+	 * @throws IOException If the file can't be written.
+	 */
+	private static void writeList(BufferedWriter bw, String header,
+			String[] addresses, Random random) throws IOException {
+		bw.write(header);
+		bw.newLine();
+		String[] sorted = addresses.clone();
+		Arrays.sort(sorted);
+		for (String address : sorted) {
+			bw.write(address);
+			if (random != null)
+				bw.write(" " + (1 + random.nextInt(5)));
+			bw.newLine();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench;
+
+import java.util.Random;
+
+import com.fakenmc.mail.emam.AddressCanonicalizer;
+import com.fakenmc.mail.emam.DefaultCanonicalizer;
+import com.fakenmc.mail.emam.EMaMModel;
+import com.fakenmc.mail.emam.MutualExclusionException;
+
+/**
+ * Measures the per-address cost of the canonicalization stage: normalization
+ * and canonical key of the default canonicalizer alone, and adding addresses
+ * to the mailing list of a model with the default canonicalizer and with a
+ * canonicalizer which only converts to lower case (the behaviour before
+ * canonicalization was introduced).
+ *
+ * Usage: java -cp bin com.fakenmc.mail.emam.bench.CanonicalizerBenchmark [addresses]
+ *
+ * @author Nuno Fachada
+ */
+public class CanonicalizerBenchmark {
+
+	/* Warm-up and measured iterations. */
+	private static final int WARMUP = 5;
+	private static final int ITERATIONS = 10;
+
+	/* Canonicalizer which only converts addresses to lower case. */
+	private static class LowerCaseCanonicalizer implements AddressCanonicalizer {
+		public String normalize(String address) {return address.toLowerCase();}
+		public String canonicalize(String address) {return address;}
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optionally, the number of addresses (default 200000).
+	 * @throws MutualExclusionException Never, the removed list is empty.
+	 */
+	public static void main(String[] args) throws MutualExclusionException {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		String[] addresses = generate(n, new Random(42));
+		DefaultCanonicalizer canonicalizer = new DefaultCanonicalizer();
+		System.out.println("Addresses: " + n);
+
+		/* Canonicalizer alone. */
+		long best = Long.MAX_VALUE;
+		int sink = 0;
+		for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+			long start = System.nanoTime();
+			for (String address : addresses)
+				sink += canonicalizer.canonicalize(canonicalizer.normalize(address)).length();
+			if (i >= WARMUP)
+				best = Math.min(best, System.nanoTime() - start);
+		}
+		report("normalize + canonicalize", best, n);
+
+		/* Model insertion with and without canonicalization. */
+		AddressCanonicalizer[] canonicalizers = {new LowerCaseCanonicalizer(), canonicalizer};
+		String[] names = {"addToMailList (lower case only)", "addToMailList (default)"};
+		for (int c = 0; c < canonicalizers.length; c++) {
+			best = Long.MAX_VALUE;
+			for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+				EMaMModel model = new EMaMModel(canonicalizers[c]);
+				/* The model normalizes the given array in place. */
+				String[] batch = addresses.clone();
+				long start = System.nanoTime();
+				model.addToMailList(batch);
+				if (i >= WARMUP)
+					best = Math.min(best, System.nanoTime() - start);
+				sink += model.getListSize(EMaMModel.MAIL_LIST);
+			}
+			report(names[c], best, n);
+		}
+		/* Keep the JIT from removing the loops. */
+		if (sink == 42)
+			System.out.println();
+	}
+
+	/**
+	 * Prints the time per address of the best iteration.
+	 *
+	 * @param name Name of the measurement.
+	 * @param nanos Duration of the best iteration.
+	 * @param n Number of addresses.
+	 */
+	private static void report(String name, long nanos, int n) {
+		System.out.printf("%-34s %8.1f ns/address%n", name, ((double) nanos) / n);
+	}
+
+	/**
+	 * Generates a mix of addresses: mostly plain lower case ones, some with
+	 * upper case letters, Gmail dots and plus tags, and international domain
+	 * names.
+	 *
+	 * @param n Number of addresses.
+	 * @param random Random number generator.
+	 * @return The generated addresses.
+	 */
+	private static String[] generate(int n, Random random) {
+		String[] domains = {"example.com", "mail.pt", "gmail.com", "hotmail.com",
+				"company.co.uk", "caf\u00e9.pt"};
+		String[] addresses = new String[n];
+		for (int i = 0; i < n; i++) {
+			String local = "user" + random.nextInt(n);
+			int kind = random.nextInt(10);
+			String domain = domains[random.nextInt(domains.length - 1)];
+			if (kind == 0)
+				local = "First.Last" + random.nextInt(n);
+			else if (kind == 1)
+				local = local + "+tag" + random.nextInt(10);
+			else if (kind == 2)
+				domain = domains[domains.length - 1];
+			addresses[i] = local + "@" + domain;
+		}
+		return addresses;
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fakenmc.mail.emam.AddressScanner;
+
+/**
+ * Compares the two address extraction engines, the regular expression
+ * (<code>java.util.regex</code>) and {@link AddressScanner}:
+ * <ol>
+ * <li>Differential check: both engines must find exactly the same addresses
+ * in the benchmark texts and in a large number of random texts built from
+ * address-like fragments. Any difference is printed and the program exits
+ * with status 1.</li>
+ * <li>Throughput, in MB/s of text, on dense text (many addresses), on
+ * sparse text (prose with few addresses) and on a pathological text (long
+ * runs of local part characters and labels with no valid address), which
+ * makes the regular expression backtrack.</li>
+ * </ol>
+ *
+ * Usage: java -cp bin com.fakenmc.mail.emam.bench.ExtractionBenchmark [megabytes]
+ *
+ * @author Nuno Fachada
+ */
+public class ExtractionBenchmark {
+
+	/* Warm-up and measured iterations. */
+	private static final int WARMUP = 3;
+	private static final int ITERATIONS = 5;
+	/* Number of random texts in the differential check. */
+	private static final int RANDOM_TEXTS = 200000;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optionally, the size of each text in megabytes (default 8).
+	 */
+	public static void main(String[] args) {
+		int megabytes = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+		Random random = new Random(42);
+		Pattern pattern = Pattern.compile(AddressScanner.REGEXP);
+		String[] names = {"dense", "sparse", "pathological"};
+		String[] texts = {
+				denseText(megabytes << 20, random),
+				sparseText(megabytes << 20, random),
+				pathologicalText(megabytes << 20)};
+
+		/* Differential check. */
+		for (int i = 0; i < texts.length; i++)
+			compare(pattern, texts[i], names[i]);
+		for (int i = 0; i < RANDOM_TEXTS; i++)
+			compare(pattern, randomText(random), "random text " + i);
+		System.out.println("Differential check: OK (" + texts.length + " texts, "
+				+ RANDOM_TEXTS + " random texts)");
+
+		/* Throughput. */
+		for (int i = 0; i < texts.length; i++) {
+			double size = texts[i].length() / 1048576.0;
+			long regexpBest = Long.MAX_VALUE, scannerBest = Long.MAX_VALUE;
+			for (int j = 0; j < WARMUP + ITERATIONS; j++) {
+				long start = System.nanoTime();
+				int n = countRegexp(pattern, texts[i]);
+				long regexpTime = System.nanoTime() - start;
+				start = System.nanoTime();
+				n -= countScanner(texts[i]);
+				long scannerTime = System.nanoTime() - start;
+				if (n != 0)
+					throw new IllegalStateException("Engines disagree on " + names[i]);
+				if (j >= WARMUP) {
+					regexpBest = Math.min(regexpBest, regexpTime);
+					scannerBest = Math.min(scannerBest, scannerTime);
+				}
+			}
+			System.out.printf("%-13s regexp %8.1f MB/s   scanner %8.1f MB/s   (%.1fx)%n",
+					names[i], size / (regexpBest / 1e9), size / (scannerBest / 1e9),
+					((double) regexpBest) / scannerBest);
+		}
+	}
+
+	/**
+	 * Checks that both engines find the same addresses in the given text,
+	 * exiting with status 1 if they don't.
+	 *
+	 * @param pattern The compiled regular expression.
+	 * @param text Text to check.
+	 * @param name Name of the text, for the error message.
+	 */
+	private static void compare(Pattern pattern, String text, String name) {
+		ArrayList<String> expected = new ArrayList<String>();
+		Matcher m = pattern.matcher(text);
+		while (m.find())
+			expected.add(m.start() + ":" + m.group());
+		ArrayList<String> actual = new ArrayList<String>();
+		AddressScanner scanner = new AddressScanner(text);
+		while (scanner.find())
+			actual.add(scanner.start() + ":" + scanner.group());
+		if (!expected.equals(actual)) {
+			System.out.println("Engines disagree on " + name + ":");
+			if (text.length() < 1000)
+				System.out.println("  text:    " + text);
+			System.out.println("  regexp:  " + expected);
+			System.out.println("  scanner: " + actual);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Counts the addresses found by the regular expression.
+	 *
+	 * @param pattern The compiled regular expression.
+	 * @param text Text to scan.
+	 * @return The number of addresses found.
+	 */
+	private static int countRegexp(Pattern pattern, String text) {
+		int n = 0;
+		Matcher m = pattern.matcher(text);
+		while (m.find())
+			n++;
+		return n;
+	}
+
+	/**
+	 * Counts the addresses found by the scanner.
+	 *
+	 * @param text Text to scan.
+	 * @return The number of addresses found.
+	 */
+	private static int countScanner(String text) {
+		int n = 0;
+		AddressScanner scanner = new AddressScanner(text);
+		while (scanner.find())
+			n++;
+		return n;
+	}
+
+	/**
+	 * Generates text which is mostly addresses, separated as in a list of
+	 * recipients.
+	 *
+	 * @param size Approximate size of the text in characters.
+	 * @param random Random number generator.
+	 * @return The generated text.
+	 */
+	static String denseText(int size, Random random) {
+		String[] separators = {", ", "; ", "\n", " <", "> "};
+		StringBuilder sb = new StringBuilder(size + 64);
+		while (sb.length() < size) {
+			sb.append(randomAddress(random));
+			sb.append(separators[random.nextInt(separators.length)]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates prose with an address every few lines.
+	 *
+	 * @param size Approximate size of the text in characters.
+	 * @param random Random number generator.
+	 * @return The generated text.
+	 */
+	static String sparseText(int size, Random random) {
+		String[] words = {"the", "mailing", "list", "was", "updated", "yesterday",
+				"please", "contact", "support", "for", "more", "information", "at",
+				"e-mail", "address", "v2.0", "user_name", "x@y", "20%", "--"};
+		StringBuilder sb = new StringBuilder(size + 64);
+		while (sb.length() < size) {
+			for (int i = 0; i < 40; i++) {
+				sb.append(words[random.nextInt(words.length)]);
+				sb.append((i % 12 == 11) ? '\n' : ' ');
+			}
+			sb.append(randomAddress(random)).append(". ");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates text with long runs of characters which could start an
+	 * address but never end one.
+	 *
+	 * @param size Approximate size of the text in characters.
+	 * @return The generated text.
+	 */
+	private static String pathologicalText(int size) {
+		StringBuilder sb = new StringBuilder(size + 256);
+		while (sb.length() < size) {
+			for (int i = 0; i < 60; i++)
+				sb.append("a.");
+			sb.append("@");
+			for (int i = 0; i < 60; i++)
+				sb.append("bb-");
+			sb.append(".c1 ");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates a random, usually valid, address.
+	 *
+	 * @param random Random number generator.
+	 * @return A random address.
+	 */
+	private static String randomAddress(Random random) {
+		String[] domains = {"example.com", "mail.pt", "gmail.com", "sub.company.co.uk",
+				"uni-x.edu", "museum.museum"};
+		StringBuilder sb = new StringBuilder();
+		sb.append("user").append(random.nextInt(100000));
+		if (random.nextInt(4) == 0)
+			sb.append(".name+tag");
+		sb.append('@').append(domains[random.nextInt(domains.length)]);
+		return sb.toString();
+	}
+
+	/**
+	 * Generates a short random text from fragments which are relevant to the
+	 * address grammar, to exercise corner cases.
+	 *
+	 * @param random Random number generator.
+	 * @return A random text.
+	 */
+	private static String randomText(Random random) {
+		String[] fragments = {"a", "b", "Z", "0", "9", "_", "-", ".", "+", "@", " ",
+				"ab", "com", "pt", "abcdefghijk", "x.y", "..", "@@", "a@b", "\u00e9", "1a"};
+		StringBuilder sb = new StringBuilder();
+		int n = 1 + random.nextInt(20);
+		for (int i = 0; i < n; i++)
+			sb.append(fragments[random.nextInt(fragments.length)]);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.fakenmc.mail.emam.EMaM;
+import com.fakenmc.mail.emam.EMaMModel;
+import com.fakenmc.mail.emam.EMaMModelInterface;
+import com.fakenmc.mail.emam.MutualExclusionException;
+
+/**
+ * Benchmarks of the hot paths of {@link EMaMModel}, at several list sizes:
+ * <ul>
+ * <li>openFile and saveFile, with a mailing list of the given size and
+ * removed and returned lists of a tenth and a twentieth of it.</li>
+ * <li>extractAddresses, with each engine, on dense text (only addresses)
+ * with the given number of addresses, and sparse text (prose with an
+ * address every few lines) with a tenth of it. Texts are not generated
+ * for more than a million addresses.</li>
+ * <li>addToMailList of a batch of the given size, checked against a
+ * removed list of a tenth of it, and the mutual exclusion check of a batch
+ * of a tenth of the size whose addresses are all removed.</li>
+ * <li>incrementReturned of a batch of the given size, half of it already
+ * returned, and processReturned.</li>
+ * <li>The snapshot of the mailing list given to the view after a change
+ * (getListedAddresses), and getReturnedAddresses.</li>
+ * </ul>
+ * Data is generated by {@link BenchmarkData} with a fixed seed for each
+ * size. Each iteration is set up again outside of the measured time, and
+ * each case is run a few times to warm up before being measured; the 
+ * median, minimum and maximum times are reported.
+ *
+ * Results are printed and, with -o, written as tab-separated values, one
+ * line per case and size, in a fixed order, so that the results of two
+ * versions can be compared with -compare (or diff):
+ * <pre>
+ * # eMaM model benchmark
+ * # java=... vm=... os=... cpus=... maxMemory=...
+ * benchmark	size	median_ms	min_ms	max_ms	iterations
+ * openFile	10000	12.345	12.001	13.456	5
+ * </pre>
+ *
+ * Usage: java -cp bin com.fakenmc.mail.emam.bench.ModelBenchmark
+ *   [-sizes 10000,100000,1000000] [-only prefix] [-o results.tsv]
+ * <br>
+ * or: java -cp bin com.fakenmc.mail.emam.bench.ModelBenchmark -compare
+ *   old.tsv new.tsv
+ *
+ * It must be run from the eMaM directory, which has the properties file.
+ *
+ * @author Nuno Fachada
+ */
+public class ModelBenchmark {
+
+	/* Warm-up and measured iterations. */
+	private static final int WARMUP = 2;
+	private static final int ITERATIONS = 5;
+	/* Fewer iterations above this size. */
+	private static final int LARGE = 1000000;
+	/* Texts are not generated above this number of addresses. */
+	private static final int MAX_TEXT_ADDRESSES = 1000000;
+	/* Relative difference reported by -compare. */
+	private static final double THRESHOLD = 0.10;
+	/* Header of the results. */
+	private static final String COLUMNS = "benchmark\tsize\tmedian_ms\tmin_ms\tmax_ms\titerations";
+
+	/* Results of the cases are accumulated here, so that they are used. */
+	private static volatile long sink;
+
+	/**
+	 * A benchmark case: data is prepared once for each size, each iteration
+	 * is set up and then run, and only the run is measured.
+	 */
+	private static abstract class Case {
+		private String name;
+
+		private Case(String name) {
+			this.name = name;
+		}
+
+		/* Prepares the data for a size. */
+		void prepare(int size) throws Exception {
+		}
+
+		/* Sets up an iteration. */
+		void setUp(int size) throws Exception {
+		}
+
+		/* Runs an iteration, returning some result. */
+		abstract long run() throws Exception;
+
+		/* Frees the data of a size. */
+		void release() {
+		}
+	}
+
+	/**
+	 * Runs the benchmarks, or compares two results files.
+	 *
+	 * @param args Options, see above.
+	 * @throws Exception If a case fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		if ((args.length == 3) && args[0].equals("-compare")) {
+			compare(new File(args[1]), new File(args[2]));
+			return;
+		}
+		int[] sizes = {10000, 100000, 1000000};
+		String only = "";
+		String output = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-sizes")) {
+				String[] values = args[i + 1].split(",");
+				sizes = new int[values.length];
+				for (int j = 0; j < values.length; j++)
+					sizes[j] = Integer.parseInt(values[j].trim());
+			} else if (args[i].equals("-only")) {
+				only = args[i + 1];
+			} else if (args[i].equals("-o")) {
+				output = args[i + 1];
+			} else {
+				System.err.println("Unknown option: " + args[i]);
+				System.exit(1);
+			}
+		}
+		EMaM.loadProperties();
+		ArrayList<String> results = new ArrayList<String>();
+		for (Case c : cases()) {
+			if (!c.name.startsWith(only))
+				continue;
+			for (int size : sizes) {
+				String result = measure(c, size);
+				if (result != null) {
+					System.out.println(result);
+					results.add(result);
+				}
+			}
+		}
+		if (output != null) {
+			PrintStream out = new PrintStream(new FileOutputStream(output), false, "UTF-8");
+			out.println("# eMaM model benchmark");
+			out.println("# " + environment());
+			out.println(COLUMNS);
+			for (String result : results)
+				out.println(result);
+			out.close();
+		}
+		if (sink == 42)
+			System.out.println();
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Measures a case at the given size.
+	 *
+	 * @param c The case.
+	 * @param size The size.
+	 * @return A line of results, or null if the case doesn't run at the
+	 * given size.
+	 * @throws Exception If the case fails.
+	 */
+	private static String measure(Case c, int size) throws Exception {
+		if (c.name.startsWith("extract") && (size > MAX_TEXT_ADDRESSES))
+			return null;
+		int warmup = (size > LARGE) ? 1 : WARMUP;
+		int iterations = (size > LARGE) ? 3 : ITERATIONS;
+		long[] times = new long[iterations];
+		c.prepare(size);
+		for (int i = 0; i < warmup + iterations; i++) {
+			c.setUp(size);
+			System.gc();
+			long start = System.nanoTime();
+			sink += c.run();
+			long time = System.nanoTime() - start;
+			if (i >= warmup)
+				times[i - warmup] = time;
+		}
+		c.release();
+		Arrays.sort(times);
+		return String.format("%s\t%d\t%.3f\t%.3f\t%.3f\t%d", c.name, size,
+				times[iterations / 2] / 1e6, times[0] / 1e6,
+				times[iterations - 1] / 1e6, iterations);
+	}
+
+	/**
+	 * Returns the cases, in the order they are run and reported.
+	 *
+	 * @return The cases.
+	 */
+	private static Case[] cases() {
+		return new Case[] {
+			new Case("openFile") {
+				private File file;
+				void prepare(int size) throws Exception {
+					file = BenchmarkData.emamFile(size);
+				}
+				long run() throws Exception {
+					EMaMModel model = new EMaMModel();
+					model.openFile(file);
+					return model.getListSize(EMaMModelInterface.MAIL_LIST);
+				}
+				void release() {
+					file.delete();
+				}
+			},
+			new Case("saveFile") {
+				private EMaMModel model;
+				void prepare(int size) throws Exception {
+					model = new EMaMModel();
+					model.openFile(BenchmarkData.emamFile(size));
+				}
+				long run() throws Exception {
+					model.saveFile();
+					return model.getCurrentFile().length();
+				}
+				void release() {
+					model.getCurrentFile().delete();
+					model = null;
+				}
+			},
+			new ExtractCase("extractAddresses.dense.regexp", true, "regexp"),
+			new ExtractCase("extractAddresses.dense.scanner", true, "scanner"),
+			new ExtractCase("extractAddresses.sparse.regexp", false, "regexp"),
+			new ExtractCase("extractAddresses.sparse.scanner", false, "scanner"),
+			new Case("addToMailList") {
+				private String[] addresses;
+				private String[] batch;
+				private EMaMModel model;
+				void prepare(int size) {
+					addresses = BenchmarkData.addresses(size + size / 10, new Random(size));
+				}
+				void setUp(int size) throws Exception {
+					model = new EMaMModel();
+					model.addToRemoved(Arrays.copyOfRange(addresses, size, addresses.length));
+					/* The model normalizes the given array in place. */
+					batch = Arrays.copyOf(addresses, size);
+				}
+				long run() throws Exception {
+					model.addToMailList(batch);
+					return model.getListSize(EMaMModelInterface.MAIL_LIST);
+				}
+				void release() {
+					addresses = null;
+					batch = null;
+					model = null;
+				}
+			},
+			new Case("checkExclusiveContents") {
+				private EMaMModel model;
+				private String[] addresses;
+				private String[] batch;
+				void prepare(int size) throws Exception {
+					addresses = BenchmarkData.addresses(size, new Random(size));
+					model = new EMaMModel();
+					model.addToRemoved(addresses.clone());
+				}
+				void setUp(int size) {
+					batch = Arrays.copyOf(addresses, size / 10);
+				}
+				long run() throws Exception {
+					try {
+						model.addToMailList(batch);
+					} catch (MutualExclusionException mee) {
+						return mee.getAddresses().length;
+					}
+					throw new IllegalStateException("No mutual exclusion found.");
+				}
+				void release() {
+					model = null;
+					addresses = null;
+					batch = null;
+				}
+			},
+			new Case("incrementReturned") {
+				private String[] addresses;
+				private String[] batch;
+				private EMaMModel model;
+				void prepare(int size) {
+					addresses = BenchmarkData.addresses(size, new Random(size));
+				}
+				void setUp(int size) {
+					model = new EMaMModel();
+					model.addToReturned(Arrays.copyOf(addresses, size / 2));
+					batch = addresses.clone();
+				}
+				long run() throws Exception {
+					model.incrementReturned(batch);
+					return model.getListSize(EMaMModelInterface.RETURNED_LIST);
+				}
+				void release() {
+					addresses = null;
+					batch = null;
+					model = null;
+				}
+			},
+			new Case("processReturned") {
+				private File file;
+				private EMaMModel model;
+				void prepare(int size) throws Exception {
+					file = BenchmarkData.emamFile(size);
+				}
+				void setUp(int size) throws Exception {
+					model = new EMaMModel();
+					model.openFile(file);
+				}
+				long run() throws Exception {
+					model.processReturned(3);
+					return model.getListSize(EMaMModelInterface.REMOVED_LIST);
+				}
+				void release() {
+					file.delete();
+					model = null;
+				}
+			},
+			new Case("getListedAddresses") {
+				private EMaMModel model;
+				private int changes;
+				void prepare(int size) throws Exception {
+					model = new EMaMModel();
+					model.addToMailList(BenchmarkData.addresses(size, new Random(size)));
+				}
+				void setUp(int size) throws Exception {
+					/* A change makes the model take a new snapshot. */
+					model.addToMailList(new String[] {"benchmark" + (changes++) + "@example.com"});
+				}
+				long run() throws Exception {
+					return model.getListedAddresses().length;
+				}
+				void release() {
+					model = null;
+				}
+			},
+			new Case("getReturnedAddresses") {
+				private EMaMModel model;
+				private int changes;
+				void prepare(int size) throws Exception {
+					model = new EMaMModel();
+					model.addToReturned(BenchmarkData.addresses(size, new Random(size)));
+				}
+				void setUp(int size) throws Exception {
+					model.addToReturned(new String[] {"benchmark" + (changes++) + "@example.com"});
+				}
+				long run() throws Exception {
+					return model.getReturnedAddresses()[0].length;
+				}
+				void release() {
+					model = null;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Extraction from a text of the given number of addresses, with one of
+	 * the engines.
+	 */
+	private static class ExtractCase extends Case {
+		private boolean dense;
+		private String engine;
+		private String text;
+		private EMaMModel model;
+
+		private ExtractCase(String name, boolean dense, String engine) {
+			super(name);
+			this.dense = dense;
+			this.engine = engine;
+		}
+		void prepare(int size) {
+			Random random = new Random(size);
+			String[] addresses = BenchmarkData.addresses(dense ? size : size / 10, random);
+			text = dense ? BenchmarkData.denseText(addresses, random)
+					: BenchmarkData.sparseText(addresses, random);
+			EMaM.getProperties().setProperty("extractionEngine", engine);
+		}
+		void setUp(int size) {
+			model = new EMaMModel();
+		}
+		long run() throws Exception {
+			return model.extractAddresses(text);
+		}
+		void release() {
+			text = null;
+			model = null;
+		}
+	}
+
+	/**
+	 * Describes the environment of the benchmark, for the results file.
+	 *
+	 * @return The description of the environment.
+	 */
+	private static String environment() {
+		return "java=" + System.getProperty("java.version")
+			+ " vm=" + System.getProperty("java.vm.name").replace(' ', '_')
+			+ " os=" + System.getProperty("os.name").replace(' ', '_')
+			+ " cpus=" + Runtime.getRuntime().availableProcessors()
+			+ " maxMemory=" + (Runtime.getRuntime().maxMemory() >> 20) + "M";
+	}
+
+	/**
+	 * Compares two results files, printing the ratio of the medians of
+	 * each case and size in both, and marking differences above 10%.
+	 *
+	 * @param oldFile Results of the old version.
+	 * @param newFile Results of the new version.
+	 * @throws IOException If a file can't be read.
+	 */
+	private static void compare(File oldFile, File newFile) throws IOException {
+		Map<String, Double> oldResults = readResults(oldFile);
+		Map<String, Double> newResults = readResults(newFile);
+		System.out.printf("%-40s %10s %10s %7s%n", "benchmark/size", "old ms", "new ms", "ratio");
+		for (Map.Entry<String, Double> entry : newResults.entrySet()) {
+			Double old = oldResults.get(entry.getKey());
+			if (old == null) {
+				System.out.printf("%-40s %10s %10.3f %7s%n", entry.getKey(), "-", entry.getValue(), "new");
+				continue;
+			}
+			double ratio = entry.getValue() / old;
+			String mark = (ratio > 1 + THRESHOLD) ? "  slower"
+				: (ratio < 1 - THRESHOLD) ? "  faster" : "";
+			System.out.printf("%-40s %10.3f %10.3f %7.2f%s%n", entry.getKey(), old,
+					entry.getValue(), ratio, mark);
+		}
+	}
+
+	/**
+	 * Reads the medians of a results file.
+	 *
+	 * @param file A results file.
+	 * @return The median of each case and size, by "case/size", in the
+	 * order of the file.
+	 * @throws IOException If the file can't be read.
+	 */
+	private static Map<String, Double> readResults(File file) throws IOException {
+		LinkedHashMap<String, Double> results = new LinkedHashMap<String, Double>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.startsWith("#") || line.equals(COLUMNS) || (line.length() == 0))
+					continue;
+				String[] fields = line.split("\t");
+				results.put(fields[0] + "/" + fields[1], Double.valueOf(fields[2]));
+			}
+		} finally {
+			br.close();
+		}
+		return results;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fakenmc.mail.emam.AddressPrefilter;
+import com.fakenmc.mail.emam.AddressScanner;
+
+/**
+ * Compares the ways of extracting addresses from a file: reading and
+ * decoding the file to a string, then using the regular expression or the
+ * scanner, and searching the memory-mapped file for '@' with
+ * {@link AddressPrefilter}. Corpora are a sparse one (prose with an address
+ * every few lines, most text has no '@') and a dense one (lists of
+ * addresses). The three ways must find the same addresses.
+ *
+ * Usage: java -cp bin com.fakenmc.mail.emam.bench.PrefilterBenchmark [megabytes]
+ *
+ * @author Nuno Fachada
+ */
+public class PrefilterBenchmark {
+
+	/* Warm-up and measured iterations. */
+	private static final int WARMUP = 3;
+	private static final int ITERATIONS = 5;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optionally, the size of each corpus in megabytes (default 32).
+	 * @throws IOException If the corpora can't be written or read.
+	 */
+	public static void main(String[] args) throws IOException {
+		int megabytes = (args.length > 0) ? Integer.parseInt(args[0]) : 32;
+		Random random = new Random(42);
+		String[] names = {"sparse", "dense"};
+		String[] texts = {
+				ExtractionBenchmark.sparseText(megabytes << 20, random),
+				ExtractionBenchmark.denseText(megabytes << 20, random)};
+		Pattern pattern = Pattern.compile(AddressScanner.REGEXP);
+		String[] engines = {"read + regexp", "read + scanner", "mmap + prefilter"};
+		for (int t = 0; t < texts.length; t++) {
+			File file = File.createTempFile("emam-" + names[t], ".txt");
+			file.deleteOnExit();
+			OutputStream out = new FileOutputStream(file);
+			out.write(texts[t].getBytes("UTF-8"));
+			out.close();
+			double size = file.length() / 1048576.0;
+			System.out.printf("%s corpus, %.1f MB%n", names[t], size);
+			ArrayList<String> reference = null;
+			for (int e = 0; e < engines.length; e++) {
+				long best = Long.MAX_VALUE;
+				ArrayList<String> addresses = null;
+				for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+					addresses = new ArrayList<String>();
+					long start = System.nanoTime();
+					extract(e, file, pattern, addresses);
+					if (i >= WARMUP)
+						best = Math.min(best, System.nanoTime() - start);
+				}
+				if (reference == null) {
+					reference = addresses;
+				} else if (!reference.equals(addresses)) {
+					System.out.println("  " + engines[e] + " found different addresses!");
+					System.exit(1);
+				}
+				System.out.printf("  %-18s %8.1f MB/s  (%d addresses)%n",
+						engines[e], size / (best / 1e9), addresses.size());
+			}
+		}
+	}
+
+	/**
+	 * Extracts the addresses of a file in one of the ways being compared.
+	 *
+	 * @param engine 0 for regexp, 1 for scanner, 2 for prefilter.
+	 * @param file File from where to extract addresses.
+	 * @param pattern The compiled regular expression.
+	 * @param addresses List where to add the addresses found.
+	 * @throws IOException If the file can't be read.
+	 */
+	private static void extract(int engine, File file, Pattern pattern,
+			ArrayList<String> addresses) throws IOException {
+		if (engine == 2) {
+			new AddressPrefilter().extract(file, addresses);
+			return;
+		}
+		String text = new String(Files.readAllBytes(file.toPath()), "UTF-8");
+		if (engine == 0) {
+			Matcher m = pattern.matcher(text);
+			while (m.find())
+				addresses.add(m.group());
+		} else {
+			AddressScanner scanner = new AddressScanner(text);
+			while (scanner.find())
+				addresses.add(scanner.group());
+		}
+	}
+}
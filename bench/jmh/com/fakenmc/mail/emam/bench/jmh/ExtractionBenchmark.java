@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fakenmc.mail.emam.EMaM;
+import com.fakenmc.mail.emam.EMaMModel;
+import com.fakenmc.mail.emam.bench.BenchmarkData;
+
+/**
+ * JMH benchmark of extractAddresses, with each engine, on dense text (only
+ * addresses) with the given number of addresses, and sparse text (prose
+ * with an address every few lines) with a tenth of it, as in
+ * {@link com.fakenmc.mail.emam.bench.ModelBenchmark}. Each iteration
+ * extracts into a new model.
+ *
+ * @author Nuno Fachada
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExtractionBenchmark {
+
+	/* Number of addresses of dense text. */
+	@Param({"10000", "100000", "1000000"})
+	public int size;
+
+	/* Kind of text, "dense" or "sparse". */
+	@Param({"dense", "sparse"})
+	public String text;
+
+	/* Extraction engine, "regexp" or "scanner". */
+	@Param({"regexp", "scanner"})
+	public String engine;
+
+	/* Generated text. */
+	private String input;
+	/* Model where to extract. */
+	private EMaMModel model;
+
+	/**
+	 * Generates the text and selects the engine.
+	 *
+	 * @throws Exception If the properties file can't be read.
+	 */
+	@Setup(Level.Trial)
+	public void prepare() throws Exception {
+		EMaM.loadProperties();
+		EMaM.getProperties().setProperty("extractionEngine", engine);
+		boolean dense = text.equals("dense");
+		Random random = new Random(size);
+		String[] addresses = BenchmarkData.addresses(dense ? size : size / 10, random);
+		input = dense ? BenchmarkData.denseText(addresses, random)
+				: BenchmarkData.sparseText(addresses, random);
+	}
+
+	/**
+	 * Creates an empty model.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		model = new EMaMModel();
+	}
+
+	/**
+	 * Extracts the addresses of the text.
+	 *
+	 * @return The number of addresses found.
+	 */
+	@Benchmark
+	public int extractAddresses() {
+		return model.extractAddresses(input);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fakenmc.mail.emam.EMaM;
+import com.fakenmc.mail.emam.EMaMModel;
+import com.fakenmc.mail.emam.EMaMModelInterface;
+import com.fakenmc.mail.emam.bench.BenchmarkData;
+
+/**
+ * JMH benchmarks of opening and saving .emam files, with a mailing list of
+ * the given size and removed and returned lists of a tenth and a twentieth
+ * of it, as in {@link com.fakenmc.mail.emam.bench.ModelBenchmark}.
+ *
+ * @author Nuno Fachada
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FileBenchmark {
+
+	/* Size of the mailing list. */
+	@Param({"10000", "100000", "1000000"})
+	public int size;
+
+	/* Generated file. */
+	private File file;
+	/* Model with the file open, for saving. */
+	private EMaMModel model;
+
+	/**
+	 * Generates the file and opens it.
+	 *
+	 * @throws Exception If the file can't be written or opened.
+	 */
+	@Setup(Level.Trial)
+	public void prepare() throws Exception {
+		EMaM.loadProperties();
+		file = BenchmarkData.emamFile(size);
+		model = new EMaMModel();
+		model.openFile(file);
+	}
+
+	/**
+	 * Deletes the file.
+	 */
+	@TearDown(Level.Trial)
+	public void release() {
+		file.delete();
+	}
+
+	/**
+	 * Opens the file in a new model.
+	 *
+	 * @return The size of the mailing list.
+	 * @throws Exception If the file can't be opened.
+	 */
+	@Benchmark
+	public int openFile() throws Exception {
+		EMaMModel opened = new EMaMModel();
+		opened.openFile(file);
+		return opened.getListSize(EMaMModelInterface.MAIL_LIST);
+	}
+
+	/**
+	 * Saves the open file.
+	 *
+	 * @return The length of the file.
+	 * @throws IOException If the file can't be written.
+	 */
+	@Benchmark
+	public long saveFile() throws IOException {
+		model.saveFile();
+		return model.getCurrentFile().length();
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.bench.jmh;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fakenmc.mail.emam.EMaM;
+import com.fakenmc.mail.emam.EMaMModel;
+import com.fakenmc.mail.emam.EMaMModelInterface;
+import com.fakenmc.mail.emam.MutualExclusionException;
+import com.fakenmc.mail.emam.bench.BenchmarkData;
+
+/**
+ * JMH benchmarks of the changes of the lists and of the lists given to the
+ * tables, with the same data as {@link com.fakenmc.mail.emam.bench.ModelBenchmark}:
+ * <ul>
+ * <li>addToMailList of a batch of the given size, checked against a
+ * removed list of a tenth of it.</li>
+ * <li>The mutual exclusion check of a batch of a tenth of the size whose
+ * addresses are all removed.</li>
+ * <li>incrementReturned of a batch of the given size, half of it already
+ * returned, and processReturned.</li>
+ * <li>getListedAddresses and getReturnedAddresses after a change, which
+ * makes the model take a new snapshot.</li>
+ * </ul>
+ * The changes modify their model, so each iteration runs once on a model
+ * set up again outside of the measured time.
+ *
+ * @author Nuno Fachada
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListBenchmark {
+
+	/**
+	 * A batch for the mailing list, and a model whose removed list has a
+	 * tenth as many other addresses.
+	 */
+	@State(Scope.Benchmark)
+	public static class AddState {
+		@Param({"10000", "100000", "1000000"})
+		public int size;
+		private String[] addresses;
+		private String[] batch;
+		private EMaMModel model;
+
+		@Setup(Level.Trial)
+		public void prepare() throws Exception {
+			EMaM.loadProperties();
+			addresses = BenchmarkData.addresses(size + size / 10, new Random(size));
+		}
+
+		@Setup(Level.Iteration)
+		public void setUp() throws Exception {
+			model = new EMaMModel();
+			model.addToRemoved(Arrays.copyOfRange(addresses, size, addresses.length));
+			/* The model normalizes the given array in place. */
+			batch = Arrays.copyOf(addresses, size);
+		}
+	}
+
+	/**
+	 * A batch of removed addresses, and the model which removed them.
+	 */
+	@State(Scope.Benchmark)
+	public static class ExclusionState {
+		@Param({"10000", "100000", "1000000"})
+		public int size;
+		private String[] addresses;
+		private String[] batch;
+		private EMaMModel model;
+
+		@Setup(Level.Trial)
+		public void prepare() throws Exception {
+			EMaM.loadProperties();
+			addresses = BenchmarkData.addresses(size, new Random(size));
+			model = new EMaMModel();
+			model.addToRemoved(addresses.clone());
+		}
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			batch = Arrays.copyOf(addresses, size / 10);
+		}
+	}
+
+	/**
+	 * A batch of addresses, and a model where half of them are returned.
+	 */
+	@State(Scope.Benchmark)
+	public static class ReturnedState {
+		@Param({"10000", "100000", "1000000"})
+		public int size;
+		private String[] addresses;
+		private String[] batch;
+		private EMaMModel model;
+
+		@Setup(Level.Trial)
+		public void prepare() throws Exception {
+			EMaM.loadProperties();
+			addresses = BenchmarkData.addresses(size, new Random(size));
+		}
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			model = new EMaMModel();
+			model.addToReturned(Arrays.copyOf(addresses, size / 2));
+			batch = addresses.clone();
+		}
+	}
+
+	/**
+	 * A model with a generated file open.
+	 */
+	@State(Scope.Benchmark)
+	public static class FileState {
+		@Param({"10000", "100000", "1000000"})
+		public int size;
+		private File file;
+		private EMaMModel model;
+
+		@Setup(Level.Trial)
+		public void prepare() throws Exception {
+			EMaM.loadProperties();
+			file = BenchmarkData.emamFile(size);
+		}
+
+		@Setup(Level.Iteration)
+		public void setUp() throws Exception {
+			model = new EMaMModel();
+			model.openFile(file);
+		}
+
+		@TearDown(Level.Trial)
+		public void release() {
+			file.delete();
+		}
+	}
+
+	/**
+	 * A model with addresses in the mailing and returned lists, which is
+	 * changed before each iteration.
+	 */
+	@State(Scope.Benchmark)
+	public static class SnapshotState {
+		@Param({"10000", "100000", "1000000"})
+		public int size;
+		private EMaMModel model;
+		private int changes;
+
+		@Setup(Level.Trial)
+		public void prepare() throws Exception {
+			EMaM.loadProperties();
+			String[] addresses = BenchmarkData.addresses(size, new Random(size));
+			model = new EMaMModel();
+			model.addToMailList(addresses.clone());
+			model.addToReturned(addresses);
+		}
+
+		@Setup(Level.Iteration)
+		public void setUp() throws Exception {
+			/* A change makes the model take a new snapshot. */
+			model.addToMailList(new String[] {"benchmark" + changes + "@example.com"});
+			model.addToReturned(new String[] {"benchmark" + changes + "@example.com"});
+			changes++;
+		}
+	}
+
+	/**
+	 * Adds the batch to the mailing list.
+	 *
+	 * @param state The batch and the model.
+	 * @return The size of the mailing list.
+	 * @throws MutualExclusionException If an address is removed, which
+	 * doesn't happen.
+	 */
+	@Benchmark
+	public int addToMailList(AddState state) throws MutualExclusionException {
+		state.model.addToMailList(state.batch);
+		return state.model.getListSize(EMaMModelInterface.MAIL_LIST);
+	}
+
+	/**
+	 * Tries to add removed addresses to the mailing list.
+	 *
+	 * @param state The batch and the model.
+	 * @return The number of addresses found in the removed list.
+	 */
+	@Benchmark
+	public int checkExclusiveContents(ExclusionState state) {
+		try {
+			state.model.addToMailList(state.batch);
+		} catch (MutualExclusionException mee) {
+			return mee.getAddresses().length;
+		}
+		throw new IllegalStateException("No mutual exclusion found.");
+	}
+
+	/**
+	 * Increments the return counts of the batch.
+	 *
+	 * @param state The batch and the model.
+	 * @return The size of the returned list.
+	 */
+	@Benchmark
+	public int incrementReturned(ReturnedState state) {
+		state.model.incrementReturned(state.batch);
+		return state.model.getListSize(EMaMModelInterface.RETURNED_LIST);
+	}
+
+	/**
+	 * Moves the addresses returned three times or more to the removed list.
+	 *
+	 * @param state The model.
+	 * @return The size of the removed list.
+	 */
+	@Benchmark
+	public int processReturned(FileState state) {
+		state.model.processReturned(3);
+		return state.model.getListSize(EMaMModelInterface.REMOVED_LIST);
+	}
+
+	/**
+	 * Takes the snapshot of the mailing list.
+	 *
+	 * @param state The model.
+	 * @return The snapshot.
+	 */
+	@Benchmark
+	public String[] getListedAddresses(SnapshotState state) {
+		return state.model.getListedAddresses();
+	}
+
+	/**
+	 * Takes the snapshot of the returned list.
+	 *
+	 * @param state The model.
+	 * @return The snapshot.
+	 */
+	@Benchmark
+	public Object[][] getReturnedAddresses(SnapshotState state) {
+		return state.model.getReturnedAddresses();
+	}
+}
@@ -1,2 +1,2 @@
-@cd %~dp0
+@cd %~dp0
 @javaw -cp bin com.fakenmc.mail.emam.EMaM %1
\ No newline at end of file
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam.jfr;
+
+import com.fakenmc.mail.emam.EMaMModelInterface;
+import com.fakenmc.mail.emam.ModelProbe;
+
+/**
+ * Model probe which emits a {@link ModelOperationEvent} for each operation
+ * of the model, to be seen in a flight recording (e.g. with JDK Mission
+ * Control). When the event is not enabled, e.g. when nothing is being
+ * recorded, no event is created.
+ *
+ * This class requires Java 11 or later, and is enabled by adding it to the
+ * <code>modelProbes</code> property.
+ *
+ * @author Nuno Fachada
+ */
+public class JfrModelProbe implements ModelProbe {
+
+	/* Used to check if the event is enabled, without creating one. */
+	private static final ModelOperationEvent CHECK = new ModelOperationEvent();
+
+	/**
+	 * @see ModelProbe#started(String)
+	 */
+	public Object started(String operation) {
+		if (!CHECK.isEnabled())
+			return null;
+		ModelOperationEvent event = new ModelOperationEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * @see ModelProbe#finished(Object, String, long, long, long, EMaMModelInterface)
+	 */
+	public void finished(Object context, String operation, long nanos,
+			long items, long bytes, EMaMModelInterface model) {
+		if (context == null)
+			return;
+		ModelOperationEvent event = (ModelOperationEvent) context;
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.items = items;
+			event.bytes = bytes;
+			event.mailList = model.getListSize(EMaMModelInterface.MAIL_LIST);
+			event.removedList = model.getListSize(EMaMModelInterface.REMOVED_LIST);
+			event.returnedList = model.getListSize(EMaMModelInterface.RETURNED_LIST);
+			event.extractedList = model.getListSize(EMaMModelInterface.EXTRACTED_LIST);
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+/**
+ * Canonicalization stage applied by the model to every address it receives,
+ * be it from a file, from the user or extracted from text. Each address goes
+ * through two steps:
+ * <ol>
+ * <li>{@link #normalize(String)} gives the form in which the address is
+ * stored and shown (e.g. trimmed and in lower case).</li>
+ * <li>{@link #canonicalize(String)} gives the key used to find duplicates
+ * and to check mutual exclusion between lists: two addresses with the same
+ * canonical key are considered the same mailbox, e.g.
+ * <code>john.doe+promo@gmail.com</code> and <code>johndoe@gmail.com</code>.</li>
+ * </ol>
+ *
+ * The implementation used by the model is given by the <code>canonicalizer</code>
+ * property (a class name), and defaults to {@link DefaultCanonicalizer}.
+ * Implementations must have a public no-argument constructor.
+ *
+ * @author Nuno Fachada
+ */
+public interface AddressCanonicalizer {
+
+	/**
+	 * Returns the form in which the given address is stored.
+	 *
+	 * @param address An address as given by the user, read from a file or
+	 * extracted from text.
+	 * @return The normalized address.
+	 */
+	public String normalize(String address);
+
+	/**
+	 * Returns the canonical key of the given normalized address. Addresses
+	 * with the same key are duplicates.
+	 *
+	 * @param address A normalized address (see {@link #normalize(String)}).
+	 * @return The canonical key of the given address, which may be the address
+	 * itself.
+	 */
+	public String canonicalize(String address);
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Dictionary which gives each address a number (id), so that sets of
+ * addresses can be kept as sets of numbers, e.g. in a {@link Workspace}.
+ * Addresses with the same canonical key (see {@link AddressCanonicalizer})
+ * get the same id, and each address is kept only once, no matter how many
+ * sets it is in. Ids are consecutive from 0, and an id is never reused
+ * while the dictionary exists.
+ *
+ * @author Nuno Fachada
+ */
+public class AddressDictionary {
+
+	private AddressCanonicalizer canonicalizer;
+	/* Canonical key -> id. */
+	private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	/* Id -> address, in the form it was first given. */
+	private ArrayList<String> addresses = new ArrayList<String>();
+
+	/**
+	 * Creates an empty dictionary.
+	 *
+	 * @param canonicalizer Canonicalization of the addresses.
+	 */
+	public AddressDictionary(AddressCanonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+	}
+
+	/**
+	 * Returns the id of the given address, adding the address if there's no
+	 * address with the same canonical key yet.
+	 *
+	 * @param address A normalized address.
+	 * @return The id of the address.
+	 */
+	public int add(String address) {
+		String key = canonicalizer.canonicalize(address);
+		Integer id = ids.get(key);
+		if (id == null) {
+			id = addresses.size();
+			addresses.add(address);
+			/* Share the string when the address is its own key. */
+			ids.put(key.equals(address) ? address : key, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of the given address, or of the address with the same
+	 * canonical key.
+	 *
+	 * @param address A normalized address.
+	 * @return The id of the address, or -1 if it's not in the dictionary.
+	 */
+	public int find(String address) {
+		Integer id = ids.get(canonicalizer.canonicalize(address));
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * Returns the address with the given id.
+	 *
+	 * @param id An id given by the dictionary.
+	 * @return The address, in the form it was first given.
+	 */
+	public String get(int id) {
+		return addresses.get(id);
+	}
+
+	/**
+	 * Returns the number of addresses in the dictionary.
+	 *
+	 * @return The number of addresses in the dictionary.
+	 */
+	public int size() {
+		return addresses.size();
+	}
+
+	/**
+	 * Returns the canonicalization of the addresses.
+	 *
+	 * @return The canonicalization of the addresses.
+	 */
+	public AddressCanonicalizer getCanonicalizer() {
+		return canonicalizer;
+	}
+}
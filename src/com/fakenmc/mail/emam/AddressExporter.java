@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the addresses of a model list to an output stream (a file, the
+ * standard output, a pipe...). Addresses are written one by one directly
+ * from the model, so memory usage does not depend on the size of the list.
+ * After each export, the number of addresses and bytes written, as well as
+ * the time taken, are available.
+ *
+ * @author Nuno Fachada
+ */
+public class AddressExporter {
+
+	/* Constant for plain output: addresses separated by a separator string. */
+	public static final int PLAIN = 0;
+	/* Constant for CSV output, the separator string is the field delimiter. */
+	public static final int CSV = 1;
+	/* Constant for JSON output: an array of addresses (or objects, for the
+	 * returned list). */
+	public static final int JSON = 2;
+
+	/* Size of the output buffer. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/* Output format. */
+	private int format;
+	/* Address separator (PLAIN) or field delimiter (CSV). */
+	private String separator;
+	/* Compress output with gzip? */
+	private boolean gzip;
+
+	/* Statistics of the last export. */
+	private long addressCount;
+	private long bytesWritten;
+	private long elapsedNanos;
+
+	/**
+	 * Creates a new exporter.
+	 *
+	 * @param format One of the format constants in <code>AddressExporter</code>.
+	 * @param separator Address separator for the PLAIN format, or field delimiter
+	 * for the CSV format. Ignored by the JSON format.
+	 * @param gzip If true, output is compressed with gzip.
+	 */
+	public AddressExporter(int format, String separator, boolean gzip) {
+		if ((format < PLAIN) || (format > JSON))
+			throw new IllegalArgumentException("Unknown format: " + format);
+		this.format = format;
+		this.separator = separator;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Writes all the addresses in the given model list to the given output
+	 * stream. The stream is flushed but not closed, so it can be the standard
+	 * output.
+	 *
+	 * @param model Model containing the list to export.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param out Where to write the addresses.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void export(EMaMModelInterface model, int list, OutputStream out)
+	throws IOException {
+		if (list == EMaMModelInterface.RETURNED_LIST)
+			write(null, model.getReturnedIterator(), out);
+		else
+			write(model.getAddressIterator(list), null, out);
+	}
+
+	/**
+	 * Writes the given addresses, and their return counts if given, to the 
+	 * given output stream, as {@link #export(EMaMModelInterface, int, 
+	 * OutputStream)} does. Meant for the sorted arrays of the model (e.g. 
+	 * {@link EMaMModelInterface#getListedAddresses()}), which are not 
+	 * changed once made, so a list can be exported in the background while
+	 * the model is being changed, without copying it.
+	 *
+	 * @param addresses Addresses to write.
+	 * @param counts Return counts of the addresses, or null.
+	 * @param out Where to write the addresses.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void export(String[] addresses, Object[] counts, OutputStream out)
+	throws IOException {
+		if (counts == null)
+			write(Arrays.asList(addresses).iterator(), null, out);
+		else
+			write(null, new ArrayEntries(addresses, counts), out);
+	}
+
+	/**
+	 * Returns the number of addresses written in the last export.
+	 *
+	 * @return The number of addresses written in the last export.
+	 */
+	public long getAddressCount() {
+		return addressCount;
+	}
+
+	/**
+	 * Returns the number of bytes written in the last export, before
+	 * compression.
+	 *
+	 * @return The number of bytes written in the last export.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Returns the duration of the last export in milliseconds.
+	 *
+	 * @return The duration of the last export in milliseconds.
+	 */
+	public long getElapsedTime() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * Returns the throughput of the last export in addresses per second.
+	 *
+	 * @return The throughput of the last export in addresses per second.
+	 */
+	public double getAddressThroughput() {
+		return addressCount / Math.max(elapsedNanos / 1e9, 1e-9);
+	}
+
+	/**
+	 * Returns the throughput of the last export in megabytes per second.
+	 *
+	 * @return The throughput of the last export in megabytes per second.
+	 */
+	public double getByteThroughput() {
+		return (bytesWritten / 1048576.0) / Math.max(elapsedNanos / 1e9, 1e-9);
+	}
+
+	/**
+	 * Returns a short report of the last export (addresses, size, time and
+	 * throughput).
+	 *
+	 * @return A short report of the last export.
+	 */
+	public String getReport() {
+		return String.format("%d addresses, %.2f MB in %d ms (%.0f addresses/s, %.2f MB/s)",
+				addressCount, bytesWritten / 1048576.0, getElapsedTime(),
+				getAddressThroughput(), getByteThroughput());
+	}
+
+	/**
+	 * Converts the escape sequences \n, \r, \t and \\ in the given string to
+	 * the characters they represent, so that users can specify separators such
+	 * as new lines.
+	 *
+	 * @param str String possibly containing escape sequences.
+	 * @return String with escape sequences converted.
+	 */
+	public static String unescape(String str) {
+		StringBuilder sb = new StringBuilder(str.length());
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if ((c == '\\') && (i + 1 < str.length())) {
+				char next = str.charAt(++i);
+				switch (next) {
+				case 'n': sb.append('\n'); break;
+				case 'r': sb.append('\r'); break;
+				case 't': sb.append('\t'); break;
+				case '\\': sb.append('\\'); break;
+				default: sb.append(c).append(next);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Writes addresses, with their return counts if given, to the given
+	 * output stream.
+	 *
+	 * @param addresses Addresses to write, or null if <code>returned</code>
+	 * is given.
+	 * @param returned Addresses and return counts to write, or null.
+	 * @param out Where to write the addresses.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void write(Iterator<String> addresses, 
+			Iterator<Map.Entry<String, Integer>> returned, OutputStream out)
+	throws IOException {
+		long start = System.nanoTime();
+		addressCount = 0;
+		/* Bytes are counted before compression, i.e. they are the size of
+		 * the exported text. */
+		CountingOutputStream counter;
+		GZIPOutputStream gzipStream = null;
+		if (gzip) {
+			gzipStream = new GZIPOutputStream(new NonClosingOutputStream(out), BUFFER_SIZE);
+			counter = new CountingOutputStream(gzipStream);
+		} else {
+			counter = new CountingOutputStream(new NonClosingOutputStream(out));
+		}
+		Writer writer = new BufferedWriter(
+				new OutputStreamWriter(counter, "UTF-8"), BUFFER_SIZE);
+		boolean withCount = (addresses == null);
+		/* Write header. */
+		if (format == CSV) {
+			writer.write("address");
+			if (withCount) {
+				writer.write(separator);
+				writer.write("count");
+			}
+			writer.write("\r\n");
+		} else if (format == JSON) {
+			writer.write("[");
+		}
+		/* Write addresses. */
+		if (withCount) {
+			while (returned.hasNext()) {
+				Map.Entry<String, Integer> entry = returned.next();
+				writeAddress(writer, entry.getKey(), entry.getValue());
+			}
+		} else {
+			while (addresses.hasNext()) {
+				writeAddress(writer, addresses.next(), null);
+			}
+		}
+		/* Write footer. */
+		if (format == JSON)
+			writer.write("]");
+		/* Closing the writer finishes the gzip stream and flushes the given
+		 * output stream, which itself remains open. */
+		writer.close();
+		bytesWritten = counter.getCount();
+		elapsedNanos = System.nanoTime() - start;
+	}
+
+
+	/**
+	 * Writes one address in the current format.
+	 *
+	 * @param writer Where to write the address.
+	 * @param address Address to write.
+	 * @param count Return count, or null if the list has no counts.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void writeAddress(Writer writer, String address, Integer count)
+	throws IOException {
+		switch (format) {
+		case PLAIN:
+			/* Separators only go between addresses. */
+			if (addressCount > 0)
+				writer.write(separator);
+			writer.write(address);
+			if (count != null) {
+				writer.write(' ');
+				writer.write(count.toString());
+			}
+			break;
+		case CSV:
+			writeCsvField(writer, address);
+			if (count != null) {
+				writer.write(separator);
+				writer.write(count.toString());
+			}
+			writer.write("\r\n");
+			break;
+		case JSON:
+			if (addressCount > 0)
+				writer.write(',');
+			if (count != null) {
+				writer.write("{\"address\":");
+				writeJsonString(writer, address);
+				writer.write(",\"count\":");
+				writer.write(count.toString());
+				writer.write('}');
+			} else {
+				writeJsonString(writer, address);
+			}
+			break;
+		}
+		addressCount++;
+	}
+
+	/**
+	 * Writes a CSV field, quoting it if it contains the delimiter, quotes
+	 * or line breaks.
+	 *
+	 * @param writer Where to write the field.
+	 * @param field Field to write.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void writeCsvField(Writer writer, String field) throws IOException {
+		if ((field.indexOf('"') < 0) && (field.indexOf('\n') < 0)
+				&& (field.indexOf('\r') < 0)
+				&& ((separator.length() == 0) || (field.indexOf(separator) < 0))) {
+			writer.write(field);
+		} else {
+			writer.write('"');
+			writer.write(field.replace("\"", "\"\""));
+			writer.write('"');
+		}
+	}
+
+	/**
+	 * Writes a JSON string literal.
+	 *
+	 * @param writer Where to write the string.
+	 * @param str String to write.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void writeJsonString(Writer writer, String str) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				writer.write('\\');
+				writer.write(c);
+			} else if (c < 0x20) {
+				writer.write(String.format("\\u%04x", (int) c));
+			} else {
+				writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+
+	/* Iterator over the entries of parallel arrays of addresses and return
+	 * counts, made one at a time. */
+	private static class ArrayEntries implements Iterator<Map.Entry<String, Integer>> {
+		private String[] addresses;
+		private Object[] counts;
+		private int next;
+
+		private ArrayEntries(String[] addresses, Object[] counts) {
+			this.addresses = addresses;
+			this.counts = counts;
+		}
+
+		public boolean hasNext() {
+			return next < addresses.length;
+		}
+
+		public Map.Entry<String, Integer> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Map.Entry<String, Integer> entry = new AbstractMap.SimpleImmutableEntry<String, Integer>(
+					addresses[next], (Integer) counts[next]);
+			next++;
+			return entry;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/* Output stream which counts the bytes written through it. */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+		public CountingOutputStream(OutputStream out) {super(out);}
+		public void write(int b) throws IOException {out.write(b); count++;}
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+		public long getCount() {return count;}
+	}
+
+	/* Output stream which flushes instead of closing the underlying stream. */
+	private static class NonClosingOutputStream extends FilterOutputStream {
+		public NonClosingOutputStream(OutputStream out) {super(out);}
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+		public void close() throws IOException {out.flush();}
+	}
+}
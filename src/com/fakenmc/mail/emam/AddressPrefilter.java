@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+
+/**
+ * Extracts addresses from raw bytes, such as a memory-mapped file, without
+ * decoding them to a string first. Since most text has no addresses, the
+ * bytes are first searched for '@' eight at a time (SWAR, SIMD within a
+ * register: each <code>long</code> read from the buffer is tested for '@'
+ * bytes with a few arithmetic operations). Only around each '@' found does
+ * the {@link AddressScanner} look at the text, and never further than
+ * {@link #MAX_LOCAL_PART} characters before it and {@link #MAX_DOMAIN}
+ * characters after it.
+ *
+ * The addresses found are the same the default regular expression would
+ * find in the decoded text, except for those with local parts or domains
+ * longer than these limits (which RFC 5321 doesn't allow anyway), which
+ * are skipped. Bytes are taken as ASCII, which works for any ASCII compatible
+ * encoding, including UTF-8 and ISO-8859-1.
+ *
+ * @author Nuno Fachada
+ */
+public class AddressPrefilter {
+
+	/* Maximum length of the local part of an address (RFC 5321). */
+	public static final int MAX_LOCAL_PART = 64;
+	/* Maximum length of a domain (RFC 5321). */
+	public static final int MAX_DOMAIN = 255;
+
+	/* Size of the file segments mapped at a time. */
+	private static final long SEGMENT_SIZE = 1L << 30;
+	/* Bytes mapped before and after each segment, so that addresses crossing
+	 * the segment boundaries are found. */
+	private static final int SEGMENT_MARGIN = MAX_LOCAL_PART + MAX_DOMAIN + 1;
+
+	/* SWAR constants. */
+	private static final long AT_BYTES = 0x4040404040404040L;
+	private static final long LINE_END_BYTES = 0x0a0a0a0a0a0a0a0aL;
+	private static final long LOW_7_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+	/* Statistics of the last extraction. */
+	private long bytesScanned;
+	private long candidates;
+	private long found;
+	private long elapsedNanos;
+
+	/* Positions of the addresses found, if requested. */
+	private SourcePositions positions;
+	/* Offset in the source of index 0 of the buffer being scanned. */
+	private long baseOffset;
+	/* Line at the index up to which line ends were counted. */
+	private int line;
+	private int lineCursor;
+
+	/**
+	 * Extracts the addresses between the position and the limit of the
+	 * given buffer.
+	 *
+	 * @param buffer Bytes from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @return The number of addresses found.
+	 */
+	public int extract(ByteBuffer buffer, Collection<String> addresses) {
+		return extract(buffer, addresses, null, 0, 1);
+	}
+
+	/**
+	 * Extracts the addresses between the position and the limit of the
+	 * given buffer, recording their positions.
+	 *
+	 * @param buffer Bytes from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @param offset Offset of the position of the buffer in its source.
+	 * @param line Line of the position of the buffer in its source.
+	 * @return The number of addresses found.
+	 */
+	public int extract(ByteBuffer buffer, Collection<String> addresses,
+			SourcePositions positions, long offset, int line) {
+		long start = System.nanoTime();
+		resetStatistics();
+		this.positions = positions;
+		this.baseOffset = offset;
+		this.line = line;
+		this.lineCursor = 0;
+		scan(buffer, 0, buffer.remaining(), addresses);
+		this.positions = null;
+		elapsedNanos = System.nanoTime() - start;
+		return (int) found;
+	}
+
+	/**
+	 * Extracts the addresses in the given file, which is memory-mapped (one
+	 * segment at a time for files larger than 1 GB).
+	 *
+	 * @param file File from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @return The number of addresses found.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extract(File file, Collection<String> addresses) throws IOException {
+		return extract(file, addresses, null);
+	}
+
+	/**
+	 * Extracts the addresses in the given file, recording their positions
+	 * (the file, byte offset and line). Line ends are only counted if positions are
+	 * requested.
+	 *
+	 * @param file File from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @return The number of addresses found.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extract(File file, Collection<String> addresses, SourcePositions positions)
+	throws IOException {
+		long start = System.nanoTime();
+		resetStatistics();
+		this.positions = positions;
+		this.line = 1;
+		if (positions != null)
+			positions.setSource(file.getPath());
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			for (long segment = 0; segment < size; segment += SEGMENT_SIZE) {
+				/* Map the segment with margins, but only look for '@' in
+				 * the segment itself. */
+				long mapStart = Math.max(0, segment - SEGMENT_MARGIN);
+				long mapEnd = Math.min(size, segment + SEGMENT_SIZE + SEGMENT_MARGIN);
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+				int from = (int) (segment - mapStart);
+				int to = (int) (Math.min(size, segment + SEGMENT_SIZE) - mapStart);
+				baseOffset = mapStart;
+				lineCursor = from;
+				scan(buffer, from, to, addresses);
+			}
+		} finally {
+			in.close();
+			this.positions = null;
+		}
+		elapsedNanos = System.nanoTime() - start;
+		return (int) found;
+	}
+
+	/**
+	 * Returns the index of the first '@' in the given range of the given
+	 * buffer, testing eight bytes at a time.
+	 *
+	 * @param buffer A buffer in little-endian order.
+	 * @param from Index where to start looking.
+	 * @param to Index where to stop looking.
+	 * @return The index of the first '@', or -1 if there is none.
+	 */
+	public static int indexOfAt(ByteBuffer buffer, int from, int to) {
+		return indexOf(buffer, from, to, (byte) '@', AT_BYTES);
+	}
+
+	/**
+	 * Returns the index of the first line end ('\n') in the given range of
+	 * the given buffer, testing eight bytes at a time.
+	 *
+	 * @param buffer A buffer in little-endian order.
+	 * @param from Index where to start looking.
+	 * @param to Index where to stop looking.
+	 * @return The index of the first line end, or -1 if there is none.
+	 */
+	public static int indexOfLineEnd(ByteBuffer buffer, int from, int to) {
+		return indexOf(buffer, from, to, (byte) '\n', LINE_END_BYTES);
+	}
+
+	/**
+	 * Returns the number of line ends ('\n') in the given range of the given
+	 * buffer, testing eight bytes at a time.
+	 *
+	 * @param buffer A buffer in little-endian order.
+	 * @param from Index where to start counting.
+	 * @param to Index where to stop counting.
+	 * @return The number of line ends in the range.
+	 */
+	public static int countLineEnds(ByteBuffer buffer, int from, int to) {
+		int count = 0;
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long x = buffer.getLong(i) ^ LINE_END_BYTES;
+			count += Long.bitCount(~(((x & LOW_7_BITS) + LOW_7_BITS) | x | LOW_7_BITS));
+		}
+		for (; i < to; i++)
+			if (buffer.get(i) == '\n')
+				count++;
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes scanned in the last extraction.
+	 *
+	 * @return The number of bytes scanned in the last extraction.
+	 */
+	public long getBytesScanned() {
+		return bytesScanned;
+	}
+
+	/**
+	 * Returns the number of '@' found in the last extraction, i.e. the number
+	 * of places where the scanner was run.
+	 *
+	 * @return The number of '@' found in the last extraction.
+	 */
+	public long getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Returns a short report of the last extraction (bytes, '@' found,
+	 * addresses found, time and throughput).
+	 *
+	 * @return A short report of the last extraction.
+	 */
+	public String getReport() {
+		double megabytes = bytesScanned / 1048576.0;
+		return String.format("%.2f MB, %d '@', %d addresses in %d ms (%.2f MB/s)",
+				megabytes, candidates, found, elapsedNanos / 1000000,
+				megabytes / Math.max(elapsedNanos / 1e9, 1e-9));
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Returns the index of the first occurrence of a byte in the given range
+	 * of the given buffer, testing eight bytes at a time.
+	 *
+	 * @param buffer A buffer in little-endian order.
+	 * @param from Index where to start looking.
+	 * @param to Index where to stop looking.
+	 * @param b The byte to look for.
+	 * @param bytes The byte repeated eight times.
+	 * @return The index of the first occurrence, or -1 if there is none.
+	 */
+	private static int indexOf(ByteBuffer buffer, int from, int to, byte b, long bytes) {
+		int i = from;
+		for (; i + 8 <= to; i += 8) {
+			long x = buffer.getLong(i) ^ bytes;
+			/* Sets the high bit of each byte of x which is zero, i.e. of
+			 * each occurrence, without carries between bytes. */
+			long zeros = ~(((x & LOW_7_BITS) + LOW_7_BITS) | x | LOW_7_BITS);
+			if (zeros != 0)
+				return i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+		}
+		for (; i < to; i++)
+			if (buffer.get(i) == b)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Extracts the addresses whose '@' is in the given range of the given
+	 * buffer, adding them to the given collection.
+	 *
+	 * @param buffer Bytes from where to extract addresses; the range is
+	 * relative to its position.
+	 * @param from Index where to start looking for '@'.
+	 * @param to Index where to stop looking for '@'.
+	 * @param addresses Collection where to add the addresses found.
+	 */
+	private void scan(ByteBuffer buffer, int from, int to, Collection<String> addresses) {
+		ByteBuffer bytes = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		AddressScanner scanner = new AddressScanner(bytes);
+		scanner.setLimits(MAX_LOCAL_PART, MAX_DOMAIN);
+		int at = from;
+		while ((at = indexOfAt(bytes, at, to)) >= 0) {
+			candidates++;
+			if (scanner.matchAt(at)) {
+				addresses.add(scanner.group());
+				found++;
+				if (positions != null)
+					addPosition(bytes, scanner.start());
+			}
+			at++;
+		}
+		if (positions != null) {
+			/* Count the rest of the line ends, for the next segment. */
+			line += countLineEnds(bytes, lineCursor, to);
+			lineCursor = to;
+		}
+		bytesScanned += to - from;
+	}
+
+	/**
+	 * Adds the position of an address, counting the line ends since the
+	 * previous address.
+	 *
+	 * @param bytes The buffer being scanned.
+	 * @param start Index of the address in the buffer.
+	 */
+	private void addPosition(ByteBuffer bytes, int start) {
+		/* An address which starts before the segment has no line ends
+		 * between its start and the segment. */
+		if (start > lineCursor) {
+			line += countLineEnds(bytes, lineCursor, start);
+			lineCursor = start;
+		}
+		positions.add(baseOffset + start, line);
+	}
+
+	/**
+	 * Resets the statistics before an extraction.
+	 */
+	private void resetStatistics() {
+		bytesScanned = 0;
+		candidates = 0;
+		found = 0;
+	}
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Single-pass address scanner, an alternative to extracting addresses with
+ * the <code>regexp</code> property and <code>java.util.regex</code>. It finds
+ * exactly the same addresses as {@link #REGEXP}, the default regular
+ * expression, in the same order, but without backtracking and without
+ * creating objects while scanning.
+ *
+ * The scanner looks for '@' characters. For each one, the domain is
+ * recognized going forward (a sequence of labels followed by '.', then
+ * 2 to 9 letters), and the local part going backwards (the run of local part
+ * characters before the '@', starting at its first letter or digit). Since
+ * neither the local part nor the labels can contain '@' or '.' in the wrong
+ * places, each character is looked at a small, bounded number of times.
+ *
+ * Usage is similar to <code>java.util.regex.Matcher</code>:
+ * <pre>
+ * AddressScanner scanner = new AddressScanner(text);
+ * while (scanner.find())
+ *     System.out.println(scanner.group());
+ * </pre>
+ *
+ * @author Nuno Fachada
+ */
+public class AddressScanner {
+
+	/* Regular expression recognized by the scanner, i.e. the default
+	 * regexp property. */
+	public static final String REGEXP =
+		"[0-9a-zA-Z][\\-\\.\\+\\w]*[0-9a-zA-Z]\\@([0-9a-zA-Z][\\-\\w]*[0-9a-zA-Z]\\.)+[a-zA-Z]{2,9}";
+
+	/* Character classes, as bit flags. */
+	/* [0-9a-zA-Z] */
+	private static final byte ALNUM = 1;
+	/* [a-zA-Z] */
+	private static final byte LETTER = 2;
+	/* [\-\.\+\w], characters of the local part. */
+	private static final byte LOCAL = 4;
+	/* [\-\w], characters of the domain labels. */
+	private static final byte LABEL = 8;
+	/* Maximum length of the top level domain. */
+	private static final int MAX_TLD = 9;
+
+	/* Classes of the ASCII characters, other characters have none. */
+	private static final byte[] CLASSES = new byte[128];
+
+	static {
+		for (char c = '0'; c <= '9'; c++)
+			CLASSES[c] = ALNUM | LOCAL | LABEL;
+		for (char c = 'a'; c <= 'z'; c++) {
+			CLASSES[c] = ALNUM | LETTER | LOCAL | LABEL;
+			CLASSES[Character.toUpperCase(c)] = ALNUM | LETTER | LOCAL | LABEL;
+		}
+		CLASSES['_'] = LOCAL | LABEL;
+		CLASSES['-'] = LOCAL | LABEL;
+		CLASSES['.'] = LOCAL;
+		CLASSES['+'] = LOCAL;
+	}
+
+	/* Text being scanned. */
+	private CharSequence text;
+	/* Where the next search starts. */
+	private int position;
+	/* Last match. */
+	private int start;
+	private int end;
+	/* Maximum lengths of the local part and of the domain. */
+	private int maxLocalPart = Integer.MAX_VALUE;
+	private int maxDomain = Integer.MAX_VALUE;
+
+	/**
+	 * Creates a scanner for the given text.
+	 *
+	 * @param text Text from where to extract addresses.
+	 */
+	public AddressScanner(CharSequence text) {
+		reset(text);
+	}
+
+	/**
+	 * Creates a scanner for the given bytes, which are taken as ASCII (or
+	 * any ASCII compatible encoding, such as ISO-8859-1 or UTF-8; non-ASCII
+	 * bytes never belong to addresses).
+	 *
+	 * @param bytes Bytes from where to extract addresses.
+	 * @param offset Index of the first byte to scan.
+	 * @param length Number of bytes to scan.
+	 */
+	public AddressScanner(byte[] bytes, int offset, int length) {
+		this(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Creates a scanner for the bytes between the position and the limit of 
+	 * the given buffer, which may be a memory-mapped file, taken as ASCII
+	 * (see {@link #AddressScanner(byte[], int, int)}). Indexes are relative
+	 * to the buffer's position.
+	 *
+	 * @param buffer Bytes from where to extract addresses.
+	 */
+	public AddressScanner(ByteBuffer buffer) {
+		reset(new ByteSequence(buffer.slice()));
+	}
+
+	/**
+	 * Resets the scanner to scan the given text from the beginning.
+	 *
+	 * @param text Text from where to extract addresses.
+	 */
+	public void reset(CharSequence text) {
+		this.text = text;
+		position = 0;
+		start = -1;
+		end = -1;
+	}
+
+	/**
+	 * Finds the next address in the text.
+	 *
+	 * @return True if an address was found, false if there are no more
+	 * addresses.
+	 */
+	public boolean find() {
+		int length = text.length();
+		for (int at = position; at < length; at++) {
+			if ((text.charAt(at) == '@') && matchAt(at))
+				return true;
+		}
+		position = length;
+		start = -1;
+		end = -1;
+		return false;
+	}
+
+	/**
+	 * Tries to match an address around the '@' at the given index, which
+	 * must not be before the end of the previous address found. This is the
+	 * step which {@link #find()} performs for each '@', for callers which
+	 * find the '@' characters by other means. If an address is found, the
+	 * next search starts after it.
+	 *
+	 * @param at Index of an '@' in the text.
+	 * @return True if there is an address around the given '@', false
+	 * otherwise.
+	 */
+	public boolean matchAt(int at) {
+		/* Matches can't start before the end of the previous one. */
+		int bound = position;
+		/* Domain part. */
+		int domainEnd = scanDomain(at + 1,
+				(int) Math.min(text.length(), (long) at + 1 + maxDomain));
+		if (domainEnd < 0)
+			return false;
+		/* Local part: the run of local part characters before the '@',
+		 * from its first letter or digit, ending in a letter or digit. */
+		if ((at - 1 < bound) || !is(text.charAt(at - 1), ALNUM))
+			return false;
+		int limit = (int) Math.max(bound, (long) at - maxLocalPart);
+		int localStart = at - 1;
+		while ((localStart > limit) && is(text.charAt(localStart - 1), LOCAL))
+			localStart--;
+		if (localStart == limit) {
+			/* The run may go on before the limit: the local part is too 
+			 * long if there is a letter or digit in the rest of the run. */
+			for (int i = limit - 1; (i >= bound) && is(text.charAt(i), LOCAL); i--)
+				if (is(text.charAt(i), ALNUM))
+					return false;
+		}
+		while ((localStart < at - 1) && !is(text.charAt(localStart), ALNUM))
+			localStart++;
+		if (at - localStart < 2)
+			return false;
+		start = localStart;
+		end = domainEnd;
+		position = domainEnd;
+		return true;
+	}
+
+	/**
+	 * Limits the length of the addresses found. Addresses with longer local
+	 * parts or domains are not found at all (rather than cut), so the scanner 
+	 * never looks further than these limits around an '@'. By default there 
+	 * are no limits, as in the regular expression.
+	 *
+	 * @param maxLocalPart Maximum length of the local part.
+	 * @param maxDomain Maximum length of the domain.
+	 */
+	public void setLimits(int maxLocalPart, int maxDomain) {
+		this.maxLocalPart = maxLocalPart;
+		this.maxDomain = maxDomain;
+	}
+
+	/**
+	 * Returns the index of the first character of the last address found.
+	 *
+	 * @return The index of the first character of the last address found.
+	 */
+	public int start() {
+		if (start < 0)
+			throw new IllegalStateException("No address found");
+		return start;
+	}
+
+	/**
+	 * Returns the index after the last character of the last address found.
+	 *
+	 * @return The index after the last character of the last address found.
+	 */
+	public int end() {
+		if (end < 0)
+			throw new IllegalStateException("No address found");
+		return end;
+	}
+
+	/**
+	 * Returns the last address found.
+	 *
+	 * @return The last address found.
+	 */
+	public String group() {
+		if (text instanceof ByteSequence)
+			return ((ByteSequence) text).substring(start(), end());
+		return text.subSequence(start(), end()).toString();
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Recognizes the domain part of an address, one or more labels followed
+	 * by '.', then 2 to 9 letters. As with the regular expression, the
+	 * greatest number of labels which can be followed by 2 or more letters
+	 * is taken, and the top level domain takes up to 9 letters.
+	 *
+	 * @param from Index after the '@'.
+	 * @param to Index where to stop looking for the domain, at most the 
+	 * length of the text.
+	 * @return The index after the domain, or -1 if there is no domain or if
+	 * it may go beyond <code>to</code>.
+	 */
+	private int scanDomain(int from, int to) {
+		int length = text.length();
+		int domainEnd = -1;
+		int labels = 0;
+		int labelStart = from;
+		while (true) {
+			if (labels > 0) {
+				/* Can the top level domain start here? */
+				int tldEnd = labelStart;
+				int tldMax = Math.min(labelStart + MAX_TLD, to);
+				while ((tldEnd < tldMax) && is(text.charAt(tldEnd), LETTER))
+					tldEnd++;
+				if ((tldEnd == to) && (to < length))
+					return -1;
+				if (tldEnd - labelStart >= 2)
+					domainEnd = tldEnd;
+			}
+			/* Is there another label followed by '.'? A label takes all
+			 * the label characters, so it must end right before the '.'. */
+			if ((labelStart >= to) && (to < length))
+				return -1;
+			if ((labelStart >= to) || !is(text.charAt(labelStart), ALNUM))
+				break;
+			int labelEnd = labelStart + 1;
+			while ((labelEnd < to) && is(text.charAt(labelEnd), LABEL))
+				labelEnd++;
+			if ((labelEnd == to) && (to < length))
+				return -1;
+			if ((labelEnd - labelStart < 2) || (labelEnd >= to)
+					|| (text.charAt(labelEnd) != '.')
+					|| !is(text.charAt(labelEnd - 1), ALNUM))
+				break;
+			labels++;
+			labelStart = labelEnd + 1;
+		}
+		return domainEnd;
+	}
+
+	/**
+	 * Returns true if the given character belongs to the given class.
+	 *
+	 * @param c A character.
+	 * @param charClass One of the character class constants.
+	 * @return True if the given character belongs to the given class.
+	 */
+	private static boolean is(char c, byte charClass) {
+		return (c < 128) && ((CLASSES[c] & charClass) != 0);
+	}
+
+	/* Read-only view of bytes as ASCII characters. */
+	private static class ByteSequence implements CharSequence {
+		private ByteBuffer bytes;
+		private int length;
+		private ByteSequence(ByteBuffer bytes) {
+			this.bytes = bytes;
+			this.length = bytes.remaining();
+		}
+		public char charAt(int index) {return (char) (bytes.get(index) & 0xff);}
+		public int length() {return length;}
+		public CharSequence subSequence(int from, int to) {
+			ByteBuffer sub = bytes.duplicate();
+			sub.position(from);
+			sub.limit(to);
+			return new ByteSequence(sub.slice());
+		}
+		public String toString() {
+			return substring(0, length);
+		}
+		private String substring(int from, int to) {
+			char[] chars = new char[to - from];
+			for (int i = from; i < to; i++)
+				chars[i - from] = (char) (bytes.get(i) & 0xff);
+			return new String(chars);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.Arrays;
+
+/**
+ * Selection of rows of one of the lists, as shown in the view, i.e. of
+ * addresses by their rank in the sorted list. Rows are kept as sorted,
+ * disjoint ranges, so that selecting many consecutive rows costs no more
+ * than selecting one. The model resolves the ranges against its sorted
+ * lists (see {@link EMaMModelInterface#getAddresses(AddressSelection)}),
+ * without looking addresses up.
+ *
+ * Rows refer to the order of the list when the observers were last
+ * notified, which is the order shown by the view.
+ *
+ * @author Nuno Fachada
+ */
+public class AddressSelection {
+
+	/* Selected list. */
+	private int list;
+	/* Ranges of rows, from start (inclusive) to end (exclusive). */
+	private int[] starts = new int[4];
+	private int[] ends = new int[4];
+	private int ranges;
+	/* Number of rows. */
+	private int size;
+
+	/**
+	 * Creates an empty selection of rows of the given list.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	public AddressSelection(int list) {
+		this.list = list;
+	}
+
+	/**
+	 * Adds a row to the selection. Rows must be added in ascending order.
+	 *
+	 * @param row A row, i.e. the rank of an address in the list.
+	 */
+	public void addRow(int row) {
+		addRange(row, row + 1);
+	}
+
+	/**
+	 * Adds a range of rows to the selection. Ranges must be added in
+	 * ascending order, and are merged with the previous range if they
+	 * overlap or touch it.
+	 *
+	 * @param from First row of the range.
+	 * @param to Row after the last row of the range.
+	 */
+	public void addRange(int from, int to) {
+		if (from >= to)
+			return;
+		if ((ranges > 0) && (from < starts[ranges - 1]))
+			throw new IllegalArgumentException("Rows not in ascending order: " + from);
+		if ((ranges > 0) && (from <= ends[ranges - 1])) {
+			if (to > ends[ranges - 1]) {
+				size += to - ends[ranges - 1];
+				ends[ranges - 1] = to;
+			}
+			return;
+		}
+		if (ranges == starts.length) {
+			starts = Arrays.copyOf(starts, ranges * 2);
+			ends = Arrays.copyOf(ends, ranges * 2);
+		}
+		starts[ranges] = from;
+		ends[ranges] = to;
+		ranges++;
+		size += to - from;
+	}
+
+	/**
+	 * Returns the selected list.
+	 *
+	 * @return A list constant in <code>EMaMModelInterface</code>.
+	 */
+	public int getList() {
+		return list;
+	}
+
+	/**
+	 * Returns the number of selected rows.
+	 *
+	 * @return The number of selected rows.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if no rows are selected.
+	 *
+	 * @return True if no rows are selected.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of ranges of rows.
+	 *
+	 * @return The number of ranges of rows.
+	 */
+	public int getRangeCount() {
+		return ranges;
+	}
+
+	/**
+	 * Returns the first row of a range.
+	 *
+	 * @param range Index of the range.
+	 * @return The first row of the range.
+	 */
+	public int getRangeStart(int range) {
+		return starts[range];
+	}
+
+	/**
+	 * Returns the row after the last row of a range.
+	 *
+	 * @param range Index of the range.
+	 * @return The row after the last row of the range.
+	 */
+	public int getRangeEnd(int range) {
+		return ends[range];
+	}
+}
@@ -0,0 +1,614 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts addresses from compressed files (gzip), archives (zip, tar) and
+ * their combinations (e.g. .tar.gz, or .gz files inside a zip), without
+ * decompressing them to disk. Formats are recognized by their contents, not
+ * by their names.
+ *
+ * Decompressed data is streamed through a fixed size buffer and scanned a
+ * chunk at a time; chunks end at line ends, so that addresses are never cut
+ * (lines longer than 1 MB are cut at a byte which can't be part of an
+ * address). The entries of a zip file
+ * are extracted concurrently, one per thread, with one processor per
+ * thread; at most four entries per thread are waiting or being extracted
+ * at a time. Memory usage depends on the number of threads and on the
+ * number of addresses in an entry, not on the size of the files. Addresses
+ * are returned in the order they appear in the archive.
+ *
+ * @author Nuno Fachada
+ */
+public class ArchiveExtractor {
+
+	/* Initial size of the chunk buffer. */
+	private static final int CHUNK_SIZE = 1 << 16;
+	/* Maximum size of the chunk buffer, i.e. of a line. */
+	private static final int MAX_CHUNK_SIZE = 1 << 20;
+	/* Bytes needed to recognize the format of a stream. */
+	private static final int MAGIC_SIZE = 512;
+	/* Size of tar blocks. */
+	private static final int TAR_BLOCK = 512;
+	/* Zip entries waiting or being extracted, per thread. */
+	private static final int ENTRIES_PER_THREAD = 4;
+
+	/* Regular expression to use, or null to use the scanner. */
+	private Pattern pattern;
+	/* Number of threads for zip entries. */
+	private int threads;
+
+	/* Statistics of the last extraction. */
+	private long compressedBytes;
+	private AtomicLong decompressedBytes = new AtomicLong();
+	private AtomicInteger entries = new AtomicInteger();
+	private long elapsedNanos;
+
+	/**
+	 * Creates a new archive extractor.
+	 *
+	 * @param regexp Regular expression for addresses, or null to use the
+	 * {@link AddressScanner} (through an {@link AddressPrefilter}).
+	 */
+	public ArchiveExtractor(String regexp) {
+		this.pattern = (regexp == null) ? null : Pattern.compile(regexp);
+		this.threads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns true if the given file is compressed with gzip, or is a zip or
+	 * tar archive.
+	 *
+	 * @param file A file.
+	 * @return True if the given file is compressed or an archive.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public static boolean isArchive(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file), MAGIC_SIZE);
+		try {
+			return format(in) != Format.TEXT;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Extracts the addresses in the given compressed file or archive. Any
+	 * other file is extracted from as text.
+	 *
+	 * @param file File from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @return The number of addresses found.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extract(File file, Collection<String> addresses) throws IOException {
+		return extract(file, addresses, null);
+	}
+
+	/**
+	 * Extracts the addresses in the given compressed file or archive,
+	 * recording their positions: the source is the file, or the file and
+	 * the entry (separated by '!') for archives, and offsets are in the 
+	 * decompressed data.
+	 *
+	 * @param file File from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @return The number of addresses found.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extract(File file, Collection<String> addresses, SourcePositions positions)
+	throws IOException {
+		long start = System.nanoTime();
+		compressedBytes = file.length();
+		decompressedBytes.set(0);
+		entries.set(0);
+		int before = addresses.size();
+		InputStream in = new BufferedInputStream(new FileInputStream(file), CHUNK_SIZE);
+		boolean zip;
+		try {
+			zip = (format(in) == Format.ZIP);
+			if (!zip)
+				extract(in, addresses, positions, file.getPath());
+		} finally {
+			in.close();
+		}
+		/* Zip files are read with random access, to extract entries
+		 * concurrently. */
+		if (zip)
+			extractZip(file, addresses, positions);
+		elapsedNanos = System.nanoTime() - start;
+		return addresses.size() - before;
+	}
+
+	/**
+	 * Returns a short report of the last extraction (entries, compressed and
+	 * decompressed size, time and decompressed throughput).
+	 *
+	 * @return A short report of the last extraction.
+	 */
+	public String getReport() {
+		double megabytes = decompressedBytes.get() / 1048576.0;
+		return String.format("%d entries, %.2f MB compressed, %.2f MB decompressed "
+				+ "in %d ms (%.2f MB/s decompressed)", entries.get(),
+				compressedBytes / 1048576.0, megabytes, elapsedNanos / 1000000,
+				megabytes / Math.max(elapsedNanos / 1e9, 1e-9));
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/* Formats recognized. */
+	private enum Format {GZIP, ZIP, TAR, TEXT}
+
+	/**
+	 * Recognizes the format of a stream by its first bytes, leaving the
+	 * stream where it was.
+	 *
+	 * @param in A stream which supports mark and reset.
+	 * @return The format of the stream.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static Format format(InputStream in) throws IOException {
+		byte[] magic = new byte[MAGIC_SIZE];
+		in.mark(MAGIC_SIZE);
+		int length = readFully(in, magic, 0, MAGIC_SIZE);
+		in.reset();
+		if ((length >= 2) && ((magic[0] & 0xff) == 0x1f) && ((magic[1] & 0xff) == 0x8b))
+			return Format.GZIP;
+		if ((length >= 4) && (magic[0] == 'P') && (magic[1] == 'K')
+				&& (((magic[2] == 3) && (magic[3] == 4)) || ((magic[2] == 5) && (magic[3] == 6))))
+			return Format.ZIP;
+		if ((length >= 262) && (magic[257] == 'u') && (magic[258] == 's')
+				&& (magic[259] == 't') && (magic[260] == 'a') && (magic[261] == 'r'))
+			return Format.TAR;
+		return Format.TEXT;
+	}
+
+	/**
+	 * Extracts the addresses in a stream, which may be compressed or a tar
+	 * archive. Zip files inside other files are extracted from as text.
+	 *
+	 * @param in Stream from where to extract addresses.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @param source Name of the stream, for the positions.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void extract(InputStream in, Collection<String> addresses,
+			SourcePositions positions, String source) throws IOException {
+		if (!in.markSupported())
+			in = new BufferedInputStream(in, CHUNK_SIZE);
+		switch (format(in)) {
+		case GZIP:
+			extract(new GZIPInputStream(in, CHUNK_SIZE), addresses, positions, source);
+			break;
+		case TAR:
+			extractTar(in, addresses, positions, source);
+			break;
+		default:
+			entries.incrementAndGet();
+			if (positions != null)
+				positions.setSource(source);
+			extractText(in, addresses, positions);
+		}
+	}
+
+	/**
+	 * Extracts the addresses in the entries of a tar archive.
+	 *
+	 * @param in Stream positioned at the start of the archive.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @param source Name of the archive, for the positions.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void extractTar(InputStream in, Collection<String> addresses,
+			SourcePositions positions, String source) throws IOException {
+		byte[] header = new byte[TAR_BLOCK];
+		while (readFully(in, header, 0, TAR_BLOCK) == TAR_BLOCK) {
+			/* An empty block marks the end of the archive. */
+			if (header[0] == 0)
+				break;
+			long size = tarSize(header);
+			/* Only regular files are extracted from. */
+			byte type = header[156];
+			EntryInputStream entry = new EntryInputStream(in, size);
+			if ((type == '0') || (type == 0))
+				extract(entry, addresses, positions, source + "!" + tarName(header));
+			entry.skipRemaining();
+			/* Entries are padded to whole blocks. */
+			skipFully(in, (TAR_BLOCK - (size % TAR_BLOCK)) % TAR_BLOCK);
+		}
+	}
+
+	/**
+	 * Extracts the addresses in the entries of a zip file, concurrently.
+	 *
+	 * @param file A zip file.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void extractZip(final File file, Collection<String> addresses,
+			SourcePositions positions) throws IOException {
+		final ZipFile zip = new ZipFile(file);
+		final boolean withPositions = (positions != null);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			LinkedList<Future<ArrayList<String>>> pending = new LinkedList<Future<ArrayList<String>>>();
+			/* Positions of the pending entries. */
+			LinkedList<SourcePositions> entryPositions = new LinkedList<SourcePositions>();
+			Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+			while (zipEntries.hasMoreElements()) {
+				final ZipEntry entry = zipEntries.nextElement();
+				if (entry.isDirectory())
+					continue;
+				final SourcePositions foundPositions = withPositions ? new SourcePositions() : null;
+				entryPositions.add(foundPositions);
+				pending.add(executor.submit(new Callable<ArrayList<String>>() {
+					public ArrayList<String> call() throws IOException {
+						ArrayList<String> found = new ArrayList<String>();
+						InputStream in = zip.getInputStream(entry);
+						try {
+							extract(in, found, foundPositions, file.getPath() + "!" + entry.getName());
+						} finally {
+							in.close();
+						}
+						return found;
+					}
+				}));
+				/* Collect results in the order of the entries, keeping the
+				 * number of pending entries bounded. */
+				while (pending.size() > threads * ENTRIES_PER_THREAD)
+					collect(pending.removeFirst(), entryPositions.removeFirst(), addresses, positions);
+			}
+			while (!pending.isEmpty())
+				collect(pending.removeFirst(), entryPositions.removeFirst(), addresses, positions);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Extraction interrupted");
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException)
+				throw (IOException) ee.getCause();
+			throw new IllegalStateException(ee.getCause());
+		} finally {
+			executor.shutdownNow();
+			zip.close();
+		}
+	}
+
+	/**
+	 * Waits for the result of a zip entry and adds its addresses, and their
+	 * positions, to the given collections.
+	 *
+	 * @param result Result of extracting an entry.
+	 * @param found Positions of the entry's addresses, or null.
+	 * @param addresses Collection where to add the addresses.
+	 * @param positions Where to add the positions of the addresses, or null.
+	 * @throws InterruptedException If the thread was interrupted.
+	 * @throws ExecutionException If the extraction of the entry failed.
+	 */
+	private void collect(Future<ArrayList<String>> result, SourcePositions found,
+			Collection<String> addresses, SourcePositions positions)
+	throws InterruptedException, ExecutionException {
+		addresses.addAll(result.get());
+		if (positions != null)
+			positions.addAll(found);
+	}
+
+	/**
+	 * Extracts the addresses in a stream of text, a chunk at a time. Each
+	 * chunk ends at the last line end in the buffer; the rest of the buffer
+	 * is kept for the next chunk.
+	 *
+	 * @param in Stream of text.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void extractText(InputStream in, Collection<String> addresses,
+			SourcePositions positions) throws IOException {
+		byte[] buffer = new byte[CHUNK_SIZE];
+		int length = 0;
+		/* Position of the chunk in the stream. */
+		long offset = 0;
+		int line = 1;
+		while (true) {
+			int read = readFully(in, buffer, length, buffer.length - length);
+			decompressedBytes.addAndGet(read);
+			int end = length + read;
+			if (end < buffer.length) {
+				/* End of stream. */
+				scan(buffer, end, addresses, positions, offset, line);
+				return;
+			}
+			/* Look for the last line end in the bytes just read, since the
+			 * bytes kept from the previous chunk have none. */
+			int cut = end - 1;
+			while ((cut >= length) && (buffer[cut] != '\n'))
+				cut--;
+			if (cut < length) {
+				/* No line end in the whole buffer. */
+				if (buffer.length < MAX_CHUNK_SIZE) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					length = end;
+					continue;
+				}
+				/* Cut after a byte which can't be part of an address. */
+				cut = end - 1;
+				while ((cut > 0) && isAddressByte(buffer[cut]))
+					cut--;
+				if (cut == 0)
+					cut = end - 1;
+			}
+			scan(buffer, cut + 1, addresses, positions, offset, line);
+			if (positions != null) {
+				offset += cut + 1;
+				line += AddressPrefilter.countLineEnds(
+						ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN), 0, cut + 1);
+			}
+			length = end - cut - 1;
+			System.arraycopy(buffer, cut + 1, buffer, 0, length);
+		}
+	}
+
+	/**
+	 * Extracts the addresses in a chunk of text.
+	 *
+	 * @param buffer Buffer with the chunk at its start.
+	 * @param length Length of the chunk.
+	 * @param addresses Collection where to add the addresses found.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @param offset Offset of the chunk in its stream.
+	 * @param line Line of the start of the chunk in its stream.
+	 */
+	private void scan(byte[] buffer, int length, Collection<String> addresses,
+			SourcePositions positions, long offset, int line) {
+		if (length == 0)
+			return;
+		if (pattern == null) {
+			new AddressPrefilter().extract(ByteBuffer.wrap(buffer, 0, length),
+					addresses, positions, offset, line);
+			return;
+		}
+		Charset charset = Charset.defaultCharset();
+		String text = new String(buffer, 0, length, charset);
+		Matcher m = pattern.matcher(text);
+		int previous = 0;
+		while (m.find()) {
+			addresses.add(m.group());
+			if (positions != null) {
+				/* Offsets are in bytes, so the text since the previous
+				 * address is encoded again to know its length. */
+				String gap = text.substring(previous, m.start());
+				offset += gap.getBytes(charset).length;
+				for (int i = 0; i < gap.length(); i++)
+					if (gap.charAt(i) == '\n')
+						line++;
+				positions.add(offset, line);
+				previous = m.start();
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given byte can be part of an address: an ASCII 
+	 * letter or digit, one of "._+-@", or part of a non-ASCII character.
+	 *
+	 * @param b A byte.
+	 * @return True if the given byte can be part of an address.
+	 */
+	private static boolean isAddressByte(byte b) {
+		return (b < 0) || ((b >= 'a') && (b <= 'z')) || ((b >= 'A') && (b <= 'Z'))
+			|| ((b >= '0') && (b <= '9')) || (b == '.') || (b == '_') || (b == '+')
+			|| (b == '-') || (b == '@');
+	}
+
+	/**
+	 * Returns the size of a tar entry, written in octal or, for large
+	 * entries, in base 256.
+	 *
+	 * @param header The header block of the entry.
+	 * @return The size of the entry.
+	 * @throws IOException If the size is not a number.
+	 */
+	private static long tarSize(byte[] header) throws IOException {
+		long size = 0;
+		if ((header[124] & 0x80) != 0) {
+			for (int i = 125; i < 136; i++)
+				size = (size << 8) | (header[i] & 0xff);
+			return size;
+		}
+		for (int i = 124; i < 136; i++) {
+			byte b = header[i];
+			if ((b == 0) || (b == ' ')) {
+				if (size > 0)
+					break;
+				continue;
+			}
+			if ((b < '0') || (b > '7'))
+				throw new IOException("Invalid tar entry size");
+			size = (size << 3) | (b - '0');
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the name of a tar entry, with the prefix of ustar archives.
+	 *
+	 * @param header The header block of the entry.
+	 * @return The name of the entry.
+	 */
+	private static String tarName(byte[] header) {
+		String name = tarString(header, 0, 100);
+		String prefix = tarString(header, 345, 155);
+		return (prefix.length() > 0) ? prefix + "/" + name : name;
+	}
+
+	/**
+	 * Returns a null terminated string of a tar header.
+	 *
+	 * @param header The header block of an entry.
+	 * @param offset Offset of the string.
+	 * @param length Maximum length of the string.
+	 * @return The string.
+	 */
+	private static String tarString(byte[] header, int offset, int length) {
+		int end = offset;
+		while ((end < offset + length) && (header[end] != 0))
+			end++;
+		return new String(header, offset, end - offset, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * Reads bytes until the given length is read or the stream ends.
+	 *
+	 * @param in Where to read from.
+	 * @param buffer Where to put the bytes read.
+	 * @param offset Index where to put the first byte.
+	 * @param length Number of bytes to read.
+	 * @return The number of bytes read, less than length only at the end of
+	 * the stream.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static int readFully(InputStream in, byte[] buffer, int offset, int length)
+	throws IOException {
+		int total = 0;
+		while (total < length) {
+			int n = in.read(buffer, offset + total, length - total);
+			if (n < 0)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Skips the given number of bytes, or up to the end of the stream.
+	 *
+	 * @param in Stream.
+	 * @param n Number of bytes to skip.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void skipFully(InputStream in, long n) throws IOException {
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped <= 0) {
+				if (in.read() < 0)
+					return;
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+
+	/* The contents of a tar entry: a stream which ends after the given
+	 * number of bytes of the archive, and isn't closed with the archive. */
+	private static class EntryInputStream extends FilterInputStream {
+		private long remaining;
+
+		private EntryInputStream(InputStream in, long size) {
+			super(in);
+			this.remaining = size;
+		}
+
+		public int read() throws IOException {
+			if (remaining <= 0)
+				return -1;
+			int b = in.read();
+			if (b >= 0)
+				remaining--;
+			return b;
+		}
+
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (remaining <= 0)
+				return -1;
+			int n = in.read(buffer, offset, (int) Math.min(length, remaining));
+			if (n > 0)
+				remaining -= n;
+			return n;
+		}
+
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(Math.min(n, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), remaining);
+		}
+
+		public boolean markSupported() {
+			return false;
+		}
+
+		public void close() {
+		}
+
+		private void skipRemaining() throws IOException {
+			skipFully(in, remaining);
+			remaining = 0;
+		}
+	}
+}
@@ -0,0 +1,687 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates synthetic .emam files and text or mailbox corpora for load
+ * testing, without real addresses. The same seed and settings always give
+ * the same data, which is written as it is generated, so files of any size
+ * are made with constant memory:
+ * <ul>
+ * <li>Local parts are a first name, a separator, a last name and usually a
+ * number, e.g. "maria.silva412", and domains are large providers and a long
+ * tail of smaller domains. Names and domains follow Zipf distributions
+ * (the n-th most common is 1/n as frequent as the first).</li>
+ * <li>The addresses of an .emam file are generated in sorted order, as
+ * eMaM saves them, and each is put in the sections (lists) of the file
+ * by sampling which gives the exact sizes and overlaps requested: returned
+ * and extracted addresses may also be in the mailing list, and extracted
+ * addresses in the removed list, but the mailing and removed lists never
+ * share addresses.</li>
+ * <li>Corpora are prose, or mbox messages with addresses in the headers
+ * and in the body, with a given number of words between addresses.
+ * Addresses are drawn at random and thus repeat, as in real text.</li>
+ * </ul>
+ * Random numbers are a hash of the seed and of the position of each
+ * address, so each section of an .emam file is written by going through
+ * all the addresses again, without keeping them.
+ *
+ * @author Nuno Fachada
+ */
+public class DataGenerator {
+
+	/* First and last names, in order of frequency. Only letters, so that
+	 * name combinations sort as their parts. */
+	private static final String[] FIRST_NAMES = {"maria", "john", "ana", "david",
+		"joao", "michael", "sarah", "jose", "paul", "laura", "pedro", "james",
+		"carla", "peter", "sofia", "robert", "rita", "mark", "ines", "daniel",
+		"marta", "luis", "emma", "carlos", "julia", "nuno", "anna", "miguel",
+		"linda", "rui", "susan", "tiago", "helen", "andre", "lucy", "bruno",
+		"kate", "paulo", "alice", "jorge", "claire", "filipe", "diana", "hugo",
+		"eva", "ricardo", "joana", "tom", "vera", "mario", "sara", "nick",
+		"teresa", "alex", "clara", "simon", "beatriz", "frank", "isabel", "ivo",
+		"info", "sales", "contact", "office"};
+	private static final String[] LAST_NAMES = {"silva", "smith", "santos",
+		"jones", "ferreira", "brown", "pereira", "taylor", "oliveira", "wilson",
+		"costa", "johnson", "rodrigues", "davies", "martins", "evans", "sousa",
+		"thomas", "fernandes", "roberts", "goncalves", "walker", "gomes", "wright",
+		"lopes", "green", "marques", "hall", "alves", "wood", "almeida", "clarke",
+		"ribeiro", "hughes", "pinto", "lewis", "carvalho", "harris", "teixeira",
+		"white", "moreira", "martin", "correia", "jackson", "mendes", "clark",
+		"nunes", "turner", "soares", "hill", "vieira", "scott", "monteiro", "cooper",
+		"cardoso", "morris", "rocha", "ward", "neves", "moore", "coelho", "king",
+		"cruz", "baker", "cunha", "allen", "pires", "james", "ramos", "young",
+		"reis", "mitchell", "simoes", "anderson", "antunes", "lee", "matos", "adams",
+		"fonseca", "bell", "machado", "shaw", "araujo", "parker", "barbosa", "fox",
+		"tavares", "mills", "lourenco", "webb", "castro", "fachada", "figueiredo",
+		"lima", "azevedo", "freitas"};
+	/* Separators between names, in byte order, and their frequencies. */
+	private static final String[] SEPARATORS = {"-", ".", "_"};
+	private static final double[] SEPARATOR_WEIGHTS = {0.15, 0.6, 0.25};
+	/* Large providers, and the share of the addresses they get. */
+	private static final String[] PROVIDERS = {"gmail.com", "hotmail.com",
+		"yahoo.com", "outlook.com", "sapo.pt", "live.com", "aol.com", "gmx.de",
+		"mail.ru", "iol.pt"};
+	private static final double PROVIDERS_SHARE = 0.5;
+	/* Parts of the names of other domains. */
+	private static final String[] DOMAIN_WORDS = {"tech", "consulting", "group",
+		"design", "net", "media", "shop", "lab", "systems", "travel", "law",
+		"health", "foods", "energy", "univ", "school"};
+	private static final String[] TLDS = {"com", "pt", "org", "net", "co.uk",
+		"de", "com.br", "edu", "fr", "es"};
+	/* Words of the corpora. None is "From", which would start a message in
+	 * a mailbox. */
+	private static final String[] WORDS = {"the", "of", "and", "to", "a", "in",
+		"for", "is", "on", "that", "by", "this", "with", "you", "it", "not", "or",
+		"be", "are", "from", "at", "as", "your", "all", "have", "new", "more",
+		"an", "was", "we", "will", "list", "mail", "please", "contact", "send",
+		"meeting", "report", "attached", "regards", "thanks", "information",
+		"address", "subscribe", "update", "v2.0", "20%", "--", "e-mail", "user_name"};
+	/* Selection of the sections of an .emam file. */
+	private static final int MAIL = 0;
+	private static final int REMOVED = 1;
+	private static final int RETURNED_ONLY = 2;
+	private static final int EXTRACTED_ONLY = 3;
+	private static final String[] SECTIONS = {"[Mail]", "[Removed]", "[Returned]", "[Extracted]"};
+	/* Length of corpus lines. */
+	private static final int LINE_LENGTH = 72;
+
+	/* Settings. */
+	private long seed;
+	private int[] sizes = new int[4];
+	private double returnedInMail = 0.8;
+	private double extractedInMail = 0.3;
+	private double extractedInRemoved = 0.05;
+	private int maxReturns = 10;
+	private int domains = 10000;
+
+	/* Names and domains as bytes, and their cumulative frequencies. */
+	private byte[][] firstNames, lastNames, separators, domainNames;
+	private double[] firstCumulative, lastCumulative, domainCumulative;
+	/* Rank of each first name, in sorted order, and the reverse. */
+	private int[] firstRank, firstByRank;
+	/* Output buffer. */
+	private byte[] buffer = new byte[1 << 16];
+	private int length;
+	private OutputStream out;
+	/* Number of bytes written. */
+	private long written;
+
+	/**
+	 * Creates a generator with the given seed.
+	 *
+	 * @param seed Seed of the random numbers.
+	 */
+	public DataGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the number of addresses of each list of generated .emam files
+	 * (all zero by default).
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param size Number of addresses of the list.
+	 */
+	public void setSize(int list, int size) {
+		sizes[list] = size;
+	}
+
+	/**
+	 * Sets the overlaps between the lists of generated .emam files: the
+	 * fractions of the returned addresses which are also in the mailing
+	 * list (0.8 by default), and of the extracted addresses which are also
+	 * in the mailing list (0.3) and in the removed list (0.05). Overlaps are
+	 * reduced if the lists are too small for them.
+	 *
+	 * @param returnedInMail Fraction of returned addresses in the mailing
+	 * list.
+	 * @param extractedInMail Fraction of extracted addresses in the mailing
+	 * list.
+	 * @param extractedInRemoved Fraction of extracted addresses in the
+	 * removed list.
+	 */
+	public void setOverlaps(double returnedInMail, double extractedInMail,
+			double extractedInRemoved) {
+		if ((returnedInMail < 0) || (returnedInMail > 1) || (extractedInMail < 0)
+				|| (extractedInRemoved < 0) || (extractedInMail + extractedInRemoved > 1))
+			throw new IllegalArgumentException("Invalid overlaps.");
+		this.returnedInMail = returnedInMail;
+		this.extractedInMail = extractedInMail;
+		this.extractedInRemoved = extractedInRemoved;
+	}
+
+	/**
+	 * Sets the maximum return count of returned addresses (10 by default).
+	 * Return counts are 1 for half of the addresses, 2 for a quarter of
+	 * them, and so on.
+	 *
+	 * @param maxReturns Maximum return count.
+	 */
+	public void setMaxReturns(int maxReturns) {
+		this.maxReturns = Math.max(1, maxReturns);
+	}
+
+	/**
+	 * Sets the number of domains besides the large providers (10000 by
+	 * default).
+	 *
+	 * @param domains Number of domains.
+	 */
+	public void setDomains(int domains) {
+		this.domains = Math.max(1, domains);
+	}
+
+	/**
+	 * Returns the number of bytes written by the last call to
+	 * {@link #writeEmam(OutputStream)} or
+	 * {@link #writeCorpus(OutputStream, long, int, boolean)}.
+	 *
+	 * @return The number of bytes written.
+	 */
+	public long getBytesWritten() {
+		return written;
+	}
+
+	/**
+	 * Writes an .emam file with lists of the sizes and overlaps set.
+	 *
+	 * @param out Stream where to write, which is not closed.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void writeEmam(OutputStream out) throws IOException {
+		prepare(out);
+		long[] counts = sectionCounts();
+		for (int list = 0; list < SECTIONS.length; list++) {
+			write(SECTIONS[list]);
+			write('\n');
+			writeSection(list, counts);
+		}
+		flush();
+	}
+
+	/**
+	 * Writes a text corpus, with the given number of addresses drawn at
+	 * random and the given number of words between them. As a mailbox,
+	 * each message has one address in From and To and three in the body.
+	 *
+	 * @param out Stream where to write, which is not closed.
+	 * @param addresses Number of addresses.
+	 * @param words Number of words between addresses, 0 for a list of
+	 * addresses.
+	 * @param mbox True to write a mailbox, false to write prose.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void writeCorpus(OutputStream out, long addresses, int words,
+			boolean mbox) throws IOException {
+		prepare(out);
+		int column = 0;
+		long draw = 0;
+		for (long i = 0; i < addresses; i++) {
+			if (mbox && (i % 5 == 0)) {
+				/* New message, with two addresses in the headers. */
+				if (i > 0)
+					write("\n\n");
+				write("From MAILER-DAEMON Mon Jan  5 10:00:00 2009\nFrom: ");
+				randomAddress(draw++);
+				write("\nTo: ");
+				randomAddress(draw++);
+				write("\nSubject: ");
+				write(WORDS[(int) ((hash(draw++) >>> 1) % WORDS.length)]);
+				write("\n\n");
+				i++;
+				column = 0;
+				continue;
+			}
+			for (int w = 0; w < words; w++) {
+				String word = WORDS[(int) ((hash(draw++) >>> 1) % WORDS.length)];
+				if (column + word.length() >= LINE_LENGTH) {
+					write('\n');
+					column = 0;
+				} else if (column > 0) {
+					write(' ');
+					column++;
+				}
+				write(word);
+				column += word.length();
+			}
+			if (column > 0) {
+				write((words == 0) ? ", " : " ");
+				column += 2;
+			}
+			column += randomAddress(draw++);
+			if (column >= LINE_LENGTH) {
+				write('\n');
+				column = 0;
+			}
+		}
+		write('\n');
+		flush();
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Prepares the names, domains and their frequencies, and the output.
+	 *
+	 * @param out Stream where to write.
+	 */
+	private void prepare(OutputStream out) {
+		this.out = out;
+		length = 0;
+		written = 0;
+		/* First names are generated in sorted order, with the frequency
+		 * of their rank in FIRST_NAMES. */
+		String[] sorted = FIRST_NAMES.clone();
+		Arrays.sort(sorted);
+		List<String> ranks = Arrays.asList(FIRST_NAMES);
+		firstRank = new int[sorted.length];
+		firstByRank = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			firstRank[i] = ranks.indexOf(sorted[i]);
+			firstByRank[firstRank[i]] = i;
+		}
+		firstNames = bytes(sorted);
+		firstCumulative = zipf(FIRST_NAMES.length);
+		/* Last names are picked in sorted order, so their cumulative
+		 * frequencies are in sorted order too. */
+		sorted = LAST_NAMES.clone();
+		Arrays.sort(sorted);
+		ranks = Arrays.asList(LAST_NAMES);
+		lastNames = bytes(sorted);
+		lastCumulative = new double[sorted.length];
+		double[] rankCumulative = zipf(LAST_NAMES.length);
+		double total = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			total += weight(rankCumulative, ranks.indexOf(sorted[i]));
+			lastCumulative[i] = total;
+		}
+		separators = bytes(SEPARATORS);
+		/* Providers get their share, other domains the rest. */
+		String[] names = new String[PROVIDERS.length + domains];
+		domainCumulative = new double[names.length];
+		double[] providers = zipf(PROVIDERS.length);
+		double[] others = zipf(domains);
+		for (int i = 0; i < names.length; i++) {
+			double w;
+			if (i < PROVIDERS.length) {
+				names[i] = PROVIDERS[i];
+				w = PROVIDERS_SHARE * weight(providers, i);
+			} else {
+				int d = i - PROVIDERS.length;
+				names[i] = LAST_NAMES[d % LAST_NAMES.length] + "-"
+					+ DOMAIN_WORDS[(d / LAST_NAMES.length) % DOMAIN_WORDS.length]
+					+ ((d < LAST_NAMES.length * DOMAIN_WORDS.length) ? ""
+							: Integer.toString(d / (LAST_NAMES.length * DOMAIN_WORDS.length)))
+					+ "." + TLDS[d % TLDS.length];
+				w = (1 - PROVIDERS_SHARE) * weight(others, d);
+			}
+			domainCumulative[i] = ((i > 0) ? domainCumulative[i - 1] : 0) + w;
+		}
+		domainNames = bytes(names);
+	}
+
+	/**
+	 * Returns the number of addresses of each kind needed for the sizes
+	 * and overlaps set: addresses in the mailing list, in the removed list,
+	 * in the returned list only and in the extracted list only, and then
+	 * the returned addresses in the mailing list, and the extracted ones in
+	 * the mailing and removed lists.
+	 *
+	 * @return The counts.
+	 */
+	private long[] sectionCounts() {
+		long mail = sizes[EMaMModelInterface.MAIL_LIST];
+		long removed = sizes[EMaMModelInterface.REMOVED_LIST];
+		long returned = sizes[EMaMModelInterface.RETURNED_LIST];
+		long extracted = sizes[EMaMModelInterface.EXTRACTED_LIST];
+		long returnedMail = Math.min(mail, Math.round(returned * returnedInMail));
+		long extractedMail = Math.min(mail, Math.round(extracted * extractedInMail));
+		long extractedRemoved = Math.min(removed, Math.round(extracted * extractedInRemoved));
+		return new long[] {mail, removed, returned - returnedMail,
+				extracted - extractedMail - extractedRemoved,
+				returnedMail, extractedMail, extractedRemoved};
+	}
+
+	/**
+	 * Writes the addresses of a section of an .emam file, going through all
+	 * the addresses in sorted order and choosing those of the section.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param counts Counts given by {@link #sectionCounts()}.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void writeSection(int list, long[] counts) throws IOException {
+		long[] left = counts.clone();
+		long total = left[MAIL] + left[REMOVED] + left[RETURNED_ONLY] + left[EXTRACTED_ONLY];
+		long address = 0;
+		double firstTotal = firstCumulative[firstCumulative.length - 1];
+		double lastTotal = lastCumulative[lastCumulative.length - 1];
+		/* Expected addresses before the current name combination. */
+		double before = 0;
+		long made = 0;
+		for (int f = 0; f < firstNames.length; f++) {
+			double firstShare = weight(firstCumulative, firstRank[f]) / firstTotal;
+			for (int s = 0; s < separators.length; s++) {
+				for (int l = 0; l < lastNames.length; l++) {
+					before += total * firstShare * SEPARATOR_WEIGHTS[s]
+						* weight(lastCumulative, l) / lastTotal;
+					boolean last = (f == firstNames.length - 1) && (s == separators.length - 1)
+						&& (l == lastNames.length - 1);
+					long n = last ? total - made : Math.min(total - made, Math.round(before) - made);
+					if (n <= 0)
+						continue;
+					made += n;
+					/* Numbers 1 to n - 1 in sorted order, then no number. */
+					for (int digit = 1; digit <= 9; digit++)
+						address = writeNumbered(list, f, s, l, digit, n, address, left);
+					address = writeAddress(list, f, s, l, -1, address, left);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the addresses of a name combination with the given number
+	 * and with the numbers which start with it, below the given limit, in
+	 * sorted order: as '@' sorts after the digits, longer numbers come
+	 * first.
+	 *
+	 * @param list Section being written.
+	 * @param f First name.
+	 * @param s Separator.
+	 * @param l Last name.
+	 * @param number The number.
+	 * @param limit Limit of the numbers.
+	 * @param address Position of the address.
+	 * @param left Counts of addresses left of each kind.
+	 * @return Position of the next address.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private long writeNumbered(int list, int f, int s, int l, long number, long limit,
+			long address, long[] left) throws IOException {
+		if (number >= limit)
+			return address;
+		for (int digit = 0; digit <= 9; digit++)
+			address = writeNumbered(list, f, s, l, number * 10 + digit, limit, address, left);
+		return writeAddress(list, f, s, l, number, address, left);
+	}
+
+	/**
+	 * Chooses the sections of an address and writes it, with its return
+	 * count, if it is in the given section.
+	 *
+	 * @param list Section being written.
+	 * @param f First name.
+	 * @param s Separator.
+	 * @param l Last name.
+	 * @param number Number after the names, or -1 for none.
+	 * @param address Position of the address.
+	 * @param left Counts of addresses left of each kind.
+	 * @return Position of the next address.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private long writeAddress(int list, int f, int s, int l, long number,
+			long address, long[] left) throws IOException {
+		long h = hash(address);
+		/* Kind of address, sampled so that the counts are exact. */
+		long total = left[MAIL] + left[REMOVED] + left[RETURNED_ONLY] + left[EXTRACTED_ONLY];
+		long r = (long) (unit(h) * total);
+		int kind = MAIL;
+		while (r >= left[kind]) {
+			r -= left[kind];
+			kind++;
+		}
+		/* Also returned or extracted, for addresses of the other lists. */
+		boolean returned = (kind == RETURNED_ONLY);
+		boolean extracted = (kind == EXTRACTED_ONLY);
+		long h2 = hash(h);
+		if (kind == MAIL) {
+			returned = sample(left, 4, left[MAIL], h2);
+			extracted = sample(left, 5, left[MAIL], hash(h2));
+		} else if (kind == REMOVED) {
+			extracted = sample(left, 6, left[REMOVED], h2);
+		}
+		left[kind]--;
+		boolean write = ((list == EMaMModelInterface.MAIL_LIST) && (kind == MAIL))
+			|| ((list == EMaMModelInterface.REMOVED_LIST) && (kind == REMOVED))
+			|| ((list == EMaMModelInterface.RETURNED_LIST) && returned)
+			|| ((list == EMaMModelInterface.EXTRACTED_LIST) && extracted);
+		if (write) {
+			write(firstNames[f]);
+			write(separators[s]);
+			write(lastNames[l]);
+			if (number >= 0)
+				writeNumber(number);
+			write('@');
+			write(domainNames[pick(domainCumulative, unit(hash(h2 ^ 0x5bd1e995L)))]);
+			if (list == EMaMModelInterface.RETURNED_LIST) {
+				/* 1 for half the addresses, 2 for a quarter, ... */
+				int returns = 1 + Long.numberOfTrailingZeros(~hash(h ^ 0x27d4eb2fL));
+				write(' ');
+				writeNumber(Math.min(maxReturns, returns));
+			}
+			write('\n');
+		}
+		return address + 1;
+	}
+
+	/**
+	 * Decides whether an address of a list is also in another one, so that
+	 * exactly the given number of addresses of the list is.
+	 *
+	 * @param left Counts of addresses left of each kind.
+	 * @param kind Kind of overlap, whose count is decremented if chosen.
+	 * @param of Addresses of the list left, including this one.
+	 * @param h A random number.
+	 * @return True if the address is also in the other list.
+	 */
+	private static boolean sample(long[] left, int kind, long of, long h) {
+		if ((long) (unit(h) * of) < left[kind]) {
+			left[kind]--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Writes a random address, with a name combination, number and domain
+	 * of the frequencies of the generated .emam files.
+	 *
+	 * @param draw Number of the draw.
+	 * @return The length of the address.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private int randomAddress(long draw) throws IOException {
+		long h = hash(draw ^ 0x2545f4914f6cdd1dL);
+		long before = written + length;
+		write(firstNames[firstByRank[pick(firstCumulative, unit(h))]]);
+		h = hash(h);
+		double u = unit(h);
+		int s = (u < SEPARATOR_WEIGHTS[0]) ? 0 : (u < SEPARATOR_WEIGHTS[0] + SEPARATOR_WEIGHTS[1]) ? 1 : 2;
+		write(separators[s]);
+		h = hash(h);
+		write(lastNames[pick(lastCumulative, unit(h))]);
+		h = hash(h);
+		if ((h & 3) != 0)
+			writeNumber((h >>> 2) % 1000);
+		write('@');
+		write(domainNames[pick(domainCumulative, unit(hash(h)))]);
+		return (int) (written + length - before);
+	}
+
+	/**
+	 * Returns cumulative Zipf frequencies: the i-th value is 1 / (i + 1)
+	 * plus the values before it.
+	 *
+	 * @param n Number of values.
+	 * @return The cumulative frequencies.
+	 */
+	private static double[] zipf(int n) {
+		double[] cumulative = new double[n];
+		double total = 0;
+		for (int i = 0; i < n; i++) {
+			total += 1.0 / (i + 1);
+			cumulative[i] = total;
+		}
+		for (int i = 0; i < n; i++)
+			cumulative[i] /= total;
+		return cumulative;
+	}
+
+	/**
+	 * Returns the frequency of a value from cumulative frequencies.
+	 *
+	 * @param cumulative Cumulative frequencies.
+	 * @param i Index of the value.
+	 * @return The frequency of the value.
+	 */
+	private static double weight(double[] cumulative, int i) {
+		return cumulative[i] - ((i > 0) ? cumulative[i - 1] : 0);
+	}
+
+	/**
+	 * Picks a value with the given cumulative frequencies.
+	 *
+	 * @param cumulative Cumulative frequencies.
+	 * @param u A random number between 0 and 1.
+	 * @return The index of the value.
+	 */
+	private static int pick(double[] cumulative, double u) {
+		u *= cumulative[cumulative.length - 1];
+		int i = Arrays.binarySearch(cumulative, u);
+		i = (i < 0) ? -i - 1 : i;
+		return Math.min(i, cumulative.length - 1);
+	}
+
+	/**
+	 * Returns a random number for the given position (SplitMix64 of the
+	 * seed and position).
+	 *
+	 * @param position Position of the number.
+	 * @return A random number.
+	 */
+	private long hash(long position) {
+		long z = seed + (position + 1) * 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Converts a random number to a number between 0 (inclusive) and 1
+	 * (exclusive).
+	 *
+	 * @param h A random number.
+	 * @return A number between 0 and 1.
+	 */
+	private static double unit(long h) {
+		return (h >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Converts strings to ASCII bytes.
+	 *
+	 * @param strings Strings.
+	 * @return The bytes of each string.
+	 */
+	private static byte[][] bytes(String[] strings) {
+		byte[][] bytes = new byte[strings.length][];
+		for (int i = 0; i < strings.length; i++) {
+			bytes[i] = new byte[strings[i].length()];
+			for (int j = 0; j < bytes[i].length; j++)
+				bytes[i][j] = (byte) strings[i].charAt(j);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes a non-negative number in decimal.
+	 *
+	 * @param number The number.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void writeNumber(long number) throws IOException {
+		if (number >= 10)
+			writeNumber(number / 10);
+		write((char) ('0' + number % 10));
+	}
+
+	/**
+	 * Writes an ASCII string.
+	 *
+	 * @param s The string.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void write(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++)
+			write(s.charAt(i));
+	}
+
+	/**
+	 * Writes bytes.
+	 *
+	 * @param bytes The bytes.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void write(byte[] bytes) throws IOException {
+		if (length + bytes.length > buffer.length)
+			flush();
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	/**
+	 * Writes an ASCII character.
+	 *
+	 * @param c The character.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void write(char c) throws IOException {
+		if (length == buffer.length)
+			flush();
+		buffer[length++] = (byte) c;
+	}
+
+	/**
+	 * Writes the buffer to the output stream.
+	 *
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void flush() throws IOException {
+		out.write(buffer, 0, length);
+		written += length;
+		length = 0;
+	}
+}
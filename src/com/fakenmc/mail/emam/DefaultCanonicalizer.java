@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.net.IDN;
+import java.util.HashMap;
+
+/**
+ * Default address canonicalizer. Normalization trims the address, converts
+ * it to lower case and converts internationalized domain names to their
+ * ASCII (punycode) form, e.g. <code>jose@caf&eacute;.pt</code> becomes
+ * <code>jose@xn--caf-dma.pt</code>. The canonical key additionally applies
+ * the rules of well known providers:
+ * <ul>
+ * <li>Gmail ignores dots in the local part, and <code>googlemail.com</code>
+ * is the same as <code>gmail.com</code>.</li>
+ * <li>Gmail, Outlook/Hotmail, iCloud, Fastmail, Proton and Yandex deliver
+ * <code>user+tag@domain</code> to <code>user@domain</code>.</li>
+ * </ul>
+ *
+ * Addresses which need no changes (the vast majority) are returned as is,
+ * without creating new strings.
+ *
+ * @author Nuno Fachada
+ */
+public class DefaultCanonicalizer implements AddressCanonicalizer {
+
+	/* Rules of the known providers, by domain. */
+	private static final HashMap<String, Provider> PROVIDERS = new HashMap<String, Provider>();
+
+	/* Address rules of a provider. */
+	private static class Provider {
+		/* Domain to use in the canonical key. */
+		private String domain;
+		/* Are dots in the local part ignored? */
+		private boolean ignoreDots;
+		/* Are "+tag" suffixes in the local part ignored? */
+		private boolean ignoreTags;
+
+		private Provider(String domain, boolean ignoreDots, boolean ignoreTags) {
+			this.domain = domain;
+			this.ignoreDots = ignoreDots;
+			this.ignoreTags = ignoreTags;
+		}
+	}
+
+	static {
+		PROVIDERS.put("gmail.com", new Provider("gmail.com", true, true));
+		PROVIDERS.put("googlemail.com", new Provider("gmail.com", true, true));
+		String[] tagged = {"outlook.com", "hotmail.com", "live.com", "msn.com",
+				"icloud.com", "me.com", "mac.com", "fastmail.com", "fastmail.fm",
+				"protonmail.com", "proton.me", "pm.me", "yandex.com", "yandex.ru"};
+		for (String domain : tagged)
+			PROVIDERS.put(domain, new Provider(domain, false, true));
+	}
+
+	/**
+	 * @see AddressCanonicalizer#normalize(String)
+	 */
+	public String normalize(String address) {
+		/* Fast path: ASCII, lower case, nothing to trim. */
+		boolean plain = true;
+		int length = address.length();
+		if ((length > 0) && ((address.charAt(0) <= ' ') || (address.charAt(length - 1) <= ' ')))
+			plain = false;
+		for (int i = 0; plain && (i < length); i++) {
+			char c = address.charAt(i);
+			if ((c > 0x7f) || ((c >= 'A') && (c <= 'Z')))
+				plain = false;
+		}
+		if (plain)
+			return address;
+		address = address.trim().toLowerCase();
+		int at = address.lastIndexOf('@');
+		if (at < 0)
+			return address;
+		String domain = address.substring(at + 1);
+		for (int i = 0; i < domain.length(); i++) {
+			if (domain.charAt(i) > 0x7f) {
+				try {
+					/* Convert internationalized domain name to ASCII. */
+					domain = IDN.toASCII(domain, IDN.ALLOW_UNASSIGNED).toLowerCase();
+					return address.substring(0, at + 1) + domain;
+				} catch (IllegalArgumentException iae) {
+					/* Not a valid domain name, leave it as is. */
+					break;
+				}
+			}
+		}
+		return address;
+	}
+
+	/**
+	 * @see AddressCanonicalizer#canonicalize(String)
+	 */
+	public String canonicalize(String address) {
+		int at = address.lastIndexOf('@');
+		if (at < 0)
+			return address;
+		Provider provider = PROVIDERS.get(address.substring(at + 1));
+		if (provider == null)
+			return address;
+		int end = at;
+		if (provider.ignoreTags) {
+			int plus = address.indexOf('+');
+			if ((plus > 0) && (plus < at))
+				end = plus;
+		}
+		boolean dots = provider.ignoreDots && (address.lastIndexOf('.', end - 1) >= 0);
+		if (!dots && (end == at) && (address.length() - at - 1 == provider.domain.length())
+				&& address.regionMatches(at + 1, provider.domain, 0, provider.domain.length()))
+			return address;
+		StringBuilder sb = new StringBuilder(end + provider.domain.length() + 1);
+		for (int i = 0; i < end; i++) {
+			char c = address.charAt(i);
+			if (!dots || (c != '.'))
+				sb.append(c);
+		}
+		return sb.append('@').append(provider.domain).toString();
+	}
+}
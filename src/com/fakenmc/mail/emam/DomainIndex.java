@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Index of the model's addresses partitioned by domain. For each domain, the
+ * index keeps the addresses of the domain in each of the four lists. The 
+ * index holds the same string instances as the lists, so it doesn't copy
+ * the addresses; it costs one sorted set entry per address (about 40 bytes).
+ * In return, the addresses of a domain, per-domain counts for each list, the 
+ * total number of returns and the bounce rate are available without scanning
+ * the lists.
+ *
+ * The index is kept up to date by the model, which calls {@link #add(int, String)},
+ * {@link #remove(int, String)}, {@link #removeDomain(int, String)}, {@link #clear(int)} and
+ * {@link #returnsChanged(String, int)} on every mutation.
+ *
+ * @author Nuno Fachada
+ */
+public class DomainIndex {
+
+	/* Number of lists in the model. */
+	private static final int LISTS = 4;
+
+	/* Domains, by name. */
+	private HashMap<String, Domain> domains;
+
+	/* Information kept for each domain. */
+	private static class Domain {
+		/* The domain's addresses in each list. */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private TreeSet<String>[] addresses = new TreeSet[LISTS];
+		/* Sum of the return counts of the domain's addresses. */
+		private long returns;
+		/* Number of the domain's addresses both in the mailing and returned lists. */
+		private int listedAndReturned;
+
+		private int size(int list) {
+			return (addresses[list] == null) ? 0 : addresses[list].size();
+		}
+		private boolean contains(int list, String address) {
+			return (addresses[list] != null) && addresses[list].contains(address);
+		}
+		private boolean isEmpty() {
+			for (int list = 0; list < LISTS; list++)
+				if (size(list) > 0)
+					return false;
+			return true;
+		}
+	}
+
+	/**
+	 * Creates an empty domain index.
+	 */
+	public DomainIndex() {
+		domains = new HashMap<String, Domain>();
+	}
+
+	/**
+	 * Returns the domain of the given address, i.e. the part after the last '@'.
+	 *
+	 * @param address An address.
+	 * @return The domain of the given address.
+	 */
+	public static String domainOf(String address) {
+		return address.substring(address.lastIndexOf('@') + 1);
+	}
+
+	/**
+	 * Returns the local part of the given address, i.e. the part before the
+	 * last '@'.
+	 *
+	 * @param address An address.
+	 * @return The local part of the given address.
+	 */
+	public static String localPartOf(String address) {
+		int at = address.lastIndexOf('@');
+		return (at < 0) ? "" : address.substring(0, at);
+	}
+
+	/**
+	 * Indexes an address which was added to a list. The index keeps a
+	 * reference to the given string, which should be the instance stored in
+	 * the list.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param address The added address.
+	 */
+	public void add(int list, String address) {
+		String domainName = domainOf(address);
+		Domain domain = domains.get(domainName);
+		if (domain == null) {
+			domain = new Domain();
+			domains.put(domainName, domain);
+		}
+		if (domain.addresses[list] == null)
+			domain.addresses[list] = new TreeSet<String>();
+		if (domain.addresses[list].add(address)) {
+			if (((list == EMaMModelInterface.MAIL_LIST)
+					&& domain.contains(EMaMModelInterface.RETURNED_LIST, address))
+				|| ((list == EMaMModelInterface.RETURNED_LIST)
+					&& domain.contains(EMaMModelInterface.MAIL_LIST, address)))
+				domain.listedAndReturned++;
+		}
+	}
+
+	/**
+	 * Removes an address which was removed from a list from the index.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param address The removed address.
+	 */
+	public void remove(int list, String address) {
+		String domainName = domainOf(address);
+		Domain domain = domains.get(domainName);
+		if (domain == null)
+			return;
+		if ((domain.addresses[list] != null) && domain.addresses[list].remove(address)) {
+			if (((list == EMaMModelInterface.MAIL_LIST)
+					&& domain.contains(EMaMModelInterface.RETURNED_LIST, address))
+				|| ((list == EMaMModelInterface.RETURNED_LIST)
+					&& domain.contains(EMaMModelInterface.MAIL_LIST, address)))
+				domain.listedAndReturned--;
+			if (domain.addresses[list].isEmpty())
+				domain.addresses[list] = null;
+			if (domain.isEmpty())
+				domains.remove(domainName);
+		}
+	}
+
+	/**
+	 * Removes all the addresses of a domain in a list from the index, 
+	 * detaching its set of addresses at once.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domainName A domain name.
+	 */
+	public void removeDomain(int list, String domainName) {
+		Domain domain = domains.get(domainName);
+		if ((domain == null) || (domain.addresses[list] == null))
+			return;
+		TreeSet<String> addresses = domain.addresses[list];
+		domain.addresses[list] = null;
+		if (((list == EMaMModelInterface.MAIL_LIST)
+				|| (list == EMaMModelInterface.RETURNED_LIST))
+				&& (domain.listedAndReturned > 0)) {
+			/* Only the smaller of the two sets needs to be checked. */
+			int other = (list == EMaMModelInterface.MAIL_LIST)
+				? EMaMModelInterface.RETURNED_LIST : EMaMModelInterface.MAIL_LIST;
+			if (domain.size(other) < addresses.size()) {
+				for (String address : domain.addresses[other])
+					if (addresses.contains(address))
+						domain.listedAndReturned--;
+			} else {
+				for (String address : addresses)
+					if (domain.contains(other, address))
+						domain.listedAndReturned--;
+			}
+		}
+		if (list == EMaMModelInterface.RETURNED_LIST)
+			domain.returns = 0;
+		if (domain.isEmpty())
+			domains.remove(domainName);
+	}
+
+	/**
+	 * Removes all the addresses of a list from the index.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	public void clear(int list) {
+		Iterator<Domain> iter = domains.values().iterator();
+		while (iter.hasNext()) {
+			Domain domain = iter.next();
+			if (domain.addresses[list] == null)
+				continue;
+			domain.addresses[list] = null;
+			if ((list == EMaMModelInterface.MAIL_LIST)
+					|| (list == EMaMModelInterface.RETURNED_LIST))
+				domain.listedAndReturned = 0;
+			if (list == EMaMModelInterface.RETURNED_LIST)
+				domain.returns = 0;
+			if (domain.isEmpty())
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Removes all addresses from the index.
+	 */
+	public void clear() {
+		domains.clear();
+	}
+
+	/**
+	 * Updates the total number of returns of the domain of the given address.
+	 *
+	 * @param address An address in the returned list.
+	 * @param delta Change in the return count of the address.
+	 */
+	public void returnsChanged(String address, int delta) {
+		Domain domain = domains.get(domainOf(address));
+		if (domain != null)
+			domain.returns += delta;
+	}
+
+	/**
+	 * Returns the number of addresses of the given domain in the given list.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name.
+	 * @return The number of addresses of the given domain in the given list.
+	 */
+	public int getCount(int list, String domain) {
+		Domain d = domains.get(domain);
+		return (d == null) ? 0 : d.size(list);
+	}
+
+	/**
+	 * Returns the sum of the return counts of the addresses of the given domain.
+	 *
+	 * @param domain A domain name.
+	 * @return The sum of the return counts of the given domain's addresses.
+	 */
+	public long getReturns(String domain) {
+		Domain d = domains.get(domain);
+		return (d == null) ? 0 : d.returns;
+	}
+
+	/**
+	 * Returns the fraction of the addresses of the given domain which bounced,
+	 * i.e. the number of the domain's addresses in the returned list divided
+	 * by the number of the domain's addresses in the mailing and returned
+	 * lists.
+	 *
+	 * @param domain A domain name.
+	 * @return The bounce rate of the given domain, between 0 and 1.
+	 */
+	public double getBounceRate(String domain) {
+		Domain d = domains.get(domain);
+		if (d == null)
+			return 0;
+		int returned = d.size(EMaMModelInterface.RETURNED_LIST);
+		int total = d.size(EMaMModelInterface.MAIL_LIST) + returned - d.listedAndReturned;
+		return (total == 0) ? 0 : ((double) returned) / total;
+	}
+
+	/**
+	 * Returns the domains which have addresses in the given list, in
+	 * alphabetical order.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The domains which have addresses in the given list.
+	 */
+	public String[] getDomains(int list) {
+		ArrayList<String> names = new ArrayList<String>();
+		for (Map.Entry<String, Domain> entry : domains.entrySet())
+			if (entry.getValue().size(list) > 0)
+				names.add(entry.getKey());
+		Collections.sort(names);
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Returns the addresses of the given domain in the given list, in the
+	 * same order as in the list. The returned set must not be modified.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name.
+	 * @return The addresses of the given domain in the given list.
+	 */
+	public SortedSet<String> getAddresses(int list, String domain) {
+		Domain d = domains.get(domain);
+		if ((d == null) || (d.addresses[list] == null))
+			return Collections.unmodifiableSortedSet(new TreeSet<String>());
+		return Collections.unmodifiableSortedSet(d.addresses[list]);
+	}
+}
@@ -1,903 +1,1262 @@
-/*
- * Copyright (c) 2008, Nuno Fachada
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without modification, 
- * are permitted provided that the following conditions are met:
- *
- *   * Redistributions of source code must retain the above copyright notice, 
- *     this list of conditions and the following disclaimer.
- *   * Redistributions in binary form must reproduce the above copyright notice, 
- *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
- *   * Neither the name of the FakenMC.com nor the names of its contributors 
- *     may be used to endorse or promote products derived from this software without 
- *     specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
- * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
- * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
- * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
- * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
- * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-package com.fakenmc.mail.emam;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.Properties;
-import java.util.regex.PatternSyntaxException;
-
-/**
- * The reference implementation of the application controller.
- * The responsibilities of this class are described by the
- * MVC design pattern.
- * 
- * @author Nuno Fachada.
- *
- */
-public class EMaMController implements EMaMControllerInterface {
-	/* Constants. */
-	private final int YES = 0;
-	private final int NO = 1;
-	private final int CANCEL = 2;
-	private final int DEL_OK = 0;
-	//private final int DEL_CANCEL = 1;
-
-	/* Model and view references. */
-	private EMaMModelInterface model;
-	private EMaMView view;
-	/* Language properties. */
-	private Properties langProperties;
-
-	/**
-	 * Creates a new EMaM controller.
-	 * 
-	 * @param model A EMaM model for the controller to control.
-	 * @throws FileNotFoundException @see java.io.FileNotFoundException.
-	 * @throws IOException @see java.io.IOException
-	 */
-	public EMaMController(EMaMModelInterface model) 
-	throws FileNotFoundException, IOException {
-		/* Set model to control. */
-		this.model = model;
-		/* Set language. */
-		setLanguage();
-		/* Create view for this controller and respective model. */
-		view = new EMaMView(this, model);
-		view.createView();
-		/* Obtain last used file. */
-		String currentFile = EMaM.getProperties().getProperty("currentFile");
-		if ((currentFile != null) && (currentFile.compareTo("") != 0)) {
-			openFile(new File(currentFile));
-		} else {
-			newFile();
-		}
-	}
-	
-	/**
-	 * @see EMaMControllerInterface#newFile()
-	 */
-	public void newFile() {
-		/* If current file is not saved ask what to do.  */
-		if (!model.isFileSaved()) {
-			int answer = saveCurrentFileQuestion();
-			if (answer == YES)
-				/* Save file. */
-				saveFile();
-			else if (answer == CANCEL)
-				/* Cancel open file and return to previous file. */
-				return;
-		}
-		model.newFile();
-	}
-	
-	/**
-	 * @see EMaMControllerInterface#openFile()
-	 */
-	public void openFile() {
-		/* If current file is not saved ask what to do.  */
-		if (!model.isFileSaved()) {
-			/* Ask of*/
-			int answer = saveCurrentFileQuestion();
-			if (answer == YES)
-				/* Save file. */
-				saveFile();
-			else if (answer == CANCEL)
-				/* Cancel open file and return to previous file. */
-				return;
-		} 
-		/* Request view for a filename. */
-		File fileToOpen = view.selectFileToOpen(EMaMViewInterface.EMAM_FILES);
-		if (fileToOpen == null) {
-			/* User canceled the request. */
-			return;
-		}
-		/* Effectively open file. */
-		openFile(fileToOpen);
-	}
-	
-	/**
-	 * @see EMaMControllerInterface#saveFile()
-	 */
-	public void saveFile() {
-		if (model.getCurrentFile() == null) {
-			saveAsFile();
-		} else {
-			try {
-				model.saveFile();
-			} catch (IOException ioe) {
-				view.dialogWarning(
-						langProperties.getProperty("IOWarning"), 
-						new String[] {ioe.getLocalizedMessage()},
-						langProperties.getProperty("WarningMessageTitle"));
-				return;
-			}
-		}
-	}
-
-	/**
-	 * @see EMaMControllerInterface#saveAsFile()
-	 */
-	public void saveAsFile() {
-		File newFile;
-		/* Required cycle: if file exists and user does not want to overwrite it
-		 * then we must ask again for another filename. */
-		do {
-			/* Ask user for a filename. */
-			if (model.getCurrentFile() == null)
-				newFile = view.selectFileToSave(newFilename());
-			else
-				newFile = view.selectFileToSave(model.getCurrentFile().getName());
-			if (newFile == null) return;
-			if (newFile.exists()) {
-				/* If given file exists, ask if user wants to overwrite it. */
-				String options[] = {
-						langProperties.getProperty("Yes"),
-						langProperties.getProperty("No"),
-						langProperties.getProperty("Cancel")};
-				int answer = view.dialogOptions(
-						langProperties.getProperty("overwriteFile"),
-						null,
-						EMaM.getProperties().getProperty("AppTitle"), 
-						options, langProperties.getProperty("Yes"));
-				if (answer == this.YES)
-					/* Get out of do-while and overwrite file. */
-					break;
-				else if (answer == this.NO)
-					/* Don't overwrite, ask for new filename. */
-					continue;
-				else if (answer == this.CANCEL)
-					/* Cancel Save As. */
-					return;
-			} else {
-				/* If given file does not exist, get out of do-while and save file. */
-				break;
-			}
-		} while (true);
-		try {
-			/* Save file. */
-			model.saveFileAs(newFile);
-		} catch (IOException ioe) {
-			/* Catch boring old IO exception, warn user... */
-			view.dialogWarning(
-					langProperties.getProperty("IOWarning"), 
-					new String[] {ioe.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			/* ...and return to main application window. */
-			return;
-		}
-	}
-
-	/**
-	 * @see EMaMControllerInterface#options()
-	 */
-	public void options() {
-		//TODO
-		view.dialogInformation("Soon...", null, "Options not yet");
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#about()
-	 */
-	public void about() {
-		String license[] = {EMaM.license};
-		view.dialogInformation("eMaM v0.2 alpha (05 Dec 2008) by FakenMC.com\nLicense:", license, langProperties.getProperty("about"));
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#exit()
-	 */
-	public void exit() {
-		if (!model.isFileSaved()) {
-			int answer = saveCurrentFileQuestion();
-			if (answer == YES)
-				/* Save file. */
-				saveFile();
-			else if (answer == CANCEL)
-				/* Cancel open file and return to previous file. */
-				return;
-		}
-		if (model.getCurrentFile() != null)
-			EMaM.getProperties().setProperty("currentFile", model.getCurrentFile().getAbsolutePath());
-		else
-			EMaM.getProperties().setProperty("currentFile", "");
-		view.dispose();
-		EMaM.saveProperties();
-		System.exit(0);
-	}
-
-	/**
-	 * @see EMaMControllerInterface#addToMailList()
-	 */
-	public void addToMailList() {
-		/* Request user to insert an address. */
-		String address = requestRegExp(
-				langProperties.getProperty("RequestAddress"),
-				EMaM.getProperties().getProperty("regexp"),
-				langProperties.getProperty("InvalidAddress"));
-		/* If user inserted a valid address and didn't press CANCEL then... */
-		if (address != null) {
-			/* ...add address to mailing list. */
-			String[] addresses = {address};
-			try {
-				model.addToMailList(addresses);
-			} catch (MutualExclusionException mee) {
-				/* The address exists in the removed list. Ask if user wants to 
-				 * move address from removed list to mail list. */
-				if (confirmAddressesOp(mee.getAddresses(), 
-						langProperties.getProperty("mutualExclusionMailList"))) {
-					model.moveFromRemovedToMailList(mee.getAddresses());
-				}
-			}
-		}
-	}
-	
-	/**
-	 * @see EMaMControllerInterface#delFromMailList(String[])
-	 */
-	public void delFromMailList(String[] addresses) {
-		if (confirmSelection(addresses))
-			if (confirmAddressesOp(addresses, langProperties.getProperty("delFrom")))
-				model.delFromMailList(addresses);
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#copyMailListToClipboard()
-	 */
-	public void copyMailListToClipboard() {
-		copyToClipboard(model.getListedAddresses());
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#moveFromMailListToRemoved(String[])
-	 */
-	public void moveFromMailListToRemoved(String[] addresses) {
-		if (confirmSelection(addresses)) {
-			if (confirmAddressesOp(addresses, langProperties.getProperty("moveFromTo"))) {
-				model.moveFromMailListToRemoved(addresses);
-			}
-		}
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#moveFromRemovedToMailList(String[])
-	 */
-	public void moveFromRemovedToMailList(String[] addresses) {
-		if (confirmSelection(addresses)) {
-			if (confirmAddressesOp(addresses, langProperties.getProperty("moveFromTo"))) {
-				model.moveFromRemovedToMailList(addresses);
-			}
-		}
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#addToRemoved()
-	 */
-	public void addToRemoved() {
-		/* Request user to insert an address. */
-		String address = requestRegExp(
-				langProperties.getProperty("RequestAddress"),
-				EMaM.getProperties().getProperty("regexp"),
-				langProperties.getProperty("InvalidAddress"));
-		/* If user inserted a valid address and didn't press CANCEL then... */
-		if (address != null) {
-			/* ...add address to removed list. */
-			String[] addresses = {address};
-			try {
-				model.addToRemoved(addresses);
-			} catch (MutualExclusionException mee) {
-				/* The address exists in the mail list. Ask if user wants to 
-				 * move address from mail list to removed list. */
-				if (confirmAddressesOp(mee.getAddresses(), 
-						langProperties.getProperty("mutualExclusionRemoved"))) {
-					model.moveFromMailListToRemoved(mee.getAddresses());
-				}
-			}
-		}
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#delFromRemoved(String[])
-	 */
-	public void delFromRemoved(String[] addresses) {
-		if (confirmSelection(addresses))
-			if (confirmAddressesOp(addresses, langProperties.getProperty("delFrom")))
-				model.delFromRemoved(addresses);
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#copyRemovedToClipboard()
-	 */
-	public void copyRemovedToClipboard() {
-		copyToClipboard(model.getRemovedAddresses());
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#addToReturned()
-	 */
-	public void addToReturned() {
-		/* Request user to insert an address. */
-		String address = requestRegExp(
-				langProperties.getProperty("RequestAddress"),
-				EMaM.getProperties().getProperty("regexp"),
-				langProperties.getProperty("InvalidAddress"));
-		/* If user inserted a valid address and didn't press CANCEL then... */
-		if (address != null) {
-			/* ...add address to returned list. */
-			String[] addresses = {address};
-			model.addToReturned(addresses);
-		}		
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#delFromReturned(String[])
-	 */
-	public void delFromReturned(String[] addresses) {
-		if (confirmSelection(addresses))
-			if (confirmAddressesOp(addresses, langProperties.getProperty("delFrom")))
-				model.delFromReturned(addresses);
-		
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#incrementReturned(String[])
-	 */
-	public void incrementReturned(String[] addresses) {
-		if (confirmSelection(addresses))
-			model.incrementReturned(addresses);
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#decrementReturned(String[])
-	 */
-	public void decrementReturned(String[] addresses) {
-		if (confirmSelection(addresses))
-			model.decrementReturned(addresses);
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#processReturned()
-	 */
-	public void processReturned() {
-		int value;
-		/* If user inserted a value bigger than 0... */
-		if ((value = requestInteger()) > 0)
-			/* Move addresses... */
-			model.processReturned(value);
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#extractAddressesFromFile()
-	 */
-	public void extractAddressesFromFile() {
-		/* Request file from user using the view. */
-		File file = view.selectFileToOpen(EMaMViewInterface.ALL_FILES);
-		if (file == null) {
-			/* The user canceled the request. */
-			return;
-		}
-		/* Read file. */
-		BufferedReader br = null;
-		try {
-			br = new BufferedReader(new FileReader(file));
-		} catch (FileNotFoundException e) {
-			/* The selected file is not found.  */
-			view.dialogWarning(
-					langProperties.getProperty("FileNotFoundWarning"),
-					new String[] {e.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			model.newFile();
-			return;
-		}
-		String line;
-		StringBuilder text = new StringBuilder();
-		try {
-			while ((line = br.readLine()) != null)
-				text.append(line + " ");
-		} catch (IOException e) {
-			/* IO problem. */
-			view.dialogWarning(
-					langProperties.getProperty("IOWarning"),
-					new String[] {e.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			model.newFile();
-			return;
-		}
-		extractAddresses(text.toString());
-	}
-
-	/**
-	 * @see EMaMControllerInterface#extractAddresses(String)
-	 */
-	public void extractAddresses(String text) {
-		if (model.getExtractedAddresses().length > 0) {
-			if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("delFrom")))
-				return;
-		}
-		model.extractAddresses(text);
-	}
-
-	/**
-	 * @see EMaMControllerInterface#moveExtractedToMailList()
-	 */	
-	public void moveExtractedToMailList() {
-		/* Ask user to confirm operation with given addresses. */
-		if (confirmAddressesOp(
-				model.getExtractedAddresses(), 
-				langProperties.getProperty("moveFromTo"))) {
-			try {
-				/* Move extracted addresses to mail list. */
-				model.moveExtractedToMailList();
-			} catch (MutualExclusionException mee) {
-				/* In case some of the addresses exist in the removed list, ask user
-				 * what to do. */
-				String options[] = {
-						langProperties.getProperty("Yes"),
-						langProperties.getProperty("No"),
-						langProperties.getProperty("Cancel")
-				};
-				int op = view.dialogOptions(
-						langProperties.getProperty("mutualExclusionOptionMailList"), 
-						mee.getAddresses(), 
-						langProperties.getProperty("QuestionMessageTitle"), 
-						options, 
-						langProperties.getProperty("No"));
-				if (op == this.YES) {
-					/* In this case, move mails which exist the removed list to the
-					 * mailing list. */
-					model.moveFromRemovedToMailList(mee.getAddresses());
-				} else if (op == this.NO) {
-					/* In this case, move only addresses which do not exist in the
-					 * Removed List, i.e., remove said addresses from extracted list. */
-					model.delFromExtracted(mee.getAddresses());
-				} else if (op == this.CANCEL) {
-					/* In this case do nothing.*/
-					return;
-				}
-				/* If we get here its because the user answered yes or no. */
-				try {
-					model.moveExtractedToMailList();				
-				} catch (MutualExclusionException mee2) {
-					/* This should not occur. If it does, it's a critical error. */
-					EMaM.errorHandler(
-							langProperties.getProperty("mutualExclusionErrorMessage"), 
-							EMaM.MUTUAL_EXCLUSION_ERROR);
-					view.dispose();
-				}				
-			}
-		}
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#moveExtractedToRemoved()
-	 */
-	public void moveExtractedToRemoved() {
-		/* Ask user to confirm operation with given addresses. */
-		if (confirmAddressesOp(
-				model.getExtractedAddresses(), 
-				langProperties.getProperty("moveFromTo"))) {
-			try {
-				/* Move extracted addresses to removed list. */
-				model.moveExtractedToRemoved();
-			} catch (MutualExclusionException mee) {
-				/* In case some of the addresses exist in the mailing list, ask user
-				 * what to do. */
-				String options[] = {
-						langProperties.getProperty("Yes"),
-						langProperties.getProperty("No"),
-						langProperties.getProperty("Cancel")
-				};
-				int op = view.dialogOptions(
-						langProperties.getProperty("mutualExclusionOptionRemoved"), 
-						mee.getAddresses(), 
-						langProperties.getProperty("QuestionMessageTitle"), 
-						options, 
-						langProperties.getProperty("No"));
-				if (op == this.YES) {
-					/* In this case, move mails which exist in the mailing list to the
-					 * removed list. */
-					model.moveFromMailListToRemoved(mee.getAddresses());
-				} else if (op == this.NO) {
-					/* In this case, move only addresses which do not exist in the
-					 * Mailing List, i.e., remove said addresses from extracted list. */
-					model.delFromExtracted(mee.getAddresses());
-				} else if (op == this.CANCEL) {
-					/* In this case do nothing.*/
-					return;
-				}
-				/* If we get here its because the user answered yes or no. */
-				try {
-					model.moveExtractedToRemoved();
-				} catch (MutualExclusionException mee2) {
-					/* This should not occur. If it does, it's a critical error. */
-					EMaM.errorHandler(
-							langProperties.getProperty("mutualExclusionErrorMessage"), 
-							EMaM.MUTUAL_EXCLUSION_ERROR);
-					view.dispose();
-				}				
-			}
-		}
-	}
-
-	
-	/**
-	 * @see EMaMControllerInterface#moveExtractedToReturned()
-	 */
-	public void moveExtractedToReturned() {
-		if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("moveFromTo"))) {
-			model.moveExtractedToReturned();
-		}
-	}
-
-	/**
-	 * @see EMaMControllerInterface#addToExtracted()
-	 */
-	public void addToExtracted() {
-		/* Request user to insert an address. */
-		String address = requestRegExp(
-				langProperties.getProperty("RequestAddress"),
-				EMaM.getProperties().getProperty("regexp"),
-				langProperties.getProperty("InvalidAddress"));
-		/* If user inserted a valid address and didn't press CANCEL then... */
-		if (address != null) {
-			/* ...add address to extracted list. */
-			String[] addresses = {address};
-			model.addToExtracted(addresses);
-		}
-	}
-	
-	/**
-	 * @see EMaMControllerInterface#delFromExtracted(String[])
-	 */
-	public void delFromExtracted(String[] addresses) {
-		if (confirmSelection(addresses))
-			if (confirmAddressesOp(addresses, langProperties.getProperty("delFrom")))
-				model.delFromExtracted(addresses);
-	}
-
-	/**
-	 * @see EMaMControllerInterface#clearExtracted()
-	 */
-	public void clearExtracted() {
-		if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("delFrom")))
-				model.clearExtracted();
-	}
-	
-	/* ********************************************** */
-	/*                PRIVATE METHODS                 */
-	/* ********************************************** */
-
-	/**
-	 * Sets the language for this controller.
-	 * 
-	 * @throws FileNotFoundException When the language file is not found.
-	 * @throws IOException When there is an error opening the language file.
-	 */
-	private void setLanguage() throws FileNotFoundException, IOException {
-		String lang = EMaM.getProperties().getProperty("lang");
-		String langFolder = EMaM.getProperties().getProperty("langFolder");
-		langProperties = new Properties();
-		langProperties.load(new FileReader(
-				langFolder + File.separatorChar + lang + 
-				File.separatorChar + this.getClass().getSimpleName() + ".properties"));
-	}
-
-	/**
-	 * Copy an array of addresses to the system clipboard, requesting the user
-	 * to insert a separator character.
-	 * 
-	 * @param addresses Array of addresses to be copied to the clipboard.
-	 */
-	private void copyToClipboard(String[] addresses) {
-		String separator;
-		/* Ask the user an address separator. */
-		separator = requestRegExp(
-				langProperties.getProperty("RequestSeparatorString"),
-				".*",
-				langProperties.getProperty("InvalidSeparatorString"));
-		if (separator != null) {
-			/* Copy addresses separated by a separator to the system clipboard. */
-			StringBuilder toCopy = new StringBuilder();
-			for (String address : addresses) {
-				toCopy.append(address);
-				toCopy.append(separator);
-			}
-			view.copyToClipboard(toCopy.toString());
-		}		
-	}
-
-	/**
-	 * In case given string array has no content, inform the user and return false.
-	 * Otherwise return true.
-	 * 
-	 * @param addresses String array to check for content.
-	 * @return True if array has content, false otherwise.
-	 */
-	private boolean confirmSelection(String[] addresses) {
-		/* The must be some addresses to remove. */
-		if (addresses.length < 1) {
-			/* No addresses were selected, inform user. */
-			view.dialogWarning(
-					langProperties.getProperty("noSelection"),
-					null,
-					langProperties.getProperty("WarningMessageTitle"));
-			return false;
-		}
-		return true;
-	}
-
-	/**
-	 * Ask user to confirm operation on an array of addresses.
-	 *  
-	 * @param addresses Array of addresses.
-	 * @param message Message to display to the user.
-	 * @return True if user agrees, false otherwise.
-	 */
-	private boolean confirmAddressesOp(String[] addresses, String message) {
-		/* Set options. */
-		String options[] = {
-				langProperties.getProperty("Ok"),
-				langProperties.getProperty("Cancel")};
-		/* Determine if the operation concerns one or more addresses. */
-		String addressNum;
-		if (addresses.length == 1)
-			addressNum = langProperties.getProperty("address");
-		else
-			addressNum = langProperties.getProperty("addresses");
-		/* Ask user if he really wants to delete given addresses. */
-		int answer = 
-			view.dialogOptions(
-					message + "\n" 
-					+ "(" + langProperties.getProperty("total") + ": "
-					+ addresses.length + " " + addressNum + ")",
-					addresses,
-					EMaM.getProperties().getProperty("AppTitle"), 
-					options, 
-					langProperties.getProperty("Ok"));
-		if (answer == DEL_OK)
-			return true;
-		return false;
-	}
-	
-	/**
-	 * Ask the user to insert a string according to a specific regular expression.
-	 * 
-	 * @param message Message to show to the user.
-	 * @param regexp Regular expression to match user inserted string.
-	 * @param warningMessage Warning message if inserted string is not in accordance with regular expression.
-	 * @return A user string in accordance with the given regular expression.
-	 */
-	private String requestRegExp(String message, String regexp, String warningMessage) {
-		String input = null;
-		boolean trim = false;
-		boolean validInput = false;
-		/* Keep asking the user for input until a valid expression is given, or CANCEL is pressed. */
-		do {
-			/* Ask for user input. */
-			input = view.dialogInput(
-				message,
-				null,
-				langProperties.getProperty("InputMessageTitle"));
-			/* If user didn't press CANCEL, proceed..*/
-			if (input != null) {
-				/* Check if user inserted valid expression. */
-				if (input.matches(regexp)) {
-					/* Valid address! */
-					validInput = true;
-				} else if (input.trim().matches(regexp)) {
-					/* Valid address! */
-					validInput = true;
-					trim = true;
-				} else {
-					view.dialogWarning(
-							warningMessage,
-							null,
-							langProperties.getProperty("WarningMessageTitle"));
-				}
-			} else {
-				/* The user pressed cancel, let's get out of here. */
-				break;
-			}
-		} while (!validInput);
-		if (trim)
-			return input.trim();
-		else
-			return input;
-	}
-	
-	/**
-	 * Ask the user to insert an integer value.
-	 * 
-	 * @return A user inserted integer value.
-	 */
-	private int requestInteger() {
-		/* Keep asking the user for input until a valid address is given, or CANCEL is pressed. */
-		do {
-			/* Ask for user input. */
-			String input;
-			input = view.dialogInput(
-				langProperties.getProperty("RequestMinimumProcessValue"),
-				null,
-				langProperties.getProperty("InputMessageTitle"));
-			/* If user didn't press CANCEL, proceed..*/
-			if (input != null) {
-				/* Check if user inserted valid address. */
-				int value;
-				try {
-					value = Integer.parseInt(input);
-					if (value < 1) 
-						throw new NumberFormatException();
-				} catch (NumberFormatException nfe) {
-					/* Not a valid integer. */
-					view.dialogWarning(
-							langProperties.getProperty("InvalidMinimumProcessValue"),
-							null,
-							langProperties.getProperty("WarningMessageTitle"));
-					/* Ask again. */
-					continue;
-				}
-				return value;
-			} else {
-				/* The user pressed cancel, let's get out of here. */
-				return -1;
-			}
-		} while (true);
-	}
-	
-	/**
-	 * Effectively ask the model to open a given file and handle
-	 * possible errors.
-	 * 
-	 * @param fileToOpen File to open.
-	 */
-	private void openFile(File fileToOpen) {
-		/* Open new file. */
-		try {
-			model.openFile(fileToOpen);
-		} catch (PatternSyntaxException e) {
-			/* The expression given in the properties file is not a valid
-			 * regular expression. */
-			EMaM.errorHandler(
-					langProperties.getProperty("PatternSyntaxException"), 
-					EMaM.REGEXP_ERROR);
-			view.dispose();
-		} catch (FileNotFoundException e) {
-			/* The selected file is not found.  */
-			view.dialogWarning(
-					langProperties.getProperty("FileNotFoundWarning"),
-					new String[] {e.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			model.newFile();
-		} catch (IOException e) {
-			/* IO problem. */
-			view.dialogWarning(
-					langProperties.getProperty("IOWarning"),
-					new String[] {e.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			model.newFile();
-		} catch (InvalidStringException e) {
-			/* A line of the file does not conform to the address regular expression. */
-			view.dialogWarning(
-					langProperties.getProperty("InvalidStringWarning"), 
-					new String[] {e.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			model.newFile();
-		} catch (InvalidFileFormatException e) {
-			/* The file does not conform to the norm. */
-			view.dialogWarning(
-					langProperties.getProperty("InvalidFileFormatException"), 
-					new String[] {e.getLocalizedMessage()},
-					langProperties.getProperty("WarningMessageTitle"));
-			model.newFile();
-		}		
-	}
-	
-	/**
-	 * Ask the user if he wants to save current file.
-	 * 
-	 * @return YES, NO or CANCEL constants.
-	 */
-	private int saveCurrentFileQuestion() {
-		String options[] = {
-				langProperties.getProperty("Yes"),
-				langProperties.getProperty("No"),
-				langProperties.getProperty("Cancel")};
-		int answer = view.dialogOptions(
-				langProperties.getProperty("fileNotSavedMessage"),
-				null,
-				EMaM.getProperties().getProperty("AppTitle"), 
-				options, langProperties.getProperty("Yes"));
-		return answer;
-	}
-	
-	/**
-	 * Returns a default filename for new files.
-	 * 
-	 * @return A default filename for new files.
-	 */
-	private String newFilename() {
-		return langProperties.getProperty("newEMaMFilename")
-			+ "." +
-			EMaM.getProperties().getProperty("eMaMFilenameExt");
-	}	
-//	/**
-//	 * Forces deletion from removed list and ad
-//	 * @param toDelFromRemoved
-//	 * @param toAddToMailList
-//	 */
-//	private void forceDelFromRemovedAndAddToMailList(
-//			String[] toDelFromRemoved, 
-//			String[] toAddToMailList) {
-//		if (confirmAddressesOp(toDelFromRemoved, langProperties.getProperty("mutualExclusionMailList"))) {
-//			//model.
-//			//model.delFromRemoved(toDelFromRemoved);
-//			try {
-//				model.addToMailList(toAddToMailList);
-//			} catch (MutualExclusionException mee) {
-//				view.dialogError(
-//						langProperties.getProperty("mutualExclusionErrorMessage"), 
-//						mee.getAddresses(), 
-//						langProperties.getProperty("ErrorMessageTitle"));
-//			}
-//		}
-//	}
-//
-//	private void forceDelFromMailListAndAddToRemoved(
-//			String[] toDelFromMailList, 
-//			String[] toAddToRemoved) {
-//		if (confirmAddressesOp(toDelFromMailList, langProperties.getProperty("mutualExclusionRemoved"))) {
-//			//moveFrom
-//			//			model.delFromMailList(toDelFromMailList);
-////			try {
-////				model.addToRemoved(toAddToRemoved);
-////			} catch (MutualExclusionException mee) {
-////				view.dialogError(
-////						langProperties.getProperty("mutualExclusionErrorMessage"), 
-////						mee.getAddresses(), 
-////						langProperties.getProperty("ErrorMessageTitle"));
-////			}
-//		}
-//	}
-}
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.PatternSyntaxException;
+import javax.swing.SwingWorker;
+
+/**
+ * The reference implementation of the application controller.
+ * The responsibilities of this class are described by the
+ * MVC design pattern.
+ * 
+ * @author Nuno Fachada.
+ *
+ */
+public class EMaMController implements EMaMControllerInterface {
+	/* Constants. */
+	private final int YES = 0;
+	private final int NO = 1;
+	private final int CANCEL = 2;
+	private final int DEL_OK = 0;
+	//private final int DEL_CANCEL = 1;
+
+	/* Model and view references. */
+	private EMaMModelInterface model;
+	private EMaMView view;
+	/* Language properties. */
+	private Properties langProperties;
+
+	/**
+	 * Creates a new EMaM controller.
+	 * 
+	 * @param model A EMaM model for the controller to control.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public EMaMController(EMaMModelInterface model) 
+	throws FileNotFoundException, IOException {
+		/* Set model to control. */
+		this.model = model;
+		/* Set language. */
+		setLanguage();
+		/* Create view for this controller and respective model. */
+		view = new EMaMView(this, model);
+		view.createView();
+		/* Obtain last used file. */
+		String currentFile = EMaM.getProperties().getProperty("currentFile");
+		if ((currentFile != null) && (currentFile.compareTo("") != 0)) {
+			openFile(new File(currentFile));
+		} else {
+			newFile();
+		}
+	}
+	
+	/**
+	 * @see EMaMControllerInterface#newFile()
+	 */
+	public void newFile() {
+		/* If current file is not saved ask what to do.  */
+		if (!model.isFileSaved()) {
+			int answer = saveCurrentFileQuestion();
+			if (answer == YES)
+				/* Save file. */
+				saveFile();
+			else if (answer == CANCEL)
+				/* Cancel open file and return to previous file. */
+				return;
+		}
+		model.newFile();
+	}
+	
+	/**
+	 * @see EMaMControllerInterface#openFile()
+	 */
+	public void openFile() {
+		/* If current file is not saved ask what to do.  */
+		if (!model.isFileSaved()) {
+			/* Ask of*/
+			int answer = saveCurrentFileQuestion();
+			if (answer == YES)
+				/* Save file. */
+				saveFile();
+			else if (answer == CANCEL)
+				/* Cancel open file and return to previous file. */
+				return;
+		} 
+		/* Request view for a filename. */
+		File fileToOpen = view.selectFileToOpen(EMaMViewInterface.EMAM_FILES);
+		if (fileToOpen == null) {
+			/* User canceled the request. */
+			return;
+		}
+		/* Effectively open file. */
+		openFile(fileToOpen);
+	}
+	
+	/**
+	 * @see EMaMControllerInterface#saveFile()
+	 */
+	public void saveFile() {
+		if (model.getCurrentFile() == null) {
+			saveAsFile();
+		} else {
+			try {
+				model.saveFile();
+			} catch (IOException ioe) {
+				view.dialogWarning(
+						langProperties.getProperty("IOWarning"), 
+						new String[] {ioe.getLocalizedMessage()},
+						langProperties.getProperty("WarningMessageTitle"));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @see EMaMControllerInterface#saveAsFile()
+	 */
+	public void saveAsFile() {
+		/* Ask user for a filename. */
+		File newFile;
+		if (model.getCurrentFile() == null)
+			newFile = requestFileToSave(newFilename());
+		else
+			newFile = requestFileToSave(model.getCurrentFile().getName());
+		if (newFile == null) return;
+		try {
+			/* Save file. */
+			model.saveFileAs(newFile);
+		} catch (IOException ioe) {
+			/* Catch boring old IO exception, warn user... */
+			view.dialogWarning(
+					langProperties.getProperty("IOWarning"), 
+					new String[] {ioe.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			/* ...and return to main application window. */
+			return;
+		}
+	}
+
+	/**
+	 * @see EMaMControllerInterface#exportList()
+	 */
+	public void exportList() {
+		/* Ask user which list to export. */
+		String lists[] = {
+				langProperties.getProperty("mailList"),
+				langProperties.getProperty("removedList"),
+				langProperties.getProperty("returnedList"),
+				langProperties.getProperty("extractedList")};
+		int list = view.dialogOptions(
+				langProperties.getProperty("exportWhichList"), 
+				null, 
+				EMaM.getProperties().getProperty("AppTitle"), 
+				lists, 
+				lists[0]);
+		if ((list < 0) || (list >= lists.length)) return;
+		/* Ask user which format to use. */
+		String formats[] = {
+				langProperties.getProperty("exportPlain"),
+				langProperties.getProperty("exportCsv"),
+				langProperties.getProperty("exportJson")};
+		int format = view.dialogOptions(
+				langProperties.getProperty("exportWhichFormat"), 
+				null, 
+				EMaM.getProperties().getProperty("AppTitle"), 
+				formats, 
+				formats[0]);
+		if ((format < 0) || (format >= formats.length)) return;
+		/* The plain text format requires a separator. */
+		String separator = ",";
+		if (format == AddressExporter.PLAIN) {
+			separator = requestRegExp(
+					langProperties.getProperty("exportRequestSeparator"),
+					".*",
+					langProperties.getProperty("InvalidSeparatorString"));
+			if (separator == null) return;
+			separator = AddressExporter.unescape(separator);
+		}
+		/* Ask if file should be compressed. */
+		String options[] = {
+				langProperties.getProperty("Yes"),
+				langProperties.getProperty("No"),
+				langProperties.getProperty("Cancel")};
+		int answer = view.dialogOptions(
+				langProperties.getProperty("exportGzip"),
+				null,
+				EMaM.getProperties().getProperty("AppTitle"), 
+				options, langProperties.getProperty("No"));
+		if ((answer != YES) && (answer != NO)) return;
+		boolean gzip = (answer == YES);
+		/* Ask user for a filename. */
+		String extensions[] = {".txt", ".csv", ".json"};
+		File file = requestFileToSave(
+				langProperties.getProperty("newEMaMFilename") 
+				+ extensions[format] + (gzip ? ".gz" : ""));
+		if (file == null) return;
+		/* The sorted arrays of the model are not changed once made, so the 
+		 * list can be changed during the export. */
+		String[] sorted;
+		Object[] sortedCounts = null;
+		if (list == EMaMModelInterface.RETURNED_LIST) {
+			Object[][] returned = model.getReturnedAddresses();
+			sorted = (returned.length == 2) ? (String[]) returned[0] : new String[0];
+			sortedCounts = (returned.length == 2) ? returned[1] : new Object[0];
+		} else if (list == EMaMModelInterface.MAIL_LIST) {
+			sorted = model.getListedAddresses();
+		} else if (list == EMaMModelInterface.REMOVED_LIST) {
+			sorted = model.getRemovedAddresses();
+		} else {
+			sorted = model.getExtractedAddresses();
+		}
+		/* Stream the list to file in the background. */
+		final String[] addresses = sorted;
+		final Object[] counts = sortedCounts;
+		final File exportFile = file;
+		final AddressExporter exporter = new AddressExporter(format, separator, gzip);
+		new SwingWorker<Void, Void>() {
+			protected Void doInBackground() throws IOException {
+				OutputStream out = new FileOutputStream(exportFile);
+				try {
+					exporter.export(addresses, counts, out);
+				} finally {
+					out.close();
+				}
+				return null;
+			}
+			protected void done() {
+				try {
+					get();
+				} catch (InterruptedException ie) {
+					return;
+				} catch (ExecutionException ee) {
+					view.dialogWarning(
+							langProperties.getProperty("IOWarning"), 
+							new String[] {ee.getCause().getLocalizedMessage()},
+							langProperties.getProperty("WarningMessageTitle"));
+					return;
+				}
+				view.dialogInformation(
+						langProperties.getProperty("exportDone"), 
+						new String[] {exportFile.getName(), exporter.getReport()}, 
+						langProperties.getProperty("InformationMessageTitle"));
+			}
+		}.execute();
+	}
+
+	/**
+	 * @see EMaMControllerInterface#options()
+	 */
+	public void options() {
+		//TODO
+		view.dialogInformation("Soon...", null, "Options not yet");
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#undo()
+	 */
+	public void undo() {
+		model.undo();
+	}
+
+	/**
+	 * @see EMaMControllerInterface#redo()
+	 */
+	public void redo() {
+		model.redo();
+	}
+
+	/**
+	 * @see EMaMControllerInterface#about()
+	 */
+	public void about() {
+		String license[] = {EMaM.license};
+		view.dialogInformation("eMaM v0.2 alpha (05 Dec 2008) by FakenMC.com\nLicense:", license, langProperties.getProperty("about"));
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#exit()
+	 */
+	public void exit() {
+		if (!model.isFileSaved()) {
+			int answer = saveCurrentFileQuestion();
+			if (answer == YES)
+				/* Save file. */
+				saveFile();
+			else if (answer == CANCEL)
+				/* Cancel open file and return to previous file. */
+				return;
+		}
+		if (model.getCurrentFile() != null)
+			EMaM.getProperties().setProperty("currentFile", model.getCurrentFile().getAbsolutePath());
+		else
+			EMaM.getProperties().setProperty("currentFile", "");
+		view.dispose();
+		EMaM.saveProperties();
+		System.exit(0);
+	}
+
+	/**
+	 * @see EMaMControllerInterface#addToMailList()
+	 */
+	public void addToMailList() {
+		/* Request user to insert an address. */
+		String address = requestRegExp(
+				langProperties.getProperty("RequestAddress"),
+				EMaM.getProperties().getProperty("regexp"),
+				langProperties.getProperty("InvalidAddress"));
+		/* If user inserted a valid address and didn't press CANCEL then... */
+		if (address != null) {
+			/* ...add address to mailing list. */
+			String[] addresses = {address};
+			try {
+				model.addToMailList(addresses);
+			} catch (MutualExclusionException mee) {
+				if (mee.getSuppressedAddresses().length > 0) {
+					/* The address is matched by a wildcard rule, which 
+					 * suppresses it wherever it is; tell user which rule. */
+					view.dialogWarning(
+							langProperties.getProperty("mutualExclusionRuleMailList"), 
+							suppressedWithRules(mee),
+							langProperties.getProperty("WarningMessageTitle"));
+				} else if (confirmAddressesOp(mee.getAddresses(), 
+						langProperties.getProperty("mutualExclusionMailList"))) {
+					/* The address exists in the removed list. Ask if user wants to 
+					 * move address from removed list to mail list. */
+					model.moveFromRemovedToMailList(mee.getAddresses());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @see EMaMControllerInterface#delFromMailList(AddressSelection)
+	 */
+	public void delFromMailList(AddressSelection selection) {
+		if (confirmSelection(selection))
+			if (confirmAddressesOp(model.getAddresses(selection), langProperties.getProperty("delFrom")))
+				model.delSelection(selection);
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#copyMailListToClipboard()
+	 */
+	public void copyMailListToClipboard() {
+		copyToClipboard(model.getListedAddresses());
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#moveFromMailListToRemoved(AddressSelection)
+	 */
+	public void moveFromMailListToRemoved(AddressSelection selection) {
+		if (confirmSelection(selection)) {
+			if (confirmAddressesOp(model.getAddresses(selection), langProperties.getProperty("moveFromTo"))) {
+				try {
+					model.moveSelection(selection, EMaMModelInterface.REMOVED_LIST);
+				} catch (MutualExclusionException mee) {
+					/* This should not occur, addresses come from the other 
+					 * list. If it does, it's a critical error. */
+					EMaM.errorHandler(
+							langProperties.getProperty("mutualExclusionErrorMessage"), 
+							EMaM.MUTUAL_EXCLUSION_ERROR);
+					view.dispose();
+				}
+			}
+		}
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#moveFromRemovedToMailList(AddressSelection)
+	 */
+	public void moveFromRemovedToMailList(AddressSelection selection) {
+		if (confirmSelection(selection)) {
+			if (confirmAddressesOp(model.getAddresses(selection), langProperties.getProperty("moveFromTo"))) {
+				try {
+					model.moveSelection(selection, EMaMModelInterface.MAIL_LIST);
+				} catch (MutualExclusionException mee) {
+					if (mee.getSuppressedAddresses().length > 0) {
+						/* Some addresses are matched by wildcard rules, so they
+						 * stay in the removed list; ask if user wants to move 
+						 * the others. */
+						if (confirmAddressesOp(suppressedWithRules(mee),
+								langProperties.getProperty("mutualExclusionRuleMoveFromRemoved")))
+							model.moveFromRemovedToMailList(model.getAddresses(selection));
+						return;
+					}
+					/* This should not occur, addresses come from the other 
+					 * list. If it does, it's a critical error. */
+					EMaM.errorHandler(
+							langProperties.getProperty("mutualExclusionErrorMessage"), 
+							EMaM.MUTUAL_EXCLUSION_ERROR);
+					view.dispose();
+				}
+			}
+		}
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#addToRemoved()
+	 */
+	public void addToRemoved() {
+		/* Request user to insert an address or a wildcard rule. */
+		String address = requestRegExp(
+				langProperties.getProperty("RequestAddressOrRule"),
+				"(?:" + EMaM.getProperties().getProperty("regexp") + ")|(?:"
+				+ SuppressionMatcher.RULE_REGEXP + ")",
+				langProperties.getProperty("InvalidAddressOrRule"));
+		/* If user inserted a valid address and didn't press CANCEL then... */
+		if (address != null) {
+			/* ...add address to removed list. */
+			String[] addresses = {address};
+			try {
+				model.addToRemoved(addresses);
+			} catch (MutualExclusionException mee) {
+				/* The address (or addresses matched by the rule) exists in the
+				 * mail list. Ask if user wants to move them from mail list to 
+				 * removed list. */
+				if (confirmAddressesOp(mee.getAddresses(), 
+						langProperties.getProperty("mutualExclusionRemoved"))) {
+					model.moveFromMailListToRemoved(mee.getAddresses());
+					if (SuppressionMatcher.isRule(address)) {
+						/* The rule itself still has to be added. */
+						try {
+							model.addToRemoved(new String[] {address});
+						} catch (MutualExclusionException mee2) {
+							/* This should not occur. If it does, it's a critical error. */
+							EMaM.errorHandler(
+									langProperties.getProperty("mutualExclusionErrorMessage"), 
+									EMaM.MUTUAL_EXCLUSION_ERROR);
+							view.dispose();
+						}
+					}
+				}
+			}
+		}
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#delFromRemoved(AddressSelection)
+	 */
+	public void delFromRemoved(AddressSelection selection) {
+		if (confirmSelection(selection))
+			if (confirmAddressesOp(model.getAddresses(selection), langProperties.getProperty("delFrom")))
+				model.delSelection(selection);
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#copyRemovedToClipboard()
+	 */
+	public void copyRemovedToClipboard() {
+		copyToClipboard(model.getRemovedAddresses());
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#addToReturned()
+	 */
+	public void addToReturned() {
+		/* Request user to insert an address. */
+		String address = requestRegExp(
+				langProperties.getProperty("RequestAddress"),
+				EMaM.getProperties().getProperty("regexp"),
+				langProperties.getProperty("InvalidAddress"));
+		/* If user inserted a valid address and didn't press CANCEL then... */
+		if (address != null) {
+			/* ...add address to returned list. */
+			String[] addresses = {address};
+			model.addToReturned(addresses);
+		}		
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#delFromReturned(AddressSelection)
+	 */
+	public void delFromReturned(AddressSelection selection) {
+		if (confirmSelection(selection))
+			if (confirmAddressesOp(model.getAddresses(selection), langProperties.getProperty("delFrom")))
+				model.delSelection(selection);
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#incrementReturned(String[])
+	 */
+	public void incrementReturned(String[] addresses) {
+		if (confirmSelection(addresses))
+			model.incrementReturned(addresses);
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#decrementReturned(String[])
+	 */
+	public void decrementReturned(String[] addresses) {
+		if (confirmSelection(addresses))
+			model.decrementReturned(addresses);
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#processReturned()
+	 */
+	public void processReturned() {
+		int value;
+		/* If user inserted a value bigger than 0... */
+		if ((value = requestInteger()) > 0)
+			/* Move addresses... */
+			model.processReturned(value);
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#extractAddressesFromFile()
+	 */
+	public void extractAddressesFromFile() {
+		/* Request file from user using the view. */
+		File file = view.selectFileToOpen(EMaMViewInterface.ALL_FILES);
+		if (file == null) {
+			/* The user canceled the request. */
+			return;
+		}
+		extractAddressesFromFile(file);
+	}
+
+	/**
+	 * @see EMaMControllerInterface#extractAddressesFromFile(File)
+	 */
+	public void extractAddressesFromFile(File file) {
+		if ((model.getExtractedAddresses().length > 0) && !model.isAccumulateExtracted()) {
+			if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("delFrom")))
+				return;
+		}
+		/* Extract addresses from file. */
+		try {
+			if (MailboxExtractor.isMailFile(file)) {
+				/* Ask where to look for addresses in e-mail messages. */
+				String[] options = {
+						langProperties.getProperty("extractMailMessages"),
+						langProperties.getProperty("extractMailHeaders"),
+						langProperties.getProperty("extractMailPlain")};
+				int option = view.dialogOptions(
+						langProperties.getProperty("extractMailQuestion"),
+						null,
+						EMaM.getProperties().getProperty("AppTitle"),
+						options,
+						options[0]);
+				if (option == 0)
+					model.extractAddressesFromMailbox(file, null);
+				else if (option == 1)
+					model.extractAddressesFromMailbox(file, MailboxExtractor.ADDRESS_HEADERS);
+				else if (option == 2)
+					model.extractAddressesFromFile(file);
+			} else {
+				model.extractAddressesFromFile(file);
+			}
+		} catch (FileNotFoundException e) {
+			/* The selected file is not found.  */
+			view.dialogWarning(
+					langProperties.getProperty("FileNotFoundWarning"),
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			model.newFile();
+		} catch (IOException e) {
+			/* IO problem. */
+			view.dialogWarning(
+					langProperties.getProperty("IOWarning"),
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			model.newFile();
+		}
+	}
+
+	/**
+	 * @see EMaMControllerInterface#viewFile()
+	 */
+	public void viewFile() {
+		/* Request file from user using the view. */
+		File file = view.selectFileToOpen(EMaMViewInterface.ALL_FILES);
+		if (file == null) {
+			/* The user canceled the request. */
+			return;
+		}
+		try {
+			view.viewFile(file);
+		} catch (IOException e) {
+			/* IO problem. */
+			view.dialogWarning(
+					langProperties.getProperty("IOWarning"),
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+		}
+	}
+
+	/**
+	 * @see EMaMControllerInterface#extractAddresses(String)
+	 */
+	public void extractAddresses(String text) {
+		if ((model.getExtractedAddresses().length > 0) && !model.isAccumulateExtracted()) {
+			if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("delFrom")))
+				return;
+		}
+		model.extractAddresses(text);
+	}
+
+	/**
+	 * @see EMaMControllerInterface#showProvenance(String[])
+	 */
+	public void showProvenance(String[] addresses) {
+		if (!confirmSelection(addresses))
+			return;
+		if (!model.isRecordProvenance()) {
+			view.dialogInformation(
+					langProperties.getProperty("provenanceNotRecorded"), 
+					null, 
+					EMaM.getProperties().getProperty("AppTitle"));
+			return;
+		}
+		/* One line per occurrence, with source, line and offset. */
+		StringBuilder sb = new StringBuilder();
+		for (String address : addresses) {
+			sb.append(address).append('\n');
+			for (ProvenanceIndex.Occurrence occurrence : model.getProvenance(address))
+				sb.append("  ").append(occurrence).append('\n');
+		}
+		view.dialogInformation(
+				langProperties.getProperty("provenanceMessage"), 
+				new String[] {sb.toString()}, 
+				EMaM.getProperties().getProperty("AppTitle"));
+	}
+
+	/**
+	 * @see EMaMControllerInterface#setAccumulateExtracted(boolean)
+	 */
+	public void setAccumulateExtracted(boolean accumulate) {
+		model.setAccumulateExtracted(accumulate);
+		/* Remember the choice. */
+		EMaM.getProperties().setProperty("accumulateExtracted", String.valueOf(accumulate));
+	}
+
+	/**
+	 * @see EMaMControllerInterface#setLiveExtraction(boolean)
+	 */
+	public void setLiveExtraction(boolean live) {
+		/* Remember the choice, the view follows the text area. */
+		EMaM.getProperties().setProperty("liveExtraction", String.valueOf(live));
+	}
+
+	/**
+	 * @see EMaMControllerInterface#updateExtracted(String[], String[])
+	 */
+	public void updateExtracted(String[] added, String[] removed) {
+		model.updateExtracted(added, removed);
+	}
+
+	/**
+	 * @see EMaMControllerInterface#moveExtractedToMailList()
+	 */	
+	public void moveExtractedToMailList() {
+		/* Ask user to confirm operation with given addresses. */
+		if (confirmAddressesOp(
+				model.getExtractedAddresses(), 
+				langProperties.getProperty("moveFromTo"))) {
+			/* Warn the user about addresses which are probably misspelled. */
+			List<TypoDetector.Suspect> suspects = 
+				model.findTypos(EMaMModelInterface.EXTRACTED_LIST);
+			String[] kept = new String[0];
+			if (!suspects.isEmpty()) {
+				String[] typos = new String[suspects.size()];
+				String[] misspelled = new String[suspects.size()];
+				for (int i = 0; i < typos.length; i++) {
+					typos[i] = suspects.get(i).toString();
+					misspelled[i] = suspects.get(i).getAddress();
+				}
+				String options[] = {
+						langProperties.getProperty("Yes"),
+						langProperties.getProperty("No"),
+						langProperties.getProperty("Cancel")
+				};
+				int op = view.dialogOptions(
+						langProperties.getProperty("typosOptionMailList"), 
+						typos, 
+						langProperties.getProperty("QuestionMessageTitle"), 
+						options, 
+						langProperties.getProperty("No"));
+				if (op == this.NO) {
+					/* Move only the addresses which seem correct, keeping the
+					 * others in the extracted list. */
+					kept = misspelled;
+				} else if (op != this.YES) {
+					return;
+				}
+			}
+			try {
+				/* Move extracted addresses to mail list. */
+				model.moveExtractedToMailList(kept);
+			} catch (MutualExclusionException mee) {
+				if (mee.getSuppressedAddresses().length > 0) {
+					/* Addresses matched by wildcard rules can't be moved, not 
+					 * even by moving them from the removed list, so they are
+					 * dropped from the extracted list if user agrees. */
+					if (!confirmAddressesOp(suppressedWithRules(mee),
+							langProperties.getProperty("mutualExclusionRuleOptionMailList")))
+						return;
+					model.delFromExtracted(mee.getSuppressedAddresses());
+				}
+				/* In case some of the addresses exist in the removed list, ask user
+				 * what to do. */
+				String options[] = {
+						langProperties.getProperty("Yes"),
+						langProperties.getProperty("No"),
+						langProperties.getProperty("Cancel")
+				};
+				int op = (mee.getAddresses().length == 0) ? this.NO :
+					view.dialogOptions(
+						langProperties.getProperty("mutualExclusionOptionMailList"), 
+						mee.getAddresses(), 
+						langProperties.getProperty("QuestionMessageTitle"), 
+						options, 
+						langProperties.getProperty("No"));
+				if (op == this.YES) {
+					/* In this case, move mails which exist the removed list to the
+					 * mailing list. */
+					model.moveFromRemovedToMailList(mee.getAddresses());
+				} else if (op == this.NO) {
+					/* In this case, move only addresses which do not exist in the
+					 * Removed List, i.e., remove said addresses from extracted list. */
+					model.delFromExtracted(mee.getAddresses());
+				} else if (op == this.CANCEL) {
+					/* In this case do nothing.*/
+					return;
+				}
+				/* If we get here its because the user answered yes or no. */
+				try {
+					model.moveExtractedToMailList(kept);				
+				} catch (MutualExclusionException mee2) {
+					/* This should not occur. If it does, it's a critical error. */
+					EMaM.errorHandler(
+							langProperties.getProperty("mutualExclusionErrorMessage"), 
+							EMaM.MUTUAL_EXCLUSION_ERROR);
+					view.dispose();
+				}				
+			}
+		}
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#moveExtractedToRemoved()
+	 */
+	public void moveExtractedToRemoved() {
+		/* Ask user to confirm operation with given addresses. */
+		if (confirmAddressesOp(
+				model.getExtractedAddresses(), 
+				langProperties.getProperty("moveFromTo"))) {
+			try {
+				/* Move extracted addresses to removed list. */
+				model.moveExtractedToRemoved();
+			} catch (MutualExclusionException mee) {
+				/* In case some of the addresses exist in the mailing list, ask user
+				 * what to do. */
+				String options[] = {
+						langProperties.getProperty("Yes"),
+						langProperties.getProperty("No"),
+						langProperties.getProperty("Cancel")
+				};
+				int op = view.dialogOptions(
+						langProperties.getProperty("mutualExclusionOptionRemoved"), 
+						mee.getAddresses(), 
+						langProperties.getProperty("QuestionMessageTitle"), 
+						options, 
+						langProperties.getProperty("No"));
+				if (op == this.YES) {
+					/* In this case, move mails which exist in the mailing list to the
+					 * removed list. */
+					model.moveFromMailListToRemoved(mee.getAddresses());
+				} else if (op == this.NO) {
+					/* In this case, move only addresses which do not exist in the
+					 * Mailing List, i.e., remove said addresses from extracted list. */
+					model.delFromExtracted(mee.getAddresses());
+				} else if (op == this.CANCEL) {
+					/* In this case do nothing.*/
+					return;
+				}
+				/* If we get here its because the user answered yes or no. */
+				try {
+					model.moveExtractedToRemoved();
+				} catch (MutualExclusionException mee2) {
+					/* This should not occur. If it does, it's a critical error. */
+					EMaM.errorHandler(
+							langProperties.getProperty("mutualExclusionErrorMessage"), 
+							EMaM.MUTUAL_EXCLUSION_ERROR);
+					view.dispose();
+				}				
+			}
+		}
+	}
+
+	
+	/**
+	 * @see EMaMControllerInterface#moveExtractedToReturned()
+	 */
+	public void moveExtractedToReturned() {
+		if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("moveFromTo"))) {
+			model.moveExtractedToReturned();
+		}
+	}
+
+	/**
+	 * @see EMaMControllerInterface#addToExtracted()
+	 */
+	public void addToExtracted() {
+		/* Request user to insert an address. */
+		String address = requestRegExp(
+				langProperties.getProperty("RequestAddress"),
+				EMaM.getProperties().getProperty("regexp"),
+				langProperties.getProperty("InvalidAddress"));
+		/* If user inserted a valid address and didn't press CANCEL then... */
+		if (address != null) {
+			/* ...add address to extracted list. */
+			String[] addresses = {address};
+			model.addToExtracted(addresses);
+		}
+	}
+	
+	/**
+	 * @see EMaMControllerInterface#delFromExtracted(AddressSelection)
+	 */
+	public void delFromExtracted(AddressSelection selection) {
+		if (confirmSelection(selection))
+			if (confirmAddressesOp(model.getAddresses(selection), langProperties.getProperty("delFrom")))
+				model.delSelection(selection);
+	}
+
+	/**
+	 * @see EMaMControllerInterface#clearExtracted()
+	 */
+	public void clearExtracted() {
+		if (confirmAddressesOp(model.getExtractedAddresses(), langProperties.getProperty("delFrom")))
+				model.clearExtracted();
+	}
+	
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Sets the language for this controller.
+	 * 
+	 * @throws FileNotFoundException When the language file is not found.
+	 * @throws IOException When there is an error opening the language file.
+	 */
+	private void setLanguage() throws FileNotFoundException, IOException {
+		String lang = EMaM.getProperties().getProperty("lang");
+		String langFolder = EMaM.getProperties().getProperty("langFolder");
+		langProperties = new Properties();
+		langProperties.load(new FileReader(
+				langFolder + File.separatorChar + lang + 
+				File.separatorChar + this.getClass().getSimpleName() + ".properties"));
+	}
+
+	/**
+	 * Copy an array of addresses to the system clipboard, requesting the user
+	 * to insert a separator character.
+	 * 
+	 * @param addresses Array of addresses to be copied to the clipboard.
+	 */
+	private void copyToClipboard(String[] addresses) {
+		String separator;
+		/* Ask the user an address separator. */
+		separator = requestRegExp(
+				langProperties.getProperty("RequestSeparatorString"),
+				".*",
+				langProperties.getProperty("InvalidSeparatorString"));
+		if (separator != null) {
+			/* Copy addresses separated by a separator to the system clipboard. */
+			StringBuilder toCopy = new StringBuilder();
+			for (String address : addresses) {
+				toCopy.append(address);
+				toCopy.append(separator);
+			}
+			view.copyToClipboard(toCopy.toString());
+		}		
+	}
+
+	/**
+	 * Ask the user for a file to save, suggesting the given filename. If the
+	 * selected file exists the user is asked whether to overwrite it, and in
+	 * case of a negative answer another file is requested.
+	 * 
+	 * @param filename Suggested filename.
+	 * @return The file to save, or null if the user canceled the request.
+	 */
+	private File requestFileToSave(String filename) {
+		File newFile;
+		/* Required cycle: if file exists and user does not want to overwrite it
+		 * then we must ask again for another filename. */
+		do {
+			/* Ask user for a filename. */
+			newFile = view.selectFileToSave(filename);
+			if (newFile == null) return null;
+			if (newFile.exists()) {
+				/* If given file exists, ask if user wants to overwrite it. */
+				String options[] = {
+						langProperties.getProperty("Yes"),
+						langProperties.getProperty("No"),
+						langProperties.getProperty("Cancel")};
+				int answer = view.dialogOptions(
+						langProperties.getProperty("overwriteFile"),
+						null,
+						EMaM.getProperties().getProperty("AppTitle"), 
+						options, langProperties.getProperty("Yes"));
+				if (answer == this.YES)
+					/* Get out of do-while and overwrite file. */
+					break;
+				else if (answer == this.NO)
+					/* Don't overwrite, ask for new filename. */
+					continue;
+				else
+					/* Cancel request. */
+					return null;
+			} else {
+				/* If given file does not exist, get out of do-while. */
+				break;
+			}
+		} while (true);
+		return newFile;
+	}
+
+	/**
+	 * In case given string array has no content, inform the user and return false.
+	 * Otherwise return true.
+	 * 
+	 * @param addresses String array to check for content.
+	 * @return True if array has content, false otherwise.
+	 */
+	private boolean confirmSelection(String[] addresses) {
+		return confirmSelection(addresses.length);
+	}
+
+	/**
+	 * Checks that rows are selected, warning the user otherwise.
+	 * 
+	 * @param selection Selected rows.
+	 * @return True if rows are selected.
+	 */
+	private boolean confirmSelection(AddressSelection selection) {
+		return confirmSelection(selection.size());
+	}
+
+	/**
+	 * Checks that the number of selected addresses is not zero, warning the
+	 * user otherwise.
+	 * 
+	 * @param selected Number of selected addresses.
+	 * @return True if addresses are selected.
+	 */
+	private boolean confirmSelection(int selected) {
+		/* The must be some addresses to remove. */
+		if (selected < 1) {
+			/* No addresses were selected, inform user. */
+			view.dialogWarning(
+					langProperties.getProperty("noSelection"),
+					null,
+					langProperties.getProperty("WarningMessageTitle"));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the addresses matched by suppression rules in the given 
+	 * exception, each followed by the rule which matches it, for showing
+	 * to the user.
+	 * 
+	 * @param mee Exception thrown by the model.
+	 * @return The suppressed addresses and their rules.
+	 */
+	private String[] suppressedWithRules(MutualExclusionException mee) {
+		String[] addresses = mee.getSuppressedAddresses();
+		String[] rules = mee.getSuppressingRules();
+		String[] lines = new String[addresses.length];
+		for (int i = 0; i < lines.length; i++)
+			lines[i] = addresses[i] + " (" + rules[i] + ")";
+		return lines;
+	}
+	
+	/**
+	 * Ask user to confirm operation on an array of addresses.
+	 *  
+	 * @param addresses Array of addresses.
+	 * @param message Message to display to the user.
+	 * @return True if user agrees, false otherwise.
+	 */
+	private boolean confirmAddressesOp(String[] addresses, String message) {
+		/* Set options. */
+		String options[] = {
+				langProperties.getProperty("Ok"),
+				langProperties.getProperty("Cancel")};
+		/* Determine if the operation concerns one or more addresses. */
+		String addressNum;
+		if (addresses.length == 1)
+			addressNum = langProperties.getProperty("address");
+		else
+			addressNum = langProperties.getProperty("addresses");
+		/* Ask user if he really wants to delete given addresses. */
+		int answer = 
+			view.dialogOptions(
+					message + "\n" 
+					+ "(" + langProperties.getProperty("total") + ": "
+					+ addresses.length + " " + addressNum + ")",
+					addresses,
+					EMaM.getProperties().getProperty("AppTitle"), 
+					options, 
+					langProperties.getProperty("Ok"));
+		if (answer == DEL_OK)
+			return true;
+		return false;
+	}
+	
+	/**
+	 * Ask the user to insert a string according to a specific regular expression.
+	 * 
+	 * @param message Message to show to the user.
+	 * @param regexp Regular expression to match user inserted string.
+	 * @param warningMessage Warning message if inserted string is not in accordance with regular expression.
+	 * @return A user string in accordance with the given regular expression.
+	 */
+	private String requestRegExp(String message, String regexp, String warningMessage) {
+		String input = null;
+		boolean normalize = false;
+		boolean validInput = false;
+		/* Keep asking the user for input until a valid expression is given, or CANCEL is pressed. */
+		do {
+			/* Ask for user input. */
+			input = view.dialogInput(
+				message,
+				null,
+				langProperties.getProperty("InputMessageTitle"));
+			/* If user didn't press CANCEL, proceed..*/
+			if (input != null) {
+				/* Check if user inserted valid expression. */
+				if (input.matches(regexp)) {
+					/* Valid address! */
+					validInput = true;
+				} else if (model.normalizeAddress(input).matches(regexp)) {
+					/* Valid address once normalized (trimmed, international
+					 * domain name converted...). */
+					validInput = true;
+					normalize = true;
+				} else {
+					view.dialogWarning(
+							warningMessage,
+							null,
+							langProperties.getProperty("WarningMessageTitle"));
+				}
+			} else {
+				/* The user pressed cancel, let's get out of here. */
+				break;
+			}
+		} while (!validInput);
+		if (normalize)
+			return model.normalizeAddress(input);
+		else
+			return input;
+	}
+	
+	/**
+	 * Ask the user to insert an integer value.
+	 * 
+	 * @return A user inserted integer value.
+	 */
+	private int requestInteger() {
+		/* Keep asking the user for input until a valid address is given, or CANCEL is pressed. */
+		do {
+			/* Ask for user input. */
+			String input;
+			input = view.dialogInput(
+				langProperties.getProperty("RequestMinimumProcessValue"),
+				null,
+				langProperties.getProperty("InputMessageTitle"));
+			/* If user didn't press CANCEL, proceed..*/
+			if (input != null) {
+				/* Check if user inserted valid address. */
+				int value;
+				try {
+					value = Integer.parseInt(input);
+					if (value < 1) 
+						throw new NumberFormatException();
+				} catch (NumberFormatException nfe) {
+					/* Not a valid integer. */
+					view.dialogWarning(
+							langProperties.getProperty("InvalidMinimumProcessValue"),
+							null,
+							langProperties.getProperty("WarningMessageTitle"));
+					/* Ask again. */
+					continue;
+				}
+				return value;
+			} else {
+				/* The user pressed cancel, let's get out of here. */
+				return -1;
+			}
+		} while (true);
+	}
+	
+	/**
+	 * Effectively ask the model to open a given file and handle
+	 * possible errors.
+	 * 
+	 * @param fileToOpen File to open.
+	 */
+	private void openFile(File fileToOpen) {
+		/* Open new file. */
+		try {
+			model.openFile(fileToOpen);
+		} catch (PatternSyntaxException e) {
+			/* The expression given in the properties file is not a valid
+			 * regular expression. */
+			EMaM.errorHandler(
+					langProperties.getProperty("PatternSyntaxException"), 
+					EMaM.REGEXP_ERROR);
+			view.dispose();
+		} catch (FileNotFoundException e) {
+			/* The selected file is not found.  */
+			view.dialogWarning(
+					langProperties.getProperty("FileNotFoundWarning"),
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			model.newFile();
+		} catch (IOException e) {
+			/* IO problem. */
+			view.dialogWarning(
+					langProperties.getProperty("IOWarning"),
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			model.newFile();
+		} catch (InvalidStringException e) {
+			/* A line of the file does not conform to the address regular expression. */
+			view.dialogWarning(
+					langProperties.getProperty("InvalidStringWarning"), 
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			model.newFile();
+		} catch (InvalidFileFormatException e) {
+			/* The file does not conform to the norm. */
+			view.dialogWarning(
+					langProperties.getProperty("InvalidFileFormatException"), 
+					new String[] {e.getLocalizedMessage()},
+					langProperties.getProperty("WarningMessageTitle"));
+			model.newFile();
+		}		
+	}
+	
+	/**
+	 * Ask the user if he wants to save current file.
+	 * 
+	 * @return YES, NO or CANCEL constants.
+	 */
+	private int saveCurrentFileQuestion() {
+		String options[] = {
+				langProperties.getProperty("Yes"),
+				langProperties.getProperty("No"),
+				langProperties.getProperty("Cancel")};
+		int answer = view.dialogOptions(
+				langProperties.getProperty("fileNotSavedMessage"),
+				null,
+				EMaM.getProperties().getProperty("AppTitle"), 
+				options, langProperties.getProperty("Yes"));
+		return answer;
+	}
+	
+	/**
+	 * Returns a default filename for new files.
+	 * 
+	 * @return A default filename for new files.
+	 */
+	private String newFilename() {
+		return langProperties.getProperty("newEMaMFilename")
+			+ "." +
+			EMaM.getProperties().getProperty("eMaMFilenameExt");
+	}	
+//	/**
+//	 * Forces deletion from removed list and ad
+//	 * @param toDelFromRemoved
+//	 * @param toAddToMailList
+//	 */
+//	private void forceDelFromRemovedAndAddToMailList(
+//			String[] toDelFromRemoved, 
+//			String[] toAddToMailList) {
+//		if (confirmAddressesOp(toDelFromRemoved, langProperties.getProperty("mutualExclusionMailList"))) {
+//			//model.
+//			//model.delFromRemoved(toDelFromRemoved);
+//			try {
+//				model.addToMailList(toAddToMailList);
+//			} catch (MutualExclusionException mee) {
+//				view.dialogError(
+//						langProperties.getProperty("mutualExclusionErrorMessage"), 
+//						mee.getAddresses(), 
+//						langProperties.getProperty("ErrorMessageTitle"));
+//			}
+//		}
+//	}
+//
+//	private void forceDelFromMailListAndAddToRemoved(
+//			String[] toDelFromMailList, 
+//			String[] toAddToRemoved) {
+//		if (confirmAddressesOp(toDelFromMailList, langProperties.getProperty("mutualExclusionRemoved"))) {
+//			//moveFrom
+//			//			model.delFromMailList(toDelFromMailList);
+////			try {
+////				model.addToRemoved(toAddToRemoved);
+////			} catch (MutualExclusionException mee) {
+////				view.dialogError(
+////						langProperties.getProperty("mutualExclusionErrorMessage"), 
+////						mee.getAddresses(), 
+////						langProperties.getProperty("ErrorMessageTitle"));
+////			}
+//		}
+//	}
+}
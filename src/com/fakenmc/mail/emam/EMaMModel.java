@@ -1,707 +1,2453 @@
-/*
- * Copyright (c) 2008, Nuno Fachada
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without modification, 
- * are permitted provided that the following conditions are met:
- *
- *   * Redistributions of source code must retain the above copyright notice, 
- *     this list of conditions and the following disclaimer.
- *   * Redistributions in binary form must reproduce the above copyright notice, 
- *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
- *   * Neither the name of the FakenMC.com nor the names of its contributors 
- *     may be used to endorse or promote products derived from this software without 
- *     specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
- * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
- * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
- * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
- * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
- * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-package com.fakenmc.mail.emam;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
-import java.util.Arrays;
-import java.util.Iterator;
-
-/**
- * The eMaM model.
- * 
- * @author Nuno Fachada
- *
- */
-public class EMaMModel implements EMaMModelInterface {
-	/* Constants. */
-	final String MAIL = "[Mail]";
-	final String REMOVED = "[Removed]";
-	final String RETURNED = "[Returned]";
-	final String EXTRACTED = "[Extracted]";
-	/* Observers. */
-	private HashSet<AddressTablesObserver> atObservers;
-	private HashSet<FileStatusObserver> fsObservers;
-	/* Current working file. */
-	private File currentFile;
-	/* Flag indicating is current file is saved. */
-	private boolean saved;
-	/* Email data. */
-	private TreeSet<String> mailList;
-	private TreeSet<String> removed;
-	private TreeMap<String, Integer> returned;
-	private TreeSet<String> extracted;
-	
-	/**
-	 * Constructor for the model. Initializes lists and variables.
-	 */
-	public EMaMModel() {
-		mailList = new TreeSet<String>();
-		removed = new TreeSet<String>();
-		returned = new TreeMap<String, Integer>();
-		extracted = new TreeSet<String>();
-		atObservers = new HashSet<AddressTablesObserver>();
-		fsObservers = new HashSet<FileStatusObserver>();
-		currentFile = null;
-		saved = true;
-	}
-	
-	/**
-	 * @see EMaMModelInterface#newFile()
-	 */
-	public void newFile() {
-		clearData();
-		currentFile = null;
-		saved = true;
-		notifyAddressTablesObservers();
-		notifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#openFile(File)
-	 */
-	public void openFile(File file) 
-	throws FileNotFoundException, IOException, PatternSyntaxException,
-	InvalidStringException, InvalidFileFormatException {
-		/* Clear all previous listings. */
-		clearData();
-		/* Open file. */
-		BufferedReader br = new BufferedReader(
-				new FileReader(file));
-		String line;
-		String type = null;
-		/* Read file line by line. */
-		for (int i = 1; (line = br.readLine()) != null; i++) {
-			/* Trim line. */
-			line = line.trim();
-			/* Check line. */
-			if (line.compareTo(this.MAIL) == 0) {
-				type = this.MAIL;
-			} else if (line.compareTo(this.REMOVED) == 0) {
-				type = this.REMOVED;
-			} else if (line.compareTo(this.RETURNED) == 0) {
-				type = this.RETURNED;
-			} else if (line.compareTo(this.EXTRACTED) == 0) {
-				type = this.EXTRACTED;
-			} else if (type == null) {
-				throw new InvalidFileFormatException("(1) ?");
-			} else {
-				line = line.toLowerCase();
-				if (type != this.RETURNED) {
-					/* Parse email address. */
-					if (!line.matches(EMaM.getProperties().getProperty("regexp")))
-						throw new InvalidStringException("("+ i +") " + line);
-					if (type == this.MAIL) {
-						/* Add email to mailing list set. */
-						mailList.add(line);
-					} else if (type == this.REMOVED) {
-						/* Add email to removed list set. */
-						removed.add(line);
-					} else if (type == this.EXTRACTED) {
-						/* Add email to extracted list set. */
-						extracted.add(line);
-					}
-				} else {
-					/* Parse address and number, add to returned map. */
-					String splitLine[] = line.split(" ");
-					/* Line must have two things: an email address, and an integer value. */
-					if (splitLine.length != 2)
-						throw new InvalidFileFormatException("("+ i +") " + line);
-					/* Check if address is valid. */
-					if (!splitLine[0].matches(EMaM.getProperties().getProperty("regexp")))
-						throw new InvalidStringException("("+ i +") " + line);
-					/* Check if integer is valid. */
-					try {
-						Integer.valueOf(splitLine[1]);
-					} catch (NumberFormatException nfe) {
-						throw new InvalidFileFormatException("("+ i +") " + line);
-					}
-					/* Everything OK, lets add to the map. */
-					if (returned.containsKey(splitLine[0]))
-						returned.put(splitLine[0], returned.get(splitLine[0]) + Integer.valueOf(splitLine[1]));
-					else
-						returned.put(splitLine[0], Integer.valueOf(splitLine[1]));
-				}
-			}
-		}
-		/* Close reader. */
-		br.close();
-		/* Make the given file the current file. */
-		currentFile = file;
-		/* Set saved file flag to true. */
-		saved = true;
-		/* Notify observers. */
-		notifyAddressTablesObservers();
-		notifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#saveFile()
-	 */
-	public void saveFile() throws IOException {
-		/* Create a writer. */
-		BufferedWriter bw = new BufferedWriter(
-				new FileWriter(currentFile));
-		/* Write everything to the writer. */
-		String allAddressListsTypes[] = {this.MAIL, this.REMOVED, this.RETURNED, this.EXTRACTED};
-		for (String addressListType : allAddressListsTypes) {
-			/* Write header indicating address list. */
-			bw.write(addressListType);
-			bw.newLine();
-			/* Select address list to write. */
-			Iterator<String> addressIter = null;
-			if (addressListType == this.MAIL)
-				addressIter = mailList.iterator();
-			else if (addressListType == this.REMOVED)
-				addressIter = removed.iterator();
-			else if (addressListType == this.RETURNED)
-				addressIter = returned.keySet().iterator();
-			else if (addressListType == this.EXTRACTED)
-				addressIter = extracted.iterator();
-			/* Write addresses. */
-			while (addressIter.hasNext()) {
-				String address = addressIter.next();
-				bw.write(address);
-				if (addressListType == this.RETURNED)
-					/* In the case of the RETURNED list, we also have to write the 
-					 * number of times the mail was returned. */
-					bw.write(" " + returned.get(address));
-				bw.newLine();
-			}
-		}
-		/* Close writer. */
-		bw.close();
-		/* Save and notify file status observers. */
-		saveAndNotifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#saveFileAs(File)
-	 */
-	public void saveFileAs(File file) throws IOException {
-		currentFile = file;
-		saveFile();
-		notifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#addToMailList(String[])
-	 */
-	public void addToMailList(String[] addresses) throws MutualExclusionException {
-		/* To lower case. */
-		toLowerCase(addresses);
-		/* Check if any of the given addresses exists on the removed set. */
-		checkExclusiveContents(addresses, removed);
-		/* Add addresses to mail list set. */
-		addToSet(addresses, mailList);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#delFromMailList(String[])
-	 */
-	public void delFromMailList(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		delFromSet(addresses, mailList);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#moveFromMailListToRemoved(String[])
-	 */
-	public void moveFromMailListToRemoved(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		delFromSet(addresses, mailList);
-		addToSet(addresses, removed);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#addToRemoved(String[])
-	 */
-	public void addToRemoved(String[] addresses) throws MutualExclusionException {
-		/* To lower case. */
-		toLowerCase(addresses);
-		/* Check if any of the given addresses exists on the mail list set. */
-		checkExclusiveContents(addresses, mailList);
-		/* Add addresses to removed set. */
-		addToSet(addresses, removed);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#delFromRemoved(String[])
-	 */
-	public void delFromRemoved(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		delFromSet(addresses, removed);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#addToReturned(String[])
-	 */
-	public void addToReturned(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		for (String address : addresses) {
-			if (returned.containsKey(address)) {
-				int currentN = returned.get(address);
-				currentN++;
-				returned.put(address, currentN);				
-			} else {
-				returned.put(address, 0);
-			}
-		}
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#delFromReturned(String[])
-	 */
-	public void delFromReturned(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		delFromSet(addresses, returned.keySet());
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#moveFromRemovedToMailList(String[])
-	 */
-	public void moveFromRemovedToMailList(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		delFromSet(addresses, removed);
-		addToSet(addresses, mailList);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#incrementReturned(String[])
-	 */
-	public void incrementReturned(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		for (String address : addresses) {
-			if (returned.containsKey(address)) {
-				int currentN = returned.get(address);
-				currentN++;
-				returned.put(address, currentN);				
-			} else {
-				returned.put(address, 1);
-			}
-		}
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#decrementReturned(String[])
-	 */
-	public void decrementReturned(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		for (String address : addresses) {
-			int currentN = returned.get(address);
-			currentN--;
-			if (currentN >= 0) {
-				returned.put(address, currentN);
-			}
-		}
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-	
-	/**
-	 * @see EMaMModelInterface#processReturned(int)
-	 */
-	public void processReturned(int n) {
-		/* Create a list of addresses to move from returned to removed. */
-		ArrayList<String> addressesToMove = new ArrayList<String>();
-		Iterator<String> iterAddress = returned.keySet().iterator();
-		while (iterAddress.hasNext()) {
-			String address = iterAddress.next();
-			int currentN = returned.get(address);
-			if (currentN > n)
-				addressesToMove.add(address);
-		}
-		/* Move addresses... */
-		if (addressesToMove.size() > 0) {
-			String[] addressesToMoveArray = new String[addressesToMove.size()];
-			addressesToMoveArray = addressesToMove.toArray(addressesToMoveArray);
-			delFromSet(addressesToMoveArray, mailList);
-			delFromSet(addressesToMoveArray, returned.keySet());
-			addToSet(addressesToMoveArray, removed);
-			/* Notify observers. */
-			notifyAddressTablesObservers();
-			unsaveAndNotifyFileStatusObservers();
-		}
-	}
-	
-	/**
-	 * @see EMaMModelInterface#extractAddresses(String)
-	 */
-	public int extractAddresses(String text) {
-		/* Create a list where to keep extracted addresses. */
-		ArrayList<String> addressesExtracted = new ArrayList<String>();
-		/* Create a pattern to extract from the regular expression in 
-		 * the properties file. */
-		Pattern p = Pattern.compile(EMaM.getProperties().getProperty("regexp"));
-		/* Extract addresses. */
-		Matcher m = p.matcher(text);
-		while (m.find()) {
-			String address = m.group();
-			addressesExtracted.add(address);
-		}
-		/* Clear previoulsy extracted addresses. */
-		extracted.clear();
-		/* Populate with newly extracted addresses. */
-		addToExtracted(addressesExtracted.toArray(new String[addressesExtracted.size()]));
-		/* Notify observers. */
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-		/* Return number of addresses extracted. */
-		return addressesExtracted.size();
-	}
-
-	/**
-	 * @see EMaMModelInterface#addToExtracted(String[])
-	 */
-	public void addToExtracted(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		/* Add addresses to extracted set. */
-		addToSet(addresses, extracted);
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#delFromExtracted(String[])
-	 */
-	public void delFromExtracted(String[] addresses) {
-		/* To lower case. */
-		toLowerCase(addresses);
-		extracted.removeAll(Arrays.asList(addresses));
-		notifyAddressTablesObservers();
-		unsaveAndNotifyFileStatusObservers();
-	}
-
-
-	/**
-	 * @see EMaMModelInterface#moveExtractedToMailList()
-	 */
-	public void moveExtractedToMailList() throws MutualExclusionException {
-		if (extracted.size() > 0) {
-			String extractedArray[] = new String[extracted.size()]; 
-			extractedArray = extracted.toArray(extractedArray);
-			addToMailList(extractedArray);
-			extracted.clear();
-			notifyAddressTablesObservers();
-			unsaveAndNotifyFileStatusObservers();
-		}
-	}
-
-	/**
-	 * @see EMaMModelInterface#moveExtractedToRemoved()
-	 */
-	public void moveExtractedToRemoved() throws MutualExclusionException {
-		if (extracted.size() > 0) {
-			String extractedArray[] = new String[extracted.size()]; 
-			extractedArray = extracted.toArray(extractedArray);
-			addToRemoved(extractedArray);
-			extracted.clear();
-			notifyAddressTablesObservers();
-			unsaveAndNotifyFileStatusObservers();
-		}
-	}
-
-	/**
-	 * @see EMaMModelInterface#moveExtractedToReturned()
-	 */
-	public void moveExtractedToReturned() {
-		if (extracted.size() > 0) {
-			String extractedArray[] = new String[extracted.size()]; 
-			extractedArray = extracted.toArray(extractedArray);
-			incrementReturned(extractedArray);
-			extracted.clear();
-			notifyAddressTablesObservers();
-			unsaveAndNotifyFileStatusObservers();
-		}
-	}
-	
-	/**
-	 * @see EMaMModelInterface#getListedAddresses()
-	 */
-	public String[] getListedAddresses() {
-		if (mailList.size() == 0) {
-			String empty[] = {};
-			return empty;
-		}
-		return mailList.toArray(new String[mailList.size()]);	
-	}
-	
-	/**
-	 * @see EMaMModelInterface#getRemovedAddresses()
-	 */
-	public String[] getRemovedAddresses() {
-		if (removed.size() == 0) {
-			String empty[] = {};
-			return empty;
-		}
-		return removed.toArray(new String[removed.size()]);	
-	}
-	
-	/**
-	 * @see EMaMModelInterface#getReturnedAddresses()
-	 */
-	public Object[][] getReturnedAddresses() {
-		if (returned.size() == 0) {
-			Object empty[][] = {{}};
-			return empty;
-		}
-		Object[][] returnedAddresses = new Object[2][returned.size()];
-		returned.keySet().toArray(returnedAddresses[0]);
-		returned.values().toArray(returnedAddresses[1]);
-		return returnedAddresses;	
-	}
-	
-	/**
-	 * @see EMaMModelInterface#getExtractedAddresses()
-	 */
-	public String[] getExtractedAddresses() {
-		if (extracted.size() == 0) {
-			String empty[] = {};
-			return empty;
-		}
-		return extracted.toArray(new String[extracted.size()]);	
-	}
-	
-	/**
-	 * @see EMaMModelInterface#getNumberOfReturns(String)
-	 */
-	public int getNumberOfReturns(String address) {
-		/* To lower case. */
-		address = address.toLowerCase();
-		return returned.get(address);
-	}
-	
-	/**
-	 * @see EMaMModelInterface#clearExtracted()
-	 */
-	public void clearExtracted() {
-		extracted.clear();
-		notifyAddressTablesObservers();
-	}
-
-	/**
-	 * @see EMaMModelInterface#registerAddressTablesObserver(AddressTablesObserver)
-	 */
-	public void registerAddressTablesObserver(AddressTablesObserver ato) {
-		atObservers.add(ato);
-	}
-
-	/**
-	 * @see EMaMModelInterface#removeAddressTablesObserver(AddressTablesObserver)
-	 */
-	public void removeAddressTablesObserver(AddressTablesObserver ato) {
-		atObservers.remove(ato);
-	}
-	
-	/**
-	 * @see EMaMModelInterface#notifyAddressTablesObservers()
-	 */
-	public void notifyAddressTablesObservers() {
-		for (AddressTablesObserver ato : atObservers) {
-			ato.updateAddressTables();
-		}
-	}
-
-	/**
-	 * @see EMaMModelInterface#getCurrentFile()
-	 */
-	public File getCurrentFile() {
-		return currentFile;
-	}
-	
-	/**
-	 * @see EMaMModelInterface#isFileSaved()
-	 */
-	public boolean isFileSaved() {
-		return saved;
-	}
-
-	/**
-	 * @see EMaMModelInterface#notifyFileStatusObservers()
-	 */
-	public void notifyFileStatusObservers() {
-		for (FileStatusObserver fso : fsObservers) {
-			fso.updateFileStatus();
-		}
-	}
-
-	/**
-	 * @see EMaMModelInterface#registerFileStatusObserver(FileStatusObserver)
-	 */
-	public void registerFileStatusObserver(FileStatusObserver fso) {
-		fsObservers.add(fso);	
-	}
-
-	/**
-	 * @see EMaMModelInterface#removeFileStatusObserver(FileStatusObserver)
-	 */
-	public void removeFileStatusObserver(FileStatusObserver fso) {
-		fsObservers.remove(fso);			
-	}
-	
-	/* ********************************************** */
-	/*                PRIVATE METHODS                 */
-	/* ********************************************** */
-	
-	/**
-	 * Clear data in all sets.
-	 */
-	private void clearData() {
-		/* Clear all previous listings. */
-		mailList.clear();
-		removed.clear();
-		returned.clear();
-		extracted.clear();
-	}
-	
-	/**
-	 * Checks if any of the given addresses exist in the given set.
-	 * 
-	 * @param addresses Addresses to check presence of.
-	 * @param set Set to check presence of addresses.
-	 * @throws MutualExclusionException If any of the given addresses exist in the given set.  
-	 */
-	private void checkExclusiveContents(String[] addresses, Set<String> set) 
-	throws MutualExclusionException {
-		/* Check if any of the given addresses exists on the given set. */
-		TreeSet<String> problemAddresses = new TreeSet<String>();
-		for (String address : addresses) {
-			if (set.contains(address)) {
-				problemAddresses.add(address);
-			}
-		}
-		/* If there are problematic addresses then throw exception. */
-		if (problemAddresses.size() > 0) {
-			String problemAddressesArray[] = new String[problemAddresses.size()];
-			throw new MutualExclusionException(
-					problemAddresses.toArray(
-							problemAddressesArray));
-		}
-	}
-	
-	/**
-	 * Add given addresses to given set.
-	 * 
-	 * @param addresses Addresses to add.
-	 * @param set Set where to add addresses.
-	 */
-	private void addToSet(String[] addresses, Set<String> set) {
-		/* Add addresses to given set. */
-		for (String address : addresses) {
-			set.add(address);
-		}
-	}
-	
-	/**
-	 * Delete given addresses from given set.
-	 * 
-	 * @param addresses Addresses to delete.
-	 * @param set Set where to remove addresses from.
-	 */
-	private void delFromSet(String[] addresses, Set<String> set) {
-		/* Remove addresses to given set. */
-		for (String address : addresses) {
-			set.remove(address);
-		}
-	}
-	
-	/**
-	 * If saved status is true, set it to false and notity file status observers.
-	 */
-	private void unsaveAndNotifyFileStatusObservers() {
-		if (saved) {
-			/* Set saved status to false. */
-			saved = false;
-			/* Notify file status observers. */
-			notifyFileStatusObservers();
-		}
-	}
-
-	/**
-	 * If saved status is false, set it to trye and notify file status observers.
-	 */
-	private void saveAndNotifyFileStatusObservers() {
-		if (!saved) {
-			/* Set saved status to true. */
-			saved = true;
-			/* Notify file status observers. */
-			notifyFileStatusObservers();
-		}
-	}
-
-	/**
-	 * Accepts an array of strings and converts respective strings to lower case.
-	 * 
-	 * @param addresses Array of strings to convert to lower case.
-	 */
-	private void toLowerCase(String addresses[]) {
-		for (int i = 0; i < addresses.length; i++)
-			addresses[i] = addresses[i].toLowerCase();
-	}
-	
-
-}
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.Iterator;
+
+/**
+ * The eMaM model.
+ * 
+ * @author Nuno Fachada
+ *
+ */
+public class EMaMModel implements EMaMModelInterface {
+	/* Constants. */
+	final String MAIL = "[Mail]";
+	final String REMOVED = "[Removed]";
+	final String RETURNED = "[Returned]";
+	final String EXTRACTED = "[Extracted]";
+	/* Extension of the file with the provenance of extracted addresses. */
+	private static final String PROVENANCE_EXTENSION = ".provenance";
+	/* Source of addresses extracted from text. */
+	private static final String TEXT_SOURCE = "(text)";
+	/* Observers. */
+	private HashSet<AddressTablesObserver> atObservers;
+	private HashSet<FileStatusObserver> fsObservers;
+	/* Current working file. */
+	private File currentFile;
+	/* Flag indicating is current file is saved. */
+	private boolean saved;
+	/* Email data. */
+	private TreeSet<String> mailList;
+	private TreeSet<String> removed;
+	private TreeMap<String, Integer> returned;
+	private TreeSet<String> extracted;
+	/* Sorted array of each list, for selections by row, or null if the list
+	 * changed since the array was made. */
+	private String[][] ordered = new String[4][];
+	/* Return counts of the sorted array of the returned list, made and
+	 * dropped with it. */
+	private Object[] orderedCounts;
+	/* Index of all lists by domain. */
+	private DomainIndex domainIndex;
+	/* Trigram index of each list, built on the first search, or null. */
+	private SearchIndex[] searchIndexes = new SearchIndex[4];
+	/* Searches which would find more than this fraction of a list check
+	 * every address instead of using an index. */
+	private static final int SCAN_FRACTION = 8;
+	/* Matcher for the wildcard rules in the removed list. */
+	private SuppressionMatcher suppressionRules;
+	/* Canonicalization stage applied to all incoming addresses. */
+	private AddressCanonicalizer canonicalizer;
+	/* For each list, canonical key -> stored address, only for the addresses
+	 * whose canonical key differs from the address itself. */
+	private HashMap<String, String>[] aliases;
+	/* Report of the last extraction from a file. */
+	private String extractionReport;
+	/* Statistics of the last extraction. */
+	private ExtractionStatistics extractionStatistics;
+	/* If true, extracted addresses are added to the extracted list instead
+	 * of replacing it. */
+	private boolean accumulateExtracted;
+	/* Where extracted addresses were found, if recorded. */
+	private ProvenanceIndex provenance;
+	private boolean recordProvenance;
+	/* Compiled regular expression of the properties file, compiled again
+	 * when the property changes. */
+	private volatile Pattern pattern;
+	/* Probes called around each operation, replaced as a whole when a probe
+	 * is registered or removed. */
+	private volatile ModelProbe[] probes;
+	/* Undo and redo history. */
+	private UndoLog undoLog;
+	
+	/**
+	 * Changes made to the lists when undoing and redoing.
+	 */
+	private class Changes implements UndoLog.Target {
+		public void add(int list, String address, int count) {
+			if (list == RETURNED_LIST)
+				setReturned(address, count);
+			else
+				addToList(address, list);
+		}
+		public void remove(int list, String address) {
+			delFromList(address, list);
+		}
+		public void setCount(String address, int count) {
+			setReturned(address, count);
+		}
+	}
+	
+	/**
+	 * An operation being observed by the probes.
+	 */
+	private static class Probed {
+		private String operation;
+		private ModelProbe[] probes;
+		private Object[] contexts;
+		private long start;
+	}
+	
+	/**
+	 * Constructor for the model. Initializes lists and variables. The 
+	 * address canonicalizer is given by the <code>canonicalizer</code>
+	 * property, or is a {@link DefaultCanonicalizer} if the property is 
+	 * not set. The probes given by the <code>modelProbes</code> property,
+	 * if any, are registered.
+	 */
+	public EMaMModel() {
+		this(createCanonicalizer());
+		probes = createProbes();
+	}
+	
+	/**
+	 * Constructor for the model with the given address canonicalizer. 
+	 * Initializes lists and variables.
+	 * 
+	 * @param canonicalizer Canonicalization stage for incoming addresses.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public EMaMModel(AddressCanonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+		probes = new ModelProbe[0];
+		aliases = new HashMap[4];
+		for (int i = 0; i < aliases.length; i++)
+			aliases[i] = new HashMap<String, String>();
+		mailList = new TreeSet<String>();
+		removed = new TreeSet<String>();
+		returned = new TreeMap<String, Integer>();
+		extracted = new TreeSet<String>();
+		domainIndex = new DomainIndex();
+		suppressionRules = new SuppressionMatcher();
+		atObservers = new HashSet<AddressTablesObserver>();
+		fsObservers = new HashSet<FileStatusObserver>();
+		currentFile = null;
+		saved = true;
+		accumulateExtracted = (EMaM.getProperties() != null)
+			&& Boolean.parseBoolean(EMaM.getProperties().getProperty("accumulateExtracted"));
+		provenance = new ProvenanceIndex();
+		undoLog = new UndoLog(getUndoBudget());
+		recordProvenance = (EMaM.getProperties() != null)
+			&& Boolean.parseBoolean(EMaM.getProperties().getProperty("extractionProvenance"));
+	}
+	
+	/**
+	 * @see EMaMModelInterface#newFile()
+	 */
+	public void newFile() {
+		clearData();
+		currentFile = null;
+		saved = true;
+		notifyAddressTablesObservers();
+		notifyFileStatusObservers();
+	}
+	
+	/**
+	 * @see EMaMModelInterface#openFile(File)
+	 */
+	public void openFile(File file) 
+	throws FileNotFoundException, IOException, PatternSyntaxException,
+	InvalidStringException, InvalidFileFormatException {
+		Probed probed = started("openFile");
+		try {
+			/* Clear all previous listings. */
+			clearData();
+			/* Open file. */
+			BufferedReader br = new BufferedReader(
+					new FileReader(file));
+			String line;
+			String type = null;
+			/* Loading a file can't be undone. */
+			undoLog.setRecording(false);
+			try {
+				/* Read file line by line. */
+				for (int i = 1; (line = br.readLine()) != null; i++) {
+					/* Trim line. */
+					line = line.trim();
+					/* Check line. */
+					if (line.compareTo(this.MAIL) == 0) {
+						type = this.MAIL;
+					} else if (line.compareTo(this.REMOVED) == 0) {
+						type = this.REMOVED;
+					} else if (line.compareTo(this.RETURNED) == 0) {
+						type = this.RETURNED;
+					} else if (line.compareTo(this.EXTRACTED) == 0) {
+						type = this.EXTRACTED;
+					} else if (type == null) {
+						throw new InvalidFileFormatException("(1) ?");
+					} else {
+						if (type != this.RETURNED) {
+							line = canonicalizer.normalize(line);
+							/* Parse email address, the removed list may also contain 
+							 * suppression rules. */
+							if (!addressPattern().matcher(line).matches()
+									&& !((type == this.REMOVED) && SuppressionMatcher.isRule(line)))
+								throw new InvalidStringException("("+ i +") " + line);
+							if (type == this.MAIL) {
+								/* Add email to mailing list set. */
+								addToList(line, MAIL_LIST);
+							} else if (type == this.REMOVED) {
+								/* Add email to removed list set. */
+								addToList(line, REMOVED_LIST);
+							} else if (type == this.EXTRACTED) {
+								/* Add email to extracted list set. */
+								addToList(line, EXTRACTED_LIST);
+							}
+						} else {
+							/* Parse address and number, add to returned map. */
+							String splitLine[] = line.split(" ");
+							/* Line must have two things: an email address, and an integer value. */
+							if (splitLine.length != 2)
+								throw new InvalidFileFormatException("("+ i +") " + line);
+							/* Check if address is valid. */
+							splitLine[0] = canonicalizer.normalize(splitLine[0]);
+							if (!addressPattern().matcher(splitLine[0]).matches())
+								throw new InvalidStringException("("+ i +") " + line);
+							/* Check if integer is valid. */
+							try {
+								Integer.valueOf(splitLine[1]);
+							} catch (NumberFormatException nfe) {
+								throw new InvalidFileFormatException("("+ i +") " + line);
+							}
+							/* Everything OK, lets add to the map. */
+							String stored = lookup(splitLine[0], RETURNED_LIST);
+							if (stored != null)
+								setReturned(stored, returned.get(stored) + Integer.valueOf(splitLine[1]));
+							else
+								setReturned(splitLine[0], Integer.valueOf(splitLine[1]));
+						}
+					}
+				}
+			} finally {
+				undoLog.setRecording(true);
+				/* Close reader. */
+				br.close();
+			}
+			/* Load provenance of extracted addresses, if any. */
+			File provenanceFile = getProvenanceFile(file);
+			if (provenanceFile.exists())
+				provenance.load(provenanceFile);
+			/* Make the given file the current file. */
+			currentFile = file;
+			/* Set saved file flag to true. */
+			saved = true;
+			/* Notify observers. */
+			notifyAddressTablesObservers();
+			notifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, listSizes(), file.length());
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#saveFile()
+	 */
+	public void saveFile() throws IOException {
+		Probed probed = started("saveFile");
+		try {
+			/* Create a writer. */
+			BufferedWriter bw = new BufferedWriter(
+					new FileWriter(currentFile));
+			/* Write everything to the writer. */
+			String allAddressListsTypes[] = {this.MAIL, this.REMOVED, this.RETURNED, this.EXTRACTED};
+			for (String addressListType : allAddressListsTypes) {
+				/* Write header indicating address list. */
+				bw.write(addressListType);
+				bw.newLine();
+				/* Select address list to write. */
+				Iterator<String> addressIter = null;
+				if (addressListType == this.MAIL)
+					addressIter = mailList.iterator();
+				else if (addressListType == this.REMOVED)
+					addressIter = removed.iterator();
+				else if (addressListType == this.RETURNED)
+					addressIter = returned.keySet().iterator();
+				else if (addressListType == this.EXTRACTED)
+					addressIter = extracted.iterator();
+				/* Write addresses. */
+				while (addressIter.hasNext()) {
+					String address = addressIter.next();
+					bw.write(address);
+					if (addressListType == this.RETURNED)
+						/* In the case of the RETURNED list, we also have to write the 
+						 * number of times the mail was returned. */
+						bw.write(" " + returned.get(address));
+					bw.newLine();
+				}
+			}
+			/* Close writer. */
+			bw.close();
+			/* Save provenance of extracted addresses in a separate file. */
+			File provenanceFile = getProvenanceFile(currentFile);
+			if (provenance.size() > 0)
+				provenance.save(provenanceFile);
+			else if (provenanceFile.exists())
+				provenanceFile.delete();
+			/* Save and notify file status observers. */
+			saveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, listSizes(), currentFile.length());
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#saveFileAs(File)
+	 */
+	public void saveFileAs(File file) throws IOException {
+		currentFile = file;
+		saveFile();
+		notifyFileStatusObservers();
+	}
+
+	/**
+	 * @see EMaMModelInterface#addToMailList(String[])
+	 */
+	public void addToMailList(String[] addresses) throws MutualExclusionException {
+		Probed probed = started("addToMailList");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			/* Check if any of the given addresses exists on the removed set, or
+			 * is matched by one of its rules. */
+			checkExclusiveContents(addresses, MAIL_LIST);
+			/* Add addresses to mail list set. */
+			addToList(addresses, MAIL_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#delFromMailList(String[])
+	 */
+	public void delFromMailList(String[] addresses) {
+		Probed probed = started("delFromMailList");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			delFromList(addresses, MAIL_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#moveFromMailListToRemoved(String[])
+	 */
+	public void moveFromMailListToRemoved(String[] addresses) {
+		Probed probed = started("moveFromMailListToRemoved");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			delFromList(addresses, MAIL_LIST);
+			addToList(addresses, REMOVED_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#addToRemoved(String[])
+	 */
+	public void addToRemoved(String[] addresses) throws MutualExclusionException {
+		Probed probed = started("addToRemoved");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			/* Check if any of the given addresses exists on the mail list set, or
+			 * if any of the given rules matches addresses in the mail list set. */
+			checkExclusiveContents(addresses, REMOVED_LIST);
+			/* Add addresses to removed set. */
+			addToList(addresses, REMOVED_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#delFromRemoved(String[])
+	 */
+	public void delFromRemoved(String[] addresses) {
+		Probed probed = started("delFromRemoved");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			delFromList(addresses, REMOVED_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#addToReturned(String[])
+	 */
+	public void addToReturned(String[] addresses) {
+		Probed probed = started("addToReturned");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			for (String address : addresses) {
+				String stored = lookup(address, RETURNED_LIST);
+				if (stored != null) {
+					int currentN = returned.get(stored);
+					currentN++;
+					setReturned(stored, currentN);				
+				} else {
+					setReturned(address, 0);
+				}
+			}
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#delFromReturned(String[])
+	 */
+	public void delFromReturned(String[] addresses) {
+		Probed probed = started("delFromReturned");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			delFromList(addresses, RETURNED_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#moveFromRemovedToMailList(String[])
+	 */
+	public void moveFromRemovedToMailList(String[] addresses) {
+		Probed probed = started("moveFromRemovedToMailList");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			/* Wildcard rules can't be moved to the mail list, nor can the
+			 * addresses they match. */
+			ArrayList<String> toMove = new ArrayList<String>();
+			for (String address : addresses)
+				if (!SuppressionMatcher.isRule(address) && !suppressionRules.matches(address))
+					toMove.add(address);
+			addresses = toMove.toArray(new String[toMove.size()]);
+			delFromList(addresses, REMOVED_LIST);
+			addToList(addresses, MAIL_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#incrementReturned(String[])
+	 */
+	public void incrementReturned(String[] addresses) {
+		Probed probed = started("incrementReturned");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			for (String address : addresses) {
+				String stored = lookup(address, RETURNED_LIST);
+				if (stored != null) {
+					int currentN = returned.get(stored);
+					currentN++;
+					setReturned(stored, currentN);				
+				} else {
+					setReturned(address, 1);
+				}
+			}
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#decrementReturned(String[])
+	 */
+	public void decrementReturned(String[] addresses) {
+		Probed probed = started("decrementReturned");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			for (String address : addresses) {
+				String stored = lookup(address, RETURNED_LIST);
+				if ((stored != null) && (returned.get(stored) > 0)) {
+					setReturned(stored, returned.get(stored) - 1);
+				}
+			}
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#processReturned(int)
+	 */
+	public void processReturned(int n) {
+		/* Create a list of addresses to move from returned to removed. */
+		ArrayList<String> addressesToMove = new ArrayList<String>();
+		Probed probed = started("processReturned");
+		try {
+			Iterator<String> iterAddress = returned.keySet().iterator();
+			while (iterAddress.hasNext()) {
+				String address = iterAddress.next();
+				int currentN = returned.get(address);
+				if (currentN > n)
+					addressesToMove.add(address);
+			}
+			/* Move addresses... */
+			if (addressesToMove.size() > 0) {
+				String[] addressesToMoveArray = new String[addressesToMove.size()];
+				addressesToMoveArray = addressesToMove.toArray(addressesToMoveArray);
+				delFromList(addressesToMoveArray, MAIL_LIST);
+				delFromList(addressesToMoveArray, RETURNED_LIST);
+				addToList(addressesToMoveArray, REMOVED_LIST);
+				/* Notify observers. */
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, addressesToMove.size(), 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#extractAddresses(String)
+	 */
+	public int extractAddresses(String text) {
+		int found = 0;
+		Probed probed = started("extractAddresses");
+		try {
+			/* Create a list where to keep extracted addresses. */
+			ArrayList<String> addressesExtracted = new ArrayList<String>();
+			SourcePositions positions = recordProvenance ? new SourcePositions() : null;
+			findAddresses(text, addressesExtracted, positions);
+			/* Replace or add to previously extracted addresses. */
+			found = storeExtracted(addressesExtracted, positions);
+			return found;
+		} finally {
+			if (probed != null)
+				finished(probed, found, text.length());
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#extractAddressesFromFile(File)
+	 */
+	public int extractAddressesFromFile(File file) 
+	throws FileNotFoundException, IOException {
+		int found = 0;
+		Probed probed = started("extractAddressesFromFile");
+		try {
+			/* Create a list where to keep extracted addresses. */
+			ArrayList<String> addressesExtracted = new ArrayList<String>();
+			SourcePositions positions = recordProvenance ? new SourcePositions() : null;
+			String regexp = EMaM.getProperties().getProperty("regexp");
+			extractionReport = null;
+			if (ArchiveExtractor.isArchive(file) 
+					|| ((positions != null) && !useScanner(regexp))) {
+				/* Decompress while extracting. Plain text files are read the
+				 * same way when positions are needed, since it knows byte
+				 * offsets and lines. */
+				ArchiveExtractor archive = new ArchiveExtractor(useScanner(regexp) ? null : regexp);
+				archive.extract(file, addressesExtracted, positions);
+				extractionReport = archive.getReport();
+			} else if (useScanner(regexp)) {
+				/* Look for addresses in the raw bytes of the file. */
+				AddressPrefilter prefilter = new AddressPrefilter();
+				prefilter.extract(file, addressesExtracted, positions);
+				extractionReport = prefilter.getReport();
+			} else {
+				/* Read file, joining lines with spaces. */
+				BufferedReader br = new BufferedReader(new FileReader(file));
+				StringBuilder text = new StringBuilder();
+				try {
+					String line;
+					while ((line = br.readLine()) != null)
+						text.append(line).append(' ');
+				} finally {
+					br.close();
+				}
+				findAddresses(text.toString(), addressesExtracted, null);
+			}
+			/* Replace or add to previously extracted addresses. */
+			found = storeExtracted(addressesExtracted, positions);
+			return found;
+		} finally {
+			if (probed != null)
+				finished(probed, found, file.length());
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#extractAddressesFromMailbox(File, String[])
+	 */
+	public int extractAddressesFromMailbox(File file, String[] headers)
+	throws FileNotFoundException, IOException {
+		int found = 0;
+		Probed probed = started("extractAddressesFromMailbox");
+		try {
+			/* Create a list where to keep extracted addresses. */
+			ArrayList<String> addressesExtracted = new ArrayList<String>();
+			SourcePositions positions = recordProvenance ? new SourcePositions() : null;
+			String regexp = EMaM.getProperties().getProperty("regexp");
+			MailboxExtractor mailbox = new MailboxExtractor(headers, useScanner(regexp) ? null : regexp);
+			extractionReport = null;
+			mailbox.extract(file, addressesExtracted, positions);
+			extractionReport = mailbox.getReport();
+			/* Replace or add to previously extracted addresses. */
+			found = storeExtracted(addressesExtracted, positions);
+			return found;
+		} finally {
+			if (probed != null)
+				finished(probed, found, file.length());
+		}
+	}
+
+	/**
+	 * Addresses are found with the regular expression in the properties 
+	 * file or with the scanner (see {@link #useScanner(String)}).
+	 * 
+	 * @see EMaMModelInterface#findAddresses(String, List, SourcePositions)
+	 */
+	public void findAddresses(String text, List<String> addresses, 
+			SourcePositions positions) {
+		String regexp = EMaM.getProperties().getProperty("regexp");
+		if (positions != null)
+			positions.setSource(TEXT_SOURCE);
+		int line = 1, previous = 0;
+		if (useScanner(regexp)) {
+			/* Extract addresses with the scanner. */
+			AddressScanner scanner = new AddressScanner(text);
+			while (scanner.find()) {
+				addresses.add(scanner.group());
+				if (positions != null) {
+					line += countLineEnds(text, previous, scanner.start());
+					previous = scanner.start();
+					positions.add(previous, line);
+				}
+			}
+		} else {
+			/* Extract addresses with the regular expression in the 
+			 * properties file. */
+			Matcher m = addressPattern().matcher(text);
+			while (m.find()) {
+				String address = m.group();
+				addresses.add(address);
+				if (positions != null) {
+					line += countLineEnds(text, previous, m.start());
+					previous = m.start();
+					positions.add(previous, line);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#updateExtracted(String[], String[])
+	 */
+	public void updateExtracted(String[] added, String[] removed) {
+		Probed probed = started("updateExtracted");
+		try {
+			/* Normalize addresses. */
+			normalize(added);
+			normalize(removed);
+			/* The changes follow the text, so they can't be undone: undoing
+			 * them would leave the list out of step with the extractor. */
+			undoLog.setRecording(false);
+			try {
+				delFromList(removed, EXTRACTED_LIST);
+				addToList(added, EXTRACTED_LIST);
+			} finally {
+				undoLog.setRecording(true);
+			}
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, added.length + removed.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#getProvenance(String)
+	 */
+	public List<ProvenanceIndex.Occurrence> getProvenance(String address) {
+		address = canonicalizer.normalize(address);
+		return provenance.get(canonicalOf(address));
+	}
+
+	/**
+	 * @see EMaMModelInterface#isRecordProvenance()
+	 */
+	public boolean isRecordProvenance() {
+		return recordProvenance;
+	}
+
+	/**
+	 * @see EMaMModelInterface#setRecordProvenance(boolean)
+	 */
+	public void setRecordProvenance(boolean record) {
+		recordProvenance = record;
+	}
+
+	/**
+	 * @see EMaMModelInterface#getExtractionStatistics()
+	 */
+	public ExtractionStatistics getExtractionStatistics() {
+		return extractionStatistics;
+	}
+
+	/**
+	 * @see EMaMModelInterface#isAccumulateExtracted()
+	 */
+	public boolean isAccumulateExtracted() {
+		return accumulateExtracted;
+	}
+
+	/**
+	 * @see EMaMModelInterface#setAccumulateExtracted(boolean)
+	 */
+	public void setAccumulateExtracted(boolean accumulate) {
+		accumulateExtracted = accumulate;
+	}
+
+	/**
+	 * @see EMaMModelInterface#getExtractionReport()
+	 */
+	public String getExtractionReport() {
+		return extractionReport;
+	}
+
+	/**
+	 * @see EMaMModelInterface#addToExtracted(String[])
+	 */
+	public void addToExtracted(String[] addresses) {
+		Probed probed = started("addToExtracted");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			/* Add addresses to extracted set. */
+			addToList(addresses, EXTRACTED_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#delFromExtracted(String[])
+	 */
+	public void delFromExtracted(String[] addresses) {
+		Probed probed = started("delFromExtracted");
+		try {
+			/* Normalize addresses. */
+			normalize(addresses);
+			delFromList(addresses, EXTRACTED_LIST);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+
+	/**
+	 * @see EMaMModelInterface#replaceList(String[], int)
+	 */
+	public void replaceList(String[] addresses, int list) throws MutualExclusionException {
+		Probed probed = started("replaceList");
+		try {
+			/* Adding and deleting are undone together. */
+			undoLog.begin();
+			try {
+				/* Add first, so that nothing changes if the addresses are refused. */
+				if (list == MAIL_LIST)
+					addToMailList(addresses);
+				else if (list == REMOVED_LIST)
+					addToRemoved(addresses);
+				else if (list == RETURNED_LIST)
+					addToReturned(addresses);
+				else
+					addToExtracted(addresses);
+				/* Given addresses are now normalized, and recognized by 
+				 * canonical key. */
+				HashSet<String> keys = new HashSet<String>();
+				for (String address : addresses)
+					keys.add(canonicalOf(address));
+				ArrayList<String> others = new ArrayList<String>();
+				Iterator<String> iter = getAddressIterator(list);
+				while (iter.hasNext()) {
+					String address = iter.next();
+					if (!keys.contains(canonicalOf(address)))
+						others.add(address);
+				}
+				delFromList(others.toArray(new String[others.size()]), list);
+			} finally {
+				undoLog.end();
+			}
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, addresses.length, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#moveExtractedToMailList()
+	 */
+	public void moveExtractedToMailList() throws MutualExclusionException {
+		int n = extracted.size();
+		Probed probed = started("moveExtractedToMailList");
+		try {
+			if (extracted.size() > 0) {
+				String extractedArray[] = new String[extracted.size()]; 
+				extractedArray = extracted.toArray(extractedArray);
+				/* Adding and clearing are undone together. */
+				undoLog.begin();
+				try {
+					addToMailList(extractedArray);
+					clearList(EXTRACTED_LIST);
+				} finally {
+					undoLog.end();
+				}
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, n, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#moveExtractedToMailList(String[])
+	 */
+	public void moveExtractedToMailList(String[] kept) throws MutualExclusionException {
+		if (kept.length == 0) {
+			moveExtractedToMailList();
+			return;
+		}
+		int n = extracted.size();
+		Probed probed = started("moveExtractedToMailList");
+		try {
+			/* Kept addresses are recognized by canonical key. */
+			HashSet<String> keptKeys = new HashSet<String>();
+			for (String address : kept)
+				keptKeys.add(canonicalOf(canonicalizer.normalize(address)));
+			ArrayList<String> moved = new ArrayList<String>(extracted.size());
+			for (String address : extracted)
+				if (!keptKeys.contains(canonicalOf(address)))
+					moved.add(address);
+			if (moved.size() > 0) {
+				String movedArray[] = moved.toArray(new String[moved.size()]);
+				/* Adding and deleting are undone together. */
+				undoLog.begin();
+				try {
+					addToMailList(movedArray);
+					delFromList(movedArray, EXTRACTED_LIST);
+				} finally {
+					undoLog.end();
+				}
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, n, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#moveExtractedToRemoved()
+	 */
+	public void moveExtractedToRemoved() throws MutualExclusionException {
+		int n = extracted.size();
+		Probed probed = started("moveExtractedToRemoved");
+		try {
+			if (extracted.size() > 0) {
+				String extractedArray[] = new String[extracted.size()]; 
+				extractedArray = extracted.toArray(extractedArray);
+				/* Adding and clearing are undone together. */
+				undoLog.begin();
+				try {
+					addToRemoved(extractedArray);
+					clearList(EXTRACTED_LIST);
+				} finally {
+					undoLog.end();
+				}
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, n, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#moveExtractedToReturned()
+	 */
+	public void moveExtractedToReturned() {
+		int n = extracted.size();
+		Probed probed = started("moveExtractedToReturned");
+		try {
+			if (extracted.size() > 0) {
+				String extractedArray[] = new String[extracted.size()]; 
+				extractedArray = extracted.toArray(extractedArray);
+				/* Adding and clearing are undone together. */
+				undoLog.begin();
+				try {
+					incrementReturned(extractedArray);
+					clearList(EXTRACTED_LIST);
+				} finally {
+					undoLog.end();
+				}
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, n, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getListedAddresses()
+	 */
+	public String[] getListedAddresses() {
+		return ordered(MAIL_LIST);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getRemovedAddresses()
+	 */
+	public String[] getRemovedAddresses() {
+		return ordered(REMOVED_LIST);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getReturnedAddresses()
+	 */
+	public Object[][] getReturnedAddresses() {
+		if (returned.size() == 0) {
+			Object empty[][] = {{}};
+			return empty;
+		}
+		Object[][] returnedAddresses = new Object[2][];
+		returnedAddresses[0] = ordered(RETURNED_LIST);
+		returnedAddresses[1] = orderedCounts;
+		return returnedAddresses;	
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getExtractedAddresses()
+	 */
+	public String[] getExtractedAddresses() {
+		return ordered(EXTRACTED_LIST);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getAddresses(AddressSelection)
+	 */
+	public String[] getAddresses(AddressSelection selection) {
+		String[] all = ordered(selection.getList());
+		String[] addresses = new String[selection.size()];
+		int n = 0;
+		for (int r = 0; r < selection.getRangeCount(); r++) {
+			int from = selection.getRangeStart(r);
+			int to = Math.min(all.length, selection.getRangeEnd(r));
+			if (from < to) {
+				System.arraycopy(all, from, addresses, n, to - from);
+				n += to - from;
+			}
+		}
+		return (n == addresses.length) ? addresses : Arrays.copyOf(addresses, n);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#delSelection(AddressSelection)
+	 */
+	public void delSelection(AddressSelection selection) {
+		Probed probed = started("delSelection");
+		try {
+			cut(selection);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, selection.size(), 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#moveSelection(AddressSelection, int)
+	 */
+	public void moveSelection(AddressSelection selection, int list) 
+	throws MutualExclusionException {
+		Probed probed = started("moveSelection");
+		try {
+			int source = selection.getList();
+			if (((list == MAIL_LIST) && (source != REMOVED_LIST))
+					|| ((list == REMOVED_LIST) && (source != MAIL_LIST)))
+				checkExclusiveContents(getAddresses(selection), list);
+			else if ((list == MAIL_LIST) && (suppressionRules.size() > 0))
+				checkSuppressionRules(getAddresses(selection));
+			for (String address : cut(selection))
+				putInList(address, source, list);
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, selection.size(), 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#delRange(int, String, String)
+	 */
+	public int delRange(int list, String from, String to) {
+		int count = 0;
+		Probed probed = started("delRange");
+		try {
+			ArrayList<String> cut = new ArrayList<String>();
+			cut(list, from, true, to, false, cut);
+			if (!cut.isEmpty()) {
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+			count = cut.size();
+			return count;
+		} finally {
+			if (probed != null)
+				finished(probed, count, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#moveRange(int, String, String, int)
+	 */
+	public int moveRange(int list, String from, String to, int toList) 
+	throws MutualExclusionException {
+		int count = 0;
+		Probed probed = started("moveRange");
+		try {
+			if (((toList == MAIL_LIST) && (list != REMOVED_LIST))
+					|| ((toList == REMOVED_LIST) && (list != MAIL_LIST))) {
+				Collection<String> range = range(list, from, to);
+				checkExclusiveContents(range.toArray(new String[range.size()]), toList);
+			} else if ((toList == MAIL_LIST) && (suppressionRules.size() > 0)) {
+				Collection<String> range = range(list, from, to);
+				checkSuppressionRules(range.toArray(new String[range.size()]));
+			}
+			ArrayList<String> cut = new ArrayList<String>();
+			cut(list, from, true, to, false, cut);
+			for (String address : cut)
+				putInList(address, list, toList);
+			if (!cut.isEmpty()) {
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+			count = cut.size();
+			return count;
+		} finally {
+			if (probed != null)
+				finished(probed, count, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#delByDomain(int, String)
+	 */
+	public int delByDomain(int list, String domain) {
+		int count = 0;
+		Probed probed = started("delByDomain");
+		try {
+			/* Addresses, and so their domains, are kept in lower case. */
+			domain = domain.toLowerCase();
+			String[] addresses = domainAddresses(list, domain);
+			cut(list, domain, addresses);
+			if (addresses.length > 0) {
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+			count = addresses.length;
+			return count;
+		} finally {
+			if (probed != null)
+				finished(probed, count, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#moveByDomain(int, String, int)
+	 */
+	public int moveByDomain(int list, String domain, int toList) 
+	throws MutualExclusionException {
+		int count = 0;
+		Probed probed = started("moveByDomain");
+		try {
+			/* Addresses, and so their domains, are kept in lower case. */
+			domain = domain.toLowerCase();
+			String[] addresses = domainAddresses(list, domain);
+			if (((toList == MAIL_LIST) && (list != REMOVED_LIST))
+					|| ((toList == REMOVED_LIST) && (list != MAIL_LIST)))
+				checkExclusiveContents(addresses, toList);
+			else if ((toList == MAIL_LIST) && (suppressionRules.size() > 0))
+				checkSuppressionRules(addresses);
+			cut(list, domain, addresses);
+			for (String address : addresses)
+				putInList(address, list, toList);
+			if (addresses.length > 0) {
+				notifyAddressTablesObservers();
+				unsaveAndNotifyFileStatusObservers();
+			}
+			count = addresses.length;
+			return count;
+		} finally {
+			if (probed != null)
+				finished(probed, count, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#getNumberOfReturns(String)
+	 */
+	public int getNumberOfReturns(String address) {
+		/* Normalize address. */
+		address = canonicalizer.normalize(address);
+		return returned.get(lookup(address, RETURNED_LIST));
+	}
+	
+	/**
+	 * @see EMaMModelInterface#isSuppressed(String)
+	 */
+	public boolean isSuppressed(String address) {
+		address = canonicalizer.normalize(address);
+		return (lookup(address, REMOVED_LIST) != null) || suppressionRules.matches(address);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#normalizeAddress(String)
+	 */
+	public String normalizeAddress(String address) {
+		return canonicalizer.normalize(address);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getCanonicalAddress(String)
+	 */
+	public String getCanonicalAddress(String address) {
+		return canonicalOf(canonicalizer.normalize(address));
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getListSize(int)
+	 */
+	public int getListSize(int list) {
+		if (list == RETURNED_LIST)
+			return returned.size();
+		return getSet(list).size();
+	}
+	
+	/**
+	 * @see EMaMModelInterface#findTypos(int)
+	 */
+	public List<TypoDetector.Suspect> findTypos(int list) {
+		Probed probed = started("findTypos");
+		try {
+			return new TypoDetector(domainIndex, MAIL_LIST).check(ordered(list));
+		} finally {
+			if (probed != null)
+				finished(probed, getListSize(list), 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#search(int, String)
+	 */
+	public int[] search(int list, String query) {
+		Probed probed = started("search");
+		int found = 0;
+		try {
+			String text = query.trim().toLowerCase();
+			if (text.length() == 0)
+				return null;
+			String[] all = ordered(list);
+			int[] rows;
+			if (text.indexOf('*') == text.length() - 1) {
+				/* Prefix, a range of the sorted list. */
+				String prefix = text.substring(0, text.length() - 1);
+				int from = insertionPoint(all, prefix);
+				int to = insertionPoint(all, prefix + '\uffff');
+				rows = new int[to - from];
+				for (int i = 0; i < rows.length; i++)
+					rows[i] = from + i;
+			} else if (text.startsWith("@") && (text.length() > 1)) {
+				/* Domain and subdomains, from the domain index. */
+				String domain = text.substring(1);
+				ArrayList<String> domains = new ArrayList<String>();
+				int count = 0;
+				for (String indexed : domainIndex.getDomains(list)) {
+					if (indexed.equals(domain) || indexed.endsWith("." + domain)) {
+						domains.add(indexed);
+						count += domainIndex.getCount(list, indexed);
+					}
+				}
+				if (count > all.length / SCAN_FRACTION) {
+					rows = scan(all, text, true);
+				} else {
+					ArrayList<String> addresses = new ArrayList<String>(count);
+					for (String indexed : domains)
+						addresses.addAll(domainIndex.getAddresses(list, indexed));
+					rows = rows(all, addresses);
+				}
+			} else {
+				if (searchIndexes[list] == null)
+					searchIndexes[list] = new SearchIndex((list == RETURNED_LIST) 
+							? returned.keySet() : getSet(list));
+				if (searchIndexes[list].getCandidates(text) > all.length / SCAN_FRACTION) {
+					rows = scan(all, text, false);
+				} else {
+					ArrayList<String> addresses = new ArrayList<String>();
+					searchIndexes[list].find(text, addresses);
+					rows = rows(all, addresses);
+				}
+			}
+			found = rows.length;
+			return rows;
+		} finally {
+			if (probed != null)
+				finished(probed, found, 0);
+		}
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getAddressIterator(int)
+	 */
+	public Iterator<String> getAddressIterator(int list) {
+		if (list == RETURNED_LIST)
+			return Collections.unmodifiableSet(returned.keySet()).iterator();
+		return Collections.unmodifiableSet(getSet(list)).iterator();
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getReturnedIterator()
+	 */
+	public Iterator<Map.Entry<String, Integer>> getReturnedIterator() {
+		return Collections.unmodifiableMap(returned).entrySet().iterator();
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getDomains(int)
+	 */
+	public String[] getDomains(int list) {
+		return domainIndex.getDomains(list);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getDomainCount(int, String)
+	 */
+	public int getDomainCount(int list, String domain) {
+		return domainIndex.getCount(list, domain.toLowerCase());
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getDomainReturns(String)
+	 */
+	public long getDomainReturns(String domain) {
+		return domainIndex.getReturns(domain.toLowerCase());
+	}
+	
+	/**
+	 * @see EMaMModelInterface#getDomainBounceRate(String)
+	 */
+	public double getDomainBounceRate(String domain) {
+		return domainIndex.getBounceRate(domain.toLowerCase());
+	}
+	
+	/**
+	 * @see EMaMModelInterface#clearExtracted()
+	 */
+	public void clearExtracted() {
+		int n = extracted.size();
+		Probed probed = started("clearExtracted");
+		try {
+			clearList(EXTRACTED_LIST);
+			notifyAddressTablesObservers();
+			if (n > 0)
+				unsaveAndNotifyFileStatusObservers();
+		} finally {
+			if (probed != null)
+				finished(probed, n, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#undo()
+	 */
+	public boolean undo() {
+		Probed probed = started("undo");
+		try {
+			if (!undoLog.undo(new Changes()))
+				return false;
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+			return true;
+		} finally {
+			if (probed != null)
+				finished(probed, 0, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#redo()
+	 */
+	public boolean redo() {
+		Probed probed = started("redo");
+		try {
+			if (!undoLog.redo(new Changes()))
+				return false;
+			notifyAddressTablesObservers();
+			unsaveAndNotifyFileStatusObservers();
+			return true;
+		} finally {
+			if (probed != null)
+				finished(probed, 0, 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#canUndo()
+	 */
+	public boolean canUndo() {
+		return undoLog.canUndo();
+	}
+
+	/**
+	 * @see EMaMModelInterface#canRedo()
+	 */
+	public boolean canRedo() {
+		return undoLog.canRedo();
+	}
+
+	/**
+	 * @see EMaMModelInterface#registerAddressTablesObserver(AddressTablesObserver)
+	 */
+	public void registerAddressTablesObserver(AddressTablesObserver ato) {
+		atObservers.add(ato);
+	}
+
+	/**
+	 * @see EMaMModelInterface#removeAddressTablesObserver(AddressTablesObserver)
+	 */
+	public void removeAddressTablesObserver(AddressTablesObserver ato) {
+		atObservers.remove(ato);
+	}
+	
+	/**
+	 * @see EMaMModelInterface#notifyAddressTablesObservers()
+	 */
+	public void notifyAddressTablesObservers() {
+		Probed probed = started("notifyAddressTablesObservers");
+		try {
+			for (AddressTablesObserver ato : atObservers) {
+				ato.updateAddressTables();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, atObservers.size(), 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#registerProbe(ModelProbe)
+	 */
+	public synchronized void registerProbe(ModelProbe probe) {
+		ModelProbe[] more = Arrays.copyOf(probes, probes.length + 1);
+		more[probes.length] = probe;
+		probes = more;
+	}
+
+	/**
+	 * @see EMaMModelInterface#removeProbe(ModelProbe)
+	 */
+	public synchronized void removeProbe(ModelProbe probe) {
+		ArrayList<ModelProbe> left = new ArrayList<ModelProbe>(Arrays.asList(probes));
+		left.remove(probe);
+		probes = left.toArray(new ModelProbe[left.size()]);
+	}
+
+	/**
+	 * @see EMaMModelInterface#getCurrentFile()
+	 */
+	public File getCurrentFile() {
+		return currentFile;
+	}
+	
+	/**
+	 * @see EMaMModelInterface#isFileSaved()
+	 */
+	public boolean isFileSaved() {
+		return saved;
+	}
+
+	/**
+	 * @see EMaMModelInterface#notifyFileStatusObservers()
+	 */
+	public void notifyFileStatusObservers() {
+		Probed probed = started("notifyFileStatusObservers");
+		try {
+			for (FileStatusObserver fso : fsObservers) {
+				fso.updateFileStatus();
+			}
+		} finally {
+			if (probed != null)
+				finished(probed, fsObservers.size(), 0);
+		}
+	}
+
+	/**
+	 * @see EMaMModelInterface#registerFileStatusObserver(FileStatusObserver)
+	 */
+	public void registerFileStatusObserver(FileStatusObserver fso) {
+		fsObservers.add(fso);	
+	}
+
+	/**
+	 * @see EMaMModelInterface#removeFileStatusObserver(FileStatusObserver)
+	 */
+	public void removeFileStatusObserver(FileStatusObserver fso) {
+		fsObservers.remove(fso);			
+	}
+	
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+	
+	/**
+	 * Clear data in all sets.
+	 */
+	private void clearData() {
+		/* Clear all previous listings. */
+		mailList.clear();
+		removed.clear();
+		returned.clear();
+		extracted.clear();
+		Arrays.fill(ordered, null);
+		Arrays.fill(searchIndexes, null);
+		domainIndex.clear();
+		suppressionRules.clear();
+		for (HashMap<String, String> listAliases : aliases)
+			listAliases.clear();
+		provenance.clear();
+		undoLog.clear();
+	}
+	
+	/**
+	 * Counts the line ends in the given range of a text.
+	 * 
+	 * @param text A text.
+	 * @param from Index where to start counting.
+	 * @param to Index where to stop counting.
+	 * @return The number of line ends in the range.
+	 */
+	private static int countLineEnds(String text, int from, int to) {
+		int count = 0;
+		for (int i = from; i < to; i++)
+			if (text.charAt(i) == '\n')
+				count++;
+		return count;
+	}
+	
+	/**
+	 * Stores newly extracted addresses in the extracted list, replacing its
+	 * contents unless addresses are accumulated, and notifies observers. 
+	 * Addresses are classified for the extraction statistics as they are 
+	 * stored, with a single canonical key computation and lookups in the 
+	 * lists, without scanning them.
+	 * 
+	 * @param addresses Newly extracted addresses.
+	 * @param positions Positions of the addresses, to record their 
+	 * provenance, or null.
+	 * @return The number of addresses extracted.
+	 */
+	private int storeExtracted(ArrayList<String> addresses, SourcePositions positions) {
+		if (!accumulateExtracted) {
+			/* Clear previoulsy extracted addresses. */
+			clearList(EXTRACTED_LIST);
+		}
+		ExtractionStatistics statistics = new ExtractionStatistics();
+		for (int i = 0; i < addresses.size(); i++) {
+			String address = canonicalizer.normalize(addresses.get(i));
+			String key = canonicalOf(address);
+			if (positions != null)
+				provenance.add(key, positions.getSource(i), positions.getOffset(i), positions.getLine(i));
+			if (lookup(address, key, EXTRACTED_LIST) != null) {
+				statistics.countDuplicate();
+				continue;
+			}
+			statistics.countAdded(
+					lookup(address, key, MAIL_LIST) != null,
+					(lookup(address, key, REMOVED_LIST) != null) || suppressionRules.matches(address),
+					lookup(address, key, RETURNED_LIST) != null);
+			addToList(address, key, EXTRACTED_LIST);
+		}
+		extractionStatistics = statistics;
+		/* Notify observers. */
+		notifyAddressTablesObservers();
+		unsaveAndNotifyFileStatusObservers();
+		/* Return number of addresses extracted. */
+		return addresses.size();
+	}
+	
+	/**
+	 * Returns true if addresses should be extracted with the 
+	 * {@link AddressScanner} instead of the regular expression, i.e. if the 
+	 * <code>extractionEngine</code> property is "scanner" and the
+	 * regular expression is the one the scanner recognizes. A customized 
+	 * regular expression is always used as is.
+	 * 
+	 * @param regexp The regular expression in the properties file.
+	 * @return True if addresses should be extracted with the scanner.
+	 */
+	private boolean useScanner(String regexp) {
+		return "scanner".equals(EMaM.getProperties().getProperty("extractionEngine"))
+			&& AddressScanner.REGEXP.equals(regexp);
+	}
+	
+	/**
+	 * Returns the regular expression in the properties file, compiled. It
+	 * is only compiled again when the property changes.
+	 * 
+	 * @return The compiled regular expression.
+	 * @throws PatternSyntaxException If the regular expression is invalid.
+	 */
+	private Pattern addressPattern() throws PatternSyntaxException {
+		String regexp = EMaM.getProperties().getProperty("regexp");
+		Pattern p = pattern;
+		if ((p == null) || !p.pattern().equals(regexp)) {
+			p = Pattern.compile(regexp);
+			pattern = p;
+		}
+		return p;
+	}
+	
+	/**
+	 * Returns the set which keeps the addresses of the given list. The returned
+	 * list is kept in a map, and thus cannot be obtained with this method.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The set which keeps the addresses of the given list.
+	 */
+	private TreeSet<String> getSet(int list) {
+		switch (list) {
+		case MAIL_LIST:
+			return mailList;
+		case REMOVED_LIST:
+			return removed;
+		case EXTRACTED_LIST:
+			return extracted;
+		default:
+			throw new IllegalArgumentException("Unknown list: " + list);
+		}
+	}
+	
+	/**
+	 * Checks if adding the given addresses to the given list (mail or 
+	 * removed) would break the mutual exclusion between those two lists.
+	 * Addresses to be added to the mail list can't be in the removed list,
+	 * nor be matched by one of its rules. Addresses to be added to the 
+	 * removed list can't be in the mail list; if they are rules, they 
+	 * can't match addresses in the mail list.
+	 * 
+	 * @param addresses Addresses to check.
+	 * @param list The list where the addresses are to be added.
+	 * @throws MutualExclusionException If the mutual exclusion would be broken,
+	 * with the addresses of the mail list involved, and, apart, the addresses
+	 * matched by suppression rules.
+	 */
+	private void checkExclusiveContents(String[] addresses, int list) 
+	throws MutualExclusionException {
+		TreeSet<String> problemAddresses = new TreeSet<String>();
+		TreeMap<String, String> suppressed = new TreeMap<String, String>();
+		for (String address : addresses) {
+			if (list == MAIL_LIST) {
+				/* Check if address is matched by a rule, which moving it from
+				 * the removed list wouldn't change, or if it (or an equivalent
+				 * one) is in the removed list. */
+				String rule = suppressionRules.findRule(address);
+				if (rule != null)
+					suppressed.put(address, rule);
+				else if (lookup(address, REMOVED_LIST) != null)
+					problemAddresses.add(address);
+			} else if (SuppressionMatcher.isRule(address)) {
+				/* Find the addresses in the mail list matched by the rule. */
+				problemAddresses.addAll(findMatches(address, mailList));
+			} else {
+				/* Report the address (or the equivalent one) in the mail list. */
+				String stored = lookup(address, MAIL_LIST);
+				if (stored != null)
+					problemAddresses.add(stored);
+			}
+		}
+		/* If there are problematic addresses then throw exception. */
+		if ((problemAddresses.size() > 0) || (suppressed.size() > 0)) {
+			String problemAddressesArray[] = new String[problemAddresses.size()];
+			throw new MutualExclusionException(
+					problemAddresses.toArray(
+							problemAddressesArray),
+					suppressed.keySet().toArray(new String[suppressed.size()]),
+					suppressed.values().toArray(new String[suppressed.size()]));
+		}
+	}
+	
+	/**
+	 * Checks if any of the given addresses, to be moved from the removed list
+	 * to the mail list, is matched by a suppression rule. Such addresses 
+	 * would stay suppressed in the mail list, so they can't be moved while 
+	 * the rule exists. Rules themselves are not checked, since they stay in
+	 * the removed list.
+	 * 
+	 * @param addresses Addresses to check.
+	 * @throws MutualExclusionException If any address is matched by a rule,
+	 * with the matched addresses and their rules.
+	 */
+	private void checkSuppressionRules(String[] addresses) 
+	throws MutualExclusionException {
+		TreeMap<String, String> suppressed = new TreeMap<String, String>();
+		for (String address : addresses) {
+			if (SuppressionMatcher.isRule(address))
+				continue;
+			String rule = suppressionRules.findRule(address);
+			if (rule != null)
+				suppressed.put(address, rule);
+		}
+		if (suppressed.size() > 0)
+			throw new MutualExclusionException(new String[0],
+					suppressed.keySet().toArray(new String[suppressed.size()]),
+					suppressed.values().toArray(new String[suppressed.size()]));
+	}
+	
+	/**
+	 * Returns the addresses of the given set which are matched by the given
+	 * suppression rule. If the rule is for a single domain, only the 
+	 * addresses of that domain are checked.
+	 * 
+	 * @param rule A suppression rule.
+	 * @param set Set of addresses.
+	 * @return The addresses of the given set matched by the rule.
+	 */
+	private ArrayList<String> findMatches(String rule, TreeSet<String> set) {
+		ArrayList<String> matches = new ArrayList<String>();
+		SuppressionMatcher matcher = SuppressionMatcher.forRule(rule);
+		String domain = DomainIndex.domainOf(rule);
+		if (domain.indexOf('*') < 0) {
+			/* Only check the addresses of the rule's domain. */
+			int list = (set == mailList) ? MAIL_LIST : (set == removed) ? REMOVED_LIST : EXTRACTED_LIST;
+			for (String address : domainIndex.getAddresses(list, domain))
+				if (matcher.matches(address))
+					matches.add(address);
+		} else {
+			for (String address : set)
+				if (matcher.matches(address))
+					matches.add(address);
+		}
+		return matches;
+	}
+	
+	/**
+	 * Add given addresses to given list. The returned list can't be used
+	 * with this method, use {@link #setReturned(String, int)} instead.
+	 * 
+	 * @param addresses Addresses to add.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void addToList(String[] addresses, int list) {
+		/* Add addresses to given list. */
+		for (String address : addresses) {
+			addToList(address, list);
+		}
+	}
+	
+	/**
+	 * Add given address to given list, unless the list already has an 
+	 * address with the same canonical key, keeping the domain index up to
+	 * date. The returned list can't be used with this method, use 
+	 * {@link #setReturned(String, int)} instead.
+	 * 
+	 * @param address Address to add.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void addToList(String address, int list) {
+		addToList(address, canonicalOf(address), list);
+	}
+	
+	/**
+	 * Add given address, whose canonical key is already known, to given 
+	 * list. See {@link #addToList(String, int)}.
+	 * 
+	 * @param address Address to add.
+	 * @param key Canonical key of the address.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void addToList(String address, String key, int list) {
+		if (lookup(address, key, list) != null)
+			return;
+		if (getSet(list).add(address)) {
+			undoLog.added(list, address);
+			indexAdded(list, address);
+			ordered[list] = null;
+			if (!key.equals(address))
+				aliases[list].put(key, address);
+			/* Rules are kept in the matcher instead of the domain index. */
+			if ((list == REMOVED_LIST) && SuppressionMatcher.isRule(address))
+				suppressionRules.add(address);
+			else
+				domainIndex.add(list, address);
+		}
+	}
+	
+	/**
+	 * Delete given addresses from given list, keeping the domain index up
+	 * to date.
+	 * 
+	 * @param addresses Addresses to delete.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void delFromList(String[] addresses, int list) {
+		/* Remove addresses from given list. */
+		for (String address : addresses) {
+			delFromList(address, list);
+		}
+	}
+	
+	/**
+	 * Delete given address, or the address with the same canonical key, 
+	 * from given list, keeping the domain index up to date.
+	 * 
+	 * @param address Address to delete.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void delFromList(String address, int list) {
+		/* Find the stored address with the same canonical key. */
+		address = lookup(address, list);
+		if (address == null)
+			return;
+		removeAlias(address, list);
+		ordered[list] = null;
+		if (list == RETURNED_LIST) {
+			Integer count = returned.remove(address);
+			if (count != null) {
+				undoLog.removed(list, address, count);
+				indexRemoved(list, address);
+				domainIndex.returnsChanged(address, -count);
+				domainIndex.remove(list, address);
+			}
+		} else if (getSet(list).remove(address)) {
+			undoLog.removed(list, address, 0);
+			indexRemoved(list, address);
+			if ((list == REMOVED_LIST) && SuppressionMatcher.isRule(address))
+				suppressionRules.remove(address);
+			else
+				domainIndex.remove(list, address);
+		}
+	}
+	
+	/**
+	 * Removes the selected addresses from their list, keeping the domain 
+	 * index up to date. Each range of rows is removed as a range of the 
+	 * sorted list, from its first to its last address, without looking 
+	 * addresses up.
+	 * 
+	 * @param selection Selected rows of a list.
+	 * @return The removed addresses, sorted.
+	 */
+	private ArrayList<String> cut(AddressSelection selection) {
+		int list = selection.getList();
+		String[] all = ordered(list);
+		ArrayList<String> cut = new ArrayList<String>(selection.size());
+		for (int r = 0; r < selection.getRangeCount(); r++) {
+			int from = selection.getRangeStart(r);
+			int to = Math.min(all.length, selection.getRangeEnd(r));
+			if (from < to)
+				cut(list, all[from], true, all[to - 1], true, cut);
+		}
+		return cut;
+	}
+	
+	/**
+	 * Removes the addresses of a list between the given bounds, keeping the
+	 * domain index up to date. The range is removed through a view of the 
+	 * sorted list, without looking addresses up.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param from Lower bound of the range, or null for none.
+	 * @param fromInclusive True if the lower bound is in the range.
+	 * @param to Upper bound of the range, or null for none.
+	 * @param toInclusive True if the upper bound is in the range.
+	 * @param cut List where to add the removed addresses.
+	 */
+	private void cut(int list, String from, boolean fromInclusive, 
+			String to, boolean toInclusive, ArrayList<String> cut) {
+		if ((from != null) && (to != null) && (from.compareTo(to) > 0))
+			return;
+		int start = cut.size();
+		if (list == RETURNED_LIST) {
+			NavigableMap<String, Integer> range = returned;
+			if (from != null)
+				range = range.tailMap(from, fromInclusive);
+			if (to != null)
+				range = range.headMap(to, toInclusive);
+			for (Map.Entry<String, Integer> entry : range.entrySet()) {
+				cut.add(entry.getKey());
+				undoLog.removed(list, entry.getKey(), entry.getValue());
+				indexRemoved(list, entry.getKey());
+				domainIndex.returnsChanged(entry.getKey(), -entry.getValue());
+				domainIndex.remove(list, entry.getKey());
+			}
+			range.clear();
+		} else {
+			NavigableSet<String> range = getSet(list);
+			if (from != null)
+				range = range.tailSet(from, fromInclusive);
+			if (to != null)
+				range = range.headSet(to, toInclusive);
+			cut.addAll(range);
+			range.clear();
+			for (int i = start; i < cut.size(); i++) {
+				String address = cut.get(i);
+				undoLog.removed(list, address, 0);
+				indexRemoved(list, address);
+				if ((list == REMOVED_LIST) && SuppressionMatcher.isRule(address))
+					suppressionRules.remove(address);
+				else
+					domainIndex.remove(list, address);
+			}
+		}
+		/* Only addresses whose canonical key differs have an alias. */
+		if (!aliases[list].isEmpty())
+			for (int i = start; i < cut.size(); i++)
+				removeAlias(cut.get(i), list);
+		ordered[list] = null;
+	}
+	
+	/**
+	 * Returns the addresses of a list at the given domain, from the domain
+	 * index.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name.
+	 * @return The addresses of the list at the domain, sorted.
+	 */
+	private String[] domainAddresses(int list, String domain) {
+		SortedSet<String> addresses = domainIndex.getAddresses(list, domain);
+		return addresses.toArray(new String[addresses.size()]);
+	}
+	
+	/**
+	 * Removes the addresses of a list at the given domain, detaching the
+	 * domain's addresses from the domain index at once.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name.
+	 * @param addresses The addresses of the list at the domain, as given by
+	 * {@link #domainAddresses(int, String)}.
+	 */
+	private void cut(int list, String domain, String[] addresses) {
+		domainIndex.removeDomain(list, domain);
+		for (String address : addresses) {
+			if (list == RETURNED_LIST)
+				undoLog.removed(list, address, returned.remove(address));
+			else if (getSet(list).remove(address))
+				undoLog.removed(list, address, 0);
+			indexRemoved(list, address);
+			if (!aliases[list].isEmpty())
+				removeAlias(address, list);
+		}
+		ordered[list] = null;
+	}
+	
+	/**
+	 * Returns a view of the addresses of a list from the given address 
+	 * (inclusive) to the other (exclusive).
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param from Lower bound of the range, or null for none.
+	 * @param to Upper bound of the range, or null for none.
+	 * @return The addresses of the list in the range.
+	 */
+	private Collection<String> range(int list, String from, String to) {
+		if ((from != null) && (to != null) && (from.compareTo(to) > 0))
+			return Collections.<String>emptySet();
+		NavigableSet<String> range = (list == RETURNED_LIST) 
+			? returned.navigableKeySet() : getSet(list);
+		if (from != null)
+			range = range.tailSet(from, true);
+		if (to != null)
+			range = range.headSet(to, false);
+		return range;
+	}
+	
+	/**
+	 * Puts an address moved from a list in another list: the returned 
+	 * count of addresses moved to the returned list is incremented, and 
+	 * wildcard rules moved from the removed list to the mailing list stay
+	 * in the removed list.
+	 * 
+	 * @param address A stored address.
+	 * @param source List where the address was.
+	 * @param list List where to put the address.
+	 */
+	private void putInList(String address, int source, int list) {
+		if ((source == REMOVED_LIST) && (list == MAIL_LIST) 
+				&& SuppressionMatcher.isRule(address))
+			list = REMOVED_LIST;
+		if (list == RETURNED_LIST) {
+			String stored = lookup(address, RETURNED_LIST);
+			if (stored != null)
+				setReturned(stored, returned.get(stored) + 1);
+			else
+				setReturned(address, 1);
+		} else {
+			addToList(address, list);
+		}
+	}
+	
+	/**
+	 * Returns the addresses of the given list, sorted, in an array which is
+	 * kept until the list changes.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The addresses of the list.
+	 */
+	private String[] ordered(int list) {
+		if (ordered[list] == null) {
+			Collection<String> addresses = (list == RETURNED_LIST) 
+				? returned.keySet() : getSet(list);
+			ordered[list] = addresses.toArray(new String[addresses.size()]);
+			if (list == RETURNED_LIST)
+				orderedCounts = returned.values().toArray();
+		}
+		return ordered[list];
+	}
+	
+	/**
+	 * Adds an address to the search index of a list, if the list has one.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param address Address added to the list.
+	 */
+	private void indexAdded(int list, String address) {
+		if (searchIndexes[list] != null)
+			searchIndexes[list].add(address);
+	}
+	
+	/**
+	 * Removes an address from the search index of a list, if the list has 
+	 * one, and forgets where it was found if it left the extracted list.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param address Address removed from the list.
+	 */
+	private void indexRemoved(int list, String address) {
+		if (searchIndexes[list] != null)
+			searchIndexes[list].remove(address);
+		if ((list == EXTRACTED_LIST) && (provenance.size() > 0))
+			provenance.remove(canonicalOf(address));
+	}
+	
+	/**
+	 * Returns the position of an address in a sorted array, or where it 
+	 * would be inserted.
+	 * 
+	 * @param all Sorted addresses.
+	 * @param address An address.
+	 * @return The position of the address.
+	 */
+	private static int insertionPoint(String[] all, String address) {
+		int i = Arrays.binarySearch(all, address);
+		return (i >= 0) ? i : -i - 1;
+	}
+	
+	/**
+	 * Returns the rows of a sorted array with the addresses which contain 
+	 * the given text, or are at the given domain or its subdomains, checking
+	 * every address.
+	 * 
+	 * @param all Sorted addresses.
+	 * @param text Text to look for, or "@" and a domain.
+	 * @param domain True if the text is a domain.
+	 * @return The rows of the addresses found, in ascending order.
+	 */
+	private static int[] scan(String[] all, String text, boolean domain) {
+		String subdomain = "." + text.substring(1);
+		int[] rows = new int[16];
+		int n = 0;
+		for (int row = 0; row < all.length; row++) {
+			boolean found;
+			if (domain) {
+				/* Rules are not in the domain index either. */
+				String address = all[row];
+				int at = address.indexOf('@');
+				found = (at >= 0) && (address.indexOf('*') < 0)
+						&& ((address.startsWith(text, at) && (at + text.length() == address.length()))
+						|| (address.endsWith(subdomain) && (address.length() - subdomain.length() > at)));
+			} else {
+				found = all[row].contains(text);
+			}
+			if (found) {
+				if (n == rows.length)
+					rows = Arrays.copyOf(rows, n * 2);
+				rows[n++] = row;
+			}
+		}
+		return Arrays.copyOf(rows, n);
+	}
+	
+	/**
+	 * Returns the rows of the given addresses in a sorted array.
+	 * 
+	 * @param all Sorted addresses.
+	 * @param addresses Addresses of the array, in any order.
+	 * @return The rows of the addresses, in ascending order.
+	 */
+	private static int[] rows(String[] all, List<String> addresses) {
+		String[] sorted = addresses.toArray(new String[addresses.size()]);
+		Arrays.sort(sorted);
+		int[] rows = new int[sorted.length];
+		int n = 0;
+		int from = 0;
+		for (String address : sorted) {
+			int row = Arrays.binarySearch(all, from, all.length, address);
+			if (row >= 0) {
+				rows[n++] = row;
+				from = row + 1;
+			}
+		}
+		return (n == rows.length) ? rows : Arrays.copyOf(rows, n);
+	}
+	
+	/**
+	 * Sets the return count of the given address, adding it to the returned
+	 * list if necessary, and keeping the domain index up to date.
+	 * 
+	 * @param address Address whose return count is to be set.
+	 * @param count The new return count.
+	 */
+	private void setReturned(String address, int count) {
+		Integer previous = returned.put(address, count);
+		if (previous == null) {
+			undoLog.added(RETURNED_LIST, address);
+			indexAdded(RETURNED_LIST, address);
+			ordered[RETURNED_LIST] = null;
+			addAlias(address, RETURNED_LIST);
+			domainIndex.add(RETURNED_LIST, address);
+			previous = 0;
+		} else {
+			undoLog.countChanged(address, previous);
+			/* The counts of the sorted array are no longer valid. */
+			ordered[RETURNED_LIST] = null;
+		}
+		domainIndex.returnsChanged(address, count - previous);
+	}
+	
+	/**
+	 * Remove all addresses from given list, keeping the domain index up to
+	 * date.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void clearList(int list) {
+		ordered[list] = null;
+		searchIndexes[list] = null;
+		if (list == RETURNED_LIST) {
+			for (Map.Entry<String, Integer> entry : returned.entrySet())
+				undoLog.removed(list, entry.getKey(), entry.getValue());
+			returned.clear();
+		} else {
+			for (String address : getSet(list))
+				undoLog.removed(list, address, 0);
+			getSet(list).clear();
+		}
+		if (list == REMOVED_LIST)
+			suppressionRules.clear();
+		else if (list == EXTRACTED_LIST)
+			provenance.clear();
+		aliases[list].clear();
+		domainIndex.clear(list);
+	}
+	
+	/**
+	 * Returns the address under which the given address, or an address with
+	 * the same canonical key, is stored in the given list.
+	 * 
+	 * @param address A normalized address.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The stored address, or null if the list has no address with the
+	 * same canonical key.
+	 */
+	private String lookup(String address, int list) {
+		if (isStored(address, list))
+			return address;
+		return lookup(address, canonicalOf(address), list);
+	}
+	
+	/**
+	 * Returns the address stored in the given list with the same canonical
+	 * key as the given address, whose canonical key is already known. See
+	 * {@link #lookup(String, int)}.
+	 * 
+	 * @param address A normalized address.
+	 * @param key Canonical key of the address.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The stored address, or null if there is none.
+	 */
+	private String lookup(String address, String key, int list) {
+		if (isStored(address, list))
+			return address;
+		String stored = aliases[list].get(key);
+		if (stored != null)
+			return stored;
+		if (!key.equals(address) && isStored(key, list))
+			return key;
+		return null;
+	}
+	
+	/**
+	 * Returns true if the given address is stored as is in the given list.
+	 * 
+	 * @param address An address.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return True if the given address is stored in the given list.
+	 */
+	private boolean isStored(String address, int list) {
+		if (list == RETURNED_LIST)
+			return returned.containsKey(address);
+		return getSet(list).contains(address);
+	}
+	
+	/**
+	 * Returns the canonical key of the given normalized address. Suppression
+	 * rules are their own key.
+	 * 
+	 * @param address A normalized address or rule.
+	 * @return The canonical key of the given address.
+	 */
+	private String canonicalOf(String address) {
+		if (SuppressionMatcher.isRule(address))
+			return address;
+		return canonicalizer.canonicalize(address);
+	}
+	
+	/**
+	 * Registers the canonical key of an address which was added to the given 
+	 * list, if it differs from the address.
+	 * 
+	 * @param address The added address.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void addAlias(String address, int list) {
+		String key = canonicalOf(address);
+		if (!key.equals(address))
+			aliases[list].put(key, address);
+	}
+	
+	/**
+	 * Unregisters the canonical key of an address which is about to be removed
+	 * from the given list.
+	 * 
+	 * @param address The address to remove.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	private void removeAlias(String address, int list) {
+		String key = canonicalOf(address);
+		if (!key.equals(address))
+			aliases[list].remove(key);
+	}
+	
+	/**
+	 * Returns the file where the provenance of the extracted addresses of 
+	 * the given .emam file is kept, next to it.
+	 * 
+	 * @param file An .emam file.
+	 * @return The file with the provenance of the extracted addresses.
+	 */
+	private static File getProvenanceFile(File file) {
+		return new File(file.getPath() + PROVENANCE_EXTENSION);
+	}
+	
+	/**
+	 * Creates the address canonicalizer given by the <code>canonicalizer</code>
+	 * property, or a {@link DefaultCanonicalizer} if the property is not set.
+	 * 
+	 * @return A new address canonicalizer.
+	 * @throws IllegalArgumentException If the property doesn't name a valid 
+	 * <code>AddressCanonicalizer</code> class.
+	 */
+	static AddressCanonicalizer createCanonicalizer() {
+		String className = (EMaM.getProperties() == null) ? null 
+				: EMaM.getProperties().getProperty("canonicalizer");
+		if ((className == null) || (className.trim().length() == 0))
+			return new DefaultCanonicalizer();
+		try {
+			return (AddressCanonicalizer) Class.forName(className.trim())
+					.getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException cnfe) {
+			throw new IllegalArgumentException("Canonicalizer class not found: " + className, cnfe);
+		} catch (NoSuchMethodException nsme) {
+			throw new IllegalArgumentException("Canonicalizer has no default constructor: " 
+					+ className, nsme);
+		} catch (InstantiationException ie) {
+			throw new IllegalArgumentException("Unable to create canonicalizer: " + className, ie);
+		} catch (IllegalAccessException iae) {
+			throw new IllegalArgumentException("Unable to create canonicalizer: " + className, iae);
+		} catch (InvocationTargetException ite) {
+			throw new IllegalArgumentException("Unable to create canonicalizer: " + className, 
+					ite.getCause());
+		} catch (ClassCastException cce) {
+			throw new IllegalArgumentException("Not an AddressCanonicalizer: " + className, cce);
+		}
+	}
+	
+	/**
+	 * Creates the probes given by the <code>modelProbes</code> property, a
+	 * comma separated list of class names.
+	 * 
+	 * @return The new probes, possibly none.
+	 * @throws IllegalArgumentException If the property doesn't name valid 
+	 * <code>ModelProbe</code> classes.
+	 */
+	private static ModelProbe[] createProbes() {
+		String classNames = (EMaM.getProperties() == null) ? null 
+				: EMaM.getProperties().getProperty("modelProbes");
+		ArrayList<ModelProbe> created = new ArrayList<ModelProbe>();
+		if (classNames != null) {
+			for (String className : classNames.split(",")) {
+				className = className.trim();
+				if (className.length() == 0)
+					continue;
+				try {
+					created.add((ModelProbe) Class.forName(className)
+							.getDeclaredConstructor().newInstance());
+				} catch (ClassNotFoundException cnfe) {
+					throw new IllegalArgumentException("Probe class not found: " + className, cnfe);
+				} catch (NoSuchMethodException nsme) {
+					throw new IllegalArgumentException("Probe has no default constructor: " 
+							+ className, nsme);
+				} catch (InstantiationException ie) {
+					throw new IllegalArgumentException("Unable to create probe: " + className, ie);
+				} catch (IllegalAccessException iae) {
+					throw new IllegalArgumentException("Unable to create probe: " + className, iae);
+				} catch (InvocationTargetException ite) {
+					throw new IllegalArgumentException("Unable to create probe: " + className, 
+							ite.getCause());
+				} catch (ClassCastException cce) {
+					throw new IllegalArgumentException("Not a ModelProbe: " + className, cce);
+				} catch (LinkageError le) {
+					/* E.g. a probe compiled for a newer Java version. */
+					throw new IllegalArgumentException("Unable to load probe: " + className, le);
+				}
+			}
+		}
+		return created.toArray(new ModelProbe[created.size()]);
+	}
+	
+	/**
+	 * Returns the memory budget of the undo history, given in megabytes by
+	 * the <code>undoMemory</code> property (64 if not set).
+	 * 
+	 * @return The memory budget of the undo history, in bytes.
+	 */
+	private static long getUndoBudget() {
+		String megabytes = (EMaM.getProperties() == null) ? null 
+				: EMaM.getProperties().getProperty("undoMemory");
+		try {
+			if ((megabytes != null) && (megabytes.trim().length() > 0))
+				return Long.parseLong(megabytes.trim()) << 20;
+		} catch (NumberFormatException nfe) {
+			/* Use the default. */
+		}
+		return 64L << 20;
+	}
+	
+	/**
+	 * Tells the probes that an operation is starting.
+	 * 
+	 * @param operation Name of the operation.
+	 * @return The operation being observed, to be given to 
+	 * {@link #finished(Probed, long, long)}, or null if there are no probes.
+	 */
+	private Probed started(String operation) {
+		ModelProbe[] probes = this.probes;
+		if (probes.length == 0)
+			return null;
+		Probed probed = new Probed();
+		probed.operation = operation;
+		probed.probes = probes;
+		probed.contexts = new Object[probes.length];
+		for (int i = 0; i < probes.length; i++)
+			probed.contexts[i] = probes[i].started(operation);
+		probed.start = System.nanoTime();
+		return probed;
+	}
+	
+	/**
+	 * Tells the probes that an operation has finished.
+	 * 
+	 * @param probed The operation, as returned by {@link #started(String)}.
+	 * @param items Number of addresses or observers involved.
+	 * @param bytes Number of bytes or characters read or written.
+	 */
+	private void finished(Probed probed, long items, long bytes) {
+		long nanos = System.nanoTime() - probed.start;
+		for (int i = 0; i < probed.probes.length; i++)
+			probed.probes[i].finished(probed.contexts[i], probed.operation, 
+					nanos, items, bytes, this);
+	}
+	
+	/**
+	 * Returns the total number of addresses in the lists.
+	 * 
+	 * @return The total number of addresses in the lists.
+	 */
+	private int listSizes() {
+		return mailList.size() + removed.size() + returned.size() + extracted.size();
+	}
+	
+	/**
+	 * Ends the undoable edit of the lists and, if saved status is true, set
+	 * it to false and notity file status observers. Every change of the 
+	 * lists ends with this method.
+	 */
+	private void unsaveAndNotifyFileStatusObservers() {
+		undoLog.commit();
+		if (saved) {
+			/* Set saved status to false. */
+			saved = false;
+			/* Notify file status observers. */
+			notifyFileStatusObservers();
+		}
+	}
+
+	/**
+	 * If saved status is false, set it to trye and notify file status observers.
+	 */
+	private void saveAndNotifyFileStatusObservers() {
+		if (!saved) {
+			/* Set saved status to true. */
+			saved = true;
+			/* Notify file status observers. */
+			notifyFileStatusObservers();
+		}
+	}
+
+	/**
+	 * Accepts an array of strings and normalizes them with the address
+	 * canonicalizer (trimming, lower case...).
+	 * 
+	 * @param addresses Array of strings to normalize.
+	 */
+	private void normalize(String addresses[]) {
+		for (int i = 0; i < addresses.length; i++)
+			addresses[i] = canonicalizer.normalize(addresses[i]);
+	}
+	
+
+}
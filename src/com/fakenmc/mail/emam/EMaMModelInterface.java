@@ -1,290 +1,712 @@
-/*
- * Copyright (c) 2008, Nuno Fachada
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without modification, 
- * are permitted provided that the following conditions are met:
- *
- *   * Redistributions of source code must retain the above copyright notice, 
- *     this list of conditions and the following disclaimer.
- *   * Redistributions in binary form must reproduce the above copyright notice, 
- *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
- *   * Neither the name of the FakenMC.com nor the names of its contributors 
- *     may be used to endorse or promote products derived from this software without 
- *     specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
- * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
- * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
- * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
- * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
- * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-package com.fakenmc.mail.emam;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.regex.PatternSyntaxException;
-
-/**
- * EMaM model interface.
- * 
- * @author Nuno Fachada
- */
-public interface EMaMModelInterface {
-	
-	/**
-	 * Loads an emam file into the model.
-	 * 
-	 * @param file File to load into the model.
-	 * @throws FileNotFoundException @see java.io.FileNotFoundException
-	 * @throws IOException @see java.io.IOException
-	 * @throws PatternSyntaxException @see java.util.regex.PatternSyntaxException
-	 * @throws InvalidStringException @see InvalidStringException
-	 * @throws InvalidFileFormatException @see InvalidFileFormatException
-	 */
-	public void openFile(File file) 
-	throws FileNotFoundException, IOException, 
-	PatternSyntaxException, InvalidStringException, InvalidFileFormatException;
-	
-	/**
-	 * Resets the model.
-	 */
-	public void newFile();
-	
-	/**
-	 * Saves current model information into the currently set file.
-	 * 
-	 * @throws IOException @see java.io.IOException
-	 */
-	public void saveFile() throws IOException;
-
-	/**
-	 * Saves current model information into a specified file.
-	 * 
-	 * @param file File where to save model.
-	 * @throws IOException @see java.io.IOException
-	 */
-	public void saveFileAs(File file) throws IOException;
-
-	/**
-	 * Adds an array of addresses to the mailing list.
-	 * 
-	 * @param addresses Array of addresses to add to the mailing list.
-	 * @throws MutualExclusionException @see MutualExclusionException
-	 */
-	public void addToMailList(String[] addresses) throws MutualExclusionException;
-	
-	/**
-	 * Deletes an array of addresses from the mailing list.
-	 * 
-	 * @param addresses Array of addresses to remove from the mailing list.
-	 */
-	public void delFromMailList(String[] addresses);
-	
-	/**
-	 * Moves an array of addresses from the mailing list to the removed list.
-	 * 
-	 * @param addresses Addresses to be moved.
-	 */
-	public void moveFromMailListToRemoved(String[] addresses);
-	
-	/**
-	 * Adds an array of addresses to the removed list.
-	 * 
-	 * @param addresses Array of addresses to add to the removed list.
-	 * @throws MutualExclusionException @see MutualExclusionException
-	 */
-	public void addToRemoved(String[] addresses) throws MutualExclusionException;
-	
-	/**
-	 * Deletes an array of addresses from the removed list.
-	 * 
-	 * @param addresses Array of addresses to remove from the removed list.
-	 */
-	public void delFromRemoved(String[] addresses);
-
-	/**
-	 * Moves an array of addresses from the removed list to the mailing list.
-	 * 
-	 * @param addresses Addresses to be moved.
-	 */
-	public void moveFromRemovedToMailList(String[] addresses);
-
-	/**
-	 * Adds an array of addresses to the returned list.
-	 * 
-	 * @param addresses Array of addresses to add to the returned list.
-	 */
-	public void addToReturned(String[] addresses);
-	
-	/**
-	 * Deletes an array of addresses from the returned list.
-	 * 
-	 * @param addresses Array of addresses to remove from the returned list.
-	 */
-	public void delFromReturned(String[] addresses);
-
-	/**
-	 * Increment array of addresses returned count by one in returned list.
-	 * 
-	 * @param addresses Array of addresses to increment return count.
-	 */
-	public void incrementReturned(String[] addresses);
-	
-	/**
-	 * Decrement array of addresses returned count by one in returned list.
-	 * 
-	 * @param addresses Array of addresses to decrement return count.
-	 */
-	public void decrementReturned(String[] addresses);
-	
-	/**
-	 * Process addresses in return list which have a count equal or bigger than
-	 * n.
-	 * @param n Minimum number of returned count to process each address.
-	 */
-	public void processReturned(int n);
-	
-	/**
-	 * Extract email addresses from given text string.
-	 * 
-	 * @param addresses Text string from where to extract email addresses.
-	 * @return Number of addresses extracted.
-	 */
-	public int extractAddresses(String addresses);
-	
-	/**
-	 * Adds an array of addresses to the extracted list.
-	 * 
-	 * @param addresses Array of addresses to add to the extracted list.
-	 */
-	public void addToExtracted(String[] addresses);
-	
-	/**
-	 * Deletes an array of addresses from the extracted list.
-	 * 
-	 * @param addresses Array of addresses to remove from the extracted list.
-	 */
-	public void delFromExtracted(String[] addresses);
-
-	/**
-	 * Move extracted addresses to mailing list.
-	 * 
-	 * @throws MutualExclusionException @see MutualExclusionException
-	 */
-	public void moveExtractedToMailList() throws MutualExclusionException;
-
-	/**
-	 * Move extracted addresses to removed list.
-	 * 
-	 * @throws MutualExclusionException @see MutualExclusionException
-	 */
-	public void moveExtractedToRemoved() throws MutualExclusionException;
-
-	/**
-	 * Move extracted addresses to returned list.
-	 */
-	public void moveExtractedToReturned();
-
-	/**
-	 * Returns an array of addresses contained in the mailing list.
-	 * 
-	 * @return An array of addresses contained in the mailing list.
-	 */
-	public String[] getListedAddresses();
-	
-	/**
-	 * Returns an array of addresses contained in the removed list.
-	 * 
-	 * @return An array of addresses contained in the removed list.
-	 */
-	public String[] getRemovedAddresses();
-	
-	/**
-	 * Returns an array of addresses contained in the returned list, and
-	 * respective return count.
-	 * 
-	 * @return An array of addresses contained in the return list, and respective return count.
-	 */
-	public Object[][] getReturnedAddresses();
-	
-	/**
-	 * Returns an array of addresses contained in the extracted list.
-	 * 
-	 * @return An array of addresses contained in the extracted list.
-	 */
-	public String[] getExtractedAddresses();
-	
-	/**
-	 * Get the return count for the given address.
-	 * 
-	 * @param addresses to get the return count of.
-	 * @return The return count for the given address.
-	 */
-	public int getNumberOfReturns(String addresses);
-	
-	/**
-	 * Clear extracted address list.
-	 */
-	public void clearExtracted();
-
-	/**
-	 * Register a given address tables observer. The observer will be notified
-	 * when any of the address tables changes.
-	 * 
-	 * @param ato An address table observer.
-	 */
-	public void registerAddressTablesObserver(AddressTablesObserver ato);
-
-	/**
-	 * Remove given address tables observer.
-	 * 
-	 * @param ato An address table observer.
-	 */
-	public void removeAddressTablesObserver(AddressTablesObserver ato);
-		
-	/**
-	 * Notify address table observers that address tables have changed.
-	 */
-	public void notifyAddressTablesObservers();
-	
-	/**
-	 * Register a given file status observer. The observer will be notified
-	 * when the name or saved status of the file changes.
-	 * 
-	 * @param fso A file status observer.
-	 */
-	public void registerFileStatusObserver(FileStatusObserver fso);
-
-	/**
-	 * Remove given file status observer.
-	 * 
-	 * @param fso A file status observer.
-	 */
-	public void removeFileStatusObserver(FileStatusObserver fso);
-		
-	/**
-	 * Notify file status observers that the model's file status have changed.
-	 */
-	public void notifyFileStatusObservers();
-
-	/**
-	 * Returns the current model file.
-	 * 
-	 * @return The current model file.
-	 */
-	public File getCurrentFile();
-	
-	/**
-	 * Returnd true if current model file is saved, false otherwise.
-	 * @return True if current model file is saved, false otherwise.
-	 */
-	public boolean isFileSaved();
-
-}
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * EMaM model interface.
+ * 
+ * @author Nuno Fachada
+ */
+public interface EMaMModelInterface {
+	
+	/* Constant for the mailing list. */
+	public final int MAIL_LIST = 0;
+	/* Constant for the removed list. */
+	public final int REMOVED_LIST = 1;
+	/* Constant for the returned list. */
+	public final int RETURNED_LIST = 2;
+	/* Constant for the extracted list. */
+	public final int EXTRACTED_LIST = 3;
+	
+	/**
+	 * Loads an emam file into the model.
+	 * 
+	 * @param file File to load into the model.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws PatternSyntaxException @see java.util.regex.PatternSyntaxException
+	 * @throws InvalidStringException @see InvalidStringException
+	 * @throws InvalidFileFormatException @see InvalidFileFormatException
+	 */
+	public void openFile(File file) 
+	throws FileNotFoundException, IOException, 
+	PatternSyntaxException, InvalidStringException, InvalidFileFormatException;
+	
+	/**
+	 * Resets the model.
+	 */
+	public void newFile();
+	
+	/**
+	 * Saves current model information into the currently set file.
+	 * 
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void saveFile() throws IOException;
+
+	/**
+	 * Saves current model information into a specified file.
+	 * 
+	 * @param file File where to save model.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void saveFileAs(File file) throws IOException;
+
+	/**
+	 * Adds an array of addresses to the mailing list.
+	 * 
+	 * @param addresses Array of addresses to add to the mailing list.
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public void addToMailList(String[] addresses) throws MutualExclusionException;
+	
+	/**
+	 * Deletes an array of addresses from the mailing list.
+	 * 
+	 * @param addresses Array of addresses to remove from the mailing list.
+	 */
+	public void delFromMailList(String[] addresses);
+	
+	/**
+	 * Moves an array of addresses from the mailing list to the removed list.
+	 * 
+	 * @param addresses Addresses to be moved.
+	 */
+	public void moveFromMailListToRemoved(String[] addresses);
+	
+	/**
+	 * Adds an array of addresses to the removed list. Besides addresses, the
+	 * removed list accepts wildcard rules (see {@link SuppressionMatcher}).
+	 * 
+	 * @param addresses Array of addresses to add to the removed list.
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public void addToRemoved(String[] addresses) throws MutualExclusionException;
+	
+	/**
+	 * Deletes an array of addresses from the removed list.
+	 * 
+	 * @param addresses Array of addresses to remove from the removed list.
+	 */
+	public void delFromRemoved(String[] addresses);
+
+	/**
+	 * Moves an array of addresses from the removed list to the mailing list.
+	 * Wildcard rules, and addresses matched by them, stay in the removed list.
+	 * 
+	 * @param addresses Addresses to be moved.
+	 */
+	public void moveFromRemovedToMailList(String[] addresses);
+
+	/**
+	 * Adds an array of addresses to the returned list.
+	 * 
+	 * @param addresses Array of addresses to add to the returned list.
+	 */
+	public void addToReturned(String[] addresses);
+	
+	/**
+	 * Deletes an array of addresses from the returned list.
+	 * 
+	 * @param addresses Array of addresses to remove from the returned list.
+	 */
+	public void delFromReturned(String[] addresses);
+
+	/**
+	 * Increment array of addresses returned count by one in returned list.
+	 * 
+	 * @param addresses Array of addresses to increment return count.
+	 */
+	public void incrementReturned(String[] addresses);
+	
+	/**
+	 * Decrement array of addresses returned count by one in returned list.
+	 * 
+	 * @param addresses Array of addresses to decrement return count.
+	 */
+	public void decrementReturned(String[] addresses);
+	
+	/**
+	 * Process addresses in return list which have a count equal or bigger than
+	 * n.
+	 * @param n Minimum number of returned count to process each address.
+	 */
+	public void processReturned(int n);
+	
+	/**
+	 * Extract email addresses from given text string.
+	 * 
+	 * @param addresses Text string from where to extract email addresses.
+	 * @return Number of addresses extracted.
+	 */
+	public int extractAddresses(String addresses);
+	
+	/**
+	 * Extract addresses from a text file into the extracted list, clearing 
+	 * the previous contents of the extracted list unless addresses are
+	 * accumulated (see {@link #setAccumulateExtracted(boolean)}). With the scanner 
+	 * extraction engine, the file is memory-mapped and searched without
+	 * decoding it (see {@link AddressPrefilter}). Compressed files and 
+	 * archives (gzip, zip, tar) are decompressed while extracting (see 
+	 * {@link ArchiveExtractor}).
+	 * 
+	 * @param file Text file from where to extract email addresses.
+	 * @return Number of addresses extracted.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extractAddressesFromFile(File file) 
+	throws FileNotFoundException, IOException;
+	
+	/**
+	 * Extract addresses from the messages in a mailbox (mbox) or message
+	 * (.eml) file into the extracted list, clearing the previous contents 
+	 * of the extracted list unless addresses are accumulated. Encoded text is decoded and attachments which
+	 * aren't text are skipped (see {@link MailboxExtractor}).
+	 * 
+	 * @param file Mailbox or message file from where to extract addresses.
+	 * @param headers Names of the headers from where to extract addresses,
+	 * or null to extract from whole messages.
+	 * @return Number of addresses extracted.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extractAddressesFromMailbox(File file, String[] headers) 
+	throws FileNotFoundException, IOException;
+	
+	/**
+	 * Finds the addresses in the given text, with the configured regular 
+	 * expression or scanner, without changing the model. It may thus be 
+	 * called from any thread (see {@link LiveExtractor}).
+	 * 
+	 * @param text Text where to look for addresses.
+	 * @param addresses List where to add the addresses found.
+	 * @param positions Where to add the positions (character offset and 
+	 * line) of the addresses found, or null.
+	 */
+	public void findAddresses(String text, List<String> addresses, 
+			SourcePositions positions);
+	
+	/**
+	 * Adds and deletes addresses in the extracted list at once, as the 
+	 * text they were extracted from changes (see {@link LiveExtractor}).
+	 * These changes are not recorded in the undo history, and don't 
+	 * forget the edits which could be redone.
+	 * 
+	 * @param added Addresses to add to the extracted list.
+	 * @param removed Addresses to delete from the extracted list.
+	 */
+	public void updateExtracted(String[] added, String[] removed);
+	
+	/**
+	 * Returns where an address was found by the extractions since the 
+	 * current file was created or opened, if provenance was recorded (see
+	 * {@link #setRecordProvenance(boolean)}). Provenance is saved with the
+	 * file, in a separate file with the ".provenance" extension.
+	 * 
+	 * @param address An address.
+	 * @return The occurrences of the address (or of addresses with the same 
+	 * canonical key), possibly none.
+	 */
+	public List<ProvenanceIndex.Occurrence> getProvenance(String address);
+	
+	/**
+	 * Returns true if the provenance of extracted addresses (source, offset
+	 * and line) is recorded.
+	 * 
+	 * @return True if the provenance of extracted addresses is recorded.
+	 */
+	public boolean isRecordProvenance();
+	
+	/**
+	 * Sets whether the provenance of extracted addresses is recorded.
+	 * 
+	 * @param record True to record the provenance of extracted addresses.
+	 */
+	public void setRecordProvenance(boolean record);
+	
+	/**
+	 * Returns the statistics of the last extraction, from text or from a 
+	 * file: how many addresses were found, and how many of them were new,
+	 * duplicates or already present in the other lists.
+	 * 
+	 * @return The statistics of the last extraction, or null if nothing 
+	 * was extracted yet.
+	 */
+	public ExtractionStatistics getExtractionStatistics();
+	
+	/**
+	 * Returns true if extracted addresses are added to the extracted list,
+	 * instead of replacing its contents.
+	 * 
+	 * @return True if extracted addresses are accumulated.
+	 */
+	public boolean isAccumulateExtracted();
+	
+	/**
+	 * Sets whether extracted addresses are added to the extracted list 
+	 * (accumulate mode), or replace its contents.
+	 * 
+	 * @param accumulate True to accumulate extracted addresses.
+	 */
+	public void setAccumulateExtracted(boolean accumulate);
+	
+	/**
+	 * Returns a short report of the last extraction from a file (sizes, 
+	 * time and throughput), if available.
+	 * 
+	 * @return A report of the last extraction from a file, or null if 
+	 * there is none.
+	 */
+	public String getExtractionReport();
+	
+	/**
+	 * Adds an array of addresses to the extracted list.
+	 * 
+	 * @param addresses Array of addresses to add to the extracted list.
+	 */
+	public void addToExtracted(String[] addresses);
+	
+	/**
+	 * Deletes an array of addresses from the extracted list.
+	 * 
+	 * @param addresses Array of addresses to remove from the extracted list.
+	 */
+	public void delFromExtracted(String[] addresses);
+
+	/**
+	 * Replaces the contents of a list by the given addresses: they are 
+	 * added to the list (as by addToMailList, addToRemoved, addToReturned 
+	 * or addToExtracted), and the addresses of the list which are not 
+	 * among them are deleted. Adding and deleting are undone together.
+	 * 
+	 * @param addresses Addresses the list will have.
+	 * @param list One of the list constants.
+	 * @throws MutualExclusionException If addresses can't be put in the 
+	 * mailing or removed list; the list is left unchanged.
+	 */
+	public void replaceList(String[] addresses, int list) throws MutualExclusionException;
+
+	/**
+	 * Move extracted addresses to mailing list.
+	 * 
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public void moveExtractedToMailList() throws MutualExclusionException;
+
+	/**
+	 * Move extracted addresses to mailing list, except the given ones, 
+	 * which are kept in the extracted list.
+	 * 
+	 * @param kept Addresses to keep in the extracted list.
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public void moveExtractedToMailList(String[] kept) throws MutualExclusionException;
+
+	/**
+	 * Move extracted addresses to removed list.
+	 * 
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public void moveExtractedToRemoved() throws MutualExclusionException;
+
+	/**
+	 * Move extracted addresses to returned list.
+	 */
+	public void moveExtractedToReturned();
+
+	/**
+	 * Returns an array of addresses contained in the mailing list. The 
+	 * array is kept until the list changes, and must not be modified.
+	 * 
+	 * @return An array of addresses contained in the mailing list.
+	 */
+	public String[] getListedAddresses();
+	
+	/**
+	 * Returns an array of addresses contained in the removed list. The 
+	 * array is kept until the list changes, and must not be modified.
+	 * 
+	 * @return An array of addresses contained in the removed list.
+	 */
+	public String[] getRemovedAddresses();
+	
+	/**
+	 * Returns an array of addresses contained in the returned list, and
+	 * respective return count. The arrays are kept until the list or a count
+	 * changes, and must not be modified.
+	 * 
+	 * @return An array of addresses contained in the return list, and respective return count.
+	 */
+	public Object[][] getReturnedAddresses();
+	
+	/**
+	 * Returns an array of addresses contained in the extracted list. The 
+	 * array is kept until the list changes, and must not be modified.
+	 * 
+	 * @return An array of addresses contained in the extracted list.
+	 */
+	public String[] getExtractedAddresses();
+	
+	/**
+	 * Returns the selected addresses, by their rank in the sorted list.
+	 * 
+	 * @param selection Selected rows of a list.
+	 * @return The selected addresses, sorted.
+	 */
+	public String[] getAddresses(AddressSelection selection);
+	
+	/**
+	 * Deletes the selected addresses from their list. Each range of rows 
+	 * is deleted at once, without looking its addresses up.
+	 * 
+	 * @param selection Selected rows of a list.
+	 */
+	public void delSelection(AddressSelection selection);
+	
+	/**
+	 * Moves the selected addresses from their list to another list. 
+	 * Addresses moved to the returned list have their return count 
+	 * incremented. Wildcard rules are not moved from the removed list to
+	 * the mailing list. Addresses are only checked against the other list 
+	 * of the mailing and removed lists (see {@link MutualExclusionException})
+	 * when they don't come from it; addresses moved to the mailing list are
+	 * always checked against the rules of the removed list, and nothing is
+	 * moved if a rule matches any of them.
+	 * 
+	 * @param selection Selected rows of a list.
+	 * @param list A list constant, where to move the addresses to.
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public void moveSelection(AddressSelection selection, int list) 
+	throws MutualExclusionException;
+	
+	/**
+	 * Deletes the addresses of a list from the given address (inclusive) to 
+	 * the other (exclusive), in the order of the list. The range is deleted 
+	 * at once, without looking its addresses up. The addresses starting 
+	 * with a prefix <code>p</code> are those from <code>p</code> to 
+	 * <code>p + '\uffff'</code>. Bounds are compared with the addresses as
+	 * stored, which are normalized (see {@link #normalizeAddress(String)}).
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param from First address of the range, or null to start at the first
+	 * address of the list.
+	 * @param to Address after the range, or null to end at the last 
+	 * address of the list.
+	 * @return The number of deleted addresses.
+	 */
+	public int delRange(int list, String from, String to);
+	
+	/**
+	 * Moves the addresses of a list from the given address (inclusive) to 
+	 * the other (exclusive) to another list, as 
+	 * {@link #moveSelection(AddressSelection, int)} does.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param from First address of the range, or null to start at the first
+	 * address of the list.
+	 * @param to Address after the range, or null to end at the last 
+	 * address of the list.
+	 * @param toList A list constant, where to move the addresses to.
+	 * @return The number of moved addresses.
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public int moveRange(int list, String from, String to, int toList) 
+	throws MutualExclusionException;
+	
+	/**
+	 * Deletes the addresses of a list at the given domain. The addresses 
+	 * are taken from the domain index, without scanning the list. Wildcard
+	 * rules are not deleted.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name, as in {@link #getDomains(int)}, in any case.
+	 * @return The number of deleted addresses.
+	 */
+	public int delByDomain(int list, String domain);
+	
+	/**
+	 * Moves the addresses of a list at the given domain to another list, 
+	 * as {@link #moveSelection(AddressSelection, int)} does. The addresses 
+	 * are taken from the domain index, without scanning the list. Wildcard
+	 * rules are not moved.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name, as in {@link #getDomains(int)}, in any case.
+	 * @param toList A list constant, where to move the addresses to.
+	 * @return The number of moved addresses.
+	 * @throws MutualExclusionException @see MutualExclusionException
+	 */
+	public int moveByDomain(int list, String domain, int toList) 
+	throws MutualExclusionException;
+	
+	/**
+	 * Get the return count for the given address.
+	 * 
+	 * @param addresses to get the return count of.
+	 * @return The return count for the given address.
+	 */
+	public int getNumberOfReturns(String addresses);
+	
+	/**
+	 * Returns true if the given address must not be mailed, i.e. if it (or an
+	 * address with the same canonical key) is in the removed list or is 
+	 * matched by one of the wildcard rules in the removed list (see 
+	 * {@link SuppressionMatcher}).
+	 * 
+	 * @param address Address to check.
+	 * @return True if the given address must not be mailed, false otherwise.
+	 */
+	public boolean isSuppressed(String address);
+	
+	/**
+	 * Returns the given address as it would be stored by the model, i.e. 
+	 * trimmed, in lower case and with an ASCII domain name (see 
+	 * {@link AddressCanonicalizer#normalize(String)}).
+	 * 
+	 * @param address An address.
+	 * @return The normalized address.
+	 */
+	public String normalizeAddress(String address);
+	
+	/**
+	 * Returns the canonical key of the given address. The model keeps at most
+	 * one address per canonical key in each list (see 
+	 * {@link AddressCanonicalizer#canonicalize(String)}).
+	 * 
+	 * @param address An address.
+	 * @return The canonical key of the given address.
+	 */
+	public String getCanonicalAddress(String address);
+	
+	/**
+	 * Returns the number of addresses in the given list.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The number of addresses in the given list.
+	 */
+	public int getListSize(int list);
+	
+	/**
+	 * Searches a list, returning the rows (ranks in the sorted list, as shown
+	 * by the view) of the matching addresses. The query is, ignoring case:
+	 * <ul>
+	 * <li><code>text*</code>: addresses starting with the text;</li>
+	 * <li><code>@domain</code>: addresses at the domain or its subdomains;</li>
+	 * <li>any other text: addresses containing the text.</li>
+	 * </ul>
+	 * Substring queries use a trigram index of the list, built on the first
+	 * such query and kept up to date as the list changes.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param query Search query.
+	 * @return The rows of the matching addresses, in ascending order, or null
+	 * if the query is blank.
+	 */
+	public int[] search(int list, String query);
+	
+	/**
+	 * Finds the addresses of a list which are probably misspelled: those at
+	 * a domain one edit away from a known domain (popular providers and the
+	 * domains with many addresses in the mailing list), and those one edit
+	 * away from an address of the mailing list at the same domain.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The probably misspelled addresses, sorted by address.
+	 * @see TypoDetector
+	 */
+	public List<TypoDetector.Suspect> findTypos(int list);
+	
+	/**
+	 * Returns a read-only iterator over the addresses of the given list, in
+	 * sorted order. Contrary to the <code>getXxxAddresses()</code> methods, 
+	 * no copy of the list is made, so the model must not be modified while 
+	 * the iterator is in use.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return A read-only iterator over the addresses of the given list.
+	 */
+	public Iterator<String> getAddressIterator(int list);
+	
+	/**
+	 * Returns a read-only iterator over the addresses of the returned list and 
+	 * respective return count, in sorted order. No copy of the list is made, 
+	 * so the model must not be modified while the iterator is in use.
+	 * 
+	 * @return A read-only iterator over the returned list entries.
+	 */
+	public Iterator<Map.Entry<String, Integer>> getReturnedIterator();
+	
+	/**
+	 * Returns the domains which have addresses in the given list, in 
+	 * alphabetical order.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @return The domains which have addresses in the given list.
+	 */
+	public String[] getDomains(int list);
+	
+	/**
+	 * Returns the number of addresses of the given domain in the given list.
+	 * 
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param domain A domain name.
+	 * @return The number of addresses of the given domain in the given list.
+	 */
+	public int getDomainCount(int list, String domain);
+	
+	/**
+	 * Returns the sum of the return counts of the given domain's addresses.
+	 * 
+	 * @param domain A domain name.
+	 * @return The sum of the return counts of the given domain's addresses.
+	 */
+	public long getDomainReturns(String domain);
+	
+	/**
+	 * Returns the bounce rate of the given domain, i.e. the fraction of the 
+	 * domain's addresses in the mailing and returned lists which are in the
+	 * returned list.
+	 * 
+	 * @param domain A domain name.
+	 * @return The bounce rate of the given domain, between 0 and 1.
+	 */
+	public double getDomainBounceRate(String domain);
+	
+	/**
+	 * Clear extracted address list.
+	 */
+	public void clearExtracted();
+
+	/**
+	 * Undo the last change of the lists. Changes are undone as a whole,
+	 * e.g. all the addresses of a move. Opening a file or creating a new
+	 * one can't be undone, and forgets all changes.
+	 * 
+	 * @return True if a change was undone, false if there was none.
+	 */
+	public boolean undo();
+
+	/**
+	 * Redo the last change undone, unless the lists changed since.
+	 * 
+	 * @return True if a change was redone, false if there was none.
+	 */
+	public boolean redo();
+
+	/**
+	 * Returns true if there is a change to undo.
+	 * 
+	 * @return True if there is a change to undo.
+	 */
+	public boolean canUndo();
+
+	/**
+	 * Returns true if there is a change to redo.
+	 * 
+	 * @return True if there is a change to redo.
+	 */
+	public boolean canRedo();
+
+	/**
+	 * Register a given address tables observer. The observer will be notified
+	 * when any of the address tables changes.
+	 * 
+	 * @param ato An address table observer.
+	 */
+	public void registerAddressTablesObserver(AddressTablesObserver ato);
+
+	/**
+	 * Remove given address tables observer.
+	 * 
+	 * @param ato An address table observer.
+	 */
+	public void removeAddressTablesObserver(AddressTablesObserver ato);
+		
+	/**
+	 * Notify address table observers that address tables have changed.
+	 */
+	public void notifyAddressTablesObservers();
+	
+	/**
+	 * Register a given file status observer. The observer will be notified
+	 * when the name or saved status of the file changes.
+	 * 
+	 * @param fso A file status observer.
+	 */
+	public void registerFileStatusObserver(FileStatusObserver fso);
+
+	/**
+	 * Remove given file status observer.
+	 * 
+	 * @param fso A file status observer.
+	 */
+	public void removeFileStatusObserver(FileStatusObserver fso);
+
+	/**
+	 * Register a given probe. The probe will be called before and after
+	 * each operation of the model.
+	 *
+	 * @param probe A model probe.
+	 */
+	public void registerProbe(ModelProbe probe);
+
+	/**
+	 * Remove given probe.
+	 *
+	 * @param probe A model probe.
+	 */
+	public void removeProbe(ModelProbe probe);
+		
+	/**
+	 * Notify file status observers that the model's file status have changed.
+	 */
+	public void notifyFileStatusObservers();
+
+	/**
+	 * Returns the current model file.
+	 * 
+	 * @return The current model file.
+	 */
+	public File getCurrentFile();
+	
+	/**
+	 * Returnd true if current model file is saved, false otherwise.
+	 * @return True if current model file is saved, false otherwise.
+	 */
+	public boolean isFileSaved();
+
+}
@@ -0,0 +1,959 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Command-line front end for the operations which are useful without the
+ * GUI, e.g. when eMaM is run from scripts or on servers. The first argument
+ * is the command, followed by its options and arguments:
+ *
+ * <pre>
+ * export [-list mail|removed|returned|extracted] [-format plain|csv|json]
+ *        [-sep separator] [-gzip] [-o output] file.emam
+ * shard [-strategy hash|roundrobin|domain] [-shards n] [-max size]
+ *       [-dir directory] [-prefix prefix] file.emam
+ * domains [-list mail|removed|returned|extracted] [-o output] file.emam
+ * extract [-engine regexp|scanner] [-mail auto|messages|headers|plain]
+ *         [-headers header,...] [-provenance output] [-o output] file...
+ * delete [-list mail|removed|returned|extracted] [-from address] [-to address]
+ *        [-prefix prefix] [-domain domain] file.emam
+ * move [-list mail|removed|returned|extracted] [-from address] [-to address]
+ *      [-prefix prefix] [-domain domain] -target list file.emam
+ * generate [-seed n] [-mail n] [-removed n] [-returned n] [-extracted n]
+ *          [-overlap returnedInMail,extractedInMail,extractedInRemoved]
+ *          [-maxreturns n] [-domains n] [-o output]
+ * generate -corpus text|mbox [-seed n] [-addresses n] [-words n]
+ *          [-domains n] [-o output]
+ * workspace lists|import|export|drop [-list name] [-o output]
+ *           workspace.emamw [file.emam]
+ * diff [-o output] left.emam right.emam
+ * merge [-exclusion removed|mail] [-returns max|min|sum] -o output
+ *       left.emam right.emam
+ * set -op union|intersection|difference -left list|file -right list|file
+ *     [-into list [-replace]] [-run n] [-o output] file.emam
+ * typos [-list mail|removed|returned|extracted] [-o output] file.emam
+ * </pre>
+ *
+ * Output goes to the standard output when no output file (or "-") is given,
+ * and statistics are reported on the standard error.
+ *
+ * @author Nuno Fachada
+ */
+public class EMaMTool {
+
+	/* Exit codes. */
+	public static final int OK = 0;
+	public static final int USAGE_ERROR = 1;
+	public static final int IO_ERROR = 2;
+	public static final int FILE_ERROR = 3;
+
+	/* Usage message. */
+	private static final String USAGE =
+		"Usage: java -cp bin com.fakenmc.mail.emam.EMaMTool command [options] arguments\n" +
+		"Commands:\n" +
+		"  export [-list mail|removed|returned|extracted] [-format plain|csv|json]\n" +
+		"         [-sep separator] [-gzip] [-o output] file.emam\n" +
+		"  shard [-strategy hash|roundrobin|domain] [-shards n] [-max size]\n" +
+		"        [-dir directory] [-prefix prefix] file.emam\n" +
+		"  domains [-list mail|removed|returned|extracted] [-o output] file.emam\n" +
+		"  extract [-engine regexp|scanner] [-mail auto|messages|headers|plain]\n" +
+		"          [-headers header,...] [-provenance output] [-o output] file...\n" +
+		"  delete [-list mail|removed|returned|extracted] [-from address] [-to address]\n" +
+		"         [-prefix prefix] [-domain domain] file.emam\n" +
+		"  move [-list mail|removed|returned|extracted] [-from address] [-to address]\n" +
+		"       [-prefix prefix] [-domain domain] -target list file.emam\n" +
+		"  generate [-seed n] [-mail n] [-removed n] [-returned n] [-extracted n]\n" +
+		"           [-overlap returnedInMail,extractedInMail,extractedInRemoved]\n" +
+		"           [-maxreturns n] [-domains n] [-o output]\n" +
+		"  generate -corpus text|mbox [-seed n] [-addresses n] [-words n]\n" +
+		"           [-domains n] [-o output]\n" +
+		"  workspace lists|import|export|drop [-list name] [-o output]\n" +
+		"            workspace.emamw [file.emam]\n" +
+		"  diff [-o output] left.emam right.emam\n" +
+		"  merge [-exclusion removed|mail] [-returns max|min|sum] -o output\n" +
+		"        left.emam right.emam\n" +
+		"  set -op union|intersection|difference -left list|file -right list|file\n" +
+		"      [-into list [-replace]] [-run n] [-o output] file.emam\n" +
+		"  typos [-list mail|removed|returned|extracted] [-o output] file.emam\n";
+
+	/**
+	 * Runs the command given in the command line.
+	 *
+	 * @param args Command, options and arguments.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1)
+			usage("No command given.");
+		/* Load global properties, the model needs them. */
+		try {
+			EMaM.loadProperties();
+		} catch (IOException ioe) {
+			exit("Unable to read properties file " + EMaM.PROPERTIES_FILE
+					+ ": " + ioe.getLocalizedMessage(), IO_ERROR);
+		}
+		/* Separate options from arguments. */
+		HashMap<String, String> options = new HashMap<String, String>();
+		ArrayList<String> arguments = new ArrayList<String>();
+		parseOptions(args, options, arguments);
+		/* Run command. */
+		try {
+			if (args[0].equals("export")) {
+				export(options, arguments);
+			} else if (args[0].equals("shard")) {
+				shard(options, arguments);
+			} else if (args[0].equals("domains")) {
+				domains(options, arguments);
+			} else if (args[0].equals("extract")) {
+				extract(options, arguments);
+			} else if (args[0].equals("delete") || args[0].equals("move")) {
+				range(options, arguments, args[0].equals("move"));
+			} else if (args[0].equals("generate")) {
+				generate(options, arguments);
+			} else if (args[0].equals("workspace")) {
+				workspace(options, arguments);
+			} else if (args[0].equals("diff") || args[0].equals("merge")) {
+				merge(options, arguments, args[0].equals("merge"));
+			} else if (args[0].equals("set")) {
+				set(options, arguments);
+			} else if (args[0].equals("typos")) {
+				typos(options, arguments);
+			} else {
+				usage("Unknown command: " + args[0]);
+			}
+		} catch (IOException ioe) {
+			exit(ioe.getLocalizedMessage(), IO_ERROR);
+		}
+		System.exit(OK);
+	}
+
+	/* ********************************************** */
+	/*                   COMMANDS                     */
+	/* ********************************************** */
+
+	/**
+	 * Export a list of an .emam file.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void export(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() != 1)
+			usage("export requires exactly one .emam file.");
+		int list = parseList(option(options, "list", "mail"));
+		String formatName = option(options, "format", "plain");
+		int format;
+		String separator;
+		if (formatName.equals("plain")) {
+			format = AddressExporter.PLAIN;
+			separator = "\n";
+		} else if (formatName.equals("csv")) {
+			format = AddressExporter.CSV;
+			separator = ",";
+		} else if (formatName.equals("json")) {
+			format = AddressExporter.JSON;
+			separator = "";
+		} else {
+			usage("Unknown format: " + formatName);
+			return;
+		}
+		if (options.containsKey("sep"))
+			separator = AddressExporter.unescape(options.get("sep"));
+		EMaMModelInterface model = openModel(arguments.get(0));
+		AddressExporter exporter =
+			new AddressExporter(format, separator, options.containsKey("gzip"));
+		OutputStream out = openOutput(option(options, "o", "-"));
+		try {
+			exporter.export(model, list, out);
+		} finally {
+			if (out != System.out)
+				out.close();
+		}
+		System.err.println(exporter.getReport());
+	}
+
+	/**
+	 * Split the mailing list of an .emam file into shards.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void shard(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() != 1)
+			usage("shard requires exactly one .emam file.");
+		String strategyName = option(options, "strategy", "hash");
+		int strategy;
+		if (strategyName.equals("hash")) {
+			strategy = ShardedExporter.HASH;
+		} else if (strategyName.equals("roundrobin")) {
+			strategy = ShardedExporter.ROUND_ROBIN;
+		} else if (strategyName.equals("domain")) {
+			strategy = ShardedExporter.DOMAIN;
+		} else {
+			usage("Unknown strategy: " + strategyName);
+			return;
+		}
+		int shards = parseInt(option(options, "shards", "1"));
+		int max = parseInt(option(options, "max", "0"));
+		File directory = new File(option(options, "dir", "."));
+		if (!directory.isDirectory())
+			exit("Not a directory: " + directory, IO_ERROR);
+		EMaMModelInterface model = openModel(arguments.get(0));
+		ShardedExporter exporter = new ShardedExporter(strategy, shards, max);
+		File manifest = exporter.export(model, directory, option(options, "prefix", "shard"));
+		System.err.println(exporter.getReport());
+		System.err.println("Manifest: " + manifest.getPath());
+	}
+
+	/**
+	 * Print per-domain statistics of an .emam file, one domain per line, with
+	 * the number of addresses in each list, the total number of returns and 
+	 * the bounce rate, separated by tabs.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void domains(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() != 1)
+			usage("domains requires exactly one .emam file.");
+		int list = parseList(option(options, "list", "mail"));
+		EMaMModelInterface model = openModel(arguments.get(0));
+		PrintStream out = new PrintStream(openOutput(option(options, "o", "-")), false, "UTF-8");
+		out.println("# domain\tmail\tremoved\treturned\textracted\treturns\tbounceRate");
+		for (String domain : model.getDomains(list)) {
+			out.printf("%s\t%d\t%d\t%d\t%d\t%d\t%.4f%n", domain,
+					model.getDomainCount(EMaMModelInterface.MAIL_LIST, domain),
+					model.getDomainCount(EMaMModelInterface.REMOVED_LIST, domain),
+					model.getDomainCount(EMaMModelInterface.RETURNED_LIST, domain),
+					model.getDomainCount(EMaMModelInterface.EXTRACTED_LIST, domain),
+					model.getDomainReturns(domain),
+					model.getDomainBounceRate(domain));
+		}
+		out.flush();
+		if (out.checkError())
+			throw new IOException("Error writing domain statistics.");
+		if (!option(options, "o", "-").equals("-"))
+			out.close();
+	}
+
+	/**
+	 * Extract the addresses in the given text files, writing them one per 
+	 * line, sorted and without duplicates. Addresses are accumulated in the 
+	 * extracted list, and the statistics of each file are reported. The 
+	 * extraction engine is given by the -engine option, or by the 
+	 * <code>extractionEngine</code> property.
+	 * Mailboxes and messages are recognized and extracted from as such
+	 * (see {@link MailboxExtractor}); the -mail option chooses whether to
+	 * look in whole messages, only in the headers given by -headers (From, 
+	 * To, Cc, Reply-To and Return-Path by default), or in plain text.
+	 * With -provenance, where each address was found is written to the
+	 * given file, one occurrence per line: address, source, line and 
+	 * offset, separated by tabs.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void extract(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() < 1)
+			usage("extract requires at least one file.");
+		String engine = option(options, "engine",
+				EMaM.getProperties().getProperty("extractionEngine", "regexp"));
+		if (!engine.equals("regexp") && !engine.equals("scanner"))
+			usage("Unknown engine: " + engine);
+		EMaM.getProperties().setProperty("extractionEngine", engine);
+		String mail = option(options, "mail", "auto");
+		if (!mail.equals("auto") && !mail.equals("messages")
+				&& !mail.equals("headers") && !mail.equals("plain"))
+			usage("Unknown mail mode: " + mail);
+		String[] headers = MailboxExtractor.ADDRESS_HEADERS;
+		if (options.containsKey("headers")) {
+			headers = options.get("headers").split(",");
+			if (mail.equals("auto"))
+				mail = "headers";
+		}
+		/* Extract from each file, accumulating the addresses found. */
+		EMaMModelInterface model = new EMaMModel();
+		model.setAccumulateExtracted(true);
+		model.setRecordProvenance(options.containsKey("provenance"));
+		int found = 0;
+		long bytes = 0;
+		long start = System.nanoTime();
+		for (String filename : arguments) {
+			File file = new File(filename);
+			try {
+				String mode = mail;
+				if (mode.equals("auto"))
+					mode = MailboxExtractor.isMailFile(file) ? "messages" : "plain";
+				if (mode.equals("messages"))
+					found += model.extractAddressesFromMailbox(file, null);
+				else if (mode.equals("headers"))
+					found += model.extractAddressesFromMailbox(file, headers);
+				else
+					found += model.extractAddressesFromFile(file);
+			} catch (FileNotFoundException fnfe) {
+				exit("File not found: " + filename, IO_ERROR);
+			}
+			bytes += file.length();
+			if (model.getExtractionReport() != null)
+				System.err.println(filename + ": " + model.getExtractionReport());
+			System.err.println(filename + ": " + model.getExtractionStatistics());
+		}
+		long elapsed = System.nanoTime() - start;
+		/* Write addresses. */
+		PrintStream out = new PrintStream(openOutput(option(options, "o", "-")), false, "UTF-8");
+		Iterator<String> iter = model.getAddressIterator(EMaMModelInterface.EXTRACTED_LIST);
+		while (iter.hasNext())
+			out.println(iter.next());
+		out.flush();
+		if (out.checkError())
+			throw new IOException("Error writing addresses.");
+		if (!option(options, "o", "-").equals("-"))
+			out.close();
+		if (options.containsKey("provenance"))
+			writeProvenance(model, options.get("provenance"));
+		System.err.printf("%d addresses (%d distinct) from %.2f MB in %d ms (%.2f MB/s, %s)%n",
+				found, model.getListSize(EMaMModelInterface.EXTRACTED_LIST), bytes / 1048576.0, elapsed / 1000000,
+				(bytes / 1048576.0) / Math.max(elapsed / 1e9, 1e-9), engine);
+	}
+
+	/**
+	 * Delete or move a range of addresses of a list of an .emam file, and 
+	 * save the file. The range goes from the -from address (inclusive) to 
+	 * the -to address (exclusive), in the order of the list, or is given by
+	 * the addresses starting with -prefix or at -domain. The whole list is
+	 * taken when no range is given.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @param move True to move the addresses to the -target list, false to
+	 * delete them.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void range(HashMap<String, String> options,
+			ArrayList<String> arguments, boolean move) throws IOException {
+		String command = move ? "move" : "delete";
+		if (arguments.size() != 1)
+			usage(command + " requires exactly one .emam file.");
+		int list = parseList(option(options, "list", "mail"));
+		int target = -1;
+		if (move) {
+			if (!options.containsKey("target"))
+				usage("move requires a -target list.");
+			target = parseList(options.get("target"));
+			if (target == list)
+				usage("The -target list is the same as the -list list.");
+		}
+		/* Stored addresses are in lower case. */
+		String from = lowerCase(options.get("from"));
+		String to = lowerCase(options.get("to"));
+		String domain = lowerCase(options.get("domain"));
+		if (options.containsKey("prefix")) {
+			if ((from != null) || (to != null))
+				usage("-prefix cannot be used with -from or -to.");
+			from = lowerCase(options.get("prefix"));
+			to = from + '\uffff';
+		}
+		if ((domain != null) && ((from != null) || (to != null)))
+			usage("-domain cannot be used with -from, -to or -prefix.");
+		EMaMModelInterface model = openModel(arguments.get(0));
+		int count = 0;
+		long start = System.nanoTime();
+		try {
+			if (!move)
+				count = (domain != null) ? model.delByDomain(list, domain)
+						: model.delRange(list, from, to);
+			else if (domain != null)
+				count = model.moveByDomain(list, domain, target);
+			else
+				count = model.moveRange(list, from, to, target);
+		} catch (MutualExclusionException mee) {
+			exit(conflicts(mee), FILE_ERROR);
+		}
+		long elapsed = System.nanoTime() - start;
+		if (count > 0)
+			model.saveFile();
+		System.err.printf("%d addresses %s in %d ms%n", count, 
+				move ? "moved" : "deleted", elapsed / 1000000);
+	}
+
+	/**
+	 * Generate a synthetic .emam file or corpus, for load testing (see
+	 * {@link DataGenerator}). The same seed and options always give the
+	 * same data. By default, a file with 10000 addresses in the mailing
+	 * list, 1000 in the removed list, 500 in the returned list and none in
+	 * the extracted list, or a corpus of 10000 addresses with 20 words
+	 * between them, is generated.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void generate(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() != 0)
+			usage("generate takes no arguments.");
+		long seed = parseInt(option(options, "seed", "42"));
+		DataGenerator generator = new DataGenerator(seed);
+		generator.setDomains(parseInt(option(options, "domains", "10000")));
+		String corpus = options.get("corpus");
+		if ((corpus != null) && !corpus.equals("text") && !corpus.equals("mbox"))
+			usage("Unknown corpus: " + corpus);
+		if (corpus == null) {
+			generator.setSize(EMaMModelInterface.MAIL_LIST, parseInt(option(options, "mail", "10000")));
+			generator.setSize(EMaMModelInterface.REMOVED_LIST, parseInt(option(options, "removed", "1000")));
+			generator.setSize(EMaMModelInterface.RETURNED_LIST, parseInt(option(options, "returned", "500")));
+			generator.setSize(EMaMModelInterface.EXTRACTED_LIST, parseInt(option(options, "extracted", "0")));
+			generator.setMaxReturns(parseInt(option(options, "maxreturns", "10")));
+			if (options.containsKey("overlap")) {
+				String[] overlaps = options.get("overlap").split(",");
+				if (overlaps.length != 3)
+					usage("-overlap requires three fractions.");
+				try {
+					generator.setOverlaps(Double.parseDouble(overlaps[0]),
+							Double.parseDouble(overlaps[1]), Double.parseDouble(overlaps[2]));
+				} catch (IllegalArgumentException iae) {
+					/* Includes NumberFormatException. */
+					usage("Invalid overlaps: " + options.get("overlap"));
+				}
+			}
+		}
+		long start = System.nanoTime();
+		OutputStream out = openOutput(option(options, "o", "-"));
+		try {
+			if (corpus == null)
+				generator.writeEmam(out);
+			else
+				generator.writeCorpus(out, parseInt(option(options, "addresses", "10000")),
+						parseInt(option(options, "words", "20")), corpus.equals("mbox"));
+			out.flush();
+		} finally {
+			if (out != System.out)
+				out.close();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.err.printf("%.2f MB in %d ms (%.2f MB/s)%n", 
+				generator.getBytesWritten() / 1048576.0, elapsed / 1000000,
+				(generator.getBytesWritten() / 1048576.0) / Math.max(elapsed / 1e9, 1e-9));
+	}
+
+	/**
+	 * Manage a workspace of mailing lists with shared removed and returned
+	 * lists (see {@link Workspace}). The first argument is the operation,
+	 * followed by the workspace file, which is created by the first import:
+	 * <ul>
+	 * <li>lists: print the name and size of each list, and the sizes of the
+	 * shared lists.</li>
+	 * <li>import: add an .emam file to the -list list (named after the file
+	 * by default) and to the shared lists, and save the workspace.</li>
+	 * <li>export: write the -list list with the shared lists to an .emam
+	 * file, given by -o.</li>
+	 * <li>drop: delete the -list list and save the workspace.</li>
+	 * </ul>
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void workspace(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() < 2)
+			usage("workspace requires an operation and a workspace file.");
+		String operation = arguments.get(0);
+		File file = new File(arguments.get(1));
+		boolean importing = operation.equals("import");
+		if (arguments.size() != (importing ? 3 : 2))
+			usage(importing ? "workspace import requires a workspace file and an .emam file."
+					: "workspace " + operation + " requires a workspace file.");
+		if (!importing && !operation.equals("lists") && !operation.equals("export")
+				&& !operation.equals("drop"))
+			usage("Unknown workspace operation: " + operation);
+		String name = options.get("list");
+		if ((name == null) && importing)
+			name = new File(arguments.get(2)).getName().replaceFirst("\\.emam$", "");
+		if ((name == null) && !operation.equals("lists"))
+			usage("workspace " + operation + " requires a -list name.");
+		if (operation.equals("export") && option(options, "o", "-").equals("-"))
+			usage("workspace export requires an -o .emam file.");
+		Workspace workspace = new Workspace();
+		String filename = file.getPath();
+		long start = System.nanoTime();
+		try {
+			if (file.exists() || !importing)
+				workspace.open(file);
+			if (importing) {
+				filename = arguments.get(2);
+				workspace.importEmam(new File(filename), name);
+				workspace.save(file);
+				System.err.println(workspace.getReport());
+			} else if (operation.equals("export")) {
+				workspace.exportEmam(name, new File(options.get("o")));
+			} else if (operation.equals("drop")) {
+				workspace.deleteList(name);
+				workspace.save(file);
+			} else {
+				for (String list : workspace.getListNames())
+					System.out.println(list + "\t" + workspace.getListSize(list));
+				System.out.println("[Removed]\t" + workspace.getRemovedSize());
+				System.out.println("[Returned]\t" + workspace.getReturnedSize());
+			}
+		} catch (FileNotFoundException fnfe) {
+			exit("File not found: " + filename, IO_ERROR);
+		} catch (InvalidStringException ise) {
+			exit("Invalid address in " + filename + ": "
+					+ ise.getLocalizedMessage(), FILE_ERROR);
+		} catch (InvalidFileFormatException iffe) {
+			exit("Invalid file format in " + filename + ": "
+					+ iffe.getLocalizedMessage(), FILE_ERROR);
+		} catch (IllegalArgumentException iae) {
+			/* No such list, or invalid list name. */
+			exit(iae.getLocalizedMessage(), FILE_ERROR);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.err.printf("%d addresses in %d lists in %d ms%n",
+				workspace.getDictionary().size(), workspace.getListNames().length,
+				elapsed / 1000000);
+	}
+
+	/**
+	 * Compare or merge two copies of an .emam file (see {@link FileMerger}).
+	 * The diff is written one change per line, and the number of added, 
+	 * deleted and changed addresses of each list is reported. The merge 
+	 * keeps conflicting addresses in the removed list and the largest return
+	 * count by default.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @param merging True to merge the files, false to compare them.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void merge(HashMap<String, String> options,
+			ArrayList<String> arguments, boolean merging) throws IOException {
+		String command = merging ? "merge" : "diff";
+		if (arguments.size() != 2)
+			usage(command + " requires exactly two .emam files.");
+		String exclusion = option(options, "exclusion", "removed");
+		if (!exclusion.equals("removed") && !exclusion.equals("mail"))
+			usage("Unknown exclusion policy: " + exclusion);
+		String returns = option(options, "returns", "max");
+		int countPolicy = FileMerger.MAX_COUNT;
+		if (returns.equals("min"))
+			countPolicy = FileMerger.MIN_COUNT;
+		else if (returns.equals("sum"))
+			countPolicy = FileMerger.SUM_COUNT;
+		else if (!returns.equals("max"))
+			usage("Unknown return count policy: " + returns);
+		String output = option(options, "o", "-");
+		if (merging && output.equals("-"))
+			usage("merge requires an -o .emam file.");
+		FileMerger merger = new FileMerger(exclusion.equals("mail")
+				? FileMerger.MAIL_WINS : FileMerger.REMOVED_WINS, countPolicy);
+		File left = new File(arguments.get(0));
+		File right = new File(arguments.get(1));
+		long start = System.nanoTime();
+		try {
+			if (merging) {
+				merger.merge(left, right, new File(output));
+			} else {
+				OutputStream out = openOutput(output);
+				Writer writer = new OutputStreamWriter(out, "UTF-8");
+				try {
+					merger.diff(left, right, writer);
+				} finally {
+					if (out != System.out)
+						writer.close();
+				}
+			}
+		} catch (FileNotFoundException fnfe) {
+			exit("File not found: " + fnfe.getLocalizedMessage(), IO_ERROR);
+		} catch (InvalidFileFormatException iffe) {
+			exit("Invalid file format: " + iffe.getLocalizedMessage(), FILE_ERROR);
+		} catch (IllegalArgumentException iae) {
+			/* Output is one of the given files. */
+			usage(iae.getLocalizedMessage());
+		}
+		long elapsed = System.nanoTime() - start;
+		String[] names = {"mail", "removed", "returned", "extracted"};
+		for (int list = 0; list < names.length; list++) {
+			System.err.printf("%s: %d added, %d deleted", names[list],
+					merger.getAdded(list), merger.getDeleted(list));
+			if (list == EMaMModelInterface.RETURNED_LIST)
+				System.err.printf(", %d changed", merger.getChanged());
+			if (merging)
+				System.err.printf(", %d written", merger.getWritten(list));
+			System.err.println();
+		}
+		if (merging)
+			System.err.printf("%d conflicts resolved, %d suppression rules dropped%n",
+					merger.getConflicts(), merger.getDroppedRules());
+		System.err.printf("%d ms%n", elapsed / 1000000);
+	}
+
+	/**
+	 * Union, intersection or difference of two operands, each a list of an
+	 * .emam file (mail, removed, returned or extracted) or an external file
+	 * with an address per line (see {@link SetAlgebra}). The result is 
+	 * written one address per line or, with -into, put in a list of the 
+	 * .emam file, which is saved; with -replace, the addresses of that list
+	 * which are not in the result are deleted. External files are sorted in
+	 * runs of -run addresses, spilled to disk when a file has more.
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void set(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() != 1)
+			usage("set requires exactly one .emam file.");
+		String op = option(options, "op", "");
+		int operation = SetAlgebra.UNION;
+		if (op.equals("intersection"))
+			operation = SetAlgebra.INTERSECTION;
+		else if (op.equals("difference"))
+			operation = SetAlgebra.DIFFERENCE;
+		else if (!op.equals("union"))
+			usage("set requires an -op: union, intersection or difference.");
+		if (!options.containsKey("left") || !options.containsKey("right"))
+			usage("set requires a -left and a -right operand.");
+		SetAlgebra.Operand left = parseOperand(options.get("left"));
+		SetAlgebra.Operand right = parseOperand(options.get("right"));
+		int into = options.containsKey("into") ? parseList(options.get("into")) : -1;
+		if (options.containsKey("replace") && (into < 0))
+			usage("-replace requires -into.");
+		int runSize = options.containsKey("run")
+				? parseInt(options.get("run")) : SetAlgebra.DEFAULT_RUN_SIZE;
+		if (runSize == 0)
+			usage("-run must be at least 1.");
+		EMaMModelInterface model = openModel(arguments.get(0));
+		SetAlgebra algebra = new SetAlgebra(model, runSize);
+		long start = System.nanoTime();
+		try {
+			if (into >= 0) {
+				algebra.apply(operation, left, right, into, options.containsKey("replace"));
+				model.saveFile();
+			} else {
+				String output = option(options, "o", "-");
+				OutputStream out = openOutput(output);
+				Writer writer = new OutputStreamWriter(out, "UTF-8");
+				try {
+					algebra.apply(operation, left, right, writer);
+				} finally {
+					if (out != System.out)
+						writer.close();
+				}
+			}
+		} catch (FileNotFoundException fnfe) {
+			exit("File not found: " + fnfe.getLocalizedMessage(), IO_ERROR);
+		} catch (MutualExclusionException mee) {
+			exit(conflicts(mee), FILE_ERROR);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.err.printf("%s of %d and %d addresses: %d addresses in %d ms "
+				+ "(%d ms sorting, %d ms merging, %d runs spilled, %d invalid)%n",
+				op, algebra.getLeftSize(), algebra.getRightSize(), algebra.getResultSize(),
+				elapsed / 1000000, algebra.getSortNanos() / 1000000,
+				algebra.getMergeNanos() / 1000000, algebra.getSpilledRuns(),
+				algebra.getIgnored());
+	}
+
+	/**
+	 * Writes the probably misspelled addresses of a list (the extracted list
+	 * by default), one per line: address, kind of misspelling (domain or 
+	 * duplicate) and probably intended address, separated by tabs (see 
+	 * {@link TypoDetector}).
+	 *
+	 * @param options Command options.
+	 * @param arguments Command arguments.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void typos(HashMap<String, String> options,
+			ArrayList<String> arguments) throws IOException {
+		if (arguments.size() != 1)
+			usage("typos requires exactly one .emam file.");
+		int list = parseList(option(options, "list", "extracted"));
+		EMaMModelInterface model = openModel(arguments.get(0));
+		long start = System.nanoTime();
+		List<TypoDetector.Suspect> suspects = model.findTypos(list);
+		long elapsed = System.nanoTime() - start;
+		PrintStream out = new PrintStream(openOutput(option(options, "o", "-")), false, "UTF-8");
+		for (TypoDetector.Suspect suspect : suspects)
+			out.println(suspect.getAddress() + "\t"
+					+ ((suspect.getKind() == TypoDetector.DOMAIN_TYPO) ? "domain" : "duplicate")
+					+ "\t" + suspect.getSuggestion());
+		out.flush();
+		if (out.checkError())
+			throw new IOException("Error writing misspelled addresses.");
+		if (!option(options, "o", "-").equals("-"))
+			out.close();
+		System.err.printf("%d of %d addresses probably misspelled in %d ms%n",
+				suspects.size(), model.getListSize(list), elapsed / 1000000);
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Writes where each extracted address was found, one occurrence per line.
+	 *
+	 * @param model Model with the extracted addresses and their provenance.
+	 * @param filename Name of the output file, or "-".
+	 * @throws IOException @see java.io.IOException
+	 */
+	private static void writeProvenance(EMaMModelInterface model, String filename)
+	throws IOException {
+		PrintStream out = new PrintStream(openOutput(filename), false, "UTF-8");
+		Iterator<String> iter = model.getAddressIterator(EMaMModelInterface.EXTRACTED_LIST);
+		while (iter.hasNext()) {
+			String address = iter.next();
+			for (ProvenanceIndex.Occurrence occurrence : model.getProvenance(address))
+				out.println(address + "\t" + occurrence.getSource() + "\t"
+						+ occurrence.getLine() + "\t" + occurrence.getOffset());
+		}
+		out.flush();
+		if (out.checkError())
+			throw new IOException("Error writing provenance.");
+		if (!filename.equals("-"))
+			out.close();
+	}
+
+	/**
+	 * Describes the addresses which broke the mutual exclusion of the 
+	 * mailing and removed lists, with an example of each kind.
+	 *
+	 * @param mee Exception thrown by the model.
+	 * @return A description of the addresses.
+	 */
+	private static String conflicts(MutualExclusionException mee) {
+		String[] addresses = mee.getAddresses();
+		String[] suppressed = mee.getSuppressedAddresses();
+		StringBuilder message = new StringBuilder();
+		if (addresses.length > 0)
+			message.append(addresses.length + " addresses already in the other list, e.g. "
+					+ addresses[0]);
+		if (suppressed.length > 0) {
+			if (message.length() > 0)
+				message.append("; ");
+			message.append(suppressed.length + " addresses matched by suppression rules, e.g. "
+					+ suppressed[0] + " by " + mee.getSuppressingRules()[0]);
+		}
+		return message.toString();
+	}
+
+	/**
+	 * Returns the given option value in lower case.
+	 *
+	 * @param value An option value, or null.
+	 * @return The value in lower case, or null.
+	 */
+	private static String lowerCase(String value) {
+		return (value == null) ? null : value.toLowerCase();
+	}
+
+	/**
+	 * Opens an .emam file in a new model, exiting the program if the file
+	 * cannot be opened.
+	 *
+	 * @param filename Name of the .emam file.
+	 * @return A model with the contents of the given file.
+	 */
+	static EMaMModelInterface openModel(String filename) {
+		EMaMModelInterface model = new EMaMModel();
+		try {
+			model.openFile(new File(filename));
+		} catch (FileNotFoundException fnfe) {
+			exit("File not found: " + filename, IO_ERROR);
+		} catch (IOException ioe) {
+			exit(ioe.getLocalizedMessage(), IO_ERROR);
+		} catch (InvalidStringException ise) {
+			exit("Invalid address in " + filename + ": "
+					+ ise.getLocalizedMessage(), FILE_ERROR);
+		} catch (InvalidFileFormatException iffe) {
+			exit("Invalid file format in " + filename + ": "
+					+ iffe.getLocalizedMessage(), FILE_ERROR);
+		}
+		return model;
+	}
+
+	/**
+	 * Opens a buffered output stream for the given filename, or returns the
+	 * standard output if the filename is "-".
+	 *
+	 * @param filename Name of the output file, or "-".
+	 * @return An output stream.
+	 * @throws IOException @see java.io.IOException
+	 */
+	static OutputStream openOutput(String filename) throws IOException {
+		if (filename.equals("-"))
+			return System.out;
+		return new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+	}
+
+	/**
+	 * Converts an operand of the set command into a set algebra operand: a
+	 * list name, or else the name of an address file.
+	 *
+	 * @param name List name or filename.
+	 * @return The operand.
+	 */
+	private static SetAlgebra.Operand parseOperand(String name) {
+		if (name.equals("mail") || name.equals("removed") || name.equals("returned")
+				|| name.equals("extracted"))
+			return SetAlgebra.Operand.list(parseList(name));
+		return SetAlgebra.Operand.file(new File(name));
+	}
+
+	/**
+	 * Converts a list name into the respective list constant.
+	 *
+	 * @param name List name: mail, removed, returned or extracted.
+	 * @return A list constant in <code>EMaMModelInterface</code>.
+	 */
+	static int parseList(String name) {
+		if (name.equals("mail"))
+			return EMaMModelInterface.MAIL_LIST;
+		else if (name.equals("removed"))
+			return EMaMModelInterface.REMOVED_LIST;
+		else if (name.equals("returned"))
+			return EMaMModelInterface.RETURNED_LIST;
+		else if (name.equals("extracted"))
+			return EMaMModelInterface.EXTRACTED_LIST;
+		usage("Unknown list: " + name);
+		return -1;
+	}
+
+	/**
+	 * Parses a non-negative integer option value, exiting if it is not valid.
+	 *
+	 * @param value Option value.
+	 * @return The integer value.
+	 */
+	static int parseInt(String value) {
+		try {
+			int n = Integer.parseInt(value);
+			if (n >= 0)
+				return n;
+		} catch (NumberFormatException nfe) {
+			/* Handled below. */
+		}
+		usage("Not a valid non-negative integer: " + value);
+		return -1;
+	}
+
+	/**
+	 * Returns the value of an option, or a default value if the option was
+	 * not given.
+	 *
+	 * @param options Command options.
+	 * @param name Option name.
+	 * @param defaultValue Value to return if option was not given.
+	 * @return The value of the option.
+	 */
+	static String option(HashMap<String, String> options, String name, String defaultValue) {
+		String value = options.get(name);
+		return (value == null) ? defaultValue : value;
+	}
+
+	/**
+	 * Separates options (starting with "-") from arguments. Options in
+	 * <code>FLAGS</code> take no value, all others take the following
+	 * command-line argument as value. The first command-line argument (the
+	 * command) is skipped.
+	 *
+	 * @param args Command-line arguments.
+	 * @param options Map where to put options and respective values.
+	 * @param arguments List where to put arguments.
+	 */
+	private static void parseOptions(String[] args, HashMap<String, String> options,
+			ArrayList<String> arguments) {
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("-") && (args[i].length() > 1)) {
+				String name = args[i].substring(1);
+				if (isFlag(name)) {
+					options.put(name, "");
+				} else if (i + 1 < args.length) {
+					options.put(name, args[++i]);
+				} else {
+					usage("Option -" + name + " requires a value.");
+				}
+			} else {
+				arguments.add(args[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the given option takes no value.
+	 *
+	 * @param name Option name.
+	 * @return True if the given option takes no value, false otherwise.
+	 */
+	private static boolean isFlag(String name) {
+		return name.equals("gzip") || name.equals("replace");
+	}
+
+	/**
+	 * Prints an error message and the usage message, and exits.
+	 *
+	 * @param errorMsg Error message.
+	 */
+	static void usage(String errorMsg) {
+		exit(errorMsg + "\n" + USAGE, USAGE_ERROR);
+	}
+
+	/**
+	 * Prints an error message and exits with the given code.
+	 *
+	 * @param errorMsg Error message.
+	 * @param errorCode Exit code.
+	 */
+	static void exit(String errorMsg, int errorCode) {
+		System.err.println(errorMsg);
+		System.exit(errorCode);
+	}
+}
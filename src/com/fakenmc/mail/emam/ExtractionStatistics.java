@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+/**
+ * Statistics of an extraction run, i.e. of how the addresses found compare
+ * with the lists. Each address found is either a duplicate (already in the
+ * extracted list, from a previous run or earlier in the same run) or is
+ * added to the extracted list; added addresses are new, or already present
+ * in the mailing list, in the removed list (or suppressed by a wildcard
+ * rule) and/or in the returned list.
+ *
+ * @author Nuno Fachada
+ */
+public class ExtractionStatistics {
+
+	/* Counts. */
+	private int found;
+	private int duplicates;
+	private int newAddresses;
+	private int inMailList;
+	private int inRemoved;
+	private int inReturned;
+
+	/**
+	 * Counts an address found which was already in the extracted list.
+	 */
+	void countDuplicate() {
+		found++;
+		duplicates++;
+	}
+
+	/**
+	 * Counts an address found which was added to the extracted list.
+	 *
+	 * @param mail True if the address is in the mailing list.
+	 * @param removed True if the address is in the removed list or
+	 * suppressed by a rule.
+	 * @param returned True if the address is in the returned list.
+	 */
+	void countAdded(boolean mail, boolean removed, boolean returned) {
+		found++;
+		if (mail) inMailList++;
+		if (removed) inRemoved++;
+		if (returned) inReturned++;
+		if (!mail && !removed && !returned) newAddresses++;
+	}
+
+	/**
+	 * Returns the number of addresses found.
+	 *
+	 * @return The number of addresses found.
+	 */
+	public int getFound() {
+		return found;
+	}
+
+	/**
+	 * Returns the number of addresses added to the extracted list.
+	 *
+	 * @return The number of addresses added to the extracted list.
+	 */
+	public int getAdded() {
+		return found - duplicates;
+	}
+
+	/**
+	 * Returns the number of addresses found which were already in the
+	 * extracted list.
+	 *
+	 * @return The number of duplicate addresses.
+	 */
+	public int getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Returns the number of added addresses which are in none of the other
+	 * lists.
+	 *
+	 * @return The number of new addresses.
+	 */
+	public int getNew() {
+		return newAddresses;
+	}
+
+	/**
+	 * Returns the number of added addresses which are in the mailing list.
+	 *
+	 * @return The number of added addresses in the mailing list.
+	 */
+	public int getInMailList() {
+		return inMailList;
+	}
+
+	/**
+	 * Returns the number of added addresses which are in the removed list or
+	 * suppressed by a rule.
+	 *
+	 * @return The number of added addresses in the removed list.
+	 */
+	public int getInRemoved() {
+		return inRemoved;
+	}
+
+	/**
+	 * Returns the number of added addresses which are in the returned list.
+	 *
+	 * @return The number of added addresses in the returned list.
+	 */
+	public int getInReturned() {
+		return inReturned;
+	}
+
+	/**
+	 * Returns the statistics as a short sentence.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return found + " found, " + newAddresses + " new, " + duplicates
+			+ " duplicates, " + inMailList + " in mailing list, " + inRemoved
+			+ " removed, " + inReturned + " returned";
+	}
+}
@@ -0,0 +1,524 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+
+/**
+ * Compares and merges two copies of an .emam file, e.g. the office copy and
+ * the server copy of a list, without opening them in a model. Each list is
+ * streamed from both files at the same time, in sorted order, as eMaM saves
+ * them, so memory doesn't depend on the size of the files (except for the
+ * suppression rules of the removed lists, which are kept in memory while
+ * merging). Addresses are compared as written in the files.
+ *
+ * The diff gives, for each list, the addresses which are only in the left
+ * file (deleted), only in the right file (added) and, for the returned list,
+ * the addresses whose return count changed. The merge keeps the addresses
+ * of both files in each list, resolving the conflicts between the lists by
+ * the given policies:
+ * <ul>
+ * <li>An address in the mailing list of one file and in the removed list of
+ * the other (or matched by one of its rules) is kept only in the removed
+ * list ({@link #REMOVED_WINS}) or only in the mailing list
+ * ({@link #MAIL_WINS}). With {@link #MAIL_WINS}, the suppression rules
+ * of the removed lists which match an address of the merged mailing list
+ * (e.g. <code>*@domain.com</code> in one file, with an address at
+ * domain.com in the mailing list of the other) are left out of the merged
+ * removed list, which would otherwise suppress addresses kept in the
+ * mailing list. They are counted apart from the conflicting addresses
+ * ({@link #getDroppedRules()}).</li>
+ * <li>The return count of an address in both returned lists is the largest
+ * ({@link #MAX_COUNT}), the smallest ({@link #MIN_COUNT}) or the sum
+ * ({@link #SUM_COUNT}) of both counts.</li>
+ * </ul>
+ *
+ * @author Nuno Fachada
+ */
+public class FileMerger {
+
+	/* Constant for keeping conflicting addresses in the removed list. */
+	public static final int REMOVED_WINS = 0;
+	/* Constant for keeping conflicting addresses in the mailing list. */
+	public static final int MAIL_WINS = 1;
+
+	/* Constant for keeping the largest return count. */
+	public static final int MAX_COUNT = 0;
+	/* Constant for keeping the smallest return count. */
+	public static final int MIN_COUNT = 1;
+	/* Constant for adding both return counts. */
+	public static final int SUM_COUNT = 2;
+
+	/* Section headers, by list constant, in the order they're written. */
+	private static final String[] SECTIONS = {"[Mail]", "[Removed]", "[Returned]", "[Extracted]"};
+	/* Line separator, as in files saved by the model. */
+	private static final String NEWLINE = System.getProperty("line.separator");
+	/* Names of the lists in the diff. */
+	private static final String[] NAMES = {"mail", "removed", "returned", "extracted"};
+
+	/* Conflict policies. */
+	private int exclusionPolicy;
+	private int countPolicy;
+
+	/* Statistics of the last diff or merge, by list constant. */
+	private long[] added = new long[SECTIONS.length];
+	private long[] deleted = new long[SECTIONS.length];
+	private long[] written = new long[SECTIONS.length];
+	private long changed;
+	private long conflicts;
+	private long droppedRules;
+
+	/**
+	 * Creates a new merger.
+	 *
+	 * @param exclusionPolicy {@link #REMOVED_WINS} or {@link #MAIL_WINS}.
+	 * @param countPolicy {@link #MAX_COUNT}, {@link #MIN_COUNT} or
+	 * {@link #SUM_COUNT}.
+	 */
+	public FileMerger(int exclusionPolicy, int countPolicy) {
+		if ((exclusionPolicy < REMOVED_WINS) || (exclusionPolicy > MAIL_WINS))
+			throw new IllegalArgumentException("Unknown exclusion policy: " + exclusionPolicy);
+		if ((countPolicy < MAX_COUNT) || (countPolicy > SUM_COUNT))
+			throw new IllegalArgumentException("Unknown count policy: " + countPolicy);
+		this.exclusionPolicy = exclusionPolicy;
+		this.countPolicy = countPolicy;
+	}
+
+	/**
+	 * Writes the differences between two .emam files, one per line, with the
+	 * list, the change ('+' for added, '-' for deleted and '~' for a changed
+	 * return count) and the address, separated by tabs. Changed return
+	 * counts are followed by the left and right counts. Lists are written in
+	 * the order of the file, and addresses in sorted order.
+	 *
+	 * @param left The left (older) file.
+	 * @param right The right (newer) file.
+	 * @param out Where to write the differences.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidFileFormatException If a list of the files is not sorted,
+	 * or a return count is not valid.
+	 */
+	public void diff(File left, File right, Writer out)
+	throws FileNotFoundException, IOException, InvalidFileFormatException {
+		resetStatistics();
+		for (int list = 0; list < SECTIONS.length; list++)
+			pass(list, left, right, out, false);
+		out.flush();
+	}
+
+	/**
+	 * Merges two .emam files into a new one.
+	 *
+	 * @param left The left (older) file.
+	 * @param right The right (newer) file.
+	 * @param output The merged file, which can't be any of the given files.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidFileFormatException If a list of the files is not sorted,
+	 * or a return count is not valid.
+	 */
+	public void merge(File left, File right, File output)
+	throws FileNotFoundException, IOException, InvalidFileFormatException {
+		if (output.getCanonicalFile().equals(left.getCanonicalFile())
+				|| output.getCanonicalFile().equals(right.getCanonicalFile()))
+			throw new IllegalArgumentException("The merged file can't be one of the given files.");
+		resetStatistics();
+		BufferedWriter bw = new BufferedWriter(new FileWriter(output));
+		try {
+			for (int list = 0; list < SECTIONS.length; list++) {
+				bw.write(SECTIONS[list] + NEWLINE);
+				pass(list, left, right, bw, true);
+			}
+		} finally {
+			bw.close();
+		}
+	}
+
+	/**
+	 * Returns the number of addresses of a list which are only in the right
+	 * file, in the last diff or merge.
+	 *
+	 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+	 * @return The number of addresses added to the list.
+	 */
+	public long getAdded(int list) {
+		return added[list];
+	}
+
+	/**
+	 * Returns the number of addresses of a list which are only in the left
+	 * file, in the last diff or merge.
+	 *
+	 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+	 * @return The number of addresses deleted from the list.
+	 */
+	public long getDeleted(int list) {
+		return deleted[list];
+	}
+
+	/**
+	 * Returns the number of addresses written to a list in the last merge.
+	 *
+	 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+	 * @return The number of addresses of the merged list.
+	 */
+	public long getWritten(int list) {
+		return written[list];
+	}
+
+	/**
+	 * Returns the number of addresses in both returned lists with different
+	 * return counts, in the last diff or merge.
+	 *
+	 * @return The number of changed return counts.
+	 */
+	public long getChanged() {
+		return changed;
+	}
+
+	/**
+	 * Returns the number of addresses which were in the mailing list and in
+	 * the removed list, left out of one of them by the exclusion policy, in
+	 * the last merge.
+	 *
+	 * @return The number of conflicts resolved.
+	 */
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	/**
+	 * Returns the number of suppression rules left out of the merged
+	 * removed list because they match addresses kept in the mailing list,
+	 * with {@link #MAIL_WINS}, in the last merge.
+	 *
+	 * @return The number of suppression rules dropped.
+	 */
+	public long getDroppedRules() {
+		return droppedRules;
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Clears the statistics.
+	 */
+	private void resetStatistics() {
+		for (int list = 0; list < SECTIONS.length; list++) {
+			added[list] = 0;
+			deleted[list] = 0;
+			written[list] = 0;
+		}
+		changed = 0;
+		conflicts = 0;
+		droppedRules = 0;
+	}
+
+	/**
+	 * Streams a list from both files, in a single merge pass, writing the
+	 * differences or the merged list.
+	 *
+	 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+	 * @param left The left file.
+	 * @param right The right file.
+	 * @param out Where to write.
+	 * @param merging True to write the merged list, false to write the
+	 * differences.
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidFileFormatException If the list is not sorted, or a
+	 * return count is not valid.
+	 */
+	private void pass(int list, File left, File right, Writer out, boolean merging)
+	throws IOException, InvalidFileFormatException {
+		boolean counts = (list == EMaMModelInterface.RETURNED_LIST);
+		/* When merging, the list it may conflict with is streamed alongside. */
+		int other = -1;
+		if (merging && (list == EMaMModelInterface.MAIL_LIST) && (exclusionPolicy == REMOVED_WINS))
+			other = EMaMModelInterface.REMOVED_LIST;
+		else if (merging && (list == EMaMModelInterface.REMOVED_LIST) && (exclusionPolicy == MAIL_WINS))
+			other = EMaMModelInterface.MAIL_LIST;
+		SuppressionMatcher rules = (other == EMaMModelInterface.REMOVED_LIST)
+				? loadRules(left, right) : null;
+		/* Rules which would suppress addresses kept in the mailing list. */
+		HashSet<String> overridden = (other == EMaMModelInterface.MAIL_LIST)
+				? overriddenRules(left, right) : null;
+		SectionReader leftReader = new SectionReader(left, list);
+		SectionReader rightReader = new SectionReader(right, list);
+		SectionReader leftOther = (other >= 0) ? new SectionReader(left, other) : null;
+		SectionReader rightOther = (other >= 0) ? new SectionReader(right, other) : null;
+		try {
+			while ((leftReader.address != null) || (rightReader.address != null)) {
+				int c = (leftReader.address == null) ? 1 : (rightReader.address == null) ? -1
+						: leftReader.address.compareTo(rightReader.address);
+				String address = (c <= 0) ? leftReader.address : rightReader.address;
+				int leftCount = (c <= 0) ? leftReader.count : 0;
+				int rightCount = (c >= 0) ? rightReader.count : 0;
+				if (c < 0)
+					deleted[list]++;
+				else if (c > 0)
+					added[list]++;
+				else if (counts && (leftCount != rightCount))
+					changed++;
+				if (!merging) {
+					if (c != 0)
+						out.write(NAMES[list] + ((c < 0) ? "\t-\t" : "\t+\t") + address + NEWLINE);
+					else if (counts && (leftCount != rightCount))
+						out.write(NAMES[list] + "\t~\t" + address + "\t" + leftCount + "\t"
+								+ rightCount + NEWLINE);
+				} else if ((other >= 0) && (leftOther.seek(address) || rightOther.seek(address)
+						|| ((rules != null) && rules.matches(address)))) {
+					conflicts++;
+				} else if ((overridden != null) && overridden.contains(address)) {
+					droppedRules++;
+				} else {
+					out.write(address);
+					if (counts)
+						out.write(" " + ((c != 0) ? leftCount + rightCount : mergeCounts(leftCount, rightCount)));
+					out.write(NEWLINE);
+					written[list]++;
+				}
+				if (c <= 0)
+					leftReader.next();
+				if (c >= 0)
+					rightReader.next();
+			}
+		} finally {
+			leftReader.close();
+			rightReader.close();
+			if (other >= 0) {
+				leftOther.close();
+				rightOther.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the return count of an address in both files, by the count
+	 * policy.
+	 *
+	 * @param leftCount Return count in the left file.
+	 * @param rightCount Return count in the right file.
+	 * @return The merged return count.
+	 */
+	private int mergeCounts(int leftCount, int rightCount) {
+		if (countPolicy == MIN_COUNT)
+			return Math.min(leftCount, rightCount);
+		else if (countPolicy == SUM_COUNT)
+			return leftCount + rightCount;
+		return Math.max(leftCount, rightCount);
+	}
+
+	/**
+	 * Reads the suppression rules of the removed lists of both files.
+	 *
+	 * @param left The left file.
+	 * @param right The right file.
+	 * @return The rules of both files, or null if there are none.
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidFileFormatException If a removed list is not sorted.
+	 */
+	private static SuppressionMatcher loadRules(File left, File right)
+	throws IOException, InvalidFileFormatException {
+		SuppressionMatcher rules = new SuppressionMatcher();
+		for (File file : new File[] {left, right}) {
+			SectionReader reader = new SectionReader(file, EMaMModelInterface.REMOVED_LIST);
+			try {
+				for (; reader.address != null; reader.next())
+					if (SuppressionMatcher.isRule(reader.address))
+						rules.add(reader.address);
+			} finally {
+				reader.close();
+			}
+		}
+		return (rules.size() > 0) ? rules : null;
+	}
+
+	/**
+	 * Returns the suppression rules of the removed lists of both files which
+	 * match an address of the mailing list of either file. Each address is
+	 * matched until no rule is left which matches it, as it may match more
+	 * than one.
+	 *
+	 * @param left The left file.
+	 * @param right The right file.
+	 * @return The matching rules, or null if there are no rules.
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidFileFormatException If a removed or mailing list is
+	 * not sorted.
+	 */
+	private static HashSet<String> overriddenRules(File left, File right)
+	throws IOException, InvalidFileFormatException {
+		SuppressionMatcher rules = loadRules(left, right);
+		if (rules == null)
+			return null;
+		HashSet<String> overridden = new HashSet<String>();
+		for (File file : new File[] {left, right}) {
+			SectionReader reader = new SectionReader(file, EMaMModelInterface.MAIL_LIST);
+			try {
+				for (; (reader.address != null) && (rules.size() > 0); reader.next()) {
+					String rule;
+					while ((rule = rules.findRule(reader.address)) != null) {
+						overridden.add(rule);
+						rules.remove(rule);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return overridden;
+	}
+
+	/**
+	 * Reads the addresses of one list of an .emam file, in order, checking
+	 * that they are sorted. The current address is in <code>address</code>,
+	 * which is null when there are no more addresses.
+	 */
+	private static class SectionReader {
+
+		private File file;
+		private BufferedReader br;
+		private boolean counts;
+		private int lineNumber;
+		/* Current address and its return count. */
+		private String address;
+		private int count;
+
+		/**
+		 * Opens a file and reads the first address of the given list, if any.
+		 *
+		 * @param file An .emam file.
+		 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+		 * @throws IOException @see java.io.IOException
+		 * @throws InvalidFileFormatException If the first address has an
+		 * invalid return count.
+		 */
+		SectionReader(File file, int list) throws IOException, InvalidFileFormatException {
+			this.file = file;
+			this.counts = (list == EMaMModelInterface.RETURNED_LIST);
+			br = new BufferedReader(new FileReader(file));
+			String line;
+			while (((line = br.readLine()) != null) && !line.trim().equals(SECTIONS[list]))
+				lineNumber++;
+			lineNumber++;
+			if (line == null)
+				close();
+			else
+				next();
+		}
+
+		/**
+		 * Reads the next address of the list, if any.
+		 *
+		 * @throws IOException @see java.io.IOException
+		 * @throws InvalidFileFormatException If the address is not after the
+		 * previous one, or has an invalid return count.
+		 */
+		void next() throws IOException, InvalidFileFormatException {
+			String previous = address;
+			address = null;
+			if (br == null)
+				return;
+			String line;
+			while ((line = br.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.length() == 0)
+					continue;
+				if (isSection(line))
+					break;
+				String current = line;
+				if (counts) {
+					String[] fields = line.split(" ");
+					try {
+						count = Integer.parseInt(fields[1]);
+					} catch (RuntimeException re) {
+						/* Missing field or invalid number. */
+						throw new InvalidFileFormatException(file + " (" + lineNumber + ") " + line);
+					}
+					current = fields[0];
+				}
+				if ((previous != null) && (current.compareTo(previous) <= 0))
+					throw new InvalidFileFormatException(file + " (" + lineNumber
+							+ ") not sorted, open and save the file in eMaM: " + line);
+				address = current;
+				return;
+			}
+			close();
+		}
+
+		/**
+		 * Advances to the given address, or to the first address after it.
+		 *
+		 * @param target An address.
+		 * @return True if the list has the given address.
+		 * @throws IOException @see java.io.IOException
+		 * @throws InvalidFileFormatException @see #next()
+		 */
+		boolean seek(String target) throws IOException, InvalidFileFormatException {
+			while ((address != null) && (address.compareTo(target) < 0))
+				next();
+			return target.equals(address);
+		}
+
+		/**
+		 * Closes the file.
+		 *
+		 * @throws IOException @see java.io.IOException
+		 */
+		void close() throws IOException {
+			if (br != null) {
+				br.close();
+				br = null;
+			}
+		}
+
+		/**
+		 * Returns true if the given line is a section header.
+		 *
+		 * @param line A trimmed line.
+		 * @return True if the line is a section header.
+		 */
+		private static boolean isSection(String line) {
+			for (String section : SECTIONS)
+				if (line.equals(section))
+					return true;
+			return false;
+		}
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.UIManager;
+
+/**
+ * Read-only view of a text file of any size, to show in place of the text
+ * area of the view. The file is memory-mapped (one segment per GB) and is
+ * never loaded as a whole:
+ * <ul>
+ * <li>When opened, the file is indexed by looking for line ends eight bytes
+ * at a time (see {@link AddressPrefilter#indexOfLineEnd}), keeping the
+ * start of every 64th line.</li>
+ * <li>Lines are laid out on demand: only the lines which are painted are
+ * found, from the nearest indexed line, and decoded, up to
+ * {@link #MAX_LINE_CHARS} characters.</li>
+ * </ul>
+ * Addresses are extracted from the file itself (see
+ * {@link EMaMModelInterface#extractAddressesFromFile(File)}), which reads
+ * the same mapped pages, instead of from decoded text.
+ *
+ * @author Nuno Fachada
+ */
+@SuppressWarnings("serial")
+public class FileViewer extends JComponent implements Scrollable {
+
+	/* Maximum number of characters shown per line. */
+	public static final int MAX_LINE_CHARS = 4096;
+
+	/* Size of the mapped segments. */
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+	/* Lines between indexed lines. */
+	private static final int INDEX_BITS = 6;
+
+	/* Viewed file. */
+	private File file;
+	private long size;
+	/* Mapped segments. */
+	private MappedByteBuffer[] segments;
+	/* Start of every 64th line. */
+	private long[] lineIndex = new long[1024];
+	private int lines;
+	/* Length of the longest line, up to MAX_LINE_CHARS. */
+	private int longestLine;
+	/* Charset of the file. */
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Opens a file for viewing, mapping and indexing it.
+	 *
+	 * @param file File to view.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public FileViewer(File file) throws IOException {
+		this.file = file;
+		setFont(UIManager.getFont("TextArea.font"));
+		setBackground(UIManager.getColor("TextArea.background"));
+		setForeground(UIManager.getColor("TextArea.foreground"));
+		setOpaque(true);
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			size = channel.size();
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int s = 0; s < segments.length; s++) {
+				long start = (long) s << SEGMENT_BITS;
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+						start, Math.min(size - start, SEGMENT_MASK + 1));
+				segments[s].order(ByteOrder.LITTLE_ENDIAN);
+			}
+		} finally {
+			/* Mappings remain valid after the channel is closed. */
+			in.close();
+		}
+		index();
+	}
+
+	/**
+	 * Returns the viewed file.
+	 *
+	 * @return The viewed file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of lines of the file.
+	 *
+	 * @return The number of lines of the file.
+	 */
+	public int getLineCount() {
+		return lines;
+	}
+
+	/**
+	 * Returns a line of the file, without the line end, cut at
+	 * {@link #MAX_LINE_CHARS} characters.
+	 *
+	 * @param line Index of the line, starting at 0.
+	 * @return The line.
+	 */
+	public String getLine(int line) {
+		long start = lineStart(line);
+		long end = Math.min(size, start + MAX_LINE_CHARS);
+		byte[] bytes = new byte[(int) (end - start)];
+		int length = 0;
+		for (long i = start; i < end; i++) {
+			byte b = byteAt(i);
+			if (b == '\n')
+				break;
+			bytes[length++] = b;
+		}
+		if ((length > 0) && (bytes[length - 1] == '\r'))
+			length--;
+		return new String(bytes, 0, length, charset);
+	}
+
+	/**
+	 * @see JComponent#getPreferredSize()
+	 */
+	public Dimension getPreferredSize() {
+		FontMetrics fm = getFontMetrics(getFont());
+		long height = (long) lines * fm.getHeight();
+		return new Dimension(longestLine * fm.charWidth('m'),
+				(int) Math.min(height, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Paints only the lines in the clip.
+	 *
+	 * @see JComponent#paintComponent(Graphics)
+	 */
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		g.setColor(getBackground());
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+		g.setColor(getForeground());
+		FontMetrics fm = g.getFontMetrics(getFont());
+		int height = fm.getHeight();
+		int first = clip.y / height;
+		int last = Math.min(lines - 1, (clip.y + clip.height) / height);
+		for (int line = first; line <= last; line++)
+			g.drawString(getLine(line), 0, line * height + fm.getAscent());
+	}
+
+	/**
+	 * The same size as the text area it replaces.
+	 *
+	 * @see Scrollable#getPreferredScrollableViewportSize()
+	 */
+	public Dimension getPreferredScrollableViewportSize() {
+		FontMetrics fm = getFontMetrics(getFont());
+		return new Dimension(50 * fm.charWidth('m'), 20 * fm.getHeight());
+	}
+
+	/**
+	 * @see Scrollable#getScrollableUnitIncrement(Rectangle, int, int)
+	 */
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+		FontMetrics fm = getFontMetrics(getFont());
+		return (orientation == SwingConstants.VERTICAL) ? fm.getHeight() : fm.charWidth('m');
+	}
+
+	/**
+	 * @see Scrollable#getScrollableBlockIncrement(Rectangle, int, int)
+	 */
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+		return (orientation == SwingConstants.VERTICAL) ? visibleRect.height : visibleRect.width;
+	}
+
+	/**
+	 * @see Scrollable#getScrollableTracksViewportWidth()
+	 */
+	public boolean getScrollableTracksViewportWidth() {
+		return (getParent() != null) && (getParent().getWidth() > getPreferredSize().width);
+	}
+
+	/**
+	 * @see Scrollable#getScrollableTracksViewportHeight()
+	 */
+	public boolean getScrollableTracksViewportHeight() {
+		return (getParent() != null) && (getParent().getHeight() > getPreferredSize().height);
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Finds the lines of the file, keeping the start of every 64th line and
+	 * the length of the longest line.
+	 */
+	private void index() {
+		long start = 0;
+		lines = 0;
+		while (true) {
+			if ((lines & ((1 << INDEX_BITS) - 1)) == 0) {
+				int i = lines >>> INDEX_BITS;
+				if (i == lineIndex.length)
+					lineIndex = Arrays.copyOf(lineIndex, i * 2);
+				lineIndex[i] = start;
+			}
+			lines++;
+			long end = nextLineEnd(start);
+			longestLine = (int) Math.max(longestLine, Math.min(MAX_LINE_CHARS, end - start));
+			if ((end >= size - 1) || (lines == Integer.MAX_VALUE))
+				break;
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Returns the start of a line, from the nearest indexed line.
+	 *
+	 * @param line Index of the line.
+	 * @return The offset of the line in the file.
+	 */
+	private long lineStart(int line) {
+		long start = lineIndex[line >>> INDEX_BITS];
+		for (int i = line & ((1 << INDEX_BITS) - 1); i > 0; i--)
+			start = nextLineEnd(start) + 1;
+		return start;
+	}
+
+	/**
+	 * Returns the offset of the first line end at or after the given
+	 * offset, or the size of the file if there is none.
+	 *
+	 * @param from Offset where to start looking.
+	 * @return The offset of the line end.
+	 */
+	private long nextLineEnd(long from) {
+		for (long segment = from >>> SEGMENT_BITS; segment < segments.length; segment++) {
+			MappedByteBuffer buffer = segments[(int) segment];
+			int start = (segment == from >>> SEGMENT_BITS) ? (int) (from & SEGMENT_MASK) : 0;
+			int end = AddressPrefilter.indexOfLineEnd(buffer, start, buffer.limit());
+			if (end >= 0)
+				return (segment << SEGMENT_BITS) + end;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns a byte of the file.
+	 *
+	 * @param offset Offset of the byte.
+	 * @return The byte.
+	 */
+	private byte byteAt(long offset) {
+		return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK));
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations, in nanoseconds, for percentiles which can be
+ * recorded by many threads without locks. Durations are counted in
+ * logarithmic buckets with 3 bits of precision, i.e. 8 buckets per power
+ * of two, so percentiles are within 6.25% of the true value; durations
+ * longer than 2<sup>41</sup> ns (about 36 minutes) are counted in the last
+ * bucket. The counts are striped as in {@link StripedCounter}, with at most
+ * 4 stripes, since few threads run model operations at the same time.
+ *
+ * @author Nuno Fachada
+ */
+public class LatencyHistogram {
+
+	/* Bits of precision, and buckets per power of two. */
+	private static final int PRECISION = 3;
+	private static final int SUB_BUCKETS = 1 << PRECISION;
+	/* Largest power of two counted. */
+	private static final int MAX_EXPONENT = 40;
+	/* Number of buckets. */
+	private static final int BUCKETS = (MAX_EXPONENT - PRECISION + 2) * SUB_BUCKETS;
+	/* Number of stripes, a power of two. */
+	private static final int STRIPES = Math.min(4, StripedCounter.STRIPES);
+
+	private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos Duration, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		counts.getAndIncrement(StripedCounter.stripe(STRIPES) * BUCKETS + bucket(nanos));
+		/* Only contended when the maximum changes. */
+		long current;
+		while (nanos > (current = max.get()))
+			if (max.compareAndSet(current, nanos))
+				break;
+	}
+
+	/**
+	 * Returns the number of durations recorded.
+	 *
+	 * @return The number of durations recorded.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns the given percentile of the durations recorded, e.g. 50 for
+	 * the median.
+	 *
+	 * @param percentile Percentile, between 0 and 100.
+	 * @return The percentile, in nanoseconds (the middle of its bucket), or 0
+	 * if nothing was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long[] totals = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			long n = counts.get(i);
+			totals[i % BUCKETS] += n;
+			count += n;
+		}
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += totals[b];
+			if (seen >= rank)
+				return Math.min(getMax(), lowest(b) + (width(b) - 1) / 2);
+		}
+		return getMax();
+	}
+
+	/**
+	 * Returns the longest duration recorded.
+	 *
+	 * @return The longest duration recorded, in nanoseconds, or 0 if
+	 * nothing was recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Removes all the durations recorded.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++)
+			counts.set(i, 0);
+		max.set(0);
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Returns the bucket of a duration.
+	 *
+	 * @param nanos Duration, in nanoseconds, not negative.
+	 * @return The bucket of the duration.
+	 */
+	private static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT)
+			return BUCKETS - 1;
+		int mantissa = (int) (nanos >>> (exponent - PRECISION)) & (SUB_BUCKETS - 1);
+		return (exponent - PRECISION + 1) * SUB_BUCKETS + mantissa;
+	}
+
+	/**
+	 * Returns the shortest duration of a bucket.
+	 *
+	 * @param bucket A bucket.
+	 * @return The shortest duration of the bucket, in nanoseconds.
+	 */
+	private static long lowest(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + PRECISION - 1;
+		return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << (exponent - PRECISION);
+	}
+
+	/**
+	 * Returns the number of durations of a bucket.
+	 *
+	 * @param bucket A bucket.
+	 * @return The number of durations of the bucket.
+	 */
+	private static long width(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return 1;
+		return 1L << (bucket / SUB_BUCKETS - 1);
+	}
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Keeps the extracted list up to date with the addresses in a document (the
+ * text area of the view) while it is edited. Only the edited regions, plus
+ * a margin on each side, are scanned again:
+ * <ul>
+ * <li>Edits mark their region as dirty and shift the addresses found after
+ * them, on the event dispatch thread.</li>
+ * <li>After a pause in editing, dirty regions are copied, a chunk at a time,
+ * and scanned on a background thread.</li>
+ * <li>The addresses found replace those previously found in the region,
+ * and addresses which appear in or disappear from the document are added
+ * to or deleted from the extracted list.</li>
+ * </ul>
+ * Edits made while a chunk is scanned are replayed over its results, so
+ * that typing never waits for a scan, even after pasting a large text.
+ *
+ * This class must be used from the event dispatch thread.
+ *
+ * @author Nuno Fachada
+ */
+public class LiveExtractor implements DocumentListener, ActionListener {
+
+	/* Characters scanned around edits, longer than any address. */
+	private static final int MARGIN = 320;
+	/* Maximum number of characters scanned at a time. */
+	private static final int CHUNK = 1 << 20;
+	/* Pause in editing after which dirty regions are scanned, in ms. */
+	private static final int DELAY = 300;
+	/* Maximum number of addresses per block. */
+	private static final int BLOCK_SIZE = 512;
+
+	/* Edited document. */
+	private Document document;
+	/* Model, which finds addresses. */
+	private EMaMModelInterface model;
+	/* Controller, which updates the extracted list. */
+	private EMaMControllerInterface controller;
+
+	/* Addresses found in the document, by position. */
+	private ArrayList<Block> blocks = new ArrayList<Block>();
+	/* Number of occurrences in the document of each canonical address. */
+	private HashMap<String, Integer> counts = new HashMap<String, Integer>();
+	/* Dirty regions, sorted and disjoint, as {start, end}. */
+	private ArrayList<int[]> dirty = new ArrayList<int[]>();
+	/* Edits made while a chunk is scanned, as {offset, length change}. */
+	private ArrayList<int[]> edits = new ArrayList<int[]>();
+	/* True while a chunk is scanned. */
+	private boolean scanning;
+	/* Incremented when live extraction is stopped, to ignore results of
+	 * chunks scanned before. */
+	private int generation;
+
+	/* Debouncing timer. */
+	private Timer timer;
+	/* Background thread. */
+	private ExecutorService executor;
+
+	/* An address found in the document. */
+	private static class Match {
+		/* Start, relative to the block. */
+		int start;
+		int length;
+		String address;
+		String key;
+	}
+
+	/* Consecutive addresses, with positions relative to the block start, so
+	 * that edits only shift the starts of the blocks after them. */
+	private static class Block {
+		int start;
+		ArrayList<Match> matches = new ArrayList<Match>();
+	}
+
+	/**
+	 * Creates a live extractor for the given document. It does nothing until
+	 * started.
+	 *
+	 * @param document Document to follow.
+	 * @param model Model, used to find addresses.
+	 * @param controller Controller, used to update the extracted list.
+	 */
+	public LiveExtractor(Document document, EMaMModelInterface model,
+			EMaMControllerInterface controller) {
+		this.document = document;
+		this.model = model;
+		this.controller = controller;
+		timer = new Timer(DELAY, this);
+		timer.setRepeats(false);
+	}
+
+	/**
+	 * Starts following the document, scanning it as a whole first.
+	 */
+	public void start() {
+		if (executor != null)
+			return;
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LiveExtractor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		document.addDocumentListener(this);
+		markDirty(0, document.getLength());
+		timer.restart();
+	}
+
+	/**
+	 * Stops following the document. The extracted list is left as it is.
+	 */
+	public void stop() {
+		if (executor == null)
+			return;
+		document.removeDocumentListener(this);
+		timer.stop();
+		executor.shutdown();
+		executor = null;
+		generation++;
+		scanning = false;
+		blocks.clear();
+		counts.clear();
+		dirty.clear();
+		edits.clear();
+	}
+
+	/**
+	 * Returns true if the document is being followed.
+	 *
+	 * @return True if the document is being followed.
+	 */
+	public boolean isStarted() {
+		return executor != null;
+	}
+
+	/**
+	 * @see DocumentListener#insertUpdate(DocumentEvent)
+	 */
+	public void insertUpdate(DocumentEvent e) {
+		edited(e.getOffset(), e.getLength());
+		markDirty(e.getOffset() - MARGIN, e.getOffset() + e.getLength() + MARGIN);
+		timer.restart();
+	}
+
+	/**
+	 * @see DocumentListener#removeUpdate(DocumentEvent)
+	 */
+	public void removeUpdate(DocumentEvent e) {
+		edited(e.getOffset(), -e.getLength());
+		markDirty(e.getOffset() - MARGIN, e.getOffset() + MARGIN);
+		timer.restart();
+	}
+
+	/**
+	 * Attribute changes don't change the text.
+	 *
+	 * @see DocumentListener#changedUpdate(DocumentEvent)
+	 */
+	public void changedUpdate(DocumentEvent e) {}
+
+	/**
+	 * Scans the next dirty chunk, when editing pauses.
+	 *
+	 * @see ActionListener#actionPerformed(ActionEvent)
+	 */
+	public void actionPerformed(ActionEvent e) {
+		scanNext();
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Copies the next dirty chunk, with margins, and scans it on the
+	 * background thread, unless a chunk is already being scanned.
+	 */
+	private void scanNext() {
+		if (scanning || (executor == null) || dirty.isEmpty())
+			return;
+		int[] region = dirty.get(0);
+		final int from = region[0];
+		final int to = Math.min(region[1], from + CHUNK);
+		if (to == region[1])
+			dirty.remove(0);
+		else
+			region[0] = to;
+		final int windowFrom = Math.max(0, from - MARGIN);
+		int windowTo = Math.min(document.getLength(), to + MARGIN);
+		final String text;
+		try {
+			text = document.getText(windowFrom, windowTo - windowFrom);
+		} catch (BadLocationException ble) {
+			/* Dirty regions are kept within the document. */
+			throw new IllegalStateException(ble);
+		}
+		scanning = true;
+		edits.clear();
+		final int scanGeneration = generation;
+		executor.execute(new Runnable() {
+			public void run() {
+				final ArrayList<String> found = new ArrayList<String>();
+				final SourcePositions positions = new SourcePositions();
+				model.findAddresses(text, found, positions);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (scanGeneration == generation)
+							scanned(from, to, windowFrom, found, positions);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Replaces the addresses previously found in a scanned chunk with those
+	 * found now, after replaying the edits made meanwhile, and updates the
+	 * extracted list with the addresses which appeared or disappeared.
+	 *
+	 * @param from Start of the chunk, when it was copied.
+	 * @param to End of the chunk, when it was copied.
+	 * @param windowFrom Start of the copied text.
+	 * @param found Addresses found in the copied text.
+	 * @param positions Positions of the addresses in the copied text.
+	 */
+	private void scanned(int from, int to, int windowFrom,
+			ArrayList<String> found, SourcePositions positions) {
+		scanning = false;
+		/* Counts before this chunk of the addresses it changes, and one form
+		 * of each. */
+		LinkedHashMap<String, Integer> before = new LinkedHashMap<String, Integer>();
+		HashMap<String, String> forms = new HashMap<String, String>();
+		/* Addresses previously found in the chunk. */
+		for (Match match : removeMatches(replay(from), replay(to))) {
+			count(match, -1, before);
+			forms.put(match.key, match.address);
+		}
+		/* Addresses found now, in the chunk and not in dirty regions. */
+		for (int i = 0; i < found.size(); i++) {
+			int start = windowFrom + (int) positions.getOffset(i);
+			int end = start + found.get(i).length();
+			if ((end <= from) || (start >= to))
+				continue;
+			start = replay(start);
+			end = replay(end);
+			if ((end - start != found.get(i).length()) || isDirty(start, end))
+				continue;
+			Match match = new Match();
+			match.address = found.get(i);
+			match.key = model.getCanonicalAddress(model.normalizeAddress(match.address));
+			match.length = end - start;
+			insertMatch(match, start);
+			count(match, 1, before);
+			forms.put(match.key, match.address);
+		}
+		/* Update the extracted list. */
+		ArrayList<String> added = new ArrayList<String>();
+		ArrayList<String> removed = new ArrayList<String>();
+		for (Map.Entry<String, Integer> entry : before.entrySet()) {
+			boolean present = counts.containsKey(entry.getKey());
+			if ((entry.getValue() == 0) && present)
+				added.add(forms.get(entry.getKey()));
+			else if ((entry.getValue() > 0) && !present)
+				removed.add(forms.get(entry.getKey()));
+		}
+		if (!added.isEmpty() || !removed.isEmpty())
+			controller.updateExtracted(
+					added.toArray(new String[added.size()]),
+					removed.toArray(new String[removed.size()]));
+		/* Go on with the remaining dirty regions. */
+		scanNext();
+	}
+
+	/**
+	 * Changes the number of occurrences of an address, remembering the
+	 * number before the first change.
+	 *
+	 * @param match An address found in the document.
+	 * @param change Change in the number of occurrences.
+	 * @param before Numbers of occurrences before the first change.
+	 */
+	private void count(Match match, int change, Map<String, Integer> before) {
+		Integer count = counts.get(match.key);
+		int n = (count == null) ? 0 : count;
+		if (!before.containsKey(match.key))
+			before.put(match.key, n);
+		n += change;
+		if (n > 0)
+			counts.put(match.key, n);
+		else
+			counts.remove(match.key);
+	}
+
+	/**
+	 * Records an edit, shifting the addresses found and dirty regions after
+	 * it.
+	 *
+	 * @param offset Offset of the edit.
+	 * @param change Number of characters inserted (positive) or removed
+	 * (negative).
+	 */
+	private void edited(int offset, int change) {
+		if (scanning)
+			edits.add(new int[] {offset, change});
+		for (Block block : blocks) {
+			Match last = block.matches.get(block.matches.size() - 1);
+			if (block.start + last.start < offset) {
+				/* Whole block before the edit. */
+				continue;
+			} else if ((block.start >= offset) 
+					&& ((change >= 0) || (block.start >= offset - change))) {
+				/* Whole block after the edit. */
+				block.start += change;
+			} else {
+				/* Edit within the block. */
+				int start = shift(block.start, offset, change);
+				for (Match match : block.matches)
+					match.start = shift(block.start + match.start, offset, change) - start;
+				block.start = start;
+			}
+		}
+		for (int[] region : dirty) {
+			region[0] = shift(region[0], offset, change);
+			region[1] = shift(region[1], offset, change);
+		}
+	}
+
+	/**
+	 * Returns the position, after an edit, of a position before it.
+	 * Positions in removed text move to the start of the removal.
+	 *
+	 * @param position Position before the edit.
+	 * @param offset Offset of the edit.
+	 * @param change Length change of the edit.
+	 * @return Position after the edit.
+	 */
+	private static int shift(int position, int offset, int change) {
+		if (position < offset)
+			return position;
+		if (change >= 0)
+			return position + change;
+		return Math.max(offset, position + change);
+	}
+
+	/**
+	 * Returns the position, after the edits made while a chunk was scanned,
+	 * of a position before them.
+	 *
+	 * @param position Position before the edits.
+	 * @return Position after the edits.
+	 */
+	private int replay(int position) {
+		for (int[] edit : edits)
+			position = shift(position, edit[0], edit[1]);
+		return position;
+	}
+
+	/**
+	 * Marks a region of the document as dirty, merging it with overlapping
+	 * dirty regions.
+	 *
+	 * @param from Start of the region.
+	 * @param to End of the region.
+	 */
+	private void markDirty(int from, int to) {
+		from = Math.max(0, from);
+		to = Math.min(document.getLength(), to);
+		int i = 0;
+		while ((i < dirty.size()) && (dirty.get(i)[1] < from))
+			i++;
+		while ((i < dirty.size()) && (dirty.get(i)[0] <= to)) {
+			from = Math.min(from, dirty.get(i)[0]);
+			to = Math.max(to, dirty.get(i)[1]);
+			dirty.remove(i);
+		}
+		if (from < to)
+			dirty.add(i, new int[] {from, to});
+		/* Regions shifted by removals may now be empty or past the end. */
+		for (int j = 0; j < dirty.size(); j++) {
+			int[] region = dirty.get(j);
+			region[1] = Math.min(region[1], document.getLength());
+			if (region[0] >= region[1])
+				dirty.remove(j--);
+		}
+	}
+
+	/**
+	 * Returns true if the given range overlaps a dirty region.
+	 *
+	 * @param from Start of the range.
+	 * @param to End of the range.
+	 * @return True if the range overlaps a dirty region.
+	 */
+	private boolean isDirty(int from, int to) {
+		for (int[] region : dirty)
+			if ((region[0] < to) && (region[1] > from))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Removes the addresses found which overlap the given range.
+	 *
+	 * @param from Start of the range.
+	 * @param to End of the range.
+	 * @return The addresses removed.
+	 */
+	private ArrayList<Match> removeMatches(int from, int to) {
+		ArrayList<Match> removed = new ArrayList<Match>();
+		for (int b = 0; b < blocks.size(); b++) {
+			Block block = blocks.get(b);
+			if (block.start >= to)
+				break;
+			for (int i = 0; i < block.matches.size(); i++) {
+				Match match = block.matches.get(i);
+				int start = block.start + match.start;
+				if ((start < to) && (start + match.length > from)) {
+					removed.add(block.matches.remove(i--));
+				}
+			}
+			if (block.matches.isEmpty())
+				blocks.remove(b--);
+		}
+		return removed;
+	}
+
+	/**
+	 * Inserts an address found, keeping the addresses sorted by position.
+	 *
+	 * @param match The address found.
+	 * @param start Position of the address in the document.
+	 */
+	private void insertMatch(Match match, int start) {
+		/* Last block starting at or before the address. */
+		int b = blocks.size() - 1;
+		while ((b > 0) && (blocks.get(b).start > start))
+			b--;
+		if (b < 0) {
+			blocks.add(new Block());
+			b = 0;
+			blocks.get(0).start = start;
+		}
+		Block block = blocks.get(b);
+		if (start < block.start) {
+			/* Before the first block: move its start back. */
+			for (Match other : block.matches)
+				other.start += block.start - start;
+			block.start = start;
+		}
+		match.start = start - block.start;
+		int i = block.matches.size();
+		while ((i > 0) && (block.matches.get(i - 1).start > match.start))
+			i--;
+		block.matches.add(i, match);
+		if (block.matches.size() > BLOCK_SIZE) {
+			/* Split the block in two. */
+			Block second = new Block();
+			List<Match> half = block.matches.subList(BLOCK_SIZE / 2, block.matches.size());
+			second.start = block.start + half.get(0).start;
+			for (Match other : half) {
+				other.start = block.start + other.start - second.start;
+				second.matches.add(other);
+			}
+			half.clear();
+			blocks.add(b + 1, second);
+		}
+	}
+}
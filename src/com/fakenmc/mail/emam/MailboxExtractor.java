@@ -0,0 +1,701 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts addresses from e-mail messages, either a mailbox in mbox format
+ * (messages separated by "From " lines) or a single message (.eml). Unlike
+ * plain text extraction, it understands the structure of the messages:
+ * <ul>
+ * <li>Extraction can be restricted to chosen headers, e.g. From, To, Cc,
+ * Reply-To and Return-Path. Bodies are then skipped entirely.</li>
+ * <li>Otherwise, the headers and the text parts of each message are
+ * scanned. Base64 and quoted-printable parts are decoded, and encoded words
+ * in headers (=?charset?B?...?=) too, so that encoding doesn't hide
+ * addresses.</li>
+ * <li>Parts which aren't text (attachments such as images, archives or
+ * documents) are skipped without being kept in memory or decoded.</li>
+ * </ul>
+ *
+ * The file is read by a single thread, which splits it into messages and
+ * parts; decoding and scanning are done by a pool of threads, one per
+ * processor. Only a few messages per thread are kept in memory at a time,
+ * and the addresses are returned in the order they appear in the file.
+ *
+ * @author Nuno Fachada
+ */
+public class MailboxExtractor {
+
+	/* Headers which contain addresses. */
+	public static final String[] ADDRESS_HEADERS =
+		{"From", "To", "Cc", "Reply-To", "Return-Path"};
+
+	/* Messages waiting or being processed, per thread. */
+	private static final int MESSAGES_PER_THREAD = 4;
+	/* Headers whose presence in the first lines identify a message. */
+	private static final String[] MESSAGE_HEADERS = {"received:", "return-path:",
+		"from:", "to:", "date:", "message-id:", "mime-version:", "delivered-to:",
+		"subject:", "x-"};
+	/* Encoded word in a header (RFC 2047). */
+	private static final Pattern ENCODED_WORD =
+		Pattern.compile("=\\?([^?\\s]+)\\?([BbQq])\\?([^?\\s]*)\\?=");
+	/* ISO-8859-1, which maps bytes to chars one to one. */
+	private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+	/* Headers to extract from (lower case), or null for whole messages. */
+	private HashSet<String> headers;
+	/* Regular expression to use, or null to use the scanner. */
+	private Pattern pattern;
+	/* Number of threads. */
+	private int threads;
+
+	/* Statistics of the last extraction. */
+	private long bytesRead;
+	private int messages;
+	private int partsScanned;
+	private int partsSkipped;
+	private long elapsedNanos;
+
+	/* A message split into the pieces to scan. */
+	private static class Message {
+		/* Header text to scan, unfolded, one header per line. */
+		private StringBuilder headerText = new StringBuilder();
+		/* Body parts to scan. */
+		private ArrayList<Part> parts = new ArrayList<Part>();
+	}
+
+	/* A body part with its encoding, still encoded. */
+	private static class Part {
+		private String encoding;
+		private ArrayList<String> lines = new ArrayList<String>();
+	}
+
+	/* Reader states. */
+	private static final int HEADERS = 0;
+	private static final int PART_HEADERS = 1;
+	private static final int BODY = 2;
+	private static final int SKIP = 3;
+
+	/**
+	 * Creates a new mailbox extractor.
+	 *
+	 * @param headers Names of the headers to extract from (see
+	 * {@link #ADDRESS_HEADERS}), or null to extract from whole messages.
+	 * @param regexp Regular expression for addresses, or null to use the
+	 * {@link AddressScanner}.
+	 */
+	public MailboxExtractor(String[] headers, String regexp) {
+		if (headers != null) {
+			this.headers = new HashSet<String>();
+			for (String header : headers)
+				this.headers.add(header.trim().toLowerCase(Locale.ENGLISH));
+		}
+		this.pattern = (regexp == null) ? null : Pattern.compile(regexp);
+		this.threads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns true if the given file looks like a mailbox or a message,
+	 * i.e. if it starts with a "From " line or with message headers.
+	 *
+	 * @param file A file.
+	 * @return True if the given file looks like a mailbox or a message.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public static boolean isMailFile(File file) throws IOException {
+		/* Look only at the beginning of the first line. */
+		byte[] start = new byte[256];
+		int length = 0;
+		InputStream in = new FileInputStream(file);
+		try {
+			int n;
+			while ((length < start.length)
+					&& ((n = in.read(start, length, start.length - length)) > 0))
+				length += n;
+		} finally {
+			in.close();
+		}
+		String line = new String(start, 0, length, LATIN1);
+		if (line.startsWith("From "))
+			return true;
+		String lower = line.toLowerCase(Locale.ENGLISH);
+		for (String header : MESSAGE_HEADERS)
+			if (lower.startsWith(header))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Extracts the addresses in the messages of the given file.
+	 *
+	 * @param file A mailbox (mbox) or a single message.
+	 * @param addresses Collection where to add the addresses found, in the
+	 * order they appear in the file.
+	 * @return The number of addresses found.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extract(File file, Collection<String> addresses) throws IOException {
+		return extract(file, addresses, null);
+	}
+
+	/**
+	 * Extracts the addresses in the messages of the given file, recording
+	 * their positions. Since addresses may be in encoded text, the position 
+	 * of an address is the position of its message: the offset and line of 
+	 * the "From " line, or of the first header.
+	 *
+	 * @param file A mailbox (mbox) or a single message.
+	 * @param addresses Collection where to add the addresses found, in the
+	 * order they appear in the file.
+	 * @param positions Where to add the positions of the addresses found, 
+	 * or null.
+	 * @return The number of addresses found.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public int extract(File file, Collection<String> addresses, SourcePositions positions)
+	throws IOException {
+		long start = System.nanoTime();
+		if (positions != null)
+			positions.setSource(file.getPath());
+		bytesRead = 0;
+		messages = 0;
+		partsScanned = 0;
+		partsSkipped = 0;
+		int found = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		LinkedList<Future<ArrayList<String>>> pending = new LinkedList<Future<ArrayList<String>>>();
+		/* Offset and line of the pending messages. */
+		LinkedList<long[]> starts = new LinkedList<long[]>();
+		LineReader in = new LineReader(new FileInputStream(file));
+		try {
+			String line = in.readLine();
+			boolean mbox = (line != null) && line.startsWith("From ");
+			while (line != null) {
+				/* Read one message, which ends at the next "From " line. */
+				final Message message = new Message();
+				starts.add(new long[] {in.lineOffset, in.lineNumber});
+				line = readMessage(in, mbox ? in.readLine() : line, mbox, message);
+				messages++;
+				pending.add(executor.submit(new Callable<ArrayList<String>>() {
+					public ArrayList<String> call() {
+						return scan(message);
+					}
+				}));
+				/* Keep memory bounded, collecting results in order. */
+				while (pending.size() > threads * MESSAGES_PER_THREAD)
+					found += collect(pending.removeFirst(), addresses, positions, starts.removeFirst());
+			}
+			while (!pending.isEmpty())
+				found += collect(pending.removeFirst(), addresses, positions, starts.removeFirst());
+		} finally {
+			bytesRead = in.bytesRead;
+			in.close();
+			executor.shutdownNow();
+		}
+		elapsedNanos = System.nanoTime() - start;
+		return found;
+	}
+
+	/**
+	 * Returns a short report of the last extraction (messages, parts, time
+	 * and throughput).
+	 *
+	 * @return A short report of the last extraction.
+	 */
+	public String getReport() {
+		double megabytes = bytesRead / 1048576.0;
+		return String.format("%d messages, %d parts scanned, %d parts skipped, "
+				+ "%.2f MB in %d ms (%.2f MB/s)", messages, partsScanned,
+				partsSkipped, megabytes, elapsedNanos / 1000000,
+				megabytes / Math.max(elapsedNanos / 1e9, 1e-9));
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Reads a message, keeping only what has to be scanned.
+	 *
+	 * @param in Where to read from.
+	 * @param line First line of the message (after the "From " line).
+	 * @param mbox True if messages are separated by "From " lines.
+	 * @param message Where to keep the message.
+	 * @return The "From " line which starts the next message, or null at
+	 * the end of the file.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private String readMessage(LineReader in, String line, boolean mbox, Message message)
+	throws IOException {
+		int state = HEADERS;
+		/* Boundaries of the enclosing multiparts, innermost last. */
+		ArrayList<String> boundaries = new ArrayList<String>();
+		/* Headers of the message or part being read. */
+		StringBuilder header = new StringBuilder();
+		String contentType = null;
+		String encoding = null;
+		Part part = null;
+		boolean previousBlank = true;
+		for (; line != null; line = in.readLine()) {
+			/* A "From " line after a blank line starts the next message. */
+			if (mbox && previousBlank && line.startsWith("From "))
+				return line;
+			previousBlank = (line.length() == 0);
+			if ((state == HEADERS) || (state == PART_HEADERS)) {
+				if ((line.length() > 0) && ((line.charAt(0) == ' ') || (line.charAt(0) == '\t'))) {
+					/* Folded header. */
+					header.append(' ').append(line.trim());
+					continue;
+				}
+				/* A header is complete. */
+				if (header.length() > 0) {
+					String name = headerName(header);
+					if (name.equals("content-type"))
+						contentType = header.substring(header.indexOf(":") + 1).trim();
+					else if (name.equals("content-transfer-encoding"))
+						encoding = header.substring(header.indexOf(":") + 1).trim().toLowerCase(Locale.ENGLISH);
+					if ((state == HEADERS) && ((headers == null) || headers.contains(name)))
+						message.headerText.append(header).append('\n');
+					header.setLength(0);
+				}
+				if (line.length() > 0) {
+					header.append(line);
+					continue;
+				}
+				/* End of headers. */
+				if ((state == HEADERS) && (headers != null)) {
+					/* Only headers are wanted, skip the body. */
+					state = SKIP;
+				} else if (isMultipart(contentType)) {
+					String boundary = parameter(contentType, "boundary");
+					if (boundary != null)
+						boundaries.add("--" + boundary);
+					/* Skip the preamble. */
+					state = SKIP;
+				} else if (isText(contentType)) {
+					part = new Part();
+					part.encoding = encoding;
+					message.parts.add(part);
+					partsScanned++;
+					state = BODY;
+				} else {
+					partsSkipped++;
+					state = SKIP;
+				}
+				contentType = null;
+				encoding = null;
+				continue;
+			}
+			/* Body, check for boundaries. */
+			if ((headers == null) && line.startsWith("--") && !boundaries.isEmpty()) {
+				int b = boundaries.size() - 1;
+				while ((b >= 0) && !line.startsWith(boundaries.get(b)))
+					b--;
+				if (b >= 0) {
+					/* Boundaries of inner multiparts are closed too. */
+					while (boundaries.size() > b + 1)
+						boundaries.remove(boundaries.size() - 1);
+					String rest = line.substring(boundaries.get(b).length());
+					if (rest.startsWith("--")) {
+						/* End of multipart, skip the epilogue. */
+						boundaries.remove(b);
+						state = SKIP;
+					} else {
+						state = PART_HEADERS;
+					}
+					part = null;
+					continue;
+				}
+			}
+			if (state == BODY)
+				part.lines.add(line);
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes and scans a message.
+	 *
+	 * @param message Message to scan.
+	 * @return The addresses found, in order.
+	 */
+	private ArrayList<String> scan(Message message) {
+		ArrayList<String> found = new ArrayList<String>();
+		find(decodeHeaders(message.headerText.toString()), found);
+		for (Part part : message.parts) {
+			if ("base64".equals(part.encoding))
+				find(decodeBase64(part.lines), found);
+			else if ("quoted-printable".equals(part.encoding))
+				find(decodeQuotedPrintable(part.lines), found);
+			else
+				find(join(part.lines), found);
+		}
+		return found;
+	}
+
+	/**
+	 * Finds the addresses in the given text with the regular expression or
+	 * the scanner.
+	 *
+	 * @param text Text where to look for addresses.
+	 * @param found List where to add the addresses found.
+	 */
+	private void find(String text, ArrayList<String> found) {
+		if (pattern != null) {
+			Matcher m = pattern.matcher(text);
+			while (m.find())
+				found.add(m.group());
+		} else {
+			AddressScanner scanner = new AddressScanner(text);
+			while (scanner.find())
+				found.add(scanner.group());
+		}
+	}
+
+	/**
+	 * Waits for the result of a message and adds its addresses to the given
+	 * collection.
+	 *
+	 * @param result Result of scanning a message.
+	 * @param addresses Collection where to add the addresses.
+	 * @param positions Where to add the positions of the addresses, or null.
+	 * @param start Offset and line of the message.
+	 * @return The number of addresses added.
+	 * @throws IOException If the thread was interrupted.
+	 */
+	private int collect(Future<ArrayList<String>> result, Collection<String> addresses,
+			SourcePositions positions, long[] start) throws IOException {
+		try {
+			ArrayList<String> found = result.get();
+			addresses.addAll(found);
+			if (positions != null)
+				for (int i = 0; i < found.size(); i++)
+					positions.add(start[0], (int) start[1]);
+			return found.size();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Extraction interrupted");
+		} catch (ExecutionException ee) {
+			throw new IllegalStateException(ee.getCause());
+		}
+	}
+
+	/* Reads lines of bytes from a stream, mapping bytes to chars one to one. */
+	private static class LineReader {
+		private InputStream in;
+		private byte[] buffer = new byte[1 << 16];
+		private char[] chars = new char[256];
+		private int position;
+		private int limit;
+		private long bytesRead;
+		/* Offset and number of the last line read. */
+		private long lineOffset;
+		private int lineNumber;
+
+		private LineReader(InputStream in) {
+			this.in = in;
+		}
+
+		private String readLine() throws IOException {
+			int length = 0;
+			lineOffset = bytesRead - (limit - position);
+			lineNumber++;
+			while (true) {
+				if (position == limit) {
+					limit = in.read(buffer);
+					position = 0;
+					if (limit <= 0) {
+						limit = 0;
+						return (length == 0) ? null : line(length);
+					}
+					bytesRead += limit;
+				}
+				/* Copy bytes up to the end of the line or of the buffer. */
+				int i = position;
+				while ((i < limit) && (buffer[i] != '\n'))
+					i++;
+				if (length + i - position > chars.length)
+					chars = Arrays.copyOf(chars,
+							Math.max(chars.length * 2, length + i - position));
+				for (int j = position; j < i; j++)
+					chars[length++] = (char) (buffer[j] & 0xff);
+				if (i < limit) {
+					position = i + 1;
+					return line(length);
+				}
+				position = limit;
+			}
+		}
+
+		private String line(int length) {
+			if ((length > 0) && (chars[length - 1] == '\r'))
+				length--;
+			return new String(chars, 0, length);
+		}
+
+		private void close() throws IOException {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the name of a header, in lower case.
+	 *
+	 * @param header A header line.
+	 * @return The name of the header.
+	 */
+	private static String headerName(CharSequence header) {
+		String str = header.toString();
+		int colon = str.indexOf(':');
+		return ((colon < 0) ? str : str.substring(0, colon)).trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Returns true if the given content type is a multipart.
+	 *
+	 * @param contentType Value of a Content-Type header, possibly null.
+	 * @return True if the given content type is a multipart.
+	 */
+	private static boolean isMultipart(String contentType) {
+		return (contentType != null)
+			&& contentType.toLowerCase(Locale.ENGLISH).startsWith("multipart/");
+	}
+
+	/**
+	 * Returns true if the given content type is text, which is scanned. A
+	 * missing content type means text/plain.
+	 *
+	 * @param contentType Value of a Content-Type header, possibly null.
+	 * @return True if the given content type is text.
+	 */
+	private static boolean isText(String contentType) {
+		if (contentType == null)
+			return true;
+		String lower = contentType.toLowerCase(Locale.ENGLISH);
+		return lower.startsWith("text/") || lower.startsWith("message/");
+	}
+
+	/**
+	 * Returns the value of a parameter of a header value, such as the
+	 * boundary of a Content-Type.
+	 *
+	 * @param value Header value.
+	 * @param name Parameter name.
+	 * @return The parameter value, or null if there is no such parameter.
+	 */
+	private static String parameter(String value, String name) {
+		String lower = value.toLowerCase(Locale.ENGLISH);
+		int i = lower.indexOf(name + "=");
+		if (i < 0)
+			return null;
+		i += name.length() + 1;
+		if ((i < value.length()) && (value.charAt(i) == '"')) {
+			int end = value.indexOf('"', i + 1);
+			return value.substring(i + 1, (end < 0) ? value.length() : end);
+		}
+		int end = i;
+		while ((end < value.length()) && (value.charAt(end) != ';')
+				&& !Character.isWhitespace(value.charAt(end)))
+			end++;
+		return value.substring(i, end);
+	}
+
+	/**
+	 * Decodes the encoded words (RFC 2047) in the given header text.
+	 *
+	 * @param text Header text.
+	 * @return The header text with encoded words decoded.
+	 */
+	private static String decodeHeaders(String text) {
+		if (text.indexOf("=?") < 0)
+			return text;
+		Matcher m = ENCODED_WORD.matcher(text);
+		StringBuffer sb = new StringBuffer();
+		while (m.find()) {
+			byte[] bytes;
+			if (Character.toLowerCase(m.group(2).charAt(0)) == 'b') {
+				ArrayList<String> lines = new ArrayList<String>(1);
+				lines.add(m.group(3));
+				bytes = decodeBase64(lines).getBytes(LATIN1);
+			} else {
+				bytes = decodeQ(m.group(3));
+			}
+			String decoded;
+			try {
+				decoded = new String(bytes, Charset.forName(m.group(1)));
+			} catch (IllegalArgumentException iae) {
+				/* Unknown charset, addresses are ASCII anyway. */
+				decoded = new String(bytes, LATIN1);
+			}
+			m.appendReplacement(sb, Matcher.quoteReplacement(decoded));
+		}
+		m.appendTail(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes base64 lines. Bytes are returned as ISO-8859-1 characters.
+	 *
+	 * @param lines Encoded lines.
+	 * @return The decoded bytes.
+	 */
+	private static String decodeBase64(ArrayList<String> lines) {
+		StringBuilder sb = new StringBuilder();
+		int bits = 0;
+		int count = 0;
+		for (String line : lines) {
+			for (int i = 0; i < line.length(); i++) {
+				int value = base64Value(line.charAt(i));
+				if (value < 0)
+					continue;
+				bits = (bits << 6) | value;
+				count += 6;
+				if (count >= 8) {
+					count -= 8;
+					sb.append((char) ((bits >> count) & 0xff));
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the value of a base64 digit.
+	 *
+	 * @param c A character.
+	 * @return The value of the digit, or -1 if it isn't a base64 digit.
+	 */
+	private static int base64Value(char c) {
+		if ((c >= 'A') && (c <= 'Z')) return c - 'A';
+		if ((c >= 'a') && (c <= 'z')) return c - 'a' + 26;
+		if ((c >= '0') && (c <= '9')) return c - '0' + 52;
+		if (c == '+') return 62;
+		if (c == '/') return 63;
+		return -1;
+	}
+
+	/**
+	 * Decodes quoted-printable lines. Bytes are returned as ISO-8859-1
+	 * characters.
+	 *
+	 * @param lines Encoded lines.
+	 * @return The decoded bytes.
+	 */
+	private static String decodeQuotedPrintable(ArrayList<String> lines) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			int length = line.length();
+			/* A '=' at the end of a line is a soft line break. */
+			boolean soft = (length > 0) && (line.charAt(length - 1) == '=');
+			if (soft)
+				length--;
+			for (int i = 0; i < length; i++) {
+				char c = line.charAt(i);
+				int value;
+				if ((c == '=') && (i + 2 < length)
+						&& ((value = hexValue(line, i + 1)) >= 0)) {
+					sb.append((char) value);
+					i += 2;
+				} else {
+					sb.append(c);
+				}
+			}
+			if (!soft)
+				sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes the Q encoding of encoded words, quoted-printable with '_' for
+	 * spaces. Encoded words have no line breaks, so a '=' which doesn't 
+	 * start an escape is kept as is.
+	 *
+	 * @param text Encoded text.
+	 * @return The decoded bytes.
+	 */
+	private static byte[] decodeQ(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			int value;
+			if ((c == '=') && (i + 2 < text.length())
+					&& ((value = hexValue(text, i + 1)) >= 0)) {
+				sb.append((char) value);
+				i += 2;
+			} else {
+				sb.append((c == '_') ? ' ' : c);
+			}
+		}
+		return sb.toString().getBytes(LATIN1);
+	}
+
+	/**
+	 * Returns the value of the two hexadecimal digits at the given index.
+	 *
+	 * @param str A string.
+	 * @param i Index of the first digit.
+	 * @return The value of the digits, or -1 if they aren't hexadecimal.
+	 */
+	private static int hexValue(String str, int i) {
+		int high = Character.digit(str.charAt(i), 16);
+		int low = Character.digit(str.charAt(i + 1), 16);
+		return ((high < 0) || (low < 0)) ? -1 : (high << 4) | low;
+	}
+
+	/**
+	 * Joins lines with new lines.
+	 *
+	 * @param lines Lines to join.
+	 * @return The joined lines.
+	 */
+	private static String join(ArrayList<String> lines) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines)
+			sb.append(line).append('\n');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+/**
+ * Observer of the operations of the model, for profiling and monitoring.
+ * The model calls {@link #started(String)} before and
+ * {@link #finished(Object, String, long, long, long, EMaMModelInterface)}
+ * after each file operation, extraction, bulk change of the lists and
+ * notification of observers, whether it succeeds or not. Operations are
+ * named after the model method, e.g. <code>openFile</code> or
+ * <code>moveSelection</code>, and may be nested (e.g. a move notifies the
+ * observers).
+ *
+ * The probes used by the model are given by the <code>modelProbes</code>
+ * property, a comma separated list of class names, and can also be
+ * registered with {@link EMaMModelInterface#registerProbe(ModelProbe)}.
+ * Implementations given in the property must have a public no-argument
+ * constructor. Probes are called in the thread of the operation and should
+ * return quickly.
+ *
+ * @author Nuno Fachada
+ */
+public interface ModelProbe {
+
+	/**
+	 * An operation of the model is starting.
+	 *
+	 * @param operation Name of the operation.
+	 * @return Anything the probe needs to keep until the operation finishes,
+	 * which is given back to
+	 * {@link #finished(Object, String, long, long, long, EMaMModelInterface)},
+	 * or null.
+	 */
+	public Object started(String operation);
+
+	/**
+	 * An operation of the model has finished.
+	 *
+	 * @param context What {@link #started(String)} returned for this
+	 * operation.
+	 * @param operation Name of the operation.
+	 * @param nanos Duration of the operation, in nanoseconds.
+	 * @param items Number of addresses the operation was given, found or
+	 * loaded, or number of observers notified.
+	 * @param bytes Size of the file or text read or written, or 0 if the
+	 * operation doesn't read or write.
+	 * @param model The model, where list sizes after the operation can be
+	 * queried.
+	 */
+	public void finished(Object context, String operation, long nanos,
+			long items, long bytes, EMaMModelInterface model);
+}
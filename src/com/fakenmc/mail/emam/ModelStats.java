@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of the model operations, published as a platform MBean (see
+ * {@link ModelStatsMXBean}): list sizes, counters and latency histograms
+ * per operation, extraction throughput and the last save. It is a
+ * {@link ModelProbe} of the model; counters and histograms are striped
+ * (see {@link StripedCounter}), so operations in different threads don't
+ * wait for each other or for the MBean to be read.
+ *
+ * @author Nuno Fachada
+ */
+public class ModelStats implements ModelProbe, ModelStatsMXBean {
+
+	/** Name of the MBean. */
+	public static final String OBJECT_NAME = "com.fakenmc.mail.emam:type=ModelStats";
+	/* Nanoseconds per millisecond, for durations. */
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	/* Counters of an operation. */
+	private static class Operation {
+		private StripedCounter count = new StripedCounter();
+		private StripedCounter items = new StripedCounter();
+		private LatencyHistogram latency = new LatencyHistogram();
+	}
+
+	private EMaMModelInterface model;
+	/* Counters of each operation, added when the operation is first seen. */
+	private ConcurrentMap<String, Operation> operations = 
+		new ConcurrentHashMap<String, Operation>();
+	/* Extraction totals. */
+	private StripedCounter extractionBytes = new StripedCounter();
+	private StripedCounter extractionAddresses = new StripedCounter();
+	private StripedCounter extractionNanos = new StripedCounter();
+	/* Last save. */
+	private volatile long lastSaveNanos;
+	private volatile long lastSaveBytes;
+
+	/**
+	 * Creates the statistics of the given model. They must be registered
+	 * as a probe of the model to be updated.
+	 *
+	 * @param model The model.
+	 */
+	public ModelStats(EMaMModelInterface model) {
+		this.model = model;
+	}
+
+	/**
+	 * Creates the statistics of the given model, registers them as a probe
+	 * of the model and as a platform MBean, with the name
+	 * {@link #OBJECT_NAME}.
+	 *
+	 * @param model The model.
+	 * @return The statistics of the model.
+	 * @throws JMException If the MBean can't be registered, e.g. if there's
+	 * already one with the same name.
+	 */
+	public static ModelStats register(EMaMModelInterface model) throws JMException {
+		ModelStats stats = new ModelStats(model);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(
+				stats, new ObjectName(OBJECT_NAME));
+		model.registerProbe(stats);
+		return stats;
+	}
+
+	/**
+	 * @see ModelProbe#started(String)
+	 */
+	public Object started(String operation) {
+		return null;
+	}
+
+	/**
+	 * @see ModelProbe#finished(Object, String, long, long, long, EMaMModelInterface)
+	 */
+	public void finished(Object context, String operation, long nanos,
+			long items, long bytes, EMaMModelInterface model) {
+		Operation counters = operations.get(operation);
+		if (counters == null) {
+			operations.putIfAbsent(operation, new Operation());
+			counters = operations.get(operation);
+		}
+		counters.count.increment();
+		counters.items.add(items);
+		counters.latency.record(nanos);
+		if (operation.startsWith("extractAddresses")) {
+			extractionBytes.add(bytes);
+			extractionAddresses.add(items);
+			extractionNanos.add(nanos);
+		} else if (operation.equals("saveFile")) {
+			lastSaveNanos = nanos;
+			lastSaveBytes = bytes;
+		}
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getMailListSize()
+	 */
+	public int getMailListSize() {
+		return model.getListSize(EMaMModelInterface.MAIL_LIST);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getRemovedListSize()
+	 */
+	public int getRemovedListSize() {
+		return model.getListSize(EMaMModelInterface.REMOVED_LIST);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getReturnedListSize()
+	 */
+	public int getReturnedListSize() {
+		return model.getListSize(EMaMModelInterface.RETURNED_LIST);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getExtractedListSize()
+	 */
+	public int getExtractedListSize() {
+		return model.getListSize(EMaMModelInterface.EXTRACTED_LIST);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getOperationCounts()
+	 */
+	public Map<String, Long> getOperationCounts() {
+		TreeMap<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, Operation> entry : operations.entrySet())
+			counts.put(entry.getKey(), entry.getValue().count.sum());
+		return counts;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getOperationItems()
+	 */
+	public Map<String, Long> getOperationItems() {
+		TreeMap<String, Long> items = new TreeMap<String, Long>();
+		for (Map.Entry<String, Operation> entry : operations.entrySet())
+			items.put(entry.getKey(), entry.getValue().items.sum());
+		return items;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getLatencyMedian()
+	 */
+	public Map<String, Double> getLatencyMedian() {
+		return percentiles(50);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getLatency90thPercentile()
+	 */
+	public Map<String, Double> getLatency90thPercentile() {
+		return percentiles(90);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getLatency99thPercentile()
+	 */
+	public Map<String, Double> getLatency99thPercentile() {
+		return percentiles(99);
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getLatencyMax()
+	 */
+	public Map<String, Double> getLatencyMax() {
+		TreeMap<String, Double> max = new TreeMap<String, Double>();
+		for (Map.Entry<String, Operation> entry : operations.entrySet())
+			max.put(entry.getKey(), entry.getValue().latency.getMax() / NANOS_PER_MILLI);
+		return max;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getExtractionBytes()
+	 */
+	public long getExtractionBytes() {
+		return extractionBytes.sum();
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getExtractionAddresses()
+	 */
+	public long getExtractionAddresses() {
+		return extractionAddresses.sum();
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getExtractionBytesPerSecond()
+	 */
+	public double getExtractionBytesPerSecond() {
+		long nanos = extractionNanos.sum();
+		return (nanos == 0) ? 0 : extractionBytes.sum() * 1e9 / nanos;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getExtractionAddressesPerSecond()
+	 */
+	public double getExtractionAddressesPerSecond() {
+		long nanos = extractionNanos.sum();
+		return (nanos == 0) ? 0 : extractionAddresses.sum() * 1e9 / nanos;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getLastSaveDuration()
+	 */
+	public double getLastSaveDuration() {
+		return lastSaveNanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#getLastSaveBytes()
+	 */
+	public long getLastSaveBytes() {
+		return lastSaveBytes;
+	}
+
+	/**
+	 * @see ModelStatsMXBean#reset()
+	 */
+	public void reset() {
+		for (Operation counters : operations.values()) {
+			counters.count.reset();
+			counters.items.reset();
+			counters.latency.reset();
+		}
+		extractionBytes.reset();
+		extractionAddresses.reset();
+		extractionNanos.reset();
+		lastSaveNanos = 0;
+		lastSaveBytes = 0;
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Returns the given percentile of the duration of each operation.
+	 *
+	 * @param percentile Percentile, between 0 and 100.
+	 * @return The percentile of each operation, in milliseconds.
+	 */
+	private Map<String, Double> percentiles(double percentile) {
+		TreeMap<String, Double> percentiles = new TreeMap<String, Double>();
+		for (Map.Entry<String, Operation> entry : operations.entrySet())
+			percentiles.put(entry.getKey(), 
+					entry.getValue().latency.getPercentile(percentile) / NANOS_PER_MILLI);
+		return percentiles;
+	}
+}
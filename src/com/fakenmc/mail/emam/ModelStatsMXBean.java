@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.Map;
+
+/**
+ * Management interface of the model statistics, for JMX monitoring. Maps
+ * are keyed by operation, named after the model method (see
+ * {@link ModelProbe}). Durations are in milliseconds.
+ *
+ * @author Nuno Fachada
+ */
+public interface ModelStatsMXBean {
+
+	/**
+	 * Returns the number of addresses in the mailing list.
+	 *
+	 * @return The number of addresses in the mailing list.
+	 */
+	public int getMailListSize();
+
+	/**
+	 * Returns the number of addresses and rules in the removed list.
+	 *
+	 * @return The number of addresses and rules in the removed list.
+	 */
+	public int getRemovedListSize();
+
+	/**
+	 * Returns the number of addresses in the returned list.
+	 *
+	 * @return The number of addresses in the returned list.
+	 */
+	public int getReturnedListSize();
+
+	/**
+	 * Returns the number of addresses in the extracted list.
+	 *
+	 * @return The number of addresses in the extracted list.
+	 */
+	public int getExtractedListSize();
+
+	/**
+	 * Returns how many times each operation was done.
+	 *
+	 * @return Number of times each operation was done.
+	 */
+	public Map<String, Long> getOperationCounts();
+
+	/**
+	 * Returns the number of addresses given to, found or loaded by each
+	 * operation, in total.
+	 *
+	 * @return Number of addresses of each operation.
+	 */
+	public Map<String, Long> getOperationItems();
+
+	/**
+	 * Returns the median duration of each operation.
+	 *
+	 * @return Median duration of each operation.
+	 */
+	public Map<String, Double> getLatencyMedian();
+
+	/**
+	 * Returns the 90th percentile of the duration of each operation.
+	 *
+	 * @return 90th percentile of the duration of each operation.
+	 */
+	public Map<String, Double> getLatency90thPercentile();
+
+	/**
+	 * Returns the 99th percentile of the duration of each operation.
+	 *
+	 * @return 99th percentile of the duration of each operation.
+	 */
+	public Map<String, Double> getLatency99thPercentile();
+
+	/**
+	 * Returns the longest duration of each operation.
+	 *
+	 * @return Longest duration of each operation.
+	 */
+	public Map<String, Double> getLatencyMax();
+
+	/**
+	 * Returns the number of bytes (characters, for text) extractions went
+	 * through.
+	 *
+	 * @return Number of bytes extractions went through.
+	 */
+	public long getExtractionBytes();
+
+	/**
+	 * Returns the number of addresses extractions found, including
+	 * duplicates.
+	 *
+	 * @return Number of addresses extractions found.
+	 */
+	public long getExtractionAddresses();
+
+	/**
+	 * Returns the throughput of extractions, in bytes per second of
+	 * extraction.
+	 *
+	 * @return Bytes extracted per second, or 0 if nothing was extracted.
+	 */
+	public double getExtractionBytesPerSecond();
+
+	/**
+	 * Returns the throughput of extractions, in addresses found per second
+	 * of extraction.
+	 *
+	 * @return Addresses found per second, or 0 if nothing was extracted.
+	 */
+	public double getExtractionAddressesPerSecond();
+
+	/**
+	 * Returns the duration of the last save.
+	 *
+	 * @return Duration of the last save, or 0 if the file wasn't saved.
+	 */
+	public double getLastSaveDuration();
+
+	/**
+	 * Returns the size of the file written by the last save.
+	 *
+	 * @return Size of the file written by the last save, in bytes, or 0 if
+	 * the file wasn't saved.
+	 */
+	public long getLastSaveBytes();
+
+	/**
+	 * Sets all counters and histograms to zero.
+	 */
+	public void reset();
+}
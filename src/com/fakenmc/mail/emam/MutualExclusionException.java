@@ -1,62 +1,110 @@
-/*
- * Copyright (c) 2008, Nuno Fachada
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without modification, 
- * are permitted provided that the following conditions are met:
- *
- *   * Redistributions of source code must retain the above copyright notice, 
- *     this list of conditions and the following disclaimer.
- *   * Redistributions in binary form must reproduce the above copyright notice, 
- *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
- *   * Neither the name of the FakenMC.com nor the names of its contributors 
- *     may be used to endorse or promote products derived from this software without 
- *     specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
- * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
- * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
- * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
- * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
- * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-package com.fakenmc.mail.emam;
-
-/**
- * Exception thrown when the model is asked to insert one or more addresses in a set 
- * which has mutual exclusivity agreement with another set, which happens to contain those same 
- * addresses.
- * 
- * @author Nuno Fachada
- */
-@SuppressWarnings("serial")
-public class MutualExclusionException extends Exception {
-
-	/**
-	 * Addresses which the model tried to insert in a mutually exclusive set.
-	 */
-	private String[] addresses;
-	
-	/**
-	 * In order to throw this exception it's necessary to refer the problematic addresses.
-	 * 
-	 * @param addresses Addresses which the model tried to insert in a mutually exclusive set.
-	 */
-	public MutualExclusionException(String[] addresses) {
-		super(addresses.toString());
-		this.addresses = addresses;
-	}
-	
-	/**
-	 * Return the addresses which the model tried to insert in a mutually exclusive set.
-	 * 
-	 * @return The addresses which the model tried to insert in a mutually exclusive set.
-	 */
-	public String[] getAddresses() {
-		return this.addresses;
-	}
-}
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+/**
+ * Exception thrown when the model is asked to insert one or more addresses in a set 
+ * which has mutual exclusivity agreement with another set, which happens to contain those same 
+ * addresses. Addresses to be inserted in the mailing list may also be suppressed by a 
+ * wildcard rule of the removed list; these are reported apart, with the rule which 
+ * matches each one, since moving them from the removed list wouldn't help.
+ * 
+ * @author Nuno Fachada
+ */
+@SuppressWarnings("serial")
+public class MutualExclusionException extends Exception {
+
+	/**
+	 * Addresses which the model tried to insert in a mutually exclusive set.
+	 */
+	private String[] addresses;
+	
+	/**
+	 * Addresses matched by suppression rules of the removed list.
+	 */
+	private String[] suppressed;
+	
+	/**
+	 * Rule which matches each of the suppressed addresses.
+	 */
+	private String[] rules;
+	
+	/**
+	 * In order to throw this exception it's necessary to refer the problematic addresses.
+	 * 
+	 * @param addresses Addresses which the model tried to insert in a mutually exclusive set.
+	 */
+	public MutualExclusionException(String[] addresses) {
+		this(addresses, new String[0], new String[0]);
+	}
+	
+	/**
+	 * Creates the exception for addresses which are in the other set and for
+	 * addresses which are matched by suppression rules.
+	 * 
+	 * @param addresses Addresses which the model tried to insert in a mutually exclusive set.
+	 * @param suppressed Addresses matched by suppression rules of the removed list.
+	 * @param rules Rule which matches each of the suppressed addresses.
+	 */
+	public MutualExclusionException(String[] addresses, String[] suppressed, String[] rules) {
+		super(addresses.length + " addresses in the other list, " 
+				+ suppressed.length + " addresses matched by suppression rules");
+		this.addresses = addresses;
+		this.suppressed = suppressed;
+		this.rules = rules;
+	}
+	
+	/**
+	 * Return the addresses which the model tried to insert in a mutually exclusive set.
+	 * 
+	 * @return The addresses which the model tried to insert in a mutually exclusive set.
+	 */
+	public String[] getAddresses() {
+		return this.addresses;
+	}
+	
+	/**
+	 * Return the addresses which are matched by suppression rules of the 
+	 * removed list. They can't be inserted in the mailing list while the
+	 * rules exist.
+	 * 
+	 * @return The addresses matched by suppression rules.
+	 */
+	public String[] getSuppressedAddresses() {
+		return this.suppressed;
+	}
+	
+	/**
+	 * Return the rule which matches each of the suppressed addresses, in
+	 * the same order as {@link #getSuppressedAddresses()}.
+	 * 
+	 * @return The rules which match the suppressed addresses.
+	 */
+	public String[] getSuppressingRules() {
+		return this.rules;
+	}
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Records where extracted addresses were found: for each occurrence, the
+ * source (file, archive entry or text), the offset and the line. Occurrences
+ * are stored in columns, with dictionary encoding:
+ * <ul>
+ * <li>Addresses and sources are kept once, in dictionaries, and occurrences
+ * refer to them by number.</li>
+ * <li>The address column is an <code>int</code> per occurrence.</li>
+ * <li>Sources are kept once per run of consecutive occurrences from the same
+ * source, which is usually a whole extraction.</li>
+ * <li>Offsets and lines are kept as differences from the previous
+ * occurrence of the same run, in variable length bytes (one or two bytes
+ * each, usually).</li>
+ * </ul>
+ * Memory is thus close to one <code>int</code> per occurrence. Queries
+ * decode the columns sequentially, which is fast enough for looking up an
+ * address at a time.
+ *
+ * Addresses should be given as canonical keys, so that the occurrences of
+ * the different forms of an address are found together. Removed addresses
+ * leave their occurrences in the columns, skipped by queries, until there
+ * are more removed than recorded addresses, when the columns are rebuilt.
+ *
+ * @author Nuno Fachada
+ */
+public class ProvenanceIndex {
+
+	/* Minimum number of removed addresses before the columns are rebuilt. */
+	private static final int MIN_GARBAGE = 4096;
+	/* Sections of the file format. */
+	private static final String SOURCES = "[Sources]";
+	private static final String OCCURRENCES = "[Occurrences]";
+
+	/* Dictionaries. */
+	private ArrayList<String> addresses = new ArrayList<String>();
+	private HashMap<String, Integer> addressIds = new HashMap<String, Integer>();
+	private ArrayList<String> sources = new ArrayList<String>();
+	private HashMap<String, Integer> sourceIds = new HashMap<String, Integer>();
+
+	/* Number of occurrences of each address, by number, and removed
+	 * addresses, whose numbers are no longer in the dictionary. */
+	private int[] counts = new int[1024];
+	private BitSet removed = new BitSet();
+	private int removedCount;
+	/* Address column, and number of occurrences of addresses which weren't
+	 * removed. */
+	private int[] addressColumn = new int[1024];
+	private int size;
+	private int live;
+	/* Runs of occurrences from the same source: first occurrence and source
+	 * number. */
+	private int[] runStarts = new int[16];
+	private int[] runSources = new int[16];
+	private int runs;
+	/* Offset and line differences, as variable length zigzag numbers. */
+	private byte[] positions = new byte[4096];
+	private int positionsLength;
+	/* Offset and line of the last occurrence. */
+	private long lastOffset;
+	private int lastLine;
+
+	/**
+	 * An occurrence of an address.
+	 */
+	public static class Occurrence {
+		private String source;
+		private long offset;
+		private int line;
+
+		private Occurrence(String source, long offset, int line) {
+			this.source = source;
+			this.offset = offset;
+			this.line = line;
+		}
+
+		/**
+		 * Returns the source where the address was found.
+		 *
+		 * @return The source where the address was found.
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		/**
+		 * Returns the offset of the address in the source, in bytes for
+		 * files and characters for text.
+		 *
+		 * @return The offset of the address in the source.
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Returns the line of the address in the source, starting at 1.
+		 *
+		 * @return The line of the address in the source.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			return source + ":" + line + " (" + offset + ")";
+		}
+	}
+
+	/**
+	 * Records an occurrence of an address.
+	 *
+	 * @param address Canonical key of the address.
+	 * @param source Source where the address was found.
+	 * @param offset Offset of the address in the source.
+	 * @param line Line of the address in the source.
+	 */
+	public void add(String address, String source, long offset, int line) {
+		/* Occurrences usually come in runs from the same source. */
+		int sourceId = ((runs > 0) && (source == sources.get(runSources[runs - 1])))
+			? runSources[runs - 1] : id(source, sources, sourceIds);
+		if ((runs == 0) || (runSources[runs - 1] != sourceId)) {
+			/* New run, positions start from zero. */
+			if (runs == runStarts.length) {
+				runStarts = Arrays.copyOf(runStarts, runs * 2);
+				runSources = Arrays.copyOf(runSources, runs * 2);
+			}
+			runStarts[runs] = size;
+			runSources[runs] = sourceId;
+			runs++;
+			lastOffset = 0;
+			lastLine = 0;
+		}
+		if (size == addressColumn.length)
+			addressColumn = Arrays.copyOf(addressColumn, size * 2);
+		int id = id(address, addresses, addressIds);
+		if (id == counts.length)
+			counts = Arrays.copyOf(counts, id * 2);
+		counts[id]++;
+		addressColumn[size++] = id;
+		live++;
+		writeVarLong(offset - lastOffset);
+		writeVarLong(line - lastLine);
+		lastOffset = offset;
+		lastLine = line;
+	}
+
+	/**
+	 * Returns the occurrences of an address, in the order they were
+	 * recorded.
+	 *
+	 * @param address Canonical key of the address.
+	 * @return The occurrences of the address, possibly none.
+	 */
+	public List<Occurrence> get(String address) {
+		ArrayList<Occurrence> found = new ArrayList<Occurrence>();
+		Integer id = addressIds.get(address);
+		if (id == null)
+			return found;
+		int[] cursor = {0};
+		long offset = 0;
+		int line = 0;
+		int run = -1;
+		for (int i = 0; i < size; i++) {
+			if ((run + 1 < runs) && (runStarts[run + 1] == i)) {
+				run++;
+				offset = 0;
+				line = 0;
+			}
+			offset += readVarLong(cursor);
+			line += (int) readVarLong(cursor);
+			if (addressColumn[i] == id.intValue())
+				found.add(new Occurrence(sources.get(runSources[run]), offset, line));
+		}
+		return found;
+	}
+
+	/**
+	 * Forgets the occurrences of an address, e.g. because it left the
+	 * extracted list.
+	 *
+	 * @param address Canonical key of the address.
+	 */
+	public void remove(String address) {
+		Integer id = addressIds.remove(address);
+		if (id == null)
+			return;
+		removed.set(id);
+		removedCount++;
+		live -= counts[id];
+		if (live == 0)
+			clear();
+		else if ((removedCount >= MIN_GARBAGE) && (removedCount > addressIds.size()))
+			rebuild();
+	}
+
+	/**
+	 * Returns the number of occurrences recorded, not counting those of
+	 * removed addresses.
+	 *
+	 * @return The number of occurrences recorded.
+	 */
+	public int size() {
+		return live;
+	}
+
+	/**
+	 * Returns an estimate of the memory used by the columns, in bytes, not
+	 * counting the dictionaries.
+	 *
+	 * @return The memory used by the columns, in bytes.
+	 */
+	public long getColumnBytes() {
+		return 4L * size + positionsLength + 8L * runs;
+	}
+
+	/**
+	 * Removes all the occurrences.
+	 */
+	public void clear() {
+		addresses.clear();
+		addressIds.clear();
+		sources.clear();
+		sourceIds.clear();
+		counts = new int[1024];
+		removed.clear();
+		removedCount = 0;
+		addressColumn = new int[1024];
+		size = 0;
+		live = 0;
+		runStarts = new int[16];
+		runSources = new int[16];
+		runs = 0;
+		positions = new byte[4096];
+		positionsLength = 0;
+	}
+
+	/**
+	 * Saves the occurrences in the given file, a text file with the sources,
+	 * one per line, followed by the occurrences, one per line with the
+	 * address, the source number, the offset and the line.
+	 *
+	 * @param file File where to save the occurrences.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void save(File file) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		try {
+			bw.write(SOURCES);
+			bw.newLine();
+			for (String source : sources) {
+				bw.write(source);
+				bw.newLine();
+			}
+			bw.write(OCCURRENCES);
+			bw.newLine();
+			int[] cursor = {0};
+			long offset = 0;
+			int line = 0;
+			int run = -1;
+			for (int i = 0; i < size; i++) {
+				if ((run + 1 < runs) && (runStarts[run + 1] == i)) {
+					run++;
+					offset = 0;
+					line = 0;
+				}
+				offset += readVarLong(cursor);
+				line += (int) readVarLong(cursor);
+				if (removed.get(addressColumn[i]))
+					continue;
+				bw.write(addresses.get(addressColumn[i]) + " " + runSources[run]
+						+ " " + offset + " " + line);
+				bw.newLine();
+			}
+		} finally {
+			bw.close();
+		}
+	}
+
+	/**
+	 * Replaces the occurrences with those saved in the given file.
+	 *
+	 * @param file File where occurrences were saved.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidFileFormatException If the file is not in the format
+	 * written by {@link #save(File)}.
+	 */
+	public void load(File file)
+	throws FileNotFoundException, IOException, InvalidFileFormatException {
+		clear();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			ArrayList<String> savedSources = new ArrayList<String>();
+			String line = br.readLine();
+			if ((line == null) || !line.equals(SOURCES))
+				throw new InvalidFileFormatException("(1) " + line);
+			int i = 2;
+			while (((line = br.readLine()) != null) && !line.equals(OCCURRENCES)) {
+				savedSources.add(line);
+				i++;
+			}
+			for (i++; (line = br.readLine()) != null; i++) {
+				String[] fields = line.split(" ");
+				try {
+					add(fields[0], savedSources.get(Integer.parseInt(fields[1])),
+							Long.parseLong(fields[2]), Integer.parseInt(fields[3]));
+				} catch (RuntimeException re) {
+					/* Missing fields, invalid numbers or sources. */
+					throw new InvalidFileFormatException("(" + i + ") " + line);
+				}
+			}
+		} finally {
+			br.close();
+		}
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Rebuilds the columns with the occurrences of the addresses which
+	 * weren't removed, dropping those of removed addresses.
+	 */
+	private void rebuild() {
+		String[] occurrenceAddresses = new String[live];
+		String[] occurrenceSources = new String[live];
+		long[] offsets = new long[live];
+		int[] lines = new int[live];
+		int n = 0;
+		int[] cursor = {0};
+		long offset = 0;
+		int line = 0;
+		int run = -1;
+		for (int i = 0; i < size; i++) {
+			if ((run + 1 < runs) && (runStarts[run + 1] == i)) {
+				run++;
+				offset = 0;
+				line = 0;
+			}
+			offset += readVarLong(cursor);
+			line += (int) readVarLong(cursor);
+			if (removed.get(addressColumn[i]))
+				continue;
+			occurrenceAddresses[n] = addresses.get(addressColumn[i]);
+			occurrenceSources[n] = sources.get(runSources[run]);
+			offsets[n] = offset;
+			lines[n] = line;
+			n++;
+		}
+		clear();
+		for (int i = 0; i < n; i++)
+			add(occurrenceAddresses[i], occurrenceSources[i], offsets[i], lines[i]);
+	}
+
+	/**
+	 * Returns the number of a value in a dictionary, adding it if needed.
+	 *
+	 * @param value A value.
+	 * @param values The values of the dictionary.
+	 * @param ids The numbers of the values of the dictionary.
+	 * @return The number of the value.
+	 */
+	private static int id(String value, ArrayList<String> values, HashMap<String, Integer> ids) {
+		Integer id = ids.get(value);
+		if (id == null) {
+			id = values.size();
+			values.add(value);
+			ids.put(value, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Writes a number as a zigzag variable length number: seven bits per
+	 * byte, with the high bit set on all bytes but the last.
+	 *
+	 * @param value Number to write.
+	 */
+	private void writeVarLong(long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		if (positionsLength + 10 > positions.length)
+			positions = Arrays.copyOf(positions, positions.length * 2);
+		while ((zigzag & ~0x7fL) != 0) {
+			positions[positionsLength++] = (byte) ((zigzag & 0x7f) | 0x80);
+			zigzag >>>= 7;
+		}
+		positions[positionsLength++] = (byte) zigzag;
+	}
+
+	/**
+	 * Reads a number written by {@link #writeVarLong(long)}.
+	 *
+	 * @param cursor Single element array with the index where to read,
+	 * which is advanced.
+	 * @return The number read.
+	 */
+	private long readVarLong(int[] cursor) {
+		long zigzag = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = positions[cursor[0]++];
+			zigzag |= ((long) (b & 0x7f)) << shift;
+			shift += 7;
+		} while (b < 0);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+}
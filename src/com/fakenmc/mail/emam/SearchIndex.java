@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Trigram index of the addresses of a list, for finding the addresses which
+ * contain a given text without scanning the whole list. Each address gets
+ * an id, and each trigram (three consecutive characters) keeps the ids of
+ * the addresses which contain it, in ascending order. The addresses which
+ * contain a text are among those of the rarest trigram of the text, which
+ * are then checked one by one.
+ *
+ * Trigrams are numbered by a table over the characters of addresses
+ * (lower case letters, digits and a few symbols), with all other characters
+ * sharing a number, which only adds candidates to be checked.
+ *
+ * The index is kept up to date by the model, which calls
+ * {@link #add(String)} and {@link #remove(String)} as the list changes.
+ * Removed addresses leave their ids in the trigrams until there are more
+ * removed than indexed addresses, when the index is rebuilt.
+ *
+ * @author Nuno Fachada
+ */
+public class SearchIndex {
+
+	/* Minimum number of removed addresses before the index is rebuilt. */
+	private static final int MIN_GARBAGE = 4096;
+	/* Characters with their own number in trigrams; the others share one. */
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789.-_@+*";
+	/* Number of each character, by character code below 128. */
+	private static final int[] CODES = new int[128];
+	/* Bits of a character number. */
+	private static final int BITS = 6;
+
+	static {
+		Arrays.fill(CODES, ALPHABET.length());
+		for (int i = 0; i < ALPHABET.length(); i++)
+			CODES[ALPHABET.charAt(i)] = i;
+	}
+
+	/* Ids of the indexed addresses, and addresses by id (null if removed). */
+	private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private String[] addresses = new String[1024];
+	private int next;
+	/* Ids of the addresses containing each trigram, by trigram number. */
+	private Postings[] trigrams = new Postings[1 << (3 * BITS)];
+
+	/* Ids of the addresses containing a trigram, in ascending order. */
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size;
+
+		private void add(int id) {
+			/* An address may contain the same trigram more than once. */
+			if ((size > 0) && (ids[size - 1] == id))
+				return;
+			if (size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+	}
+
+	/**
+	 * Creates an index of the given addresses.
+	 *
+	 * @param addresses Addresses to index.
+	 */
+	public SearchIndex(Collection<String> addresses) {
+		for (String address : addresses)
+			add(address);
+	}
+
+	/**
+	 * Adds an address to the index.
+	 *
+	 * @param address Address to add.
+	 */
+	public void add(String address) {
+		if (ids.containsKey(address))
+			return;
+		int id = next++;
+		if (id == addresses.length)
+			addresses = Arrays.copyOf(addresses, id * 2);
+		addresses[id] = address;
+		ids.put(address, id);
+		for (int i = 0; i + 3 <= address.length(); i++) {
+			int trigram = trigram(address, i);
+			if (trigrams[trigram] == null)
+				trigrams[trigram] = new Postings();
+			trigrams[trigram].add(id);
+		}
+	}
+
+	/**
+	 * Removes an address from the index.
+	 *
+	 * @param address Address to remove.
+	 */
+	public void remove(String address) {
+		Integer id = ids.remove(address);
+		if (id == null)
+			return;
+		addresses[id] = null;
+		int garbage = next - ids.size();
+		if ((garbage >= MIN_GARBAGE) && (garbage > ids.size()))
+			rebuild();
+	}
+
+	/**
+	 * Returns the number of indexed addresses.
+	 *
+	 * @return The number of indexed addresses.
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Returns the number of candidates which {@link #find(String, List)}
+	 * checks for the given text, i.e. the number of addresses with the
+	 * rarest trigram of the text, or all the addresses if the text is too
+	 * short to have trigrams. Removed addresses may still be counted.
+	 *
+	 * @param text Text to look for.
+	 * @return The number of candidates for the text.
+	 */
+	public int getCandidates(String text) {
+		if (text.length() < 3)
+			return next;
+		Postings rarest = rarest(text);
+		return (rarest == null) ? 0 : rarest.size;
+	}
+
+	/**
+	 * Finds the indexed addresses which contain the given text.
+	 *
+	 * @param text Text to look for.
+	 * @param found List where to add the addresses found, in no particular
+	 * order.
+	 */
+	public void find(String text, List<String> found) {
+		if (text.length() < 3) {
+			/* No trigrams, check every address. */
+			for (int id = 0; id < next; id++)
+				if ((addresses[id] != null) && addresses[id].contains(text))
+					found.add(addresses[id]);
+			return;
+		}
+		/* Candidates are the addresses with the rarest trigram of the text. */
+		Postings rarest = rarest(text);
+		if (rarest == null)
+			return;
+		for (int i = 0; i < rarest.size; i++) {
+			String address = addresses[rarest.ids[i]];
+			if ((address != null) && address.contains(text))
+				found.add(address);
+		}
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Rebuilds the index with the addresses which weren't removed, dropping
+	 * the ids of removed addresses.
+	 */
+	private void rebuild() {
+		String[] indexed = addresses;
+		int n = next;
+		int live = ids.size();
+		ids = new HashMap<String, Integer>(Math.max(16, live * 2));
+		addresses = new String[Math.max(1024, live * 2)];
+		next = 0;
+		trigrams = new Postings[trigrams.length];
+		for (int id = 0; id < n; id++)
+			if (indexed[id] != null)
+				add(indexed[id]);
+	}
+
+	/**
+	 * Returns the ids of the addresses with the rarest trigram of a text.
+	 *
+	 * @param text A text with at least three characters.
+	 * @return The ids of the rarest trigram, or null if an address with
+	 * one of the trigrams was never indexed.
+	 */
+	private Postings rarest(String text) {
+		Postings rarest = null;
+		for (int i = 0; i + 3 <= text.length(); i++) {
+			Postings postings = trigrams[trigram(text, i)];
+			if (postings == null)
+				return null;
+			if ((rarest == null) || (postings.size < rarest.size))
+				rarest = postings;
+		}
+		return rarest;
+	}
+
+	/**
+	 * Returns the number of the trigram of a text starting at the given
+	 * position.
+	 *
+	 * @param text A text.
+	 * @param i Position of the trigram.
+	 * @return The trigram number.
+	 */
+	private static int trigram(String text, int i) {
+		return (code(text.charAt(i)) << (2 * BITS)) | (code(text.charAt(i + 1)) << BITS)
+				| code(text.charAt(i + 2));
+	}
+
+	/**
+	 * Returns the number of a character in trigrams.
+	 *
+	 * @param c A character.
+	 * @return The number of the character.
+	 */
+	private static int code(char c) {
+		return (c < CODES.length) ? CODES[c] : ALPHABET.length();
+	}
+}
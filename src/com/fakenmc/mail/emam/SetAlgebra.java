@@ -0,0 +1,635 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Union, intersection and difference between the lists of a model and
+ * external address files, e.g. the mailing list minus the unsubscribes of a
+ * partner, or the extracted addresses which are also removed. Both operands
+ * are read as streams sorted by canonical key, so that the different forms
+ * of an address match, and combined in a single linear merge.
+ *
+ * <ul>
+ * <li>Lists of the model are streamed in place when their order is also the
+ * order of their canonical keys, which is usually the case, and copied and
+ * sorted otherwise.</li>
+ * <li>External files have an address per line, which is normalized as in
+ * the model; blank lines are skipped, and invalid addresses are skipped and
+ * counted. Files are read in runs of a given number of addresses, which are
+ * sorted in memory; when a file has more than one run, the runs are spilled
+ * to temporary files and merged, so memory doesn't depend on the size of
+ * the file.</li>
+ * </ul>
+ *
+ * Results, in the form of the address in the left operand when both have
+ * it, are written one per line or put in a list of the model. Sizes and
+ * timings of the last operation are kept.
+ *
+ * @author Nuno Fachada
+ */
+public class SetAlgebra {
+
+	/* Constant for the addresses in any of the operands. */
+	public static final int UNION = 0;
+	/* Constant for the addresses in both operands. */
+	public static final int INTERSECTION = 1;
+	/* Constant for the addresses in the left operand but not in the right one. */
+	public static final int DIFFERENCE = 2;
+
+	/* Default number of addresses of an external file sorted in memory. */
+	public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+	/* Line separator, as in files saved by the model. */
+	private static final String NEWLINE = System.getProperty("line.separator");
+
+	/* Orders entries by canonical key. */
+	private static final Comparator<String[]> BY_KEY = new Comparator<String[]>() {
+		public int compare(String[] e1, String[] e2) {
+			return e1[0].compareTo(e2[0]);
+		}
+	};
+
+	private EMaMModelInterface model;
+	private int runSize;
+
+	/* Statistics of the last operation. */
+	private long leftSize;
+	private long rightSize;
+	private long resultSize;
+	private long ignored;
+	private int runs;
+	private long sortNanos;
+	private long mergeNanos;
+
+	/**
+	 * An operand: a list of the model or an external file.
+	 */
+	public static class Operand {
+		private int list;
+		private File file;
+
+		private Operand(int list, File file) {
+			this.list = list;
+			this.file = file;
+		}
+
+		/**
+		 * Returns an operand for a list of the model.
+		 *
+		 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+		 * @return An operand for the list.
+		 */
+		public static Operand list(int list) {
+			if ((list < EMaMModelInterface.MAIL_LIST) || (list > EMaMModelInterface.EXTRACTED_LIST))
+				throw new IllegalArgumentException("Unknown list: " + list);
+			return new Operand(list, null);
+		}
+
+		/**
+		 * Returns an operand for an external file, with an address per line.
+		 *
+		 * @param file An address file.
+		 * @return An operand for the file.
+		 */
+		public static Operand file(File file) {
+			return new Operand(-1, file);
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			return (file != null) ? file.getPath() : "list " + list;
+		}
+	}
+
+	/**
+	 * Creates a new set algebra for the lists of the given model, which sorts
+	 * external files in runs of {@link #DEFAULT_RUN_SIZE} addresses.
+	 *
+	 * @param model Model whose lists are used as operands.
+	 */
+	public SetAlgebra(EMaMModelInterface model) {
+		this(model, DEFAULT_RUN_SIZE);
+	}
+
+	/**
+	 * Creates a new set algebra for the lists of the given model.
+	 *
+	 * @param model Model whose lists are used as operands.
+	 * @param runSize Number of addresses of an external file sorted in
+	 * memory at a time, at least 1.
+	 */
+	public SetAlgebra(EMaMModelInterface model, int runSize) {
+		if (runSize < 1)
+			throw new IllegalArgumentException("Invalid run size: " + runSize);
+		this.model = model;
+		this.runSize = runSize;
+	}
+
+	/**
+	 * Applies an operation and writes the resulting addresses, one per line,
+	 * sorted by canonical key.
+	 *
+	 * @param operation {@link #UNION}, {@link #INTERSECTION} or
+	 * {@link #DIFFERENCE}.
+	 * @param left Left operand.
+	 * @param right Right operand.
+	 * @param out Where to write the addresses.
+	 * @return The number of addresses written.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 */
+	public long apply(int operation, Operand left, Operand right, final Writer out)
+	throws FileNotFoundException, IOException {
+		apply(operation, left, right, new Sink() {
+			public void emit(String address) throws IOException {
+				out.write(address);
+				out.write(NEWLINE);
+			}
+		});
+		out.flush();
+		return resultSize;
+	}
+
+	/**
+	 * Applies an operation and puts the resulting addresses in a list of the
+	 * model, as given by the usual operations of the model (e.g. addresses
+	 * already in the returned list are returned once more).
+	 *
+	 * @param operation {@link #UNION}, {@link #INTERSECTION} or
+	 * {@link #DIFFERENCE}.
+	 * @param left Left operand.
+	 * @param right Right operand.
+	 * @param list One of the list constants in <code>EMaMModelInterface</code>.
+	 * @param replace True to delete the addresses of the list which are not
+	 * in the result, false to keep them.
+	 * @return The number of addresses in the result.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws MutualExclusionException If addresses of the result can't be
+	 * put in the mailing or removed list; the list is left unchanged.
+	 */
+	public long apply(int operation, Operand left, Operand right, int list, boolean replace)
+	throws FileNotFoundException, IOException, MutualExclusionException {
+		final ArrayList<String> result = new ArrayList<String>();
+		apply(operation, left, right, new Sink() {
+			public void emit(String address) {
+				result.add(address);
+			}
+		});
+		String[] addresses = result.toArray(new String[result.size()]);
+		result.clear();
+		/* Replacing adds and deletes as one change of the model. */
+		if (replace)
+			model.replaceList(addresses, list);
+		else if (list == EMaMModelInterface.MAIL_LIST)
+			model.addToMailList(addresses);
+		else if (list == EMaMModelInterface.REMOVED_LIST)
+			model.addToRemoved(addresses);
+		else if (list == EMaMModelInterface.RETURNED_LIST)
+			model.addToReturned(addresses);
+		else
+			model.addToExtracted(addresses);
+		return resultSize;
+	}
+
+	/**
+	 * Returns the number of distinct addresses of the left operand in the
+	 * last operation.
+	 *
+	 * @return The size of the left operand.
+	 */
+	public long getLeftSize() {
+		return leftSize;
+	}
+
+	/**
+	 * Returns the number of distinct addresses of the right operand in the
+	 * last operation.
+	 *
+	 * @return The size of the right operand.
+	 */
+	public long getRightSize() {
+		return rightSize;
+	}
+
+	/**
+	 * Returns the number of addresses in the result of the last operation.
+	 *
+	 * @return The size of the result.
+	 */
+	public long getResultSize() {
+		return resultSize;
+	}
+
+	/**
+	 * Returns the number of invalid addresses skipped in external files in
+	 * the last operation.
+	 *
+	 * @return The number of invalid addresses.
+	 */
+	public long getIgnored() {
+		return ignored;
+	}
+
+	/**
+	 * Returns the number of sorted runs spilled to temporary files in the
+	 * last operation.
+	 *
+	 * @return The number of runs spilled to disk.
+	 */
+	public int getSpilledRuns() {
+		return runs;
+	}
+
+	/**
+	 * Returns the time spent reading and sorting the operands before the
+	 * merge, in the last operation.
+	 *
+	 * @return The time spent sorting, in nanoseconds.
+	 */
+	public long getSortNanos() {
+		return sortNanos;
+	}
+
+	/**
+	 * Returns the time spent in the merge of the last operation, including
+	 * the merge of spilled runs and the writing of the result.
+	 *
+	 * @return The time spent merging, in nanoseconds.
+	 */
+	public long getMergeNanos() {
+		return mergeNanos;
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Receives the resulting addresses of an operation.
+	 */
+	private interface Sink {
+		public void emit(String address) throws IOException;
+	}
+
+	/**
+	 * Applies an operation, giving the resulting addresses to a sink.
+	 *
+	 * @param operation {@link #UNION}, {@link #INTERSECTION} or
+	 * {@link #DIFFERENCE}.
+	 * @param left Left operand.
+	 * @param right Right operand.
+	 * @param sink Where to give the addresses.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void apply(int operation, Operand left, Operand right, Sink sink)
+	throws IOException {
+		if ((operation < UNION) || (operation > DIFFERENCE))
+			throw new IllegalArgumentException("Unknown operation: " + operation);
+		leftSize = 0;
+		rightSize = 0;
+		resultSize = 0;
+		ignored = 0;
+		runs = 0;
+		long start = System.nanoTime();
+		Stream leftStream = open(left);
+		Stream rightStream = null;
+		try {
+			rightStream = open(right);
+			long merge = System.nanoTime();
+			sortNanos = merge - start;
+			while ((leftStream.key != null) || (rightStream.key != null)) {
+				int c = (leftStream.key == null) ? 1 : (rightStream.key == null) ? -1
+						: leftStream.key.compareTo(rightStream.key);
+				String address = (c <= 0) ? leftStream.address : rightStream.address;
+				if ((operation == UNION) || ((operation == INTERSECTION) && (c == 0))
+						|| ((operation == DIFFERENCE) && (c < 0))) {
+					sink.emit(address);
+					resultSize++;
+				}
+				if (c <= 0) {
+					leftSize++;
+					leftStream.next();
+				}
+				if (c >= 0) {
+					rightSize++;
+					rightStream.next();
+				}
+			}
+			mergeNanos = System.nanoTime() - merge;
+		} finally {
+			leftStream.close();
+			if (rightStream != null)
+				rightStream.close();
+		}
+	}
+
+	/**
+	 * Opens an operand as a stream sorted by canonical key.
+	 *
+	 * @param operand An operand.
+	 * @return A stream with the addresses of the operand.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private Stream open(Operand operand) throws IOException {
+		if (operand.file != null)
+			return openFile(operand.file);
+		/* Stream the list in place if it's sorted by canonical key too. */
+		String previous = null;
+		Iterator<String> iter = model.getAddressIterator(operand.list);
+		while (iter.hasNext()) {
+			String key = model.getCanonicalAddress(iter.next());
+			if ((previous != null) && (key.compareTo(previous) < 0)) {
+				ArrayList<String[]> entries = new ArrayList<String[]>();
+				iter = model.getAddressIterator(operand.list);
+				while (iter.hasNext()) {
+					String address = iter.next();
+					entries.add(new String[] {model.getCanonicalAddress(address), address});
+				}
+				String[][] sorted = entries.toArray(new String[entries.size()][]);
+				Arrays.sort(sorted, BY_KEY);
+				return new ArrayStream(sorted, sorted.length);
+			}
+			previous = key;
+		}
+		return new ListStream(model.getAddressIterator(operand.list));
+	}
+
+	/**
+	 * Opens an external file as a stream sorted by canonical key, spilling
+	 * sorted runs to temporary files if it has more than one run.
+	 *
+	 * @param file An address file.
+	 * @return A stream with the addresses of the file.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private Stream openFile(File file) throws IOException {
+		Pattern pattern = (EMaM.getProperties() == null) ? null
+				: Pattern.compile(EMaM.getProperties().getProperty("regexp"));
+		ArrayList<File> runFiles = new ArrayList<File>();
+		String[][] run = new String[Math.min(runSize, 1024)][];
+		int n = 0;
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0)
+					continue;
+				String address = model.normalizeAddress(line);
+				if ((pattern != null) && !pattern.matcher(address).matches()) {
+					ignored++;
+					continue;
+				}
+				if (n == runSize) {
+					runFiles.add(spill(run, n));
+					n = 0;
+				}
+				if (n == run.length)
+					run = Arrays.copyOf(run, Math.min(runSize, 2 * n));
+				run[n++] = new String[] {model.getCanonicalAddress(address), address};
+			}
+		} catch (IOException ioe) {
+			for (File runFile : runFiles)
+				runFile.delete();
+			throw ioe;
+		} finally {
+			br.close();
+		}
+		if (runFiles.isEmpty()) {
+			Arrays.sort(run, 0, n, BY_KEY);
+			return new ArrayStream(run, n);
+		}
+		if (n > 0)
+			runFiles.add(spill(run, n));
+		return new RunMerger(runFiles);
+	}
+
+	/**
+	 * Sorts a run and writes it to a temporary file, without duplicates, one
+	 * canonical key and address per line.
+	 *
+	 * @param run Entries of the run: canonical key and address.
+	 * @param n Number of entries.
+	 * @return The temporary file.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private File spill(String[][] run, int n) throws IOException {
+		Arrays.sort(run, 0, n, BY_KEY);
+		File runFile = File.createTempFile("emam", ".run");
+		runFile.deleteOnExit();
+		BufferedWriter bw = new BufferedWriter(new FileWriter(runFile));
+		try {
+			for (int i = 0; i < n; i++) {
+				if ((i > 0) && run[i][0].equals(run[i - 1][0]))
+					continue;
+				bw.write(run[i][0]);
+				if (!run[i][1].equals(run[i][0]))
+					bw.write(" " + run[i][1]);
+				bw.newLine();
+			}
+		} finally {
+			bw.close();
+		}
+		runs++;
+		return runFile;
+	}
+
+	/**
+	 * Addresses sorted by canonical key, without duplicate keys. The current
+	 * key and address are in <code>key</code> and <code>address</code>;
+	 * <code>key</code> is null at the end of the stream.
+	 */
+	private static abstract class Stream {
+		String key;
+		String address;
+
+		/**
+		 * Advances to the next address with a different key.
+		 *
+		 * @throws IOException @see java.io.IOException
+		 */
+		abstract void next() throws IOException;
+
+		/**
+		 * Releases what the stream holds.
+		 *
+		 * @throws IOException @see java.io.IOException
+		 */
+		void close() throws IOException {
+			/* Nothing to release. */
+		}
+	}
+
+	/**
+	 * Stream of a list of the model which is sorted by canonical key.
+	 */
+	private class ListStream extends Stream {
+		private Iterator<String> iter;
+
+		ListStream(Iterator<String> iter) {
+			this.iter = iter;
+			next();
+		}
+
+		void next() {
+			if (iter.hasNext()) {
+				address = iter.next();
+				key = model.getCanonicalAddress(address);
+			} else {
+				key = null;
+				address = null;
+			}
+		}
+	}
+
+	/**
+	 * Stream of entries sorted in memory.
+	 */
+	private static class ArrayStream extends Stream {
+		private String[][] entries;
+		private int size;
+		private int i = -1;
+
+		ArrayStream(String[][] entries, int size) {
+			this.entries = entries;
+			this.size = size;
+			next();
+		}
+
+		void next() {
+			String previous = key;
+			do {
+				i++;
+			} while ((i < size) && (previous != null) && entries[i][0].equals(previous));
+			key = (i < size) ? entries[i][0] : null;
+			address = (i < size) ? entries[i][1] : null;
+		}
+	}
+
+	/**
+	 * Stream which merges sorted runs spilled to temporary files, which are
+	 * deleted when the stream is closed.
+	 */
+	private static class RunMerger extends Stream {
+		private ArrayList<File> runFiles;
+		private BufferedReader[] readers;
+		/* Current entry of each run, by key. */
+		private PriorityQueue<Head> heap = new PriorityQueue<Head>();
+
+		/**
+		 * Current entry of a run.
+		 */
+		private static class Head implements Comparable<Head> {
+			private String key;
+			private String address;
+			private int run;
+
+			private Head(String key, String address, int run) {
+				this.key = key;
+				this.address = address;
+				this.run = run;
+			}
+
+			public int compareTo(Head other) {
+				return key.compareTo(other.key);
+			}
+		}
+
+		RunMerger(ArrayList<File> runFiles) throws IOException {
+			this.runFiles = runFiles;
+			readers = new BufferedReader[runFiles.size()];
+			try {
+				for (int i = 0; i < readers.length; i++) {
+					readers[i] = new BufferedReader(new FileReader(runFiles.get(i)));
+					advance(i);
+				}
+				next();
+			} catch (IOException ioe) {
+				close();
+				throw ioe;
+			}
+		}
+
+		void next() throws IOException {
+			String previous = key;
+			key = null;
+			address = null;
+			while (!heap.isEmpty()) {
+				Head head = heap.poll();
+				advance(head.run);
+				if ((previous == null) || !head.key.equals(previous)) {
+					key = head.key;
+					address = head.address;
+					return;
+				}
+			}
+		}
+
+		void close() throws IOException {
+			for (BufferedReader reader : readers)
+				if (reader != null)
+					reader.close();
+			for (File runFile : runFiles)
+				runFile.delete();
+		}
+
+		/**
+		 * Reads the next line of a run into the heap.
+		 *
+		 * @param run Run number.
+		 * @throws IOException @see java.io.IOException
+		 */
+		private void advance(int run) throws IOException {
+			String line = readers[run].readLine();
+			if (line == null)
+				return;
+			int space = line.indexOf(' ');
+			if (space < 0)
+				heap.add(new Head(line, line, run));
+			else
+				heap.add(new Head(line.substring(0, space), line.substring(space + 1), run));
+		}
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the mailing list into several shard files, e.g. to feed parallel
+ * delivery workers. Addresses which are suppressed at export time (see
+ * {@link EMaMModelInterface#isSuppressed(String)}) are left out.
+ *
+ * Addresses are assigned to shards by a single thread iterating the mailing
+ * list, and handed in batches to writer threads, which write the shard files
+ * in parallel. When a maximum shard size is given, the number of shards is
+ * raised if required, and addresses overflow to the next shard with room, so
+ * no shard ever exceeds the maximum size. A manifest is written along with
+ * the shards, with the address count, size and SHA-256 checksum of each shard.
+ *
+ * @author Nuno Fachada
+ */
+public class ShardedExporter {
+
+	/* Constant for assigning addresses to shards by hashing the address. */
+	public static final int HASH = 0;
+	/* Constant for assigning addresses to shards in turn. */
+	public static final int ROUND_ROBIN = 1;
+	/* Constant for keeping all addresses of a domain in the same shard. */
+	public static final int DOMAIN = 2;
+
+	/* Number of addresses handed to a writer thread at a time. */
+	private static final int BATCH_SIZE = 1024;
+	/* Number of batches which can be waiting for each writer thread. */
+	private static final int QUEUE_SIZE = 16;
+	/* Empty batch which tells a writer thread to finish. */
+	private static final Batch END = new Batch(-1, new String[0], 0);
+
+	/* Shard assignment strategy. */
+	private int strategy;
+	/* Requested number of shards. */
+	private int shards;
+	/* Maximum shard size, or 0 for no maximum. */
+	private int maxShardSize;
+
+	/* Statistics of the last export. */
+	private int[] shardCounts;
+	private long[] shardBytes;
+	private String[] shardChecksums;
+	private String[] shardFilenames;
+	private long excluded;
+	private long elapsedNanos;
+
+	/**
+	 * Creates a new sharded exporter.
+	 *
+	 * @param strategy One of the strategy constants in <code>ShardedExporter</code>.
+	 * @param shards Number of shards, at least 1.
+	 * @param maxShardSize Maximum number of addresses in each shard, or 0 if
+	 * shards are not bounded.
+	 */
+	public ShardedExporter(int strategy, int shards, int maxShardSize) {
+		if ((strategy < HASH) || (strategy > DOMAIN))
+			throw new IllegalArgumentException("Unknown strategy: " + strategy);
+		if ((shards < 1) || (maxShardSize < 0))
+			throw new IllegalArgumentException("Invalid number or size of shards.");
+		this.strategy = strategy;
+		this.shards = shards;
+		this.maxShardSize = maxShardSize;
+	}
+
+	/**
+	 * Writes the mailing list of the given model into shard files named
+	 * <code>prefix-N.txt</code> in the given directory, one address per line,
+	 * and a manifest named <code>prefix.manifest</code>.
+	 *
+	 * @param model Model containing the mailing list to export.
+	 * @param directory Directory where to write shards and manifest.
+	 * @param prefix Prefix of the shard and manifest filenames.
+	 * @return The manifest file.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public File export(EMaMModelInterface model, File directory, String prefix)
+	throws IOException {
+		long start = System.nanoTime();
+		/* Determine the number of shards. */
+		int n = shards;
+		int size = model.getListSize(EMaMModelInterface.MAIL_LIST);
+		if (maxShardSize > 0)
+			n = Math.max(n, (size + maxShardSize - 1) / maxShardSize);
+		shardCounts = new int[n];
+		shardBytes = new long[n];
+		shardChecksums = new String[n];
+		shardFilenames = new String[n];
+		excluded = 0;
+		for (int i = 0; i < n; i++)
+			shardFilenames[i] = prefix + "-" + i + ".txt";
+		/* Start writer threads, each one takes care of a subset of the shards. */
+		int threads = Math.min(n, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayList<BlockingQueue<Batch>> queues = new ArrayList<BlockingQueue<Batch>>();
+		ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int t = 0; t < threads; t++) {
+			BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(QUEUE_SIZE);
+			queues.add(queue);
+			futures.add(executor.submit(new ShardWriter(directory, t, threads, queue)));
+		}
+		try {
+			/* Assign addresses to shards and dispatch them in batches. */
+			String[][] batches = new String[n][BATCH_SIZE];
+			int[] batchSizes = new int[n];
+			int next = 0;
+			Iterator<String> iter = model.getAddressIterator(EMaMModelInterface.MAIL_LIST);
+			while (iter.hasNext()) {
+				String address = iter.next();
+				if (model.isSuppressed(address)) {
+					excluded++;
+					continue;
+				}
+				int shard;
+				if (strategy == ROUND_ROBIN) {
+					shard = next;
+					next = (next + 1) % n;
+				} else if (strategy == HASH) {
+					shard = mix(address.hashCode()) % n;
+				} else {
+					shard = mix(address.substring(address.lastIndexOf('@') + 1).hashCode()) % n;
+				}
+				/* Overflow to the next shard with room. */
+				while ((maxShardSize > 0) && (shardCounts[shard] >= maxShardSize))
+					shard = (shard + 1) % n;
+				shardCounts[shard]++;
+				batches[shard][batchSizes[shard]++] = address;
+				if (batchSizes[shard] == BATCH_SIZE) {
+					dispatch(queues.get(shard % threads), new Batch(shard, batches[shard], BATCH_SIZE), futures);
+					batches[shard] = new String[BATCH_SIZE];
+					batchSizes[shard] = 0;
+				}
+			}
+			/* Dispatch remaining addresses and tell writers to finish. */
+			for (int i = 0; i < n; i++)
+				if (batchSizes[i] > 0)
+					dispatch(queues.get(i % threads), new Batch(i, batches[i], batchSizes[i]), futures);
+			for (int t = 0; t < threads; t++)
+				dispatch(queues.get(t), END, futures);
+			/* Wait for writers. */
+			for (Future<Object> future : futures)
+				waitFor(future);
+		} finally {
+			executor.shutdownNow();
+		}
+		/* Write manifest. */
+		File manifest = new File(directory, prefix + ".manifest");
+		Writer writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(manifest), "UTF-8"));
+		try {
+			writer.write("# shard\tfile\taddresses\tbytes\tsha256\n");
+			for (int i = 0; i < n; i++) {
+				writer.write(i + "\t" + shardFilenames[i] + "\t" + shardCounts[i]
+						+ "\t" + shardBytes[i] + "\t" + shardChecksums[i] + "\n");
+			}
+			writer.write("# excluded\t" + excluded + "\n");
+		} finally {
+			writer.close();
+		}
+		elapsedNanos = System.nanoTime() - start;
+		return manifest;
+	}
+
+	/**
+	 * Returns the number of addresses in each shard of the last export.
+	 *
+	 * @return The number of addresses in each shard of the last export.
+	 */
+	public int[] getShardCounts() {
+		return shardCounts.clone();
+	}
+
+	/**
+	 * Returns the number of addresses left out of the last export because they
+	 * were suppressed.
+	 *
+	 * @return The number of addresses left out of the last export.
+	 */
+	public long getExcludedCount() {
+		return excluded;
+	}
+
+	/**
+	 * Returns a short report of the last export.
+	 *
+	 * @return A short report of the last export.
+	 */
+	public String getReport() {
+		long total = 0, bytes = 0;
+		for (int i = 0; i < shardCounts.length; i++) {
+			total += shardCounts[i];
+			bytes += shardBytes[i];
+		}
+		double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+		return String.format("%d addresses in %d shards (%d excluded), %.2f MB in %d ms (%.0f addresses/s, %.2f MB/s)",
+				total, shardCounts.length, excluded, bytes / 1048576.0,
+				elapsedNanos / 1000000, total / seconds, (bytes / 1048576.0) / seconds);
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Scrambles the bits of a hash code so that similar strings are spread
+	 * over shards, and returns a non-negative value.
+	 *
+	 * @param h A hash code.
+	 * @return A non-negative, well-distributed hash code.
+	 */
+	private static int mix(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		h *= 0xc2b2ae35;
+		h ^= (h >>> 16);
+		return h & 0x7fffffff;
+	}
+
+	/**
+	 * Puts a batch in a writer queue, checking that the writers are still
+	 * alive, i.e. that none of them stopped due to an error.
+	 *
+	 * @param queue Writer queue.
+	 * @param batch Batch to put in the queue.
+	 * @param futures Writer futures.
+	 * @throws IOException If a writer stopped due to an error.
+	 */
+	private static void dispatch(BlockingQueue<Batch> queue, Batch batch,
+			ArrayList<Future<Object>> futures) throws IOException {
+		try {
+			while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+				for (Future<Object> future : futures)
+					if (future.isDone())
+						waitFor(future);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Sharded export interrupted.");
+		}
+	}
+
+	/**
+	 * Waits for a writer to finish, rethrowing its exception if any.
+	 *
+	 * @param future Writer future.
+	 * @throws IOException If the writer stopped due to an error.
+	 */
+	private static void waitFor(Future<Object> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Sharded export interrupted.");
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof IOException)
+				throw (IOException) ee.getCause();
+			throw new RuntimeException(ee.getCause());
+		}
+	}
+
+	/* A batch of addresses for a shard. */
+	private static class Batch {
+		private int shard;
+		private String[] addresses;
+		private int size;
+		public Batch(int shard, String[] addresses, int size) {
+			this.shard = shard;
+			this.addresses = addresses;
+			this.size = size;
+		}
+	}
+
+	/* Writes the shards i such that i % threads == thread. */
+	private class ShardWriter implements Callable<Object> {
+		private File directory;
+		private int thread;
+		private int threads;
+		private BlockingQueue<Batch> queue;
+
+		public ShardWriter(File directory, int thread, int threads, BlockingQueue<Batch> queue) {
+			this.directory = directory;
+			this.thread = thread;
+			this.threads = threads;
+			this.queue = queue;
+		}
+
+		public Object call() throws IOException, InterruptedException {
+			int n = shardCounts.length;
+			ArrayList<Writer> writers = new ArrayList<Writer>();
+			ArrayList<DigestOutputStream> digests = new ArrayList<DigestOutputStream>();
+			/* Open this thread's shard files; shard i is at position i / threads. */
+			try {
+				for (int i = thread; i < n; i += threads) {
+					MessageDigest md;
+					try {
+						md = MessageDigest.getInstance("SHA-256");
+					} catch (NoSuchAlgorithmException nsae) {
+						throw new IOException("SHA-256 not available.");
+					}
+					DigestOutputStream dos = new DigestOutputStream(
+							new FileOutputStream(new File(directory, shardFilenames[i])), md);
+					digests.add(dos);
+					writers.add(new BufferedWriter(new OutputStreamWriter(dos, "UTF-8"), 1 << 16));
+				}
+				/* Write batches until told to finish. */
+				Batch batch;
+				while ((batch = queue.take()) != END) {
+					Writer writer = writers.get(batch.shard / threads);
+					for (int i = 0; i < batch.size; i++) {
+						writer.write(batch.addresses[i]);
+						writer.write('\n');
+					}
+				}
+				/* Close files and keep sizes and checksums. */
+				for (int j = 0; j < writers.size(); j++) {
+					writers.get(j).close();
+					int i = thread + j * threads;
+					shardBytes[i] = new File(directory, shardFilenames[i]).length();
+					shardChecksums[i] = toHex(digests.get(j).getMessageDigest().digest());
+				}
+				writers.clear();
+			} finally {
+				for (Writer writer : writers)
+					writer.close();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Converts bytes to an hexadecimal string.
+	 *
+	 * @param bytes Bytes to convert.
+	 * @return Hexadecimal representation of the given bytes.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the addresses found by an extractor, in the same order as
+ * the addresses: the source (a file, or an entry of an archive), the offset
+ * (in bytes for files, in characters for text) and the line number, starting
+ * at 1. Extractors fill it, if given one, alongside the collection of
+ * addresses; the model then keeps the positions in its
+ * {@link ProvenanceIndex}.
+ *
+ * Sources are kept once per run of consecutive positions from the same
+ * source.
+ *
+ * @author Nuno Fachada
+ */
+public class SourcePositions {
+
+	/* Positions. */
+	private long[] offsets = new long[64];
+	private int[] lines = new int[64];
+	private int size;
+	/* Runs of positions from the same source: index of the first position
+	 * of each run and its source. */
+	private int[] runStarts = new int[8];
+	private String[] runSources = new String[8];
+	private int runs;
+	/* Source of the positions added next. */
+	private String source;
+
+	/**
+	 * Sets the source of the positions added next.
+	 *
+	 * @param source Name of the source.
+	 */
+	public void setSource(String source) {
+		this.source = source;
+	}
+
+	/**
+	 * Adds the position of an address.
+	 *
+	 * @param offset Offset of the address in the source.
+	 * @param line Line of the address in the source, starting at 1.
+	 */
+	public void add(long offset, int line) {
+		if ((runs == 0) || !runSources[runs - 1].equals(source)) {
+			if (runs == runStarts.length) {
+				runStarts = Arrays.copyOf(runStarts, runs * 2);
+				runSources = Arrays.copyOf(runSources, runs * 2);
+			}
+			runStarts[runs] = size;
+			runSources[runs] = source;
+			runs++;
+		}
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size * 2);
+			lines = Arrays.copyOf(lines, size * 2);
+		}
+		offsets[size] = offset;
+		lines[size] = line;
+		size++;
+	}
+
+	/**
+	 * Adds all the positions of another instance, with their sources.
+	 *
+	 * @param other Positions to add.
+	 */
+	public void addAll(SourcePositions other) {
+		String previous = source;
+		for (int i = 0; i < other.size; i++) {
+			source = other.getSource(i);
+			add(other.offsets[i], other.lines[i]);
+		}
+		source = previous;
+	}
+
+	/**
+	 * Returns the number of positions.
+	 *
+	 * @return The number of positions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the source of a position.
+	 *
+	 * @param i Index of the position.
+	 * @return The source of the position.
+	 */
+	public String getSource(int i) {
+		int run = Arrays.binarySearch(runStarts, 0, runs, i);
+		return runSources[(run >= 0) ? run : -run - 2];
+	}
+
+	/**
+	 * Returns the offset of a position.
+	 *
+	 * @param i Index of the position.
+	 * @return The offset of the position.
+	 */
+	public long getOffset(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Returns the line of a position.
+	 *
+	 * @param i Index of the position.
+	 * @return The line of the position, starting at 1.
+	 */
+	public int getLine(int i) {
+		return lines[i];
+	}
+}
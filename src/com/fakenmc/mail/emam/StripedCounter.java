@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which can be updated by many threads without locks and with
+ * little contention: each thread adds to one of several stripes, chosen by
+ * its id, and the stripes are summed when the counter is read. Each stripe
+ * has its own cache line, so that threads adding to different stripes
+ * don't slow each other down.
+ *
+ * @author Nuno Fachada
+ */
+public class StripedCounter {
+
+	/* Number of stripes, a power of two. */
+	static final int STRIPES = stripes();
+	/* Longs per stripe, so that stripes are in different cache lines. */
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	/**
+	 * Adds the given value to the counter.
+	 *
+	 * @param value Value to add.
+	 */
+	public void add(long value) {
+		cells.getAndAdd(stripe(STRIPES) * PADDING, value);
+	}
+
+	/**
+	 * Adds one to the counter.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * Returns the value of the counter. Values added while the counter is
+	 * read may or may not be counted.
+	 *
+	 * @return The value of the counter.
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++)
+			sum += cells.get(i * PADDING);
+		return sum;
+	}
+
+	/**
+	 * Sets the counter to zero.
+	 */
+	public void reset() {
+		for (int i = 0; i < STRIPES; i++)
+			cells.set(i * PADDING, 0);
+	}
+
+	/**
+	 * Returns the stripe of the current thread.
+	 *
+	 * @param stripes Number of stripes, a power of two.
+	 * @return The stripe of the current thread, between 0 and
+	 * <code>stripes - 1</code>.
+	 */
+	static int stripe(int stripes) {
+		long id = Thread.currentThread().getId();
+		/* Spread consecutive ids over the stripes. */
+		int hash = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+		return (hash >>> 16) & (stripes - 1);
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Returns the number of stripes: the number of processors, rounded up
+	 * to a power of two, and at most 64.
+	 *
+	 * @return The number of stripes.
+	 */
+	private static int stripes() {
+		int processors = Math.min(64, Runtime.getRuntime().availableProcessors());
+		int stripes = 1;
+		while (stripes < processors)
+			stripes <<= 1;
+		return stripes;
+	}
+}
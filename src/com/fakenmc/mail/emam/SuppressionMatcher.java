@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+/**
+ * Matches addresses against wildcard suppression rules, such as
+ * <code>*@competitor.com</code>, <code>noreply*@*</code> or
+ * <code>*-bounces@*.lists.org</code>. A rule has a local part and a domain
+ * part separated by '@':
+ * <ul>
+ * <li>The local part is an exact local part with at most one '*', which
+ * matches any sequence of characters (e.g. <code>*</code>, <code>noreply*</code>,
+ * <code>*-bounces</code> or <code>info*2008</code>).</li>
+ * <li>The domain part is either <code>*</code> (any domain), an exact domain
+ * (<code>competitor.com</code>) or <code>*.</code> followed by a domain
+ * (<code>*.competitor.com</code>), which matches any subdomain of the given
+ * domain, but not the domain itself.</li>
+ * </ul>
+ *
+ * Rules are compiled into a trie of reversed domain labels; each trie node
+ * keeps the local part patterns of the rules for that domain in a hash set
+ * (exact local parts), a prefix trie and a suffix trie. Matching an address
+ * walks the domain trie once and the local part tries of the visited nodes,
+ * so its cost depends on the length of the address, not on the number of
+ * rules.
+ *
+ * @author Nuno Fachada
+ */
+public class SuppressionMatcher {
+
+	/* Regular expression which rules must match. */
+	public static final String RULE_REGEXP =
+		"(?=.*\\*)[0-9a-zA-Z_.+\\-]*\\*?[0-9a-zA-Z_.+\\-]*@(\\*|(\\*\\.)?[0-9a-zA-Z\\-]+(\\.[0-9a-zA-Z\\-]+)*)";
+	/* Compiled rule regular expression. */
+	private static final Pattern RULE_PATTERN = Pattern.compile(RULE_REGEXP);
+
+	/* Rules in this matcher. */
+	private HashSet<String> rules;
+	/* Root of the domain trie; its "subdomain" patterns match any domain. */
+	private DomainNode root;
+	/* True if rules were removed and the tries must be rebuilt. */
+	private boolean dirty;
+
+	/* Node of the domain trie: one label of a domain, children by label. */
+	private static class DomainNode {
+		private HashMap<String, DomainNode> children;
+		/* Local part patterns for rules on exactly this domain. */
+		private LocalPatterns exact;
+		/* Local part patterns for rules on subdomains of this domain. */
+		private LocalPatterns subdomains;
+	}
+
+	/* Local part patterns of the rules for one domain pattern. */
+	private static class LocalPatterns {
+		/* Rules with no wildcard in the local part, by local part. */
+		private HashMap<String, String> exact = new HashMap<String, String>();
+		/* Rule with "*" as local part, if any. */
+		private String any;
+		/* Patterns of the form "prefix*" and "prefix*suffix". */
+		private CharNode prefixes;
+		/* Patterns of the form "*suffix", with the suffix reversed. */
+		private CharNode suffixes;
+
+		private boolean isEmpty() {
+			return (any == null) && exact.isEmpty() && (prefixes == null) && (suffixes == null);
+		}
+	}
+
+	/* Node of a character trie. */
+	private static class CharNode {
+		private HashMap<Character, CharNode> children;
+		/* Rule whose pattern ends at this node, if any. */
+		private String terminal;
+		/* For "prefix*suffix" patterns ending at this node, the suffixes... */
+		private ArrayList<String> suffixes;
+		/* ...and their rules. */
+		private ArrayList<String> suffixRules;
+
+		private CharNode child(char c, boolean create) {
+			CharNode node = (children == null) ? null : children.get(c);
+			if ((node == null) && create) {
+				if (children == null)
+					children = new HashMap<Character, CharNode>(4);
+				node = new CharNode();
+				children.put(c, node);
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Creates an empty matcher.
+	 */
+	public SuppressionMatcher() {
+		rules = new HashSet<String>();
+		root = new DomainNode();
+		dirty = false;
+	}
+
+	/**
+	 * Returns true if the given string is a suppression rule, i.e. if it
+	 * contains a wildcard and has the syntax described in this class.
+	 *
+	 * @param str String to check.
+	 * @return True if the given string is a suppression rule.
+	 */
+	public static boolean isRule(String str) {
+		return (str.indexOf('*') >= 0) && RULE_PATTERN.matcher(str).matches();
+	}
+
+	/**
+	 * Adds a rule to the matcher.
+	 *
+	 * @param rule A rule (see {@link #isRule(String)}).
+	 */
+	public void add(String rule) {
+		if (rules.add(rule) && !dirty)
+			compile(rule);
+	}
+
+	/**
+	 * Removes a rule from the matcher.
+	 *
+	 * @param rule A rule previously added to the matcher.
+	 */
+	public void remove(String rule) {
+		if (rules.remove(rule))
+			dirty = true;
+	}
+
+	/**
+	 * Removes all rules from the matcher.
+	 */
+	public void clear() {
+		rules.clear();
+		root = new DomainNode();
+		dirty = false;
+	}
+
+	/**
+	 * Returns the number of rules in the matcher.
+	 *
+	 * @return The number of rules in the matcher.
+	 */
+	public int size() {
+		return rules.size();
+	}
+
+	/**
+	 * Returns true if the given address matches any rule.
+	 *
+	 * @param address An address in lower case.
+	 * @return True if the given address matches any rule, false otherwise.
+	 */
+	public boolean matches(String address) {
+		return findRule(address) != null;
+	}
+
+	/**
+	 * Returns a rule which matches the given address, e.g. to tell the user
+	 * why the address is suppressed.
+	 *
+	 * @param address An address in lower case.
+	 * @return A rule which matches the given address, or null if none does.
+	 */
+	public String findRule(String address) {
+		if (rules.isEmpty())
+			return null;
+		if (dirty)
+			rebuild();
+		int at = address.lastIndexOf('@');
+		if (at < 0)
+			return null;
+		String localPart = address.substring(0, at);
+		/* Rules for any domain. */
+		String rule = find(root.subdomains, localPart);
+		if (rule != null)
+			return rule;
+		/* Walk the domain labels from right to left. */
+		DomainNode node = root;
+		int end = address.length();
+		while (end > at + 1) {
+			int dot = address.lastIndexOf('.', end - 1);
+			int start = Math.max(dot, at) + 1;
+			if (node.children == null)
+				return null;
+			node = node.children.get(address.substring(start, end));
+			if (node == null)
+				return null;
+			end = start - 1;
+			if (end > at) {
+				/* There are more labels, so this is a subdomain of the node. */
+				rule = find(node.subdomains, localPart);
+				if (rule != null)
+					return rule;
+			} else {
+				return find(node.exact, localPart);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a matcher with a single rule, e.g. to find out which addresses
+	 * of a list are matched by a new rule.
+	 *
+	 * @param rule A rule (see {@link #isRule(String)}).
+	 * @return A matcher with the given rule.
+	 */
+	public static SuppressionMatcher forRule(String rule) {
+		SuppressionMatcher matcher = new SuppressionMatcher();
+		matcher.add(rule);
+		return matcher;
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Rebuilds the tries from the current rules.
+	 */
+	private void rebuild() {
+		root = new DomainNode();
+		dirty = false;
+		for (String rule : rules)
+			compile(rule);
+	}
+
+	/**
+	 * Adds a rule to the tries.
+	 *
+	 * @param rule Rule to add.
+	 */
+	private void compile(String rule) {
+		int at = rule.lastIndexOf('@');
+		String localPattern = rule.substring(0, at);
+		String domainPattern = rule.substring(at + 1);
+		LocalPatterns patterns;
+		if (domainPattern.equals("*")) {
+			if (root.subdomains == null)
+				root.subdomains = new LocalPatterns();
+			patterns = root.subdomains;
+		} else {
+			boolean subdomains = domainPattern.startsWith("*.");
+			if (subdomains)
+				domainPattern = domainPattern.substring(2);
+			/* Insert labels from right to left. */
+			DomainNode node = root;
+			String[] labels = domainPattern.split("\\.");
+			for (int i = labels.length - 1; i >= 0; i--) {
+				if (node.children == null)
+					node.children = new HashMap<String, DomainNode>(4);
+				DomainNode child = node.children.get(labels[i]);
+				if (child == null) {
+					child = new DomainNode();
+					node.children.put(labels[i], child);
+				}
+				node = child;
+			}
+			if (subdomains) {
+				if (node.subdomains == null)
+					node.subdomains = new LocalPatterns();
+				patterns = node.subdomains;
+			} else {
+				if (node.exact == null)
+					node.exact = new LocalPatterns();
+				patterns = node.exact;
+			}
+		}
+		/* Add local part pattern. */
+		int star = localPattern.indexOf('*');
+		if (star < 0) {
+			patterns.exact.put(localPattern, rule);
+		} else if (localPattern.length() == 1) {
+			patterns.any = rule;
+		} else if (star == 0) {
+			if (patterns.suffixes == null)
+				patterns.suffixes = new CharNode();
+			CharNode node = patterns.suffixes;
+			for (int i = localPattern.length() - 1; i > 0; i--)
+				node = node.child(localPattern.charAt(i), true);
+			node.terminal = rule;
+		} else {
+			if (patterns.prefixes == null)
+				patterns.prefixes = new CharNode();
+			CharNode node = patterns.prefixes;
+			for (int i = 0; i < star; i++)
+				node = node.child(localPattern.charAt(i), true);
+			if (star == localPattern.length() - 1) {
+				node.terminal = rule;
+			} else {
+				if (node.suffixes == null) {
+					node.suffixes = new ArrayList<String>(1);
+					node.suffixRules = new ArrayList<String>(1);
+				}
+				node.suffixes.add(localPattern.substring(star + 1));
+				node.suffixRules.add(rule);
+			}
+		}
+	}
+
+	/**
+	 * Returns the rule of a pattern, among the given ones, which matches the
+	 * given local part.
+	 *
+	 * @param patterns Local part patterns, possibly null.
+	 * @param localPart Local part of an address.
+	 * @return The rule of a matching pattern, or null if none matches.
+	 */
+	private static String find(LocalPatterns patterns, String localPart) {
+		if ((patterns == null) || patterns.isEmpty())
+			return null;
+		if (patterns.any != null)
+			return patterns.any;
+		String rule = patterns.exact.get(localPart);
+		if (rule != null)
+			return rule;
+		/* Walk the prefix trie along the local part. */
+		CharNode node = patterns.prefixes;
+		for (int i = 0; node != null; i++) {
+			if (node.terminal != null)
+				return node.terminal;
+			if (node.suffixes != null) {
+				for (int j = 0; j < node.suffixes.size(); j++) {
+					String suffix = node.suffixes.get(j);
+					if ((localPart.length() - i >= suffix.length()) && localPart.endsWith(suffix))
+						return node.suffixRules.get(j);
+				}
+			}
+			if (i == localPart.length())
+				break;
+			node = node.child(localPart.charAt(i), false);
+		}
+		/* Walk the suffix trie backwards along the local part. */
+		node = patterns.suffixes;
+		for (int i = localPart.length() - 1; node != null; i--) {
+			if (node.terminal != null)
+				return node.terminal;
+			if (i < 0)
+				break;
+			node = node.child(localPart.charAt(i), false);
+		}
+		return null;
+	}
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Finds addresses which are probably misspelled, by comparing them with the
+ * addresses of a reference list (usually the mailing list). Two kinds of
+ * misspellings are found, both at one edit (a character inserted, deleted,
+ * replaced, or two adjacent characters swapped) from a known spelling:
+ * <ul>
+ * <li>Domain typos, such as <code>gmial.com</code>: a domain which is not
+ * known, but is one edit away from a known domain. Known domains are a few
+ * popular mail providers and the domains with at least
+ * {@link #MIN_KNOWN_COUNT} addresses in the reference list.</li>
+ * <li>Near duplicates, such as <code>jonh.smith@example.com</code>: an
+ * address whose local part is one edit away from the local part of an
+ * address of the reference list at the same domain.</li>
+ * </ul>
+ * Addresses which are in the reference list are not near duplicates.
+ * Inserting, deleting or replacing digits is not taken as a typo, since
+ * such addresses usually belong to different people (<code>ana</code>,
+ * <code>ana1</code> and <code>ana2</code>).
+ *
+ * Known domains are found with a deletion neighbourhood: each known domain
+ * is indexed by itself and by each of its one character deletions, so that
+ * a domain one edit away shares at least one of these with it. The result
+ * for each domain is kept, so a domain is only looked up once however many
+ * addresses it has.
+ *
+ * Near duplicates are found with a partition index over the local parts of
+ * each domain: a local part one edit away from another shares with it
+ * either the first half or the second half but one character, which are
+ * looked up by hash and then checked. Only the domains of the checked
+ * addresses are indexed, one at a time.
+ *
+ * @author Nuno Fachada
+ */
+public class TypoDetector {
+
+	/** A domain one edit away from a known domain. */
+	public static final int DOMAIN_TYPO = 0;
+	/** A local part one edit away from an address at the same domain. */
+	public static final int NEAR_DUPLICATE = 1;
+
+	/** Minimum number of addresses of a domain in the reference list for the
+	 * domain to be known. */
+	public static final int MIN_KNOWN_COUNT = 10;
+	/* Shorter domains and local parts have too many neighbours at one edit
+	 * to tell typos from different names. */
+	private static final int MIN_DOMAIN_LENGTH = 7;
+	private static final int MIN_LOCAL_LENGTH = 4;
+	/* Popular mail providers, known even if absent from the reference list. */
+	private static final String[] POPULAR = {
+		"gmail.com", "googlemail.com", "hotmail.com", "hotmail.co.uk",
+		"hotmail.fr", "outlook.com", "live.com", "msn.com", "yahoo.com",
+		"yahoo.co.uk", "yahoo.fr", "yahoo.com.br", "ymail.com", "aol.com",
+		"icloud.com", "mail.com", "email.com", "gmx.com", "gmx.net", "web.de",
+		"protonmail.com", "yandex.ru", "mail.ru", "comcast.net", "verizon.net",
+		"sapo.pt", "clix.pt", "netcabo.pt", "mail.telepac.pt", "uol.com.br",
+		"bol.com.br", "terra.com.br", "orange.fr", "free.fr", "libero.it"
+	};
+
+	/* Reference list. */
+	private DomainIndex index;
+	private int list;
+	/* Known domains with their number of addresses, and the known domains of
+	 * each deletion. */
+	private HashMap<String, Integer> known = new HashMap<String, Integer>();
+	private HashMap<String, ArrayList<String>> deletions = new HashMap<String, ArrayList<String>>();
+	/* Correction of each domain looked up, or the domain itself if it's not a
+	 * typo. */
+	private HashMap<String, String> corrections = new HashMap<String, String>();
+
+	/**
+	 * A probably misspelled address.
+	 */
+	public static class Suspect {
+		private String address;
+		private int kind;
+		private String suggestion;
+
+		private Suspect(String address, int kind, String suggestion) {
+			this.address = address;
+			this.kind = kind;
+			this.suggestion = suggestion;
+		}
+
+		/**
+		 * Returns the misspelled address.
+		 *
+		 * @return The misspelled address.
+		 */
+		public String getAddress() {
+			return address;
+		}
+
+		/**
+		 * Returns the kind of misspelling, {@link TypoDetector#DOMAIN_TYPO} or
+		 * {@link TypoDetector#NEAR_DUPLICATE}.
+		 *
+		 * @return The kind of misspelling.
+		 */
+		public int getKind() {
+			return kind;
+		}
+
+		/**
+		 * Returns the probably intended address: the address at the known
+		 * domain, or the address of the reference list.
+		 *
+		 * @return The probably intended address.
+		 */
+		public String getSuggestion() {
+			return suggestion;
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			return address + " -> " + suggestion;
+		}
+	}
+
+	/**
+	 * Creates a detector comparing addresses with those of a list.
+	 *
+	 * @param index Domain index with the reference list.
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 */
+	public TypoDetector(DomainIndex index, int list) {
+		this.index = index;
+		this.list = list;
+		for (String domain : POPULAR)
+			addKnown(domain, Math.max(MIN_KNOWN_COUNT, index.getCount(list, domain)));
+		for (String domain : index.getDomains(list)) {
+			int count = index.getCount(list, domain);
+			if (count >= MIN_KNOWN_COUNT)
+				addKnown(domain, count);
+		}
+	}
+
+	/**
+	 * Checks the given addresses, returning the probably misspelled ones.
+	 *
+	 * @param addresses Addresses to check.
+	 * @return The probably misspelled addresses, sorted by address.
+	 */
+	public List<Suspect> check(String[] addresses) {
+		/* Group the addresses by domain, so each domain is indexed once. */
+		HashMap<String, ArrayList<String>> byDomain = new HashMap<String, ArrayList<String>>();
+		for (String address : addresses) {
+			if (SuppressionMatcher.isRule(address))
+				continue;
+			String domain = DomainIndex.domainOf(address);
+			ArrayList<String> localParts = byDomain.get(domain);
+			if (localParts == null) {
+				localParts = new ArrayList<String>();
+				byDomain.put(domain, localParts);
+			}
+			localParts.add(DomainIndex.localPartOf(address));
+		}
+		ArrayList<Suspect> suspects = new ArrayList<Suspect>();
+		for (Map.Entry<String, ArrayList<String>> entry : byDomain.entrySet()) {
+			String domain = entry.getKey();
+			String correction = correct(domain);
+			if (correction != null) {
+				for (String localPart : entry.getValue())
+					suspects.add(new Suspect(localPart + "@" + domain, DOMAIN_TYPO,
+							localPart + "@" + correction));
+				continue;
+			}
+			SortedSet<String> referenced = index.getAddresses(list, domain);
+			if (referenced.isEmpty())
+				continue;
+			String[] referencedParts = new String[referenced.size()];
+			int n = 0;
+			for (String address : referenced)
+				referencedParts[n++] = DomainIndex.localPartOf(address);
+			Partitions partitions = new Partitions(referencedParts);
+			for (String localPart : entry.getValue()) {
+				String address = localPart + "@" + domain;
+				if (referenced.contains(address))
+					continue;
+				String neighbour = partitions.find(localPart);
+				if (neighbour != null)
+					suspects.add(new Suspect(address, NEAR_DUPLICATE,
+							neighbour + "@" + domain));
+			}
+		}
+		Collections.sort(suspects, new Comparator<Suspect>() {
+			public int compare(Suspect s1, Suspect s2) {
+				return s1.address.compareTo(s2.address);
+			}
+		});
+		return suspects;
+	}
+
+	/**
+	 * Returns whether two texts are exactly one edit apart, i.e. one
+	 * character inserted, deleted or replaced, or two adjacent characters
+	 * swapped. Inserting or deleting a digit, or replacing a digit by
+	 * another, doesn't count as an edit.
+	 *
+	 * @param a A text.
+	 * @param b Another text.
+	 * @return True if the texts are one edit apart, false otherwise.
+	 */
+	public static boolean isOneEditApart(String a, String b) {
+		int la = a.length(), lb = b.length();
+		if (Math.abs(la - lb) > 1)
+			return false;
+		int i = 0;
+		int shorter = Math.min(la, lb);
+		while ((i < shorter) && (a.charAt(i) == b.charAt(i)))
+			i++;
+		if (la != lb) {
+			/* Insertion or deletion at the first difference. */
+			return (la > lb) 
+				? !Character.isDigit(a.charAt(i)) && a.regionMatches(i + 1, b, i, lb - i)
+				: !Character.isDigit(b.charAt(i)) && b.regionMatches(i + 1, a, i, la - i);
+		}
+		if (i == la)
+			return false;
+		if (a.regionMatches(i + 1, b, i + 1, la - i - 1))
+			return !(Character.isDigit(a.charAt(i)) && Character.isDigit(b.charAt(i)));
+		/* Swap of the character at the first difference with the next one. */
+		return (i + 1 < la) && (a.charAt(i) == b.charAt(i + 1))
+				&& (a.charAt(i + 1) == b.charAt(i))
+				&& a.regionMatches(i + 2, b, i + 2, la - i - 2);
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Adds a known domain, indexing it by its deletions.
+	 *
+	 * @param domain A known domain.
+	 * @param count Number of addresses of the domain.
+	 */
+	private void addKnown(String domain, int count) {
+		if ((domain.length() < MIN_DOMAIN_LENGTH) || known.containsKey(domain))
+			return;
+		known.put(domain, count);
+		addDeletion(domain, domain);
+		for (int i = 0; i < domain.length(); i++)
+			addDeletion(deletion(domain, i), domain);
+	}
+
+	/**
+	 * Indexes a known domain by one of its deletions.
+	 *
+	 * @param deletion The domain or one of its deletions.
+	 * @param domain A known domain.
+	 */
+	private void addDeletion(String deletion, String domain) {
+		ArrayList<String> domains = deletions.get(deletion);
+		if (domains == null) {
+			domains = new ArrayList<String>(1);
+			deletions.put(deletion, domains);
+		} else if (domains.contains(domain)) {
+			return;
+		}
+		domains.add(domain);
+	}
+
+	/**
+	 * Returns the known domain which the given domain is a typo of.
+	 *
+	 * @param domain A domain.
+	 * @return The known domain with most addresses one edit away, or null if
+	 * the domain is known or there's none.
+	 */
+	private String correct(String domain) {
+		String correction = corrections.get(domain);
+		if (correction == null) {
+			correction = domain;
+			if (!known.containsKey(domain) && (domain.length() >= MIN_DOMAIN_LENGTH - 1)) {
+				int best = 0;
+				for (int i = -1; i < domain.length(); i++) {
+					ArrayList<String> domains = deletions.get((i < 0) ? domain : deletion(domain, i));
+					if (domains == null)
+						continue;
+					for (String candidate : domains) {
+						int count = known.get(candidate);
+						if ((count > best) && isOneEditApart(domain, candidate)) {
+							best = count;
+							correction = candidate;
+						}
+					}
+				}
+			}
+			corrections.put(domain, correction);
+		}
+		return correction.equals(domain) ? null : correction;
+	}
+
+	/**
+	 * Returns a text without one of its characters.
+	 *
+	 * @param text A text.
+	 * @param i Position of the character to delete.
+	 * @return The text without the character.
+	 */
+	private static String deletion(String text, int i) {
+		return text.substring(0, i) + text.substring(i + 1);
+	}
+
+	/**
+	 * Partition index of the local parts of a domain. If two texts of
+	 * lengths m and n are one edit apart, with k half of the smallest length,
+	 * then either their first k characters are equal (the edit is after
+	 * them), or their last min(m, n) - k - 1 characters are (the edit is
+	 * before them). Each local part of length m is therefore indexed by the
+	 * hash of these two parts for the two smallest lengths it may have with
+	 * a neighbour, m - 1 and m, and a text of length n is looked up by those
+	 * for the lengths n - 1, n and n + 1 of its possible neighbours.
+	 */
+	private static class Partitions {
+		/* Local parts. */
+		private String[] localParts;
+		/* Hash table of the parts: first entry of each slot, and hash, local
+		 * part and next entry of the slot, by entry. */
+		private int[] slots;
+		private long[] hashes;
+		private int[] ids;
+		private int[] next;
+		private int size;
+
+		private Partitions(String[] localParts) {
+			this.localParts = localParts;
+			int capacity = Integer.highestOneBit(Math.max(16, localParts.length * 4)) * 2;
+			slots = new int[capacity];
+			Arrays.fill(slots, -1);
+			hashes = new long[localParts.length * 4];
+			ids = new int[hashes.length];
+			next = new int[hashes.length];
+			for (int id = 0; id < localParts.length; id++) {
+				String localPart = localParts[id];
+				int m = localPart.length();
+				for (int min = m - 1; min <= m; min++) {
+					if (min < MIN_LOCAL_LENGTH)
+						continue;
+					put(prefix(localPart, m, min), id);
+					put(suffix(localPart, m, min), id);
+				}
+			}
+		}
+
+		/**
+		 * Returns a local part one edit away from the given one.
+		 *
+		 * @param localPart A local part.
+		 * @return A local part one edit away, or null if there's none.
+		 */
+		private String find(String localPart) {
+			int n = localPart.length();
+			for (int m = n - 1; m <= n + 1; m++) {
+				int min = Math.min(m, n);
+				if (min < MIN_LOCAL_LENGTH)
+					continue;
+				String found = find(localPart, prefix(localPart, m, min));
+				if (found == null)
+					found = find(localPart, suffix(localPart, m, min));
+				if (found != null)
+					return found;
+			}
+			return null;
+		}
+
+		/**
+		 * Returns a local part with the given hash one edit away from the
+		 * given one.
+		 */
+		private String find(String localPart, long hash) {
+			for (int e = slots[slot(hash)]; e >= 0; e = next[e])
+				if ((hashes[e] == hash) && isOneEditApart(localPart, localParts[ids[e]]))
+					return localParts[ids[e]];
+			return null;
+		}
+
+		private void put(long hash, int id) {
+			int slot = slot(hash);
+			hashes[size] = hash;
+			ids[size] = id;
+			next[size] = slots[slot];
+			slots[slot] = size++;
+		}
+
+		private int slot(long hash) {
+			return (int) (hash ^ (hash >>> 32)) & (slots.length - 1);
+		}
+
+		/* Hash of the first half of a text of length m, for a neighbour of
+		 * smallest length min. */
+		private static long prefix(String text, int m, int min) {
+			return hash(text, 0, min / 2, ((long) m << 32) | (min << 1));
+		}
+
+		/* Hash of the second half but one character of a text of length m,
+		 * for a neighbour of smallest length min. */
+		private static long suffix(String text, int m, int min) {
+			int length = min - min / 2 - 1;
+			return hash(text, text.length() - length, text.length(), ((long) m << 32) | (min << 1) | 1);
+		}
+
+		/* FNV-1a hash of part of a text, seeded with a tag. */
+		private static long hash(String text, int from, int to, long tag) {
+			long h = 0xcbf29ce484222325L ^ (tag * 0x9e3779b97f4a7c15L);
+			for (int i = from; i < to; i++) {
+				h ^= text.charAt(i);
+				h *= 0x100000001b3L;
+			}
+			return h ^ (h >>> 29);
+		}
+	}
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Undo and redo history of the model, kept as compact records of the
+ * changes made to the lists instead of copies of the lists. Each edit (one
+ * operation of the model) is the sequence of addresses added to and removed
+ * from the lists and of return counts changed, so its memory is
+ * proportional to the number of addresses changed and not to the size of
+ * the lists: one byte, one reference and, for the returned list, one
+ * <code>int</code> per change, plus the removed addresses which aren't in
+ * the lists anymore, and are kept only by the history.
+ *
+ * An edit is undone by making the inverse changes, in reverse order, which
+ * are recorded as the edit to redo (and the other way around). The depth
+ * of the history is bounded by its memory: when it grows over the budget,
+ * the oldest edits are forgotten, and an edit larger than the whole budget
+ * empties the history.
+ *
+ * The model records its changes with {@link #added(int, String)},
+ * {@link #removed(int, String, int)} and {@link #countChanged(String, int)},
+ * and ends each edit with {@link #commit()}. Changes made between
+ * {@link #begin()} and {@link #end()} belong to the same edit, even if
+ * commit is called in between.
+ *
+ * @author Nuno Fachada
+ */
+public class UndoLog {
+
+	/* Kinds of change, kept in the high bits of each change, with the list
+	 * in the low bits. */
+	private static final int ADDED = 0;
+	private static final int REMOVED = 1 << 2;
+	private static final int COUNT = 2 << 2;
+	private static final int LIST_MASK = 3;
+	/* Estimated memory of a change, and of an address kept only by the
+	 * history (besides its characters). */
+	private static final int CHANGE_BYTES = 13;
+	private static final int ADDRESS_BYTES = 48;
+
+	/**
+	 * Target of the changes made when undoing and redoing, i.e. the model.
+	 */
+	public interface Target {
+
+		/**
+		 * Adds an address to a list.
+		 *
+		 * @param list A list constant in <code>EMaMModelInterface</code>.
+		 * @param address Address to add.
+		 * @param count Return count, for the returned list.
+		 */
+		public void add(int list, String address, int count);
+
+		/**
+		 * Removes an address from a list.
+		 *
+		 * @param list A list constant in <code>EMaMModelInterface</code>.
+		 * @param address Address to remove.
+		 */
+		public void remove(int list, String address);
+
+		/**
+		 * Sets the return count of an address of the returned list.
+		 *
+		 * @param address Address of the returned list.
+		 * @param count New return count.
+		 */
+		public void setCount(String address, int count);
+	}
+
+	/* Changes of an edit. */
+	private static class Edit {
+		private byte[] changes = new byte[16];
+		private String[] addresses = new String[16];
+		/* Return counts, only allocated if needed. */
+		private int[] counts;
+		private int size;
+		private long bytes;
+	}
+
+	/* Edits to undo (last is the most recent) and to redo (last is the
+	 * next one). */
+	private ArrayDeque<Edit> undo = new ArrayDeque<Edit>();
+	private ArrayDeque<Edit> redo = new ArrayDeque<Edit>();
+	/* Edit being recorded. */
+	private Edit pending = new Edit();
+	/* If true, the pending edit exceeded the budget and was dropped. */
+	private boolean overflow;
+	/* Memory of all the edits, and memory budget. */
+	private long bytes;
+	private long budget;
+	/* Nesting of begin and end calls. */
+	private int depth;
+	private boolean recording = true;
+
+	/**
+	 * Creates an empty history.
+	 *
+	 * @param budget Memory budget of the history, in bytes.
+	 */
+	public UndoLog(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Records an address added to a list.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param address The added address.
+	 */
+	public void added(int list, String address) {
+		record(ADDED | list, address, 0);
+	}
+
+	/**
+	 * Records an address removed from a list.
+	 *
+	 * @param list A list constant in <code>EMaMModelInterface</code>.
+	 * @param address The removed address.
+	 * @param count Return count of the address, for the returned list.
+	 */
+	public void removed(int list, String address, int count) {
+		record(REMOVED | list, address, count);
+	}
+
+	/**
+	 * Records a change of the return count of an address.
+	 *
+	 * @param address An address of the returned list.
+	 * @param previous Return count before the change.
+	 */
+	public void countChanged(String address, int previous) {
+		record(COUNT | EMaMModelInterface.RETURNED_LIST, address, previous);
+	}
+
+	/**
+	 * Starts a group of changes which are undone as one edit.
+	 */
+	public void begin() {
+		depth++;
+	}
+
+	/**
+	 * Ends a group of changes started by {@link #begin()}. The changes are
+	 * kept as one edit by the next {@link #commit()}.
+	 */
+	public void end() {
+		depth--;
+	}
+
+	/**
+	 * Ends the edit being recorded, unless in a group of changes, and
+	 * forgets the edits which could be redone.
+	 */
+	public void commit() {
+		if ((depth > 0) || ((pending.size == 0) && !overflow))
+			return;
+		forget(redo);
+		if (!overflow)
+			overflow = !seal(pending);
+		if (overflow) {
+			/* The history can't go back past this edit. */
+			forget(undo);
+			overflow = false;
+		} else {
+			undo.addLast(pending);
+			bytes += pending.bytes;
+		}
+		pending = new Edit();
+		trim();
+	}
+
+	/**
+	 * Undoes the last edit.
+	 *
+	 * @param target Where to make the changes.
+	 * @return True if an edit was undone, false if there was none.
+	 */
+	public boolean undo(Target target) {
+		return replay(undo, redo, target);
+	}
+
+	/**
+	 * Redoes the last edit undone.
+	 *
+	 * @param target Where to make the changes.
+	 * @return True if an edit was redone, false if there was none.
+	 */
+	public boolean redo(Target target) {
+		return replay(redo, undo, target);
+	}
+
+	/**
+	 * Returns true if there is an edit to undo.
+	 *
+	 * @return True if there is an edit to undo.
+	 */
+	public boolean canUndo() {
+		return !undo.isEmpty() || (pending.size > 0);
+	}
+
+	/**
+	 * Returns true if there is an edit to redo.
+	 *
+	 * @return True if there is an edit to redo.
+	 */
+	public boolean canRedo() {
+		return !redo.isEmpty() && (pending.size == 0);
+	}
+
+	/**
+	 * Turns recording of changes on or off, e.g. while loading a file.
+	 *
+	 * @param recording True to record changes.
+	 */
+	public void setRecording(boolean recording) {
+		this.recording = recording;
+	}
+
+	/**
+	 * Sets the memory budget of the history, forgetting the oldest edits if
+	 * they don't fit in it.
+	 *
+	 * @param budget Memory budget, in bytes.
+	 */
+	public void setBudget(long budget) {
+		this.budget = budget;
+		trim();
+	}
+
+	/**
+	 * Returns the estimated memory of the history.
+	 *
+	 * @return Estimated memory of the history, in bytes.
+	 */
+	public long getBytes() {
+		return bytes + pending.bytes;
+	}
+
+	/**
+	 * Forgets all edits.
+	 */
+	public void clear() {
+		undo.clear();
+		redo.clear();
+		pending = new Edit();
+		overflow = false;
+		bytes = 0;
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Adds a change to the edit being recorded.
+	 *
+	 * @param change Kind of change and list.
+	 * @param address Address changed.
+	 * @param count Return count, if any.
+	 */
+	private void record(int change, String address, int count) {
+		if (!recording || overflow)
+			return;
+		Edit edit = pending;
+		/* The memory of the changes alone is known, that of the removed 
+		 * addresses only when the edit ends. */
+		if (edit.bytes + CHANGE_BYTES > budget) {
+			/* Too large to be undone, drop it now instead of at commit. */
+			overflow = true;
+			pending = new Edit();
+			return;
+		}
+		if (edit.size == edit.changes.length) {
+			int capacity = edit.size * 2;
+			edit.changes = Arrays.copyOf(edit.changes, capacity);
+			edit.addresses = Arrays.copyOf(edit.addresses, capacity);
+			if (edit.counts != null)
+				edit.counts = Arrays.copyOf(edit.counts, capacity);
+		}
+		if ((count != 0) && (edit.counts == null))
+			edit.counts = new int[edit.changes.length];
+		edit.changes[edit.size] = (byte) change;
+		edit.addresses[edit.size] = address;
+		if (edit.counts != null)
+			edit.counts[edit.size] = count;
+		edit.size++;
+		edit.bytes += CHANGE_BYTES;
+	}
+
+	/**
+	 * Trims the arrays of an ended edit to its size, and sets its estimated
+	 * memory: its changes, and the addresses it removed from the lists and
+	 * didn't put back, e.g. in another list.
+	 *
+	 * @param edit An edit.
+	 * @return True if the edit fits in the budget.
+	 */
+	private boolean seal(Edit edit) {
+		edit.changes = Arrays.copyOf(edit.changes, edit.size);
+		edit.addresses = Arrays.copyOf(edit.addresses, edit.size);
+		if (edit.counts != null)
+			edit.counts = Arrays.copyOf(edit.counts, edit.size);
+		IdentityHashMap<String, Boolean> added = new IdentityHashMap<String, Boolean>();
+		for (int i = 0; i < edit.size; i++)
+			if ((edit.changes[i] & ~LIST_MASK) == ADDED)
+				added.put(edit.addresses[i], Boolean.TRUE);
+		long bytes = (long) edit.size * CHANGE_BYTES;
+		for (int i = 0; i < edit.size; i++)
+			if (((edit.changes[i] & ~LIST_MASK) == REMOVED) 
+					&& !added.containsKey(edit.addresses[i]))
+				bytes += ADDRESS_BYTES + 2 * edit.addresses[i].length();
+		edit.bytes = bytes;
+		return bytes <= budget;
+	}
+
+	/**
+	 * Makes the inverse changes of the last edit of a history, recording
+	 * them as the last edit of the other history.
+	 *
+	 * @param from History of the edit to replay.
+	 * @param to History where to record the inverse edit.
+	 * @param target Where to make the changes.
+	 * @return True if an edit was replayed, false if there was none.
+	 */
+	private boolean replay(ArrayDeque<Edit> from, ArrayDeque<Edit> to, Target target) {
+		/* Changes made since the last commit are an edit too. */
+		commit();
+		Edit edit = from.pollLast();
+		if (edit == null)
+			return false;
+		bytes -= edit.bytes;
+		for (int i = edit.size - 1; i >= 0; i--) {
+			int list = edit.changes[i] & LIST_MASK;
+			String address = edit.addresses[i];
+			int count = (edit.counts != null) ? edit.counts[i] : 0;
+			switch (edit.changes[i] & ~LIST_MASK) {
+			case ADDED:
+				target.remove(list, address);
+				break;
+			case REMOVED:
+				target.add(list, address, count);
+				break;
+			case COUNT:
+				target.setCount(address, count);
+				break;
+			}
+		}
+		if (!overflow)
+			overflow = !seal(pending);
+		if (overflow) {
+			/* The inverse edit didn't fit, so there's no going back. */
+			overflow = false;
+			forget(to);
+		} else {
+			to.addLast(pending);
+			bytes += pending.bytes;
+		}
+		pending = new Edit();
+		trim();
+		return true;
+	}
+
+	/**
+	 * Forgets all the edits of a history.
+	 *
+	 * @param history Edits to undo or to redo.
+	 */
+	private void forget(ArrayDeque<Edit> history) {
+		for (Edit edit : history)
+			bytes -= edit.bytes;
+		history.clear();
+	}
+
+	/**
+	 * Forgets the oldest edits, to undo first and then to redo, until the
+	 * history fits in the budget.
+	 */
+	private void trim() {
+		while ((bytes > budget) && !undo.isEmpty())
+			bytes -= undo.pollFirst().bytes;
+		while ((bytes > budget) && !redo.isEmpty())
+			bytes -= redo.pollFirst().bytes;
+	}
+}
@@ -0,0 +1,699 @@
+/*
+ * Copyright (c) 2008, Nuno Fachada
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, 
+ * are permitted provided that the following conditions are met:
+ *
+ *   * Redistributions of source code must retain the above copyright notice, 
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice, 
+ *     this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *   * Neither the name of the FakenMC.com nor the names of its contributors 
+ *     may be used to endorse or promote products derived from this software without 
+ *     specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY 
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES 
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, 
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.fakenmc.mail.emam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Workspace with any number of named mailing lists which share one removed
+ * list (addresses and suppression rules) and one returned list, e.g. the
+ * lists of several newsletters with a global suppression list. Addresses
+ * are kept once, in an {@link AddressDictionary}, and each list is a set
+ * of ids, one bit per address of the dictionary, so an address in many
+ * lists costs one bit in each.
+ *
+ * As in the model, the mailing lists and the removed list are mutually
+ * exclusive: addresses in the removed list, or matched by one of its
+ * rules, can't be added to any mailing list, and addresses in a mailing
+ * list can't be added to the removed list.
+ *
+ * Workspaces are saved in text files with a section for each mailing list
+ * (<code>[List name]</code>) followed by the removed and returned lists,
+ * as in .emam files. A mailing list can be imported from an .emam file,
+ * and exported to one with the shared lists, to be edited in eMaM.
+ * Addresses which are in no list stay in the dictionary until the
+ * workspace is saved and opened again.
+ *
+ * @author Nuno Fachada
+ */
+public class Workspace {
+
+	/* Section headers. */
+	private static final String LIST = "[List ";
+	private static final String REMOVED = "[Removed]";
+	private static final String RETURNED = "[Returned]";
+
+	private AddressDictionary dictionary;
+	/* Mailing lists, by name. */
+	private TreeMap<String, BitSet> lists = new TreeMap<String, BitSet>();
+	/* Shared removed list: addresses and suppression rules. */
+	private BitSet removed = new BitSet();
+	private TreeSet<String> rules = new TreeSet<String>();
+	private SuppressionMatcher suppressionRules = new SuppressionMatcher();
+	/* Shared returned list, and return counts by id. */
+	private BitSet returned = new BitSet();
+	private int[] returnCounts = new int[1024];
+	/* Report of the last import. */
+	private String report;
+
+	/**
+	 * Creates an empty workspace, with the address canonicalizer given by
+	 * the <code>canonicalizer</code> property (see {@link EMaMModel}).
+	 */
+	public Workspace() {
+		this(EMaMModel.createCanonicalizer());
+	}
+
+	/**
+	 * Creates an empty workspace with the given address canonicalizer.
+	 *
+	 * @param canonicalizer Canonicalization stage for incoming addresses.
+	 */
+	public Workspace(AddressCanonicalizer canonicalizer) {
+		dictionary = new AddressDictionary(canonicalizer);
+	}
+
+	/**
+	 * Returns the dictionary of the workspace's addresses.
+	 *
+	 * @return The dictionary of the workspace's addresses.
+	 */
+	public AddressDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Returns the names of the mailing lists, sorted.
+	 *
+	 * @return The names of the mailing lists.
+	 */
+	public String[] getListNames() {
+		return lists.keySet().toArray(new String[lists.size()]);
+	}
+
+	/**
+	 * Returns true if there is a mailing list with the given name.
+	 *
+	 * @param name A list name.
+	 * @return True if there is a mailing list with the given name.
+	 */
+	public boolean hasList(String name) {
+		return lists.containsKey(name);
+	}
+
+	/**
+	 * Creates an empty mailing list.
+	 *
+	 * @param name Name of the list, which can't have ']' or line breaks.
+	 * @throws IllegalArgumentException If the name is not valid or there's
+	 * already a list with the name.
+	 */
+	public void createList(String name) {
+		if ((name.length() == 0) || (name.indexOf(']') >= 0)
+				|| (name.indexOf('\n') >= 0) || (name.indexOf('\r') >= 0))
+			throw new IllegalArgumentException("Invalid list name: " + name);
+		if (lists.containsKey(name))
+			throw new IllegalArgumentException("List already exists: " + name);
+		lists.put(name, new BitSet());
+	}
+
+	/**
+	 * Deletes a mailing list.
+	 *
+	 * @param name Name of the list.
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	public void deleteList(String name) {
+		getList(name);
+		lists.remove(name);
+	}
+
+	/**
+	 * Returns the number of addresses in a mailing list.
+	 *
+	 * @param name Name of the list.
+	 * @return The number of addresses in the list.
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	public int getListSize(String name) {
+		return getList(name).cardinality();
+	}
+
+	/**
+	 * Returns the number of addresses and rules in the removed list.
+	 *
+	 * @return The number of addresses and rules in the removed list.
+	 */
+	public int getRemovedSize() {
+		return removed.cardinality() + rules.size();
+	}
+
+	/**
+	 * Returns the number of addresses in the returned list.
+	 *
+	 * @return The number of addresses in the returned list.
+	 */
+	public int getReturnedSize() {
+		return returned.cardinality();
+	}
+
+	/**
+	 * Adds addresses to a mailing list.
+	 *
+	 * @param name Name of the list.
+	 * @param addresses Addresses to add.
+	 * @return The number of addresses added, i.e. not in the list yet.
+	 * @throws MutualExclusionException If any of the addresses is in the
+	 * removed list or matched by one of its rules; no address is added.
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	public int addToList(String name, String[] addresses)
+	throws MutualExclusionException {
+		BitSet list = getList(name);
+		String[] normalized = normalize(addresses);
+		ArrayList<String> problems = new ArrayList<String>();
+		for (String address : normalized)
+			if (SuppressionMatcher.isRule(address) || isSuppressed(address))
+				problems.add(address);
+		if (!problems.isEmpty())
+			throw new MutualExclusionException(problems.toArray(new String[problems.size()]));
+		int added = 0;
+		for (String address : normalized) {
+			int id = dictionary.add(address);
+			if (!list.get(id)) {
+				list.set(id);
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Deletes addresses from a mailing list.
+	 *
+	 * @param name Name of the list.
+	 * @param addresses Addresses to delete.
+	 * @return The number of addresses deleted, i.e. which were in the list.
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	public int delFromList(String name, String[] addresses) {
+		BitSet list = getList(name);
+		int deleted = 0;
+		for (String address : normalize(addresses)) {
+			int id = dictionary.find(address);
+			if ((id >= 0) && list.get(id)) {
+				list.clear(id);
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Adds addresses and suppression rules to the removed list.
+	 *
+	 * @param addresses Addresses and rules to add.
+	 * @throws MutualExclusionException If any of the addresses is in a
+	 * mailing list, or any of the rules matches addresses in a mailing list
+	 * (which are given in the exception); nothing is added.
+	 */
+	public void addToRemoved(String[] addresses) throws MutualExclusionException {
+		String[] normalized = normalize(addresses);
+		BitSet listed = getListed();
+		ArrayList<String> problems = new ArrayList<String>();
+		for (String address : normalized) {
+			if (SuppressionMatcher.isRule(address)) {
+				SuppressionMatcher rule = SuppressionMatcher.forRule(address);
+				for (int id = listed.nextSetBit(0); id >= 0; id = listed.nextSetBit(id + 1))
+					if (rule.matches(dictionary.get(id)))
+						problems.add(dictionary.get(id));
+			} else {
+				int id = dictionary.find(address);
+				if ((id >= 0) && listed.get(id))
+					problems.add(address);
+			}
+		}
+		if (!problems.isEmpty())
+			throw new MutualExclusionException(problems.toArray(new String[problems.size()]));
+		for (String address : normalized)
+			addToRemoved(address);
+	}
+
+	/**
+	 * Deletes addresses and suppression rules from the removed list.
+	 *
+	 * @param addresses Addresses and rules to delete.
+	 */
+	public void delFromRemoved(String[] addresses) {
+		for (String address : normalize(addresses)) {
+			if (SuppressionMatcher.isRule(address)) {
+				if (rules.remove(address))
+					suppressionRules.remove(address);
+			} else {
+				int id = dictionary.find(address);
+				if (id >= 0)
+					removed.clear(id);
+			}
+		}
+	}
+
+	/**
+	 * Increments the return count of addresses, adding them to the
+	 * returned list if necessary.
+	 *
+	 * @param addresses Addresses which were returned.
+	 */
+	public void incrementReturned(String[] addresses) {
+		for (String address : normalize(addresses)) {
+			int id = dictionary.add(address);
+			setReturned(id, (returned.get(id) ? returnCounts[id] : 0) + 1);
+		}
+	}
+
+	/**
+	 * Deletes addresses from the returned list.
+	 *
+	 * @param addresses Addresses to delete.
+	 */
+	public void delFromReturned(String[] addresses) {
+		for (String address : normalize(addresses)) {
+			int id = dictionary.find(address);
+			if ((id >= 0) && returned.get(id)) {
+				returned.clear(id);
+				returnCounts[id] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the return count of an address.
+	 *
+	 * @param address An address.
+	 * @return The return count of the address, or 0 if it's not in the
+	 * returned list.
+	 */
+	public int getNumberOfReturns(String address) {
+		int id = dictionary.find(dictionary.getCanonicalizer().normalize(address));
+		return ((id >= 0) && returned.get(id)) ? returnCounts[id] : 0;
+	}
+
+	/**
+	 * Moves the addresses returned more than the given number of times from
+	 * all mailing lists and the returned list to the removed list.
+	 *
+	 * @param n Number of returns.
+	 * @return The number of addresses moved.
+	 */
+	public int processReturned(int n) {
+		BitSet moved = new BitSet();
+		for (int id = returned.nextSetBit(0); id >= 0; id = returned.nextSetBit(id + 1)) {
+			if (returnCounts[id] > n) {
+				moved.set(id);
+				returnCounts[id] = 0;
+			}
+		}
+		for (BitSet list : lists.values())
+			list.andNot(moved);
+		returned.andNot(moved);
+		removed.or(moved);
+		return moved.cardinality();
+	}
+
+	/**
+	 * Returns true if the given address is in the removed list or matched
+	 * by one of its rules.
+	 *
+	 * @param address A normalized address.
+	 * @return True if the address is suppressed.
+	 */
+	public boolean isSuppressed(String address) {
+		int id = dictionary.find(address);
+		return ((id >= 0) && removed.get(id)) || suppressionRules.matches(address);
+	}
+
+	/**
+	 * Returns the addresses of a mailing list, sorted.
+	 *
+	 * @param name Name of the list.
+	 * @return The addresses of the list.
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	public String[] getAddresses(String name) {
+		return addresses(getList(name), null);
+	}
+
+	/**
+	 * Returns the addresses and rules of the removed list, sorted.
+	 *
+	 * @return The addresses and rules of the removed list.
+	 */
+	public String[] getRemovedAddresses() {
+		return addresses(removed, rules);
+	}
+
+	/**
+	 * Returns the addresses of the returned list, sorted.
+	 *
+	 * @return The addresses of the returned list.
+	 */
+	public String[] getReturnedAddresses() {
+		return addresses(returned, null);
+	}
+
+	/**
+	 * Returns a report of the last import, with the number of addresses
+	 * added, suppressed and removed from other lists.
+	 *
+	 * @return Report of the last import, or null if nothing was imported.
+	 */
+	public String getReport() {
+		return report;
+	}
+
+	/**
+	 * Imports an .emam file: its mailing list is added to the given
+	 * mailing list (created if needed), and its removed and returned lists
+	 * to the shared ones (return counts are added). Addresses of the file's
+	 * mailing list which are suppressed by the shared removed list are not
+	 * added, and addresses of the other mailing lists which are suppressed
+	 * by the file's removed list are deleted from them, so that the
+	 * suppression stays global. The extracted list is ignored.
+	 *
+	 * @param file An .emam file.
+	 * @param name Name of the mailing list.
+	 * @return The number of addresses added to the mailing list.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidStringException If the file has an invalid address.
+	 * @throws InvalidFileFormatException If the file is not an .emam file.
+	 */
+	public int importEmam(File file, String name) throws FileNotFoundException,
+	IOException, InvalidStringException, InvalidFileFormatException {
+		EMaMModel model = new EMaMModel(dictionary.getCanonicalizer());
+		model.openFile(file);
+		if (!lists.containsKey(name))
+			createList(name);
+		BitSet list = lists.get(name);
+		/* Shared lists first, so that they apply to the new addresses. */
+		int rulesBefore = rules.size();
+		BitSet removedBefore = (BitSet) removed.clone();
+		Iterator<String> iter = model.getAddressIterator(EMaMModelInterface.REMOVED_LIST);
+		while (iter.hasNext())
+			addToRemoved(iter.next());
+		Iterator<Map.Entry<String, Integer>> returnedIter = model.getReturnedIterator();
+		while (returnedIter.hasNext()) {
+			Map.Entry<String, Integer> entry = returnedIter.next();
+			int id = dictionary.add(entry.getKey());
+			setReturned(id, (returned.get(id) ? returnCounts[id] : 0) + entry.getValue());
+		}
+		int added = 0, suppressed = 0;
+		iter = model.getAddressIterator(EMaMModelInterface.MAIL_LIST);
+		while (iter.hasNext()) {
+			String address = iter.next();
+			if (isSuppressed(address)) {
+				suppressed++;
+			} else {
+				int id = dictionary.add(address);
+				if (!list.get(id)) {
+					list.set(id);
+					added++;
+				}
+			}
+		}
+		/* Addresses suppressed only now, in the other lists. */
+		BitSet newlyRemoved = (BitSet) removed.clone();
+		newlyRemoved.andNot(removedBefore);
+		int deleted = 0;
+		for (BitSet other : lists.values()) {
+			deleted += other.cardinality();
+			other.andNot(newlyRemoved);
+			if (rules.size() > rulesBefore)
+				for (int id = other.nextSetBit(0); id >= 0; id = other.nextSetBit(id + 1))
+					if (suppressionRules.matches(dictionary.get(id)))
+						other.clear(id);
+			deleted -= other.cardinality();
+		}
+		report = String.format("%d addresses added to %s, %d suppressed, %d deleted from other lists",
+				added, name, suppressed, deleted);
+		return added;
+	}
+
+	/**
+	 * Exports a mailing list, with the shared removed and returned lists,
+	 * to an .emam file. The extracted list of the file is empty.
+	 *
+	 * @param name Name of the mailing list.
+	 * @param file File where to export.
+	 * @throws IOException @see java.io.IOException
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	public void exportEmam(String name, File file) throws IOException {
+		BitSet list = getList(name);
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		try {
+			writeSection(bw, "[Mail]", addresses(list, null), false);
+			writeSection(bw, REMOVED, getRemovedAddresses(), false);
+			writeSection(bw, RETURNED, getReturnedAddresses(), true);
+			writeSection(bw, "[Extracted]", new String[0], false);
+		} finally {
+			bw.close();
+		}
+	}
+
+	/**
+	 * Saves the workspace in the given file.
+	 *
+	 * @param file File where to save the workspace.
+	 * @throws IOException @see java.io.IOException
+	 */
+	public void save(File file) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+		try {
+			for (Map.Entry<String, BitSet> entry : lists.entrySet())
+				writeSection(bw, LIST + entry.getKey() + "]",
+						addresses(entry.getValue(), null), false);
+			writeSection(bw, REMOVED, getRemovedAddresses(), false);
+			writeSection(bw, RETURNED, getReturnedAddresses(), true);
+		} finally {
+			bw.close();
+		}
+	}
+
+	/**
+	 * Replaces the contents of the workspace with those saved in the given
+	 * file.
+	 *
+	 * @param file File where the workspace was saved.
+	 * @throws FileNotFoundException @see java.io.FileNotFoundException
+	 * @throws IOException @see java.io.IOException
+	 * @throws InvalidStringException If the file has an invalid address.
+	 * @throws InvalidFileFormatException If the file is not in the format
+	 * written by {@link #save(File)}.
+	 */
+	public void open(File file) throws FileNotFoundException, IOException,
+	InvalidStringException, InvalidFileFormatException {
+		dictionary = new AddressDictionary(dictionary.getCanonicalizer());
+		lists.clear();
+		removed = new BitSet();
+		rules.clear();
+		suppressionRules.clear();
+		returned = new BitSet();
+		returnCounts = new int[1024];
+		report = null;
+		Pattern pattern = (EMaM.getProperties() == null) ? null
+				: Pattern.compile(EMaM.getProperties().getProperty("regexp"));
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			String section = null;
+			BitSet list = null;
+			for (int i = 1; (line = br.readLine()) != null; i++) {
+				line = line.trim();
+				if (line.startsWith(LIST) && line.endsWith("]")) {
+					section = LIST;
+					String name = line.substring(LIST.length(), line.length() - 1);
+					try {
+						createList(name);
+					} catch (IllegalArgumentException iae) {
+						throw new InvalidFileFormatException("(" + i + ") " + line);
+					}
+					list = lists.get(name);
+				} else if (line.equals(REMOVED) || line.equals(RETURNED)) {
+					/* The constants, compared by reference below. */
+					section = line.equals(REMOVED) ? REMOVED : RETURNED;
+				} else if (section == null) {
+					throw new InvalidFileFormatException("(1) ?");
+				} else if (line.length() > 0) {
+					String address = line;
+					int count = 0;
+					if (section == RETURNED) {
+						String[] fields = line.split(" ");
+						try {
+							count = Integer.parseInt(fields[1]);
+						} catch (RuntimeException re) {
+							/* Missing field or invalid number. */
+							throw new InvalidFileFormatException("(" + i + ") " + line);
+						}
+						address = fields[0];
+					}
+					address = dictionary.getCanonicalizer().normalize(address);
+					if ((section == REMOVED) && SuppressionMatcher.isRule(address)) {
+						addToRemoved(address);
+						continue;
+					}
+					if ((pattern != null) && !pattern.matcher(address).matches())
+						throw new InvalidStringException("(" + i + ") " + line);
+					int id = dictionary.add(address);
+					if (section == LIST)
+						list.set(id);
+					else if (section == REMOVED)
+						removed.set(id);
+					else
+						setReturned(id, (returned.get(id) ? returnCounts[id] : 0) + count);
+				}
+			}
+		} finally {
+			br.close();
+		}
+	}
+
+	/* ********************************************** */
+	/*                PRIVATE METHODS                 */
+	/* ********************************************** */
+
+	/**
+	 * Returns a mailing list.
+	 *
+	 * @param name Name of the list.
+	 * @return The ids of the addresses of the list.
+	 * @throws IllegalArgumentException If there's no list with the name.
+	 */
+	private BitSet getList(String name) {
+		BitSet list = lists.get(name);
+		if (list == null)
+			throw new IllegalArgumentException("No such list: " + name);
+		return list;
+	}
+
+	/**
+	 * Returns the addresses which are in any mailing list.
+	 *
+	 * @return The ids of the addresses in any mailing list.
+	 */
+	private BitSet getListed() {
+		BitSet listed = new BitSet();
+		for (BitSet list : lists.values())
+			listed.or(list);
+		return listed;
+	}
+
+	/**
+	 * Adds an address or rule to the removed list, without checking the
+	 * mailing lists.
+	 *
+	 * @param address A normalized address or rule.
+	 */
+	private void addToRemoved(String address) {
+		if (SuppressionMatcher.isRule(address)) {
+			if (rules.add(address))
+				suppressionRules.add(address);
+		} else {
+			removed.set(dictionary.add(address));
+		}
+	}
+
+	/**
+	 * Sets the return count of an address, adding it to the returned list
+	 * if necessary.
+	 *
+	 * @param id Id of the address.
+	 * @param count The new return count.
+	 */
+	private void setReturned(int id, int count) {
+		if (id >= returnCounts.length)
+			returnCounts = Arrays.copyOf(returnCounts, Math.max(id + 1, returnCounts.length * 2));
+		returnCounts[id] = count;
+		returned.set(id);
+	}
+
+	/**
+	 * Returns the addresses of a set of ids, and the given rules, sorted.
+	 *
+	 * @param ids Ids of the addresses.
+	 * @param rules Rules, or null.
+	 * @return The addresses and rules, sorted.
+	 */
+	private String[] addresses(BitSet ids, TreeSet<String> rules) {
+		String[] addresses = new String[ids.cardinality() + ((rules == null) ? 0 : rules.size())];
+		int n = 0;
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+			addresses[n++] = dictionary.get(id);
+		if (rules != null)
+			for (String rule : rules)
+				addresses[n++] = rule;
+		Arrays.sort(addresses);
+		return addresses;
+	}
+
+	/**
+	 * Writes a section of a workspace or .emam file.
+	 *
+	 * @param bw Writer.
+	 * @param header Section header.
+	 * @param addresses Addresses of the section, sorted.
+	 * @param counts True to write the return count of each address.
+	 * @throws IOException @see java.io.IOException
+	 */
+	private void writeSection(BufferedWriter bw, String header, String[] addresses,
+			boolean counts) throws IOException {
+		bw.write(header);
+		bw.newLine();
+		for (String address : addresses) {
+			bw.write(address);
+			if (counts)
+				bw.write(" " + returnCounts[dictionary.find(address)]);
+			bw.newLine();
+		}
+	}
+
+	/**
+	 * Normalizes addresses, as the model does.
+	 *
+	 * @param addresses Addresses as given.
+	 * @return The normalized addresses.
+	 */
+	private String[] normalize(String[] addresses) {
+		String[] normalized = new String[addresses.length];
+		for (int i = 0; i < addresses.length; i++)
+			normalized[i] = dictionary.getCanonicalizer().normalize(addresses[i]);
+		return normalized;
+	}
+}